@@ -5,10 +5,13 @@
  */
 package anuj;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.FileOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JFileChooser;
@@ -126,32 +129,48 @@ public class OCRConversion extends javax.swing.JFrame {
     }//GEN-LAST:event_jButton1ActionPerformed
 
     private void jButton3ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton3ActionPerformed
-        String result="";
         System.out.println(path);
         File imagefile = new File(path);
         Tesseract instance = Tesseract.getInstance();
-        try{
-        result = instance.doOCR(imagefile);
-        }
-        catch(Exception e){}
-        //System.out.println(result);
-        PrintWriter writer = null;
+        Writer writer = null;
         try {
-            writer = new PrintWriter(store_path+".txt", "UTF-8");
-        } catch (FileNotFoundException ex) {
-            Logger.getLogger(OCRConversion.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (UnsupportedEncodingException ex) {
+            // pages are written as they are recognized, with the platform's line endings
+            writer = new FilterWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(store_path + ".txt"), "UTF-8"))) {
+                @Override
+                public void write(int c) throws IOException {
+                    if (c == '\n') {
+                        out.write(System.getProperty("line.separator"));
+                    } else {
+                        out.write(c);
+                    }
+                }
+
+                @Override
+                public void write(char[] cbuf, int off, int len) throws IOException {
+                    for (int i = off; i < off + len; i++) {
+                        write(cbuf[i]);
+                    }
+                }
+
+                @Override
+                public void write(String str, int off, int len) throws IOException {
+                    for (int i = off; i < off + len; i++) {
+                        write(str.charAt(i));
+                    }
+                }
+            };
+            instance.doOCR(imagefile, null, writer);
+        } catch (Exception ex) {
             Logger.getLogger(OCRConversion.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ex) {
+                    Logger.getLogger(OCRConversion.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
         }
-        String[] splited = result.split("\n");
-        int j=0;
-        while(j<splited.length){
-            writer.println(splited[j]);
-            j++;
-        }
-            
-        //writer.println(result);
-        writer.close();
         JOptionPane.showMessageDialog(null, "CONVERTED !!");
     }//GEN-LAST:event_jButton3ActionPerformed
 
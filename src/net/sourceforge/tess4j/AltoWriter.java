@@ -0,0 +1,207 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import net.sourceforge.tess4j.ITessAPI.TessPageIteratorLevel;
+
+/**
+ * Writes structured OCR results as ALTO XML, version 3, through a streaming
+ * XML writer.
+ * <br>
+ * Blocks become <code>ComposedBlock</code> elements, paragraphs
+ * <code>TextBlock</code>, text lines <code>TextLine</code> and words
+ * <code>String</code>, separated by <code>SP</code>. Coordinates are in
+ * pixels of the original images; word confidences are scaled to the 0 to 1
+ * range of the <code>WC</code> attribute. Elements are numbered through the
+ * whole document, so their IDs stay unique across pages.
+ */
+public class AltoWriter implements ResultWriter {
+
+    static final String NAMESPACE = "http://www.loc.gov/standards/alto/ns-v3#";
+
+    private static final String[] ELEMENTS = {"ComposedBlock", "TextBlock", "TextLine", "String"};
+    private static final String[] ID_PREFIXES = {"cblock_", "block_", "line_", "word_"};
+
+    private final Writer out;
+    private final XMLStreamWriter xml;
+    private final String sourceImage;
+    private final int[] box = new int[4];
+    // next ID number at each level
+    private final int[] ids = new int[4];
+    private int pageCount;
+
+    /**
+     * Creates a writer.
+     *
+     * @param out receives the document; closed by {@link #close()}
+     * @param sourceImage file name of the images, recorded in the
+     * description; may be <code>null</code>
+     * @throws IOException
+     */
+    public AltoWriter(Writer out, String sourceImage) throws IOException {
+        this.out = out;
+        this.sourceImage = sourceImage;
+        try {
+            xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void writeHeader() throws XMLStreamException {
+        xml.writeStartDocument("UTF-8", "1.0");
+        xml.writeCharacters("\n");
+        xml.writeStartElement("alto");
+        xml.writeDefaultNamespace(NAMESPACE);
+        xml.writeCharacters("\n");
+        xml.writeStartElement("Description");
+        xml.writeStartElement("MeasurementUnit");
+        xml.writeCharacters("pixel");
+        xml.writeEndElement();
+        xml.writeStartElement("sourceImageInformation");
+        xml.writeStartElement("fileName");
+        xml.writeCharacters(sourceImage != null ? sourceImage : "");
+        xml.writeEndElement();
+        xml.writeEndElement();
+        xml.writeStartElement("OCRProcessing");
+        xml.writeAttribute("ID", "OCR_0");
+        xml.writeStartElement("ocrProcessingStep");
+        xml.writeStartElement("processingSoftware");
+        xml.writeStartElement("softwareName");
+        xml.writeCharacters("tess4j");
+        xml.writeEndElement();
+        xml.writeEndElement();
+        xml.writeEndElement();
+        xml.writeEndElement();
+        xml.writeEndElement();
+        xml.writeCharacters("\n");
+        xml.writeStartElement("Layout");
+        xml.writeCharacters("\n");
+    }
+
+    /**
+     * Writes a page. The result must have been collected down to words at
+     * least.
+     *
+     * @param result the result holding the page
+     * @param page index of the page in <code>result</code>
+     * @throws IOException
+     */
+    @Override
+    public void writePage(OCRResult result, int page) throws IOException {
+        if (result.getFinestLevel() < TessPageIteratorLevel.RIL_WORD) {
+            throw new IllegalArgumentException("The result has no words.");
+        }
+
+        try {
+            if (pageCount == 0) {
+                writeHeader();
+            }
+            result.getBox(OCRResult.PAGE, page, box, 0);
+            xml.writeStartElement("Page");
+            xml.writeAttribute("ID", "page_" + pageCount);
+            xml.writeAttribute("PHYSICAL_IMG_NR", String.valueOf(pageCount + 1));
+            xml.writeAttribute("WIDTH", String.valueOf(box[2] - box[0]));
+            xml.writeAttribute("HEIGHT", String.valueOf(box[3] - box[1]));
+            xml.writeStartElement("PrintSpace");
+            writeBox();
+            xml.writeCharacters("\n");
+
+            // cursors of the next element at each level; children follow their parents in order
+            int[] next = new int[4];
+            int[] end = new int[4];
+            for (int level = 0; level < 4; level++) {
+                next[level] = result.getFirstIndex(page, level);
+                end[level] = result.getFirstIndex(page + 1, level);
+            }
+            while (next[0] < end[0]) {
+                writeElement(result, TessPageIteratorLevel.RIL_BLOCK, next[0]++, next, end);
+            }
+
+            xml.writeEndElement();
+            xml.writeEndElement();
+            xml.writeCharacters("\n");
+            xml.flush();
+            pageCount++;
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void writeElement(OCRResult result, int level, int index, int[] next, int[] end) throws XMLStreamException {
+        result.getBox(level, index, box, 0);
+        if (level == TessPageIteratorLevel.RIL_WORD) {
+            xml.writeEmptyElement(ELEMENTS[level]);
+        } else {
+            xml.writeStartElement(ELEMENTS[level]);
+        }
+        xml.writeAttribute("ID", ID_PREFIXES[level] + ids[level]++);
+        writeBox();
+
+        if (level == TessPageIteratorLevel.RIL_WORD) {
+            float confidence = result.getConfidence(level, index);
+            if (confidence >= 0) {
+                xml.writeAttribute("WC", String.format(Locale.ROOT, "%.2f", confidence / 100));
+            }
+            xml.writeAttribute("CONTENT", result.getText(level, index));
+            return;
+        }
+
+        int child = level + 1;
+        boolean first = true;
+        while (next[child] < end[child] && result.getParent(child, next[child]) == index) {
+            if (child == TessPageIteratorLevel.RIL_WORD && !first) {
+                xml.writeEmptyElement("SP");
+            }
+            writeElement(result, child, next[child]++, next, end);
+            first = false;
+        }
+        xml.writeEndElement();
+        if (level <= TessPageIteratorLevel.RIL_TEXTLINE) {
+            xml.writeCharacters("\n");
+        }
+    }
+
+    private void writeBox() throws XMLStreamException {
+        xml.writeAttribute("HPOS", String.valueOf(box[0]));
+        xml.writeAttribute("VPOS", String.valueOf(box[1]));
+        xml.writeAttribute("WIDTH", String.valueOf(box[2] - box[0]));
+        xml.writeAttribute("HEIGHT", String.valueOf(box[3] - box[1]));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (pageCount == 0) {
+                writeHeader();
+            }
+            xml.writeEndElement();
+            xml.writeCharacters("\n");
+            xml.writeEndElement();
+            xml.writeCharacters("\n");
+            xml.writeEndDocument();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+        out.close();
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import com.sun.jna.Pointer;
+import java.awt.Rectangle;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+import net.sourceforge.tess4j.ITessAPI.TessPageSegMode;
+import net.sourceforge.tess4j.ITessAPI.TessPolyBlockType;
+
+/**
+ * Recognizes the text blocks of a page concurrently. Layout analysis runs
+ * once, on the handle the page is set on; every text block is then handed to
+ * a pooled handle as a sub-buffer of the page pixels and recognized as a
+ * single block. Image, line and noise blocks are skipped. The text of the
+ * blocks is put together in the reading order found by layout analysis.
+ * <br>
+ * Blocks are recognized on the threads of the handle pool. A recognizer
+ * holds no state of its own between pages, and is kept for as long as its
+ * pool.
+ */
+class BlockRecognizer {
+
+    private final HandlePool pool;
+    private final int defaultPageSegMode;
+
+    /**
+     * Creates a recognizer.
+     *
+     * @param pool engine handles
+     * @param defaultPageSegMode page segmentation mode the pooled handles are
+     * restored to after use
+     */
+    BlockRecognizer(HandlePool pool, int defaultPageSegMode) {
+        this.pool = pool;
+        this.defaultPageSegMode = defaultPageSegMode;
+    }
+
+    /**
+     * @return the handle pool the blocks are recognized on
+     */
+    HandlePool getPool() {
+        return pool;
+    }
+
+    /**
+     * Checks whether blocks of a type hold text to be recognized.
+     *
+     * @param blockType a <code>TessPolyBlockType</code> value
+     * @return false for image, line and noise blocks
+     */
+    static boolean isText(int blockType) {
+        switch (blockType) {
+            case TessPolyBlockType.PT_FLOWING_IMAGE:
+            case TessPolyBlockType.PT_HEADING_IMAGE:
+            case TessPolyBlockType.PT_PULLOUT_IMAGE:
+            case TessPolyBlockType.PT_HORZ_LINE:
+            case TessPolyBlockType.PT_VERT_LINE:
+            case TessPolyBlockType.PT_NOISE:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Collects the text blocks of a page layout, in reading order.
+     *
+     * @param layout the page layout
+     * @param types receives the block type of every block returned
+     * @return the bounding boxes of the text blocks
+     */
+    static List<Rectangle> getTextBlocks(PageLayout layout, List<Integer> types) {
+        List<Rectangle> blocks = new ArrayList<Rectangle>();
+        for (int b = 0; b < layout.getBlockCount(); b++) {
+            Rectangle r = layout.getBlockBounds(b);
+            if (layout.isTextBlock(b) && !r.isEmpty()) {
+                blocks.add(r);
+                types.add(layout.getBlockType(b));
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Recognizes blocks of a page.
+     *
+     * @param pixels page pixels, in a direct buffer
+     * @param width page width
+     * @param height page height
+     * @param bpp bits per pixel: 1, 8, 24 or 32
+     * @param blocks the blocks to recognize, in reading order
+     * @param types the block types
+     * @param dpi resolution of the page; 0 if unknown
+     * @return the text of the blocks, in order
+     * @throws TesseractException
+     */
+    String recognize(final ByteBuffer pixels, final int width, final int height, final int bpp, List<Rectangle> blocks, List<Integer> types, final int dpi) throws TesseractException {
+        List<Callable<String>> jobs = new ArrayList<Callable<String>>(blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            final Rectangle block = blocks.get(i).intersection(new Rectangle(width, height));
+            final int type = types.get(i);
+            if (block.isEmpty()) {
+                continue;
+            }
+            jobs.add(new Callable<String>() {
+
+                @Override
+                public String call() throws Exception {
+                    return recognizeBlock(pixels, width, bpp, block, type, dpi);
+                }
+            });
+        }
+
+        StringBuilder sb = new StringBuilder();
+        try {
+            for (Future<String> future : pool.getExecutor().invokeAll(jobs)) {
+                sb.append(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TesseractException(e);
+        } catch (ExecutionException e) {
+            throw new TesseractException(e.getCause());
+        }
+        return sb.toString();
+    }
+
+    private String recognizeBlock(ByteBuffer pixels, int width, int bpp, Rectangle block, int type, int dpi) throws InterruptedException {
+        int mode = type == TessPolyBlockType.PT_VERTICAL_TEXT ? TessPageSegMode.PSM_SINGLE_BLOCK_VERT_TEXT : TessPageSegMode.PSM_SINGLE_BLOCK;
+        return recognizeRegion(pool, pixels, width, bpp, block, mode, defaultPageSegMode, dpi);
+    }
+
+    /**
+     * Recognizes a region of a page on a pooled handle, passing the region as
+     * a sub-buffer of the page pixels rather than a copy.
+     *
+     * @param pool engine handles
+     * @param pixels page pixels, in a direct buffer
+     * @param width page width
+     * @param bpp bits per pixel: 1, 8, 24 or 32
+     * @param region the region, within the page
+     * @param pageSegMode page segmentation mode of the region
+     * @param defaultPageSegMode page segmentation mode the handle is restored
+     * to after use
+     * @param dpi resolution of the page; 0 if unknown
+     * @return the recognized text
+     * @throws InterruptedException if interrupted while waiting for a handle
+     */
+    static String recognizeRegion(HandlePool pool, ByteBuffer pixels, int width, int bpp, Rectangle region, int pageSegMode, int defaultPageSegMode, int dpi) throws InterruptedException {
+        int bytespl = (int) Math.ceil(width * bpp / 8.0);
+        int x = region.x;
+        int w = region.width;
+        if (bpp == 1) {
+            // binary rows can only be split on byte boundaries
+            x = region.x & ~7;
+            w += region.x - x;
+        }
+        ByteBuffer view = pixels.duplicate();
+        view.position(region.y * bytespl + x * bpp / 8);
+        ByteBuffer sub = view.slice();
+
+        TessAPI api = TessAPI.INSTANCE;
+        TessBaseAPI handle = pool.acquire();
+        try {
+            api.TessBaseAPISetPageSegMode(handle, pageSegMode);
+            api.TessBaseAPISetImage(handle, sub, w, region.height, bpp / 8, bytespl);
+            if (dpi > 0) {
+                api.TessBaseAPISetSourceResolution(handle, dpi);
+            }
+            Pointer utf8Text = api.TessBaseAPIGetUTF8Text(handle);
+            if (utf8Text == null) {
+                return "";
+            }
+            String str = utf8Text.getString(0);
+            api.TessDeleteText(utf8Text);
+            return str;
+        } finally {
+            if (pageSegMode != defaultPageSegMode) {
+                api.TessBaseAPISetPageSegMode(handle, defaultPageSegMode);
+            }
+            pool.release(handle);
+        }
+    }
+}
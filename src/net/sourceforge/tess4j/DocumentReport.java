@@ -0,0 +1,105 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+/**
+ * Describes how an input file was turned into output documents: whether it
+ * succeeded, how many pages were rendered, how long it took, and what went
+ * wrong if it failed.
+ */
+public class DocumentReport {
+
+    private final String filename;
+    private final String outputbase;
+    private boolean success;
+    private int pageCount;
+    private long elapsedMillis;
+    private Exception error;
+
+    /**
+     * Creates a report for an input file.
+     *
+     * @param filename input file
+     * @param outputbase output filename without extension
+     */
+    DocumentReport(String filename, String outputbase) {
+        this.filename = filename;
+        this.outputbase = outputbase;
+    }
+
+    /**
+     * @return the input file
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * @return the output filename without extension
+     */
+    public String getOutputbase() {
+        return outputbase;
+    }
+
+    /**
+     * @return true if all pages were processed and all documents written
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    /**
+     * @return the number of pages handed to the renderers
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    void setPageCount(int pageCount) {
+        this.pageCount = pageCount;
+    }
+
+    /**
+     * @return the time taken, in milliseconds, including conversion of PDF
+     * input and writing the output
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return the cause of the failure; <code>null</code> if successful
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    void setError(Exception error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        String str = String.format("%s: %d pages in %d ms", filename, pageCount, elapsedMillis);
+        return success ? str : str + ", failed: " + error;
+    }
+}
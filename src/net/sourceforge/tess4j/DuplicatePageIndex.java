@@ -0,0 +1,260 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sourceforge.tess4j.util.PerceptualHash;
+
+/**
+ * An index of the pages recognized so far, by perceptual hash, for finding
+ * pages that were seen before: re-scans of the same page, or boilerplate
+ * pages repeated across a batch.
+ * <br>
+ * Pages filled in from the same template, which differ only in a few
+ * fields, can have the same perceptual hash: the hash cannot tell what a page
+ * says, only what it looks like. A match is therefore only a hint; the text
+ * of a page is reused only if its pixels are the same as those of the page
+ * found, by exact content hash, and results are to be reused at all.
+ * <br>
+ * The pages of each engine configuration are kept in a BK-tree over the
+ * Hamming distance between hashes, so a lookup only visits the subtrees
+ * whose distance to the query can be within the threshold. An index is
+ * thread safe and can be shared by several <code>Tesseract</code> instances.
+ */
+public class DuplicatePageIndex {
+
+    /**
+     * A page of the index.
+     */
+    public static class Page {
+
+        private final long hash;
+        private final long contentHash;
+        private final String source;
+        private final String text;
+        private int[] distances = new int[0];
+        private Page[] children = new Page[0];
+
+        Page(long hash, long contentHash, String source, String text) {
+            this.hash = hash;
+            this.contentHash = contentHash;
+            this.source = source;
+            this.text = text;
+        }
+
+        /**
+         * @return the perceptual hash
+         */
+        public long getHash() {
+            return hash;
+        }
+
+        /**
+         * @return the exact hash of the pixels
+         */
+        public long getContentHash() {
+            return contentHash;
+        }
+
+        /**
+         * @return where the page comes from, e.g., file name and page number
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return the recognized text
+         */
+        public String getText() {
+            return text;
+        }
+
+        Page getChild(int distance) {
+            for (int i = 0; i < distances.length; i++) {
+                if (distances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(int distance, Page child) {
+            int n = distances.length;
+            distances = Arrays.copyOf(distances, n + 1);
+            children = Arrays.copyOf(children, n + 1);
+            distances[n] = distance;
+            children[n] = child;
+        }
+    }
+
+    private final Map<Long, Page> roots = new HashMap<Long, Page>();
+    private int maxDistance = 6;
+    private boolean reuseResults;
+    private int size;
+    private long lookupCount;
+    private long duplicateCount;
+
+    /**
+     * Sets the largest number of differing hash bits for two pages to be
+     * considered the same.
+     *
+     * @param maxDistance the threshold, from 0 for identical hashes to 64;
+     * the default of 6 tolerates re-scans. Pages that differ only in some
+     * words, such as forms of the same template, are usually within any
+     * threshold.
+     */
+    public synchronized void setMaxDistance(int maxDistance) {
+        this.maxDistance = Math.max(0, Math.min(64, maxDistance));
+    }
+
+    /**
+     * @return the largest number of differing hash bits for a duplicate
+     */
+    public synchronized int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * Sets whether duplicates with the same pixels as the page they
+     * duplicate get its text instead of being recognized. Other duplicates
+     * are only flagged, and recognized as usual.
+     *
+     * @param reuseResults true to reuse the earlier result; false, the
+     * default, to only flag duplicates
+     */
+    public synchronized void setReuseResults(boolean reuseResults) {
+        this.reuseResults = reuseResults;
+    }
+
+    /**
+     * @return true if duplicates with the same pixels get the text of the
+     * page they duplicate
+     */
+    public synchronized boolean isReuseResults() {
+        return reuseResults;
+    }
+
+    /**
+     * Finds the page closest to a hash, within the threshold.
+     *
+     * @param hash perceptual hash of the page
+     * @param configHash fingerprint of the engine configuration
+     * @return the closest page; <code>null</code> if there is none within
+     * the threshold
+     */
+    public synchronized Page find(long hash, long configHash) {
+        lookupCount++;
+        Page root = roots.get(configHash);
+        if (root == null) {
+            return null;
+        }
+
+        Page best = null;
+        int bestDistance = maxDistance + 1;
+        Page[] stack = new Page[16];
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            Page page = stack[--top];
+            int d = PerceptualHash.distance(hash, page.hash);
+            if (d < bestDistance) {
+                best = page;
+                bestDistance = d;
+                if (d == 0) {
+                    break;
+                }
+            }
+            // triangle inequality: only children at distance d +/- the best so far can be closer
+            for (int i = 0; i < page.distances.length; i++) {
+                if (Math.abs(page.distances[i] - d) < bestDistance) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * top);
+                    }
+                    stack[top++] = page.children[i];
+                }
+            }
+        }
+
+        if (best != null) {
+            duplicateCount++;
+        }
+        return best;
+    }
+
+    /**
+     * Adds a recognized page.
+     *
+     * @param hash perceptual hash of the page
+     * @param contentHash exact hash of the pixels of the page
+     * @param configHash fingerprint of the engine configuration
+     * @param source where the page comes from
+     * @param text the recognized text
+     */
+    public synchronized void add(long hash, long contentHash, long configHash, String source, String text) {
+        Page page = new Page(hash, contentHash, source, text);
+        Page node = roots.get(configHash);
+        if (node == null) {
+            roots.put(configHash, page);
+            size++;
+            return;
+        }
+        while (true) {
+            int d = PerceptualHash.distance(hash, node.hash);
+            if (d == 0) {
+                // the same hash; the first page stays the reference
+                return;
+            }
+            Page child = node.getChild(d);
+            if (child == null) {
+                node.addChild(d, page);
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Removes all pages; the counters are kept.
+     */
+    public synchronized void clear() {
+        roots.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the number of indexed pages
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of lookups
+     */
+    public synchronized long getLookupCount() {
+        return lookupCount;
+    }
+
+    /**
+     * @return the number of lookups that found a duplicate
+     */
+    public synchronized long getDuplicateCount() {
+        return duplicateCount;
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+
+import net.sourceforge.tess4j.ITessAPI.TessPageSegMode;
+import net.sourceforge.tess4j.ZoneTemplate.Zone;
+import net.sourceforge.tess4j.util.ImageHelper;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+
+/**
+ * Extracts the fields of forms laid out by a {@link ZoneTemplate}.
+ * <br>
+ * The zones of the template are grouped by the language and whitelist they
+ * need; every group is served by its own pool of handles, initialized once
+ * with that configuration and kept across forms until {@link #close()}. A
+ * form is converted to grayscale once; each zone is then handed to a handle
+ * of its group as a sub-buffer of the page, with its own page segmentation
+ * mode, and zones are recognized concurrently.
+ */
+public class FormRecognizer {
+
+    private final ZoneTemplate template;
+    private String datapath = "./";
+    private String language = "eng";
+    private int ocrEngineMode = ITessAPI.TessOcrEngineMode.OEM_DEFAULT;
+    private int pageSegMode = TessPageSegMode.PSM_SINGLE_BLOCK;
+    private int parallelism = 1;
+    private int dpi;
+    // engines, and so handle pools, by configuration key
+    private final Map<String, Tesseract> engines = new HashMap<String, Tesseract>();
+
+    private final static Logger logger = Logger.getLogger(FormRecognizer.class.getName());
+
+    /**
+     * Creates a recognizer.
+     *
+     * @param template the form template
+     */
+    public FormRecognizer(ZoneTemplate template) {
+        this.template = template;
+    }
+
+    /**
+     * Sets tessdata path.
+     *
+     * @param datapath the tessdata path to set
+     */
+    public synchronized void setDatapath(String datapath) {
+        this.datapath = datapath;
+        close();
+    }
+
+    /**
+     * Sets language of zones without their own.
+     *
+     * @param language the language code, which follows ISO 639-3 standard.
+     */
+    public synchronized void setLanguage(String language) {
+        this.language = language;
+        close();
+    }
+
+    /**
+     * Sets OCR engine mode.
+     *
+     * @param ocrEngineMode the OcrEngineMode to set
+     */
+    public synchronized void setOcrEngineMode(int ocrEngineMode) {
+        this.ocrEngineMode = ocrEngineMode;
+        close();
+    }
+
+    /**
+     * Sets page segmentation mode of zones without their own; the default is
+     * <code>PSM_SINGLE_BLOCK</code>.
+     *
+     * @param mode the page segmentation mode to set
+     */
+    public synchronized void setPageSegMode(int mode) {
+        this.pageSegMode = mode;
+    }
+
+    /**
+     * Sets the number of zones recognized concurrently, which is also the
+     * size of the handle pool of each configuration.
+     *
+     * @param parallelism the number of concurrent handles
+     */
+    public synchronized void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        close();
+    }
+
+    /**
+     * Sets the resolution of the forms, which is otherwise estimated on each
+     * zone.
+     *
+     * @param dpi the resolution; 0 if unknown
+     */
+    public synchronized void setSourceResolution(int dpi) {
+        this.dpi = dpi;
+    }
+
+    /**
+     * Extracts the fields of a form.
+     *
+     * @param imageFile an image file; only its first page is used
+     * @return the text of each zone, trimmed, keyed by zone label in template
+     * order
+     * @throws TesseractException
+     */
+    public Map<String, String> recognize(File imageFile) throws TesseractException {
+        try {
+            BufferedImage bi = ImageIO.read(imageFile);
+            if (bi == null) {
+                bi = (BufferedImage) ImageIOHelper.getIIOImageList(imageFile).get(0).getRenderedImage();
+            }
+            return recognize(bi);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Extracts the fields of a form.
+     *
+     * @param bi the form image, in the coordinates of the template
+     * @return the text of each zone, trimmed, keyed by zone label in template
+     * order
+     * @throws TesseractException
+     */
+    public Map<String, String> recognize(BufferedImage bi) throws TesseractException {
+        final int width = bi.getWidth();
+        final int height = bi.getHeight();
+        final ByteBuffer pixels = ImageIOHelper.convertImageData(ImageHelper.createGrayscaleImage(ImageHelper.getGrayscaleBytes(bi), width, height));
+        final int resolution;
+        final int defaultMode;
+        int threads;
+        synchronized (this) {
+            resolution = dpi;
+            defaultMode = pageSegMode;
+            threads = parallelism;
+        }
+
+        List<Zone> zones = template.getZones();
+        List<Callable<String>> jobs = new ArrayList<Callable<String>>(zones.size());
+        for (final Zone zone : zones) {
+            final HandlePool pool = getHandlePool(zone);
+            final Rectangle region = zone.getBounds().intersection(new Rectangle(width, height));
+            final int mode = zone.getPageSegMode() > -1 ? zone.getPageSegMode() : defaultMode;
+            jobs.add(new Callable<String>() {
+
+                @Override
+                public String call() throws Exception {
+                    if (region.isEmpty()) {
+                        return "";
+                    }
+                    return BlockRecognizer.recognizeRegion(pool, pixels, width, 8, region, mode, TessPageSegMode.PSM_SINGLE_BLOCK, resolution).trim();
+                }
+            });
+        }
+
+        Map<String, String> fields = new LinkedHashMap<String, String>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, jobs.size())));
+        try {
+            List<Future<String>> futures = executor.invokeAll(jobs);
+            for (int i = 0; i < zones.size(); i++) {
+                fields.put(zones.get(i).getLabel(), futures.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TesseractException(e);
+        } catch (ExecutionException e) {
+            throw new TesseractException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return fields;
+    }
+
+    /**
+     * Gets the handle pool of the configuration of a zone, creating the
+     * engine that initializes its handles if needed.
+     */
+    private synchronized HandlePool getHandlePool(Zone zone) {
+        String key = ZoneTemplate.getConfigKey(zone, language);
+        Tesseract engine = engines.get(key);
+        if (engine == null) {
+            engine = new Tesseract();
+            engine.setDatapath(datapath);
+            engine.setLanguage(zone.getLanguage() != null ? zone.getLanguage() : language);
+            engine.setOcrEngineMode(ocrEngineMode);
+            engine.setParallelism(parallelism);
+            if (zone.getWhitelist() != null) {
+                engine.setTessVariable("tessedit_char_whitelist", zone.getWhitelist());
+            }
+            engines.put(key, engine);
+        }
+        return engine.getHandlePool();
+    }
+
+    /**
+     * Initializes the handles of every configuration of the template ahead
+     * of the first form, one per configuration.
+     *
+     * @throws TesseractException
+     */
+    public void warmUp() throws TesseractException {
+        for (List<Zone> group : template.groupByConfig(language).values()) {
+            HandlePool pool = getHandlePool(group.get(0));
+            try {
+                pool.release(pool.acquire());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TesseractException(e);
+            }
+        }
+    }
+
+    /**
+     * Releases the handles of all configurations.
+     */
+    public synchronized void close() {
+        for (Tesseract engine : engines.values()) {
+            engine.releaseHandles();
+        }
+        engines.clear();
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+
+/**
+ * A bounded pool of initialized engine handles, so that pages or parts of a
+ * page can be recognized concurrently without paying for <code>Init</code>
+ * on every call. Handles are created on demand, up to the size of the pool,
+ * by the owning <code>Tesseract</code> instance, with its language, engine
+ * mode, page segmentation mode and variables.
+ * <br>
+ * A handle may be used by one thread at a time: acquire it, set an image on
+ * it, and release it when done. The pool also keeps one thread per handle,
+ * for the work spread over its handles.
+ */
+class HandlePool {
+
+    private final Tesseract factory;
+    private final TessAPI api;
+    private final String key;
+    private final int size;
+    private final BlockingQueue<TessBaseAPI> idle = new LinkedBlockingQueue<TessBaseAPI>();
+    private int created;
+    private ExecutorService executor;
+    private boolean closed;
+
+    /**
+     * Creates a pool.
+     *
+     * @param factory creates the handles
+     * @param key description of the configuration the handles are
+     * initialized with
+     * @param size maximum number of handles
+     */
+    HandlePool(Tesseract factory, String key, int size) {
+        this.factory = factory;
+        this.api = TessAPI.INSTANCE;
+        this.key = key;
+        this.size = Math.max(1, size);
+    }
+
+    /**
+     * @return the configuration the handles are initialized with
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the maximum number of handles
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the threads that work on the handles, as many as there are
+     * handles. They are started on first use and kept until the pool is
+     * closed.
+     *
+     * @return the executor
+     */
+    synchronized ExecutorService getExecutor() {
+        if (closed) {
+            throw new IllegalStateException("Handle pool is closed.");
+        }
+        if (executor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(size, new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "tess4j-handle-pool-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Takes a handle from the pool, creating one if none is idle and the pool
+     * is not full, or waiting for one to be released otherwise.
+     *
+     * @return an initialized handle
+     * @throws InterruptedException if interrupted while waiting
+     */
+    TessBaseAPI acquire() throws InterruptedException {
+        TessBaseAPI handle = idle.poll();
+        if (handle != null) {
+            return handle;
+        }
+
+        boolean create;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Handle pool is closed.");
+            }
+            create = created < size;
+            if (create) {
+                created++;
+            }
+        }
+
+        if (create) {
+            try {
+                return factory.createHandle();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    created--;
+                }
+                throw e;
+            }
+        }
+
+        return idle.take();
+    }
+
+    /**
+     * Returns a handle to the pool. Its image and results are cleared; the
+     * initialization is kept.
+     *
+     * @param handle a handle taken from this pool
+     */
+    void release(TessBaseAPI handle) {
+        api.TessBaseAPIClear(handle);
+        synchronized (this) {
+            if (!closed) {
+                idle.add(handle);
+                return;
+            }
+        }
+        api.TessBaseAPIDelete(handle);
+    }
+
+    /**
+     * Deletes the idle handles and stops the threads once they are done.
+     * Handles in use are deleted when they are released.
+     */
+    void close() {
+        List<TessBaseAPI> handles = new ArrayList<TessBaseAPI>();
+        synchronized (this) {
+            closed = true;
+            idle.drainTo(handles);
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+        for (TessBaseAPI handle : handles) {
+            api.TessBaseAPIDelete(handle);
+        }
+    }
+}
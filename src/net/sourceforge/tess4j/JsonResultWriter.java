@@ -0,0 +1,173 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes structured OCR results as compact JSON, straight to a
+ * <code>Writer</code>:
+ * <pre>
+ * {"pages":[{"box":[0,0,2480,3508],"conf":91.5,"blocks":[{"box":[...],
+ *   "paragraphs":[{"box":[...],"lines":[{"box":[...],
+ *   "words":[{"box":[...],"conf":96.2,"text":"The"}, ...]}]}]}]}]}
+ * </pre>
+ * Boxes are left, top, right and bottom, exclusive, in pixels of the original
+ * images. Only the finest level collected carries text; boxes and
+ * confidences are written when they were collected.
+ */
+public class JsonResultWriter implements ResultWriter {
+
+    private static final String[] KEYS = {"blocks", "paragraphs", "lines", "words", "symbols"};
+
+    private final Writer out;
+    private final int[] box = new int[4];
+    private int pageCount;
+
+    /**
+     * Creates a writer.
+     *
+     * @param out receives the document; closed by {@link #close()}
+     */
+    public JsonResultWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void writePage(OCRResult result, int page) throws IOException {
+        out.write(pageCount == 0 ? "{\"pages\":[" : ",");
+        out.write('{');
+        writeAttributes(result, OCRResult.PAGE, page, false);
+
+        int finest = result.getFinestLevel();
+        int[] next = new int[finest + 1];
+        int[] end = new int[finest + 1];
+        for (int level = 0; level <= finest; level++) {
+            next[level] = result.getFirstIndex(page, level);
+            end[level] = result.getFirstIndex(page + 1, level);
+        }
+
+        out.write(",\"");
+        out.write(KEYS[0]);
+        out.write("\":[");
+        for (boolean first = true; next[0] < end[0]; first = false) {
+            if (!first) {
+                out.write(',');
+            }
+            writeElement(result, 0, next[0]++, next, end);
+        }
+        out.write("]}");
+        out.flush();
+        pageCount++;
+    }
+
+    private void writeElement(OCRResult result, int level, int index, int[] next, int[] end) throws IOException {
+        int finest = result.getFinestLevel();
+        out.write('{');
+        writeAttributes(result, level, index, level == finest);
+
+        if (level < finest) {
+            int child = level + 1;
+            out.write(",\"");
+            out.write(KEYS[child]);
+            out.write("\":[");
+            for (boolean first = true; next[child] < end[child] && result.getParent(child, next[child]) == index; first = false) {
+                if (!first) {
+                    out.write(',');
+                }
+                writeElement(result, child, next[child]++, next, end);
+            }
+            out.write(']');
+        }
+        out.write('}');
+    }
+
+    private void writeAttributes(OCRResult result, int level, int index, boolean text) throws IOException {
+        String separator = "";
+        if ((result.getAttributes() & OCRResult.BOXES) != 0 || level == OCRResult.PAGE) {
+            result.getBox(level, index, box, 0);
+            out.write("\"box\":[");
+            out.write(Integer.toString(box[0]));
+            out.write(',');
+            out.write(Integer.toString(box[1]));
+            out.write(',');
+            out.write(Integer.toString(box[2]));
+            out.write(',');
+            out.write(Integer.toString(box[3]));
+            out.write(']');
+            separator = ",";
+        }
+        float confidence = result.getConfidence(level, index);
+        if (confidence >= 0) {
+            out.write(separator);
+            out.write("\"conf\":");
+            // one decimal is plenty, and avoids the exponent form of Float.toString
+            out.write(Float.toString(Math.round(confidence * 10) / 10f));
+            separator = ",";
+        }
+        if (text && (result.getAttributes() & OCRResult.TEXT) != 0) {
+            out.write(separator);
+            out.write("\"text\":");
+            writeString(result.getChars(), result.getCharStart(level, index), result.getCharEnd(level, index));
+            separator = ",";
+        }
+        if (separator.isEmpty()) {
+            // keeps the following comma valid
+            out.write("\"id\":");
+            out.write(Integer.toString(index));
+        }
+    }
+
+    /**
+     * Writes a JSON string literal, escaping quotes, backslashes and control
+     * characters.
+     */
+    private void writeString(CharSequence chars, int start, int end) throws IOException {
+        out.write('"');
+        for (int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.write(pageCount == 0 ? "{\"pages\":[]}" : "]}");
+        out.close();
+    }
+}
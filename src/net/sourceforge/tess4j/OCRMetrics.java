@@ -0,0 +1,177 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cumulative counters of an OCR instance. The counters are updated atomically
+ * and can be read while recognition is in progress.
+ */
+public class OCRMetrics {
+
+    private final AtomicLong pageCount = new AtomicLong();
+    private final AtomicLong blankPageCount = new AtomicLong();
+    private final AtomicLong duplicatePageCount = new AtomicLong();
+    private final AtomicLong rescaledPageCount = new AtomicLong();
+    private final AtomicLong originalPixels = new AtomicLong();
+    private final AtomicLong processedPixels = new AtomicLong();
+    private final AtomicLong croppedPageCount = new AtomicLong();
+    private final AtomicLong croppedPixels = new AtomicLong();
+    private final AtomicLong invertedPageCount = new AtomicLong();
+    private final AtomicLong invertedBlockCount = new AtomicLong();
+    private final AtomicLong removedSpeckleCount = new AtomicLong();
+    private final AtomicLong removedRuleLineCount = new AtomicLong();
+
+    /**
+     * Records a prepared page.
+     *
+     * @param report the page report
+     */
+    void addPage(PageReport report) {
+        pageCount.incrementAndGet();
+        if (report.isBlank()) {
+            blankPageCount.incrementAndGet();
+            return;
+        }
+        if (report.isReused()) {
+            duplicatePageCount.incrementAndGet();
+            return;
+        }
+        if (report.isRescaled()) {
+            rescaledPageCount.incrementAndGet();
+        }
+        originalPixels.addAndGet((long) report.getOriginalWidth() * report.getOriginalHeight());
+        processedPixels.addAndGet((long) report.getWidth() * report.getHeight());
+        Rectangle cropBox = report.getCropBox();
+        if (cropBox != null) {
+            croppedPageCount.incrementAndGet();
+            croppedPixels.addAndGet((long) report.getWidth() * report.getHeight() - (long) cropBox.width * cropBox.height);
+        }
+        if (report.isInverted()) {
+            invertedPageCount.incrementAndGet();
+        }
+        invertedBlockCount.addAndGet(report.getInvertedBlocks().size());
+        removedSpeckleCount.addAndGet(report.getRemovedSpeckles());
+        removedRuleLineCount.addAndGet(report.getRemovedRuleLines());
+    }
+
+    /**
+     * @return the number of pages prepared for recognition
+     */
+    public long getPageCount() {
+        return pageCount.get();
+    }
+
+    /**
+     * @return the number of pages skipped as blank
+     */
+    public long getBlankPageCount() {
+        return blankPageCount.get();
+    }
+
+    /**
+     * @return the number of pages that got the text of identical earlier
+     * pages instead of being recognized
+     */
+    public long getDuplicatePageCount() {
+        return duplicatePageCount.get();
+    }
+
+    /**
+     * @return the number of pages rescaled to the target resolution
+     */
+    public long getRescaledPageCount() {
+        return rescaledPageCount.get();
+    }
+
+    /**
+     * @return the number of megapixels spared by rescaling; negative if more
+     * pages were enlarged than reduced
+     */
+    public double getSavedMegapixels() {
+        return (originalPixels.get() - processedPixels.get()) / 1e6;
+    }
+
+    /**
+     * @return the number of pages restricted to their content area
+     */
+    public long getCroppedPageCount() {
+        return croppedPageCount.get();
+    }
+
+    /**
+     * @return the number of megapixels left out of recognition by content
+     * area detection
+     */
+    public double getCroppedMegapixels() {
+        return croppedPixels.get() / 1e6;
+    }
+
+    /**
+     * @return the number of reverse-video pages inverted before recognition
+     */
+    public long getInvertedPageCount() {
+        return invertedPageCount.get();
+    }
+
+    /**
+     * @return the number of reverse-video blocks inverted on otherwise normal
+     * pages
+     */
+    public long getInvertedBlockCount() {
+        return invertedBlockCount.get();
+    }
+
+    /**
+     * @return the number of small connected components removed as noise
+     */
+    public long getRemovedSpeckleCount() {
+        return removedSpeckleCount.get();
+    }
+
+    /**
+     * @return the number of rule line runs removed
+     */
+    public long getRemovedRuleLineCount() {
+        return removedRuleLineCount.get();
+    }
+
+    /**
+     * Resets all counters to zero.
+     */
+    public void reset() {
+        pageCount.set(0);
+        blankPageCount.set(0);
+        duplicatePageCount.set(0);
+        rescaledPageCount.set(0);
+        originalPixels.set(0);
+        processedPixels.set(0);
+        croppedPageCount.set(0);
+        croppedPixels.set(0);
+        invertedPageCount.set(0);
+        invertedBlockCount.set(0);
+        removedSpeckleCount.set(0);
+        removedRuleLineCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Pages: %d, blank: %d, duplicate: %d, rescaled: %d, saved: %.2f MP, cropped: %d, left out: %.2f MP, inverted: %d pages, %d blocks, removed: %d speckles, %d line runs",
+                getPageCount(), getBlankPageCount(), getDuplicatePageCount(), getRescaledPageCount(), getSavedMegapixels(),
+                getCroppedPageCount(), getCroppedMegapixels(), getInvertedPageCount(), getInvertedBlockCount(),
+                getRemovedSpeckleCount(), getRemovedRuleLineCount());
+    }
+}
@@ -0,0 +1,598 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sourceforge.tess4j.ITessAPI.TessPageIteratorLevel;
+
+/**
+ * The structured result of OCR: pages, blocks, paragraphs, text lines, words
+ * and symbols, with their bounding boxes, confidences and parents.
+ * <br>
+ * Levels are those of <code>TessPageIteratorLevel</code>, from
+ * <code>RIL_BLOCK</code> down to <code>RIL_SYMBOL</code>, plus {@link #PAGE}.
+ * Elements are numbered in reading order across the whole document at each
+ * level. Each level is stored as parallel primitive arrays, four ints per
+ * box, one float per confidence and one int per parent, and the text of the
+ * finest level collected is kept in a single shared char buffer, so a result
+ * stays compact for documents with hundreds of thousands of words.
+ * <br>
+ * Every element covers a contiguous range of the char buffer, which holds no
+ * separators; text of coarser levels is joined from the finest level with
+ * spaces between words and new lines between text lines.
+ * <br>
+ * Attributes not requested when the result was collected are left out of the
+ * walk: boxes are then empty, confidences -1 and texts empty, while the
+ * hierarchy is always complete.
+ * <br>
+ * The confidence of a page is the mean text confidence reported by the
+ * engine. The confidences of all words of a page can be collected as well with
+ * {@link #WORD_CONFIDENCES}, in a single native call per page; with no other
+ * attribute, the iterator is not walked at all, which makes
+ * confidence-based routing of pages almost free.
+ */
+public class OCRResult {
+
+    /**
+     * The page level, above <code>RIL_BLOCK</code>.
+     */
+    public static final int PAGE = -1;
+
+    /**
+     * Attribute flag for bounding boxes.
+     */
+    public static final int BOXES = 1;
+
+    /**
+     * Attribute flag for confidences.
+     */
+    public static final int CONFIDENCES = 2;
+
+    /**
+     * Attribute flag for text.
+     */
+    public static final int TEXT = 4;
+
+    /**
+     * All attributes of the elements.
+     */
+    public static final int ALL_ATTRIBUTES = BOXES | CONFIDENCES | TEXT;
+
+    /**
+     * Attribute flag for the word confidences of pages; not part of
+     * {@link #ALL_ATTRIBUTES}.
+     */
+    public static final int WORD_CONFIDENCES = 8;
+
+    /**
+     * The arrays of one level.
+     */
+    private static class Level {
+
+        int count;
+        int[] boxes = new int[64];
+        float[] confidences = new float[16];
+        int[] parents = new int[16];
+        int[] charStarts = new int[16];
+
+        int add(int left, int top, int right, int bottom, float confidence, int parent, int charStart) {
+            if (count == parents.length) {
+                int capacity = count * 2;
+                boxes = Arrays.copyOf(boxes, capacity * 4);
+                confidences = Arrays.copyOf(confidences, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                charStarts = Arrays.copyOf(charStarts, capacity);
+            }
+            int i = 4 * count;
+            boxes[i] = left;
+            boxes[i + 1] = top;
+            boxes[i + 2] = right;
+            boxes[i + 3] = bottom;
+            confidences[count] = confidence;
+            parents[count] = parent;
+            charStarts[count] = charStart;
+            return count++;
+        }
+
+        void trim() {
+            boxes = Arrays.copyOf(boxes, count * 4);
+            confidences = Arrays.copyOf(confidences, count);
+            parents = Arrays.copyOf(parents, count);
+            charStarts = Arrays.copyOf(charStarts, count);
+        }
+    }
+
+    private final int finestLevel;
+    private final int attributes;
+    // index is level + 1, so that PAGE is at 0
+    private final Level[] levels;
+    // index of the first element of each page at every level
+    private int[] pageFirsts = new int[6 * 4];
+    private char[] text = new char[1024];
+    private int textLength;
+    // word confidences of all pages, with the index of the first of each page
+    private int[] wordConfidences = new int[0];
+    private int wordConfidenceCount;
+    private int[] wordConfidenceStarts = new int[4];
+
+    /**
+     * Creates an empty result with all attributes.
+     *
+     * @param finestLevel the finest level to be collected, e.g.,
+     * <code>RIL_WORD</code>
+     */
+    OCRResult(int finestLevel) {
+        this(finestLevel, ALL_ATTRIBUTES);
+    }
+
+    /**
+     * Creates an empty result.
+     *
+     * @param finestLevel the finest level to be collected, e.g.,
+     * <code>RIL_WORD</code>
+     * @param attributes the attributes to be collected, a combination of
+     * {@link #BOXES}, {@link #CONFIDENCES} and {@link #TEXT}
+     */
+    OCRResult(int finestLevel, int attributes) {
+        if (finestLevel < TessPageIteratorLevel.RIL_BLOCK || finestLevel > TessPageIteratorLevel.RIL_SYMBOL) {
+            throw new IllegalArgumentException("Invalid page iterator level: " + finestLevel);
+        }
+        this.finestLevel = finestLevel;
+        this.attributes = attributes;
+        this.levels = new Level[finestLevel + 2];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new Level();
+        }
+    }
+
+    /**
+     * Starts a page.
+     *
+     * @param width page width
+     * @param height page height
+     * @return the page index
+     */
+    int startPage(int width, int height) {
+        int page = levels[0].count;
+        if (6 * (page + 1) > pageFirsts.length) {
+            pageFirsts = Arrays.copyOf(pageFirsts, pageFirsts.length * 2);
+        }
+        for (int i = 0; i < levels.length; i++) {
+            pageFirsts[6 * page + i] = levels[i].count;
+        }
+        if (page == wordConfidenceStarts.length) {
+            wordConfidenceStarts = Arrays.copyOf(wordConfidenceStarts, page * 2);
+        }
+        wordConfidenceStarts[page] = wordConfidenceCount;
+        return levels[0].add(0, 0, width, height, -1, -1, textLength);
+    }
+
+    /**
+     * Adds an element as a child of the last element of the level above.
+     *
+     * @param level the level
+     * @param left left edge
+     * @param top top edge
+     * @param right right edge, exclusive
+     * @param bottom bottom edge, exclusive
+     * @param confidence the confidence
+     * @return the element index
+     */
+    int add(int level, int left, int top, int right, int bottom, float confidence) {
+        return levels[level + 1].add(left, top, right, bottom, confidence, levels[level].count - 1, textLength);
+    }
+
+    /**
+     * Appends the text of the last element of the finest level.
+     *
+     * @param chars text
+     * @param offset offset of the text
+     * @param length length of the text
+     */
+    void appendText(char[] chars, int offset, int length) {
+        ensureTextCapacity(length);
+        System.arraycopy(chars, offset, text, textLength, length);
+        textLength += length;
+    }
+
+    /**
+     * Appends the text of the last element of the finest level.
+     *
+     * @param str text
+     */
+    void appendText(String str) {
+        ensureTextCapacity(str.length());
+        str.getChars(0, str.length(), text, textLength);
+        textLength += str.length();
+    }
+
+    /**
+     * Appends the text of the last element of the finest level, decoding
+     * UTF-8 bytes straight into the char buffer. Leading and trailing white
+     * space is dropped, as by <code>String.trim()</code>; malformed sequences
+     * are replaced with U+FFFD.
+     *
+     * @param bytes UTF-8 bytes
+     * @param offset offset of the text
+     * @param length length of the text, in bytes
+     */
+    void appendUTF8(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        while (offset < end && (bytes[offset] & 0xFF) <= ' ') {
+            offset++;
+        }
+        while (end > offset && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        // a UTF-8 sequence never decodes to more chars than it has bytes
+        ensureTextCapacity(end - offset);
+        char[] chars = text;
+        int n = textLength;
+        int i = offset;
+        while (i < end) {
+            int b = bytes[i++];
+            if (b >= 0) {
+                chars[n++] = (char) b;
+                continue;
+            }
+            int c;
+            int extra;
+            if ((b & 0xE0) == 0xC0) {
+                c = b & 0x1F;
+                extra = 1;
+            } else if ((b & 0xF0) == 0xE0) {
+                c = b & 0x0F;
+                extra = 2;
+            } else if ((b & 0xF8) == 0xF0) {
+                c = b & 0x07;
+                extra = 3;
+            } else {
+                chars[n++] = '\uFFFD';
+                continue;
+            }
+            for (; extra > 0 && i < end && (bytes[i] & 0xC0) == 0x80; extra--) {
+                c = (c << 6) | (bytes[i++] & 0x3F);
+            }
+            if (extra > 0 || c > Character.MAX_CODE_POINT) {
+                chars[n++] = '\uFFFD';
+            } else if (c >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                chars[n++] = Character.highSurrogate(c);
+                chars[n++] = Character.lowSurrogate(c);
+            } else {
+                chars[n++] = (char) c;
+            }
+        }
+        textLength = n;
+    }
+
+    private void ensureTextCapacity(int length) {
+        if (textLength + length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+        }
+    }
+
+    /**
+     * Sets the confidence of the last page.
+     *
+     * @param confidence the confidence
+     */
+    void setPageConfidence(float confidence) {
+        levels[0].confidences[levels[0].count - 1] = confidence;
+    }
+
+    /**
+     * Sets the word confidences of the last page.
+     *
+     * @param confidences the confidences, between 0 and 100
+     */
+    void setWordConfidences(int[] confidences) {
+        int page = levels[0].count - 1;
+        wordConfidenceCount = wordConfidenceStarts[page];
+        if (wordConfidenceCount + confidences.length > wordConfidences.length) {
+            wordConfidences = Arrays.copyOf(wordConfidences, Math.max(wordConfidences.length * 2, wordConfidenceCount + confidences.length));
+        }
+        System.arraycopy(confidences, 0, wordConfidences, wordConfidenceCount, confidences.length);
+        wordConfidenceCount += confidences.length;
+    }
+
+    /**
+     * Maps the boxes of the last page from the processed image back to the
+     * original image.
+     *
+     * @param report the report of the page
+     */
+    void toOriginalCoordinates(PageReport report) {
+        if (!report.isRescaled()) {
+            return;
+        }
+        int page = levels[0].count - 1;
+        int[] box = levels[0].boxes;
+        box[4 * page + 2] = report.getOriginalWidth();
+        box[4 * page + 3] = report.getOriginalHeight();
+        for (int i = 1; i < levels.length; i++) {
+            int[] boxes = levels[i].boxes;
+            for (int j = 4 * pageFirsts[6 * page + i]; j < 4 * levels[i].count; j += 2) {
+                boxes[j] = (int) Math.round(boxes[j] / report.getScaleX());
+                boxes[j + 1] = (int) Math.round(boxes[j + 1] / report.getScaleY());
+            }
+        }
+    }
+
+    /**
+     * Releases the unused capacity of the arrays.
+     */
+    void trim() {
+        for (Level level : levels) {
+            level.trim();
+        }
+        text = Arrays.copyOf(text, textLength);
+        pageFirsts = Arrays.copyOf(pageFirsts, 6 * levels[0].count);
+        wordConfidences = Arrays.copyOf(wordConfidences, wordConfidenceCount);
+        wordConfidenceStarts = Arrays.copyOf(wordConfidenceStarts, levels[0].count);
+    }
+
+    private Level getLevel(int level) {
+        if (level < PAGE || level > finestLevel) {
+            throw new IllegalArgumentException("Level not collected: " + level);
+        }
+        return levels[level + 1];
+    }
+
+    /**
+     * @return the finest level collected
+     */
+    public int getFinestLevel() {
+        return finestLevel;
+    }
+
+    /**
+     * @return the attributes collected, a combination of {@link #BOXES},
+     * {@link #CONFIDENCES} and {@link #TEXT}
+     */
+    public int getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return the number of pages
+     */
+    public int getPageCount() {
+        return levels[0].count;
+    }
+
+    /**
+     * @param level a level, from {@link #PAGE} to the finest level collected
+     * @return the number of elements at the level
+     */
+    public int getCount(int level) {
+        return getLevel(level).count;
+    }
+
+    /**
+     * Gets the index of the first element of a page at a level; the elements
+     * of the page run up to the first element of the next page.
+     *
+     * @param page page index
+     * @param level a level, from {@link #PAGE} to the finest level collected
+     * @return the index of the first element
+     */
+    public int getFirstIndex(int page, int level) {
+        getLevel(level);
+        return page < getPageCount() ? pageFirsts[6 * page + level + 1] : levels[level + 1].count;
+    }
+
+    /**
+     * Copies the bounding box of an element, as left, top, right and bottom,
+     * without creating any object.
+     *
+     * @param level the level
+     * @param index the element index
+     * @param box receives the four coordinates
+     * @param offset where to put them in <code>box</code>
+     */
+    public void getBox(int level, int index, int[] box, int offset) {
+        System.arraycopy(getLevel(level).boxes, 4 * index, box, offset, 4);
+    }
+
+    /**
+     * @param level the level
+     * @param index the element index
+     * @return the bounding box of the element
+     */
+    public Rectangle getBounds(int level, int index) {
+        int[] boxes = getLevel(level).boxes;
+        int i = 4 * index;
+        return new Rectangle(boxes[i], boxes[i + 1], boxes[i + 2] - boxes[i], boxes[i + 3] - boxes[i + 1]);
+    }
+
+    /**
+     * @param level the level
+     * @param index the element index
+     * @return the confidence of the element, between 0 and 100; -1 if not
+     * available. The confidence of a page is its mean text confidence.
+     */
+    public float getConfidence(int level, int index) {
+        return getLevel(level).confidences[index];
+    }
+
+    /**
+     * Gets the confidences of all words of a page, in the order of the words
+     * in the text of the page. Empty unless {@link #WORD_CONFIDENCES} was
+     * collected.
+     *
+     * @param page page index
+     * @return the confidences, between 0 and 100
+     */
+    public int[] getWordConfidences(int page) {
+        int start = wordConfidenceStarts[page];
+        int end = page + 1 < getPageCount() ? wordConfidenceStarts[page + 1] : wordConfidenceCount;
+        return Arrays.copyOfRange(wordConfidences, start, end);
+    }
+
+    /**
+     * @param level the level, below {@link #PAGE}
+     * @param index the element index
+     * @return the index of the parent element at the level above
+     */
+    public int getParent(int level, int index) {
+        return getLevel(level).parents[index];
+    }
+
+    /**
+     * Gets the ancestor of an element at a coarser level.
+     *
+     * @param level the level
+     * @param index the element index
+     * @param ancestorLevel a level coarser than or equal to <code>level</code>
+     * @return the index of the ancestor
+     */
+    public int getAncestor(int level, int index, int ancestorLevel) {
+        for (; level > ancestorLevel; level--) {
+            index = levels[level + 1].parents[index];
+        }
+        return index;
+    }
+
+    /**
+     * @param level the level
+     * @param index the element index
+     * @return start of the text of the element in the shared char buffer
+     */
+    public int getCharStart(int level, int index) {
+        return getLevel(level).charStarts[index];
+    }
+
+    /**
+     * @param level the level
+     * @param index the element index
+     * @return end, exclusive, of the text of the element in the shared char
+     * buffer
+     */
+    public int getCharEnd(int level, int index) {
+        Level l = getLevel(level);
+        return index + 1 < l.count ? l.charStarts[index + 1] : textLength;
+    }
+
+    /**
+     * Gets a read-only view of the shared char buffer, without a copy. The
+     * view does not see text appended after it was taken.
+     *
+     * @return the shared char buffer, without separators between elements
+     */
+    public CharSequence getChars() {
+        return CharBuffer.wrap(text, 0, textLength).asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the text of an element. Text of levels coarser than the finest
+     * level collected is joined with spaces between words and new lines
+     * between text lines.
+     *
+     * @param level the level
+     * @param index the element index
+     * @return the text
+     */
+    public String getText(int level, int index) {
+        StringBuilder sb = new StringBuilder();
+        appendText(level, index, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the text of an element to a builder; see
+     * {@link #getText(int, int)}.
+     *
+     * @param level the level
+     * @param index the element index
+     * @param sb receives the text
+     */
+    public void appendText(int level, int index, StringBuilder sb) {
+        int start = getCharStart(level, index);
+        int end = getCharEnd(level, index);
+        if (level == finestLevel || level >= TessPageIteratorLevel.RIL_WORD) {
+            sb.append(text, start, end - start);
+            return;
+        }
+
+        // walk the finest elements of the range
+        Level finest = levels[finestLevel + 1];
+        int first = firstAtOrAfter(finest, start);
+        int line = -1;
+        int word = -1;
+        for (int j = first; j < finest.count && finest.charStarts[j] <= end; j++) {
+            if (getAncestor(finestLevel, j, level) != index) {
+                continue; // an empty element of a neighbour
+            }
+            if (finestLevel >= TessPageIteratorLevel.RIL_TEXTLINE) {
+                int l = getAncestor(finestLevel, j, TessPageIteratorLevel.RIL_TEXTLINE);
+                int w = finestLevel >= TessPageIteratorLevel.RIL_WORD ? getAncestor(finestLevel, j, TessPageIteratorLevel.RIL_WORD) : -1;
+                if (line >= 0 && l != line) {
+                    sb.append('\n');
+                } else if (word >= 0 && w != word) {
+                    sb.append(' ');
+                }
+                line = l;
+                word = w;
+            } else if (j > first) {
+                sb.append('\n');
+            }
+            sb.append(text, finest.charStarts[j], getCharEnd(finestLevel, j) - finest.charStarts[j]);
+        }
+    }
+
+    private static int firstAtOrAfter(Level level, int charStart) {
+        // the first of several elements may have no text; start from it
+        int i = Arrays.binarySearch(level.charStarts, 0, level.count, charStart);
+        if (i < 0) {
+            return -i - 1;
+        }
+        while (i > 0 && level.charStarts[i - 1] == charStart) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * Gets the elements of a level as <code>Word</code> objects.
+     *
+     * @param level the level
+     * @return the elements, in reading order
+     */
+    public List<Word> getWords(int level) {
+        int count = getCount(level);
+        List<Word> words = new ArrayList<Word>(count);
+        for (int i = 0; i < count; i++) {
+            words.add(new Word(getText(level, i), getConfidence(level, i), getBounds(level, i)));
+        }
+        return words;
+    }
+
+    /**
+     * @return the text of all pages
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int page = 0; page < getPageCount(); page++) {
+            appendText(PAGE, page, sb);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
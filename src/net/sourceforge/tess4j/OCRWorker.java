@@ -0,0 +1,286 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The main class of the worker processes of a {@link WorkerPool}. A worker
+ * connects back to the pool over a loopback socket, receives the engine
+ * configuration, and recognizes the pages it is sent on a few threads, each
+ * with an engine handle of its own. Pages in the {@link PageSlab} of the pool
+ * are passed to the native library straight from the mapped file. A worker
+ * exits when told to, or when the connection is lost.
+ * <br>
+ * Started by the pool as
+ * <code>java net.sourceforge.tess4j.OCRWorker port token id</code>.
+ */
+public class OCRWorker {
+
+    /**
+     * Recognizes pages on one thread.
+     */
+    interface Engine {
+
+        String recognize(int width, int height, ByteBuffer pixels, int bpp) throws Exception;
+
+        void close();
+    }
+
+    /**
+     * A page to recognize; an id of -1 tells a thread to stop.
+     */
+    static class Page {
+
+        final long id;
+        final int width;
+        final int height;
+        final int bpp;
+        final ByteBuffer pixels;
+
+        Page(long id, int width, int height, int bpp, ByteBuffer pixels) {
+            this.id = id;
+            this.width = width;
+            this.height = height;
+            this.bpp = bpp;
+            this.pixels = pixels;
+        }
+    }
+
+    private static final Page STOP = new Page(-1, 0, 0, 0, null);
+
+    /**
+     * Engine configuration, as sent by the pool.
+     */
+    String datapath;
+    String language;
+    int ocrEngineMode;
+    int pageSegMode;
+    final Properties variables = new Properties();
+
+    private final BlockingQueue<Page> pages = new LinkedBlockingQueue<Page>();
+    private DataOutputStream out;
+    private ByteBuffer slab;
+
+    private final static Logger logger = Logger.getLogger(OCRWorker.class.getName());
+
+    OCRWorker() {
+    }
+
+    /**
+     * Runs a worker.
+     *
+     * @param args port of the pool, token and worker id
+     * @throws IOException if the pool cannot be reached
+     */
+    public static void main(String[] args) throws IOException {
+        new OCRWorker().run(args);
+        System.exit(0);
+    }
+
+    /**
+     * Creates the engine of a thread, with the configuration received.
+     *
+     * @return the engine
+     */
+    Engine createEngine() {
+        final TesseractEngine engine = new TesseractEngine();
+        engine.setDatapath(datapath);
+        engine.setLanguage(language);
+        engine.setOcrEngineMode(ocrEngineMode);
+        engine.setPageSegMode(pageSegMode);
+        for (String key : variables.stringPropertyNames()) {
+            engine.setTessVariable(key, variables.getProperty(key));
+        }
+        engine.open();
+        return engine;
+    }
+
+    /**
+     * A <code>Tesseract</code> instance that keeps its handle initialized
+     * across pages.
+     */
+    private static class TesseractEngine extends Tesseract implements Engine {
+
+        void open() {
+            init();
+            setTessVariables();
+        }
+
+        @Override
+        public String recognize(int width, int height, ByteBuffer pixels, int bpp) {
+            setImage(width, height, pixels, null, bpp);
+            return getOCRText(null, 1);
+        }
+
+        @Override
+        public void close() {
+            dispose();
+        }
+    }
+
+    void run(String[] args) throws IOException {
+        int port = Integer.parseInt(args[0]);
+        long token = Long.parseLong(args[1]);
+        int id = Integer.parseInt(args[2]);
+
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            out.writeInt(WorkerProtocol.HELLO);
+            out.writeLong(token);
+            out.writeInt(id);
+            out.flush();
+
+            if (in.readInt() != WorkerProtocol.CONFIG) {
+                throw new IOException("Expected the configuration.");
+            }
+            datapath = WorkerProtocol.readString(in);
+            language = WorkerProtocol.readString(in);
+            ocrEngineMode = in.readInt();
+            pageSegMode = in.readInt();
+            int handles = in.readInt();
+            for (int i = in.readInt(); i > 0; i--) {
+                String key = WorkerProtocol.readString(in);
+                variables.setProperty(key, WorkerProtocol.readString(in));
+            }
+            String slabPath = WorkerProtocol.readString(in);
+            if (slabPath != null) {
+                slab = PageSlab.map(new File(slabPath));
+            }
+
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int i = 0; i < handles; i++) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        recognizePages();
+                    }
+                }, "ocr-worker-" + id + "-" + i);
+                thread.start();
+                threads.add(thread);
+            }
+
+            try {
+                receivePages(in);
+            } finally {
+                for (int i = 0; i < threads.size(); i++) {
+                    pages.add(STOP);
+                }
+                for (Thread thread : threads) {
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Reads messages until told to shut down; a lost connection ends the
+     * worker too.
+     */
+    void receivePages(DataInputStream in) throws IOException {
+        while (true) {
+            int type = in.readInt();
+            if (type == WorkerProtocol.SHUTDOWN) {
+                return;
+            }
+            if (type != WorkerProtocol.PAGE && type != WorkerProtocol.SHARED_PAGE) {
+                throw new IOException("Unexpected message: " + type);
+            }
+            long id = in.readLong();
+            int width = in.readInt();
+            int height = in.readInt();
+            int bpp = in.readInt();
+            ByteBuffer pixels;
+            if (type == WorkerProtocol.SHARED_PAGE) {
+                int offset = in.readInt();
+                int length = in.readInt();
+                if (slab == null || offset < 0 || length < 0 || offset + length > slab.capacity()) {
+                    throw new IOException("Page outside the slab.");
+                }
+                pixels = PageSlab.slice(slab, offset, length);
+            } else {
+                pixels = WorkerProtocol.readBytes(in);
+            }
+            pages.add(new Page(id, width, height, bpp, pixels));
+        }
+    }
+
+    private void recognizePages() {
+        Engine engine = null;
+        try {
+            while (true) {
+                Page page = pages.take();
+                if (page == STOP) {
+                    break;
+                }
+                String text = null;
+                String error = null;
+                try {
+                    if (engine == null) {
+                        engine = createEngine();
+                    }
+                    text = engine.recognize(page.width, page.height, page.pixels, page.bpp);
+                } catch (Exception e) {
+                    logger.log(Level.SEVERE, e.getMessage(), e);
+                    error = e.toString();
+                }
+                sendResult(page.id, text, error);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // the pool is gone; the reader ends the worker
+            logger.log(Level.WARNING, e.getMessage(), e);
+        } finally {
+            if (engine != null) {
+                engine.close();
+            }
+        }
+    }
+
+    private void sendResult(long id, String text, String error) throws IOException {
+        synchronized (out) {
+            out.writeInt(WorkerProtocol.RESULT);
+            out.writeLong(id);
+            out.writeBoolean(error == null);
+            WorkerProtocol.writeString(out, error == null ? text : error);
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,338 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import java.awt.geom.Line2D;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+import net.sourceforge.tess4j.ITessAPI.TessPageIterator;
+import net.sourceforge.tess4j.ITessAPI.TessPageIteratorLevel;
+
+/**
+ * The layout of a page as found by layout analysis, without recognition:
+ * blocks, paragraphs and text lines with their bounding boxes, block types,
+ * orientation and baselines.
+ * <br>
+ * Elements are numbered in reading order at each level. The geometry is kept
+ * in primitive arrays, four values per box or baseline, so a layout costs a
+ * few bytes per element.
+ */
+public class PageLayout {
+
+    private int blockCount;
+    private int[] blockBoxes = new int[16];
+    private int[] blockTypes = new int[4];
+    // orientation, writing direction and text line order of each block
+    private int[] blockOrientations = new int[12];
+    private float[] blockDeskewAngles = new float[4];
+
+    private int paragraphCount;
+    private int[] paragraphBoxes = new int[32];
+    private int[] paragraphBlocks = new int[8];
+
+    private int lineCount;
+    private int[] lineBoxes = new int[64];
+    private int[] lineBaselines = new int[64];
+    private boolean[] lineHasBaseline = new boolean[16];
+    private int[] lineParagraphs = new int[16];
+
+    PageLayout() {
+    }
+
+    /**
+     * Runs layout analysis on a handle with an image set. The page
+     * segmentation mode of the handle should be an automatic one.
+     *
+     * @param api the API
+     * @param handle a handle with an image set
+     * @return the layout; empty if layout analysis failed
+     */
+    static PageLayout analyse(TessAPI api, TessBaseAPI handle) {
+        PageLayout layout = new PageLayout();
+        TessPageIterator pi = api.TessBaseAPIAnalyseLayout(handle);
+        if (pi == null) {
+            return layout;
+        }
+
+        try {
+            api.TessPageIteratorBegin(pi);
+            IntBuffer[] values = {IntBuffer.allocate(1), IntBuffer.allocate(1), IntBuffer.allocate(1), IntBuffer.allocate(1)};
+            FloatBuffer deskewAngle = FloatBuffer.allocate(1);
+            int[] box = new int[4];
+
+            do {
+                if (layout.blockCount == 0 || api.TessPageIteratorIsAtBeginningOf(pi, TessPageIteratorLevel.RIL_BLOCK) == ITessAPI.TRUE) {
+                    getBoundingBox(api, pi, TessPageIteratorLevel.RIL_BLOCK, values, box);
+                    int b = layout.addBlock(box, api.TessPageIteratorBlockType(pi));
+                    api.TessPageIteratorOrientation(pi, values[0], values[1], values[2], deskewAngle);
+                    layout.setBlockOrientation(b, values[0].get(0), values[1].get(0), values[2].get(0), deskewAngle.get(0));
+                }
+                if (layout.paragraphCount == 0 || api.TessPageIteratorIsAtBeginningOf(pi, TessPageIteratorLevel.RIL_PARA) == ITessAPI.TRUE) {
+                    getBoundingBox(api, pi, TessPageIteratorLevel.RIL_PARA, values, box);
+                    layout.addParagraph(box);
+                }
+                getBoundingBox(api, pi, TessPageIteratorLevel.RIL_TEXTLINE, values, box);
+                int line = layout.addLine(box);
+                if (api.TessPageIteratorBaseline(pi, TessPageIteratorLevel.RIL_TEXTLINE, values[0], values[1], values[2], values[3]) == ITessAPI.TRUE) {
+                    for (int i = 0; i < 4; i++) {
+                        box[i] = values[i].get(0);
+                    }
+                    layout.setLineBaseline(line, box);
+                }
+            } while (api.TessPageIteratorNext(pi, TessPageIteratorLevel.RIL_TEXTLINE) == ITessAPI.TRUE);
+        } finally {
+            api.TessPageIteratorDelete(pi);
+        }
+
+        return layout;
+    }
+
+    private static void getBoundingBox(TessAPI api, TessPageIterator pi, int level, IntBuffer[] values, int[] box) {
+        if (api.TessPageIteratorBoundingBox(pi, level, values[0], values[1], values[2], values[3]) == ITessAPI.FALSE) {
+            Arrays.fill(box, 0);
+            return;
+        }
+        for (int i = 0; i < 4; i++) {
+            box[i] = values[i].get(0);
+        }
+    }
+
+    int addBlock(int[] box, int type) {
+        if (blockCount == blockTypes.length) {
+            blockBoxes = Arrays.copyOf(blockBoxes, blockBoxes.length * 2);
+            blockTypes = Arrays.copyOf(blockTypes, blockTypes.length * 2);
+            blockOrientations = Arrays.copyOf(blockOrientations, blockOrientations.length * 2);
+            blockDeskewAngles = Arrays.copyOf(blockDeskewAngles, blockDeskewAngles.length * 2);
+        }
+        System.arraycopy(box, 0, blockBoxes, 4 * blockCount, 4);
+        blockTypes[blockCount] = type;
+        return blockCount++;
+    }
+
+    void setBlockOrientation(int block, int orientation, int writingDirection, int textlineOrder, float deskewAngle) {
+        blockOrientations[3 * block] = orientation;
+        blockOrientations[3 * block + 1] = writingDirection;
+        blockOrientations[3 * block + 2] = textlineOrder;
+        blockDeskewAngles[block] = deskewAngle;
+    }
+
+    int addParagraph(int[] box) {
+        if (paragraphCount == paragraphBlocks.length) {
+            paragraphBoxes = Arrays.copyOf(paragraphBoxes, paragraphBoxes.length * 2);
+            paragraphBlocks = Arrays.copyOf(paragraphBlocks, paragraphBlocks.length * 2);
+        }
+        System.arraycopy(box, 0, paragraphBoxes, 4 * paragraphCount, 4);
+        paragraphBlocks[paragraphCount] = blockCount - 1;
+        return paragraphCount++;
+    }
+
+    int addLine(int[] box) {
+        if (lineCount == lineParagraphs.length) {
+            lineBoxes = Arrays.copyOf(lineBoxes, lineBoxes.length * 2);
+            lineBaselines = Arrays.copyOf(lineBaselines, lineBaselines.length * 2);
+            lineHasBaseline = Arrays.copyOf(lineHasBaseline, lineHasBaseline.length * 2);
+            lineParagraphs = Arrays.copyOf(lineParagraphs, lineParagraphs.length * 2);
+        }
+        System.arraycopy(box, 0, lineBoxes, 4 * lineCount, 4);
+        lineParagraphs[lineCount] = paragraphCount - 1;
+        return lineCount++;
+    }
+
+    void setLineBaseline(int line, int[] baseline) {
+        System.arraycopy(baseline, 0, lineBaselines, 4 * line, 4);
+        lineHasBaseline[line] = true;
+    }
+
+    private static Rectangle toRectangle(int[] boxes, int i) {
+        int left = boxes[4 * i];
+        int top = boxes[4 * i + 1];
+        return new Rectangle(left, top, boxes[4 * i + 2] - left, boxes[4 * i + 3] - top);
+    }
+
+    /**
+     * @return the number of blocks
+     */
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @param block block index
+     * @return the bounding box of the block
+     */
+    public Rectangle getBlockBounds(int block) {
+        return toRectangle(blockBoxes, block);
+    }
+
+    /**
+     * @param block block index
+     * @return the type of the block, a <code>TessPolyBlockType</code> value
+     */
+    public int getBlockType(int block) {
+        return blockTypes[block];
+    }
+
+    /**
+     * @param block block index
+     * @return true if the block holds text, as opposed to images, lines or
+     * noise
+     */
+    public boolean isTextBlock(int block) {
+        return BlockRecognizer.isText(blockTypes[block]);
+    }
+
+    /**
+     * @param block block index
+     * @return the orientation of the block, a <code>TessOrientation</code>
+     * value
+     */
+    public int getBlockOrientation(int block) {
+        return blockOrientations[3 * block];
+    }
+
+    /**
+     * @param block block index
+     * @return the writing direction of the block, a
+     * <code>TessWritingDirection</code> value
+     */
+    public int getBlockWritingDirection(int block) {
+        return blockOrientations[3 * block + 1];
+    }
+
+    /**
+     * @param block block index
+     * @return the text line order of the block, a
+     * <code>TessTextlineOrder</code> value
+     */
+    public int getBlockTextlineOrder(int block) {
+        return blockOrientations[3 * block + 2];
+    }
+
+    /**
+     * @param block block index
+     * @return the angle, in radians, by which the block would have to be
+     * rotated to be level once its orientation is corrected
+     */
+    public float getBlockDeskewAngle(int block) {
+        return blockDeskewAngles[block];
+    }
+
+    /**
+     * @return the number of paragraphs
+     */
+    public int getParagraphCount() {
+        return paragraphCount;
+    }
+
+    /**
+     * @param paragraph paragraph index
+     * @return the bounding box of the paragraph
+     */
+    public Rectangle getParagraphBounds(int paragraph) {
+        return toRectangle(paragraphBoxes, paragraph);
+    }
+
+    /**
+     * @param paragraph paragraph index
+     * @return the index of the block the paragraph belongs to
+     */
+    public int getParagraphBlock(int paragraph) {
+        return paragraphBlocks[paragraph];
+    }
+
+    /**
+     * @return the number of text lines
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @param line line index
+     * @return the bounding box of the line
+     */
+    public Rectangle getLineBounds(int line) {
+        return toRectangle(lineBoxes, line);
+    }
+
+    /**
+     * @param line line index
+     * @return the index of the paragraph the line belongs to
+     */
+    public int getLineParagraph(int line) {
+        return lineParagraphs[line];
+    }
+
+    /**
+     * Gets the baseline of a text line, the line through its two end points.
+     * With vertical text, baselines may be vertical.
+     *
+     * @param line line index
+     * @return the baseline, or <code>null</code> if the line has none, e.g.,
+     * in an image block
+     */
+    public Line2D getLineBaseline(int line) {
+        if (!lineHasBaseline[line]) {
+            return null;
+        }
+        int i = 4 * line;
+        return new Line2D.Float(lineBaselines[i], lineBaselines[i + 1], lineBaselines[i + 2], lineBaselines[i + 3]);
+    }
+
+    /**
+     * Maps all coordinates from the processed page back to the original page.
+     *
+     * @param report the report of the page
+     */
+    void toOriginalCoordinates(PageReport report) {
+        if (!report.isRescaled()) {
+            return;
+        }
+        scale(blockBoxes, 4 * blockCount, report);
+        scale(paragraphBoxes, 4 * paragraphCount, report);
+        scale(lineBoxes, 4 * lineCount, report);
+        scale(lineBaselines, 4 * lineCount, report);
+    }
+
+    private static void scale(int[] coords, int length, PageReport report) {
+        for (int i = 0; i < length; i += 2) {
+            coords[i] = (int) Math.round(coords[i] / report.getScaleX());
+            coords[i + 1] = (int) Math.round(coords[i + 1] / report.getScaleY());
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        int paragraph = 0;
+        int line = 0;
+        for (int b = 0; b < blockCount; b++) {
+            Rectangle r = getBlockBounds(b);
+            sb.append(String.format("Block %d: type %d, %d,%d %dx%d%n", b, blockTypes[b], r.x, r.y, r.width, r.height));
+            for (; paragraph < paragraphCount && paragraphBlocks[paragraph] == b; paragraph++) {
+                r = getParagraphBounds(paragraph);
+                sb.append(String.format("  Paragraph %d: %d,%d %dx%d%n", paragraph, r.x, r.y, r.width, r.height));
+                for (; line < lineCount && lineParagraphs[line] == paragraph; line++) {
+                    r = getLineBounds(line);
+                    sb.append(String.format("    Line %d: %d,%d %dx%d%n", line, r.x, r.y, r.width, r.height));
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
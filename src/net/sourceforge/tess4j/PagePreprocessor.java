@@ -0,0 +1,471 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.IIOImage;
+
+import net.sourceforge.tess4j.util.ConnectedComponents;
+import net.sourceforge.tess4j.util.ContentAreaDetector;
+import net.sourceforge.tess4j.util.ImageHelper;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+import net.sourceforge.tess4j.util.InversionDetector;
+import net.sourceforge.tess4j.util.PageStatistics;
+
+/**
+ * Optional preparation of pages before recognition. All stages are disabled
+ * by default, in which case pages are passed through unchanged. When any
+ * stage is enabled, the page is converted to 8-bit grayscale and the stages
+ * work directly on its pixel array.
+ * <br>
+ * Blank page detection samples the luminance of a page before anything else
+ * is done with it. Pages with almost no ink, such as separator sheets and
+ * empty back sides, are marked blank and not recognized at all.
+ * <br>
+ * Resolution normalization rescales pages whose resolution, as recorded in
+ * the image meta data, is away from a target DPI, e.g., 600 DPI faxes or 96
+ * DPI screenshots to 300 DPI, and lets the engine know the resulting
+ * resolution.
+ * <br>
+ * Inversion detection turns reverse-video (light on dark) pages into dark on
+ * light, which the engine reads far better. Optionally, dark blocks such as
+ * headings on a colored band are also found and inverted on their own. The
+ * pixels are inverted in place on the grayscale array.
+ * <br>
+ * Despeckling labels the connected components of the ink and removes those
+ * below a size or area threshold, the salt-and-pepper noise of faxes and
+ * photocopies that slows down layout analysis and turns into junk characters.
+ * Long horizontal and vertical rule lines can be removed as well.
+ * <br>
+ * Content area detection finds the bounding box of the text from the row and
+ * column projection profiles, leaving out margins and dark scanner borders.
+ * Only that area is then passed to the engine as the region of interest.
+ */
+public class PagePreprocessor {
+
+    /**
+     * Limits of the scale factor applied by resolution normalization.
+     */
+    static final double MIN_SCALE = 0.25;
+    static final double MAX_SCALE = 4.0;
+
+    /**
+     * Fraction of the page width and height ignored on each side by blank
+     * page detection, where scanner edges and punch holes show up.
+     */
+    static final double BLANK_PAGE_MARGIN = 0.05;
+
+    /**
+     * Padding added around the detected content area, as a fraction of the
+     * larger page dimension.
+     */
+    static final double CROP_PADDING = 0.01;
+
+    private boolean blankPageDetection;
+    private double blankPageInkDensity = 0.0005;
+    private int inkContrast = 80;
+    private boolean cropDetection;
+    private boolean inversionDetection;
+    private boolean blockInversionDetection;
+    private boolean despeckle;
+    private int speckleArea = 6;
+    private int speckleSize;
+    private boolean ruleLineRemoval;
+    private int minRuleLength = 150;
+
+    private int targetDpi;
+    private double dpiTolerance = 0.15;
+    private boolean parallel;
+
+    private final static Logger logger = Logger.getLogger(PagePreprocessor.class.getName());
+
+    /**
+     * Sets the resolution pages are normalized to.
+     *
+     * @param targetDpi the target resolution, e.g., 300; 0 disables
+     * resolution normalization
+     */
+    public void setTargetDpi(int targetDpi) {
+        this.targetDpi = targetDpi;
+    }
+
+    /**
+     * @return the target resolution; 0 if resolution normalization is disabled
+     */
+    public int getTargetDpi() {
+        return targetDpi;
+    }
+
+    /**
+     * Sets how far, relative to the target, the resolution of a page may be
+     * before it is rescaled.
+     *
+     * @param dpiTolerance relative tolerance, e.g., 0.15 leaves pages between
+     * 255 and 345 DPI untouched for a target of 300 DPI
+     */
+    public void setDpiTolerance(double dpiTolerance) {
+        this.dpiTolerance = dpiTolerance;
+    }
+
+    /**
+     * Enables skipping blank pages.
+     *
+     * @param blankPageDetection whether to detect and skip blank pages
+     */
+    public void setBlankPageDetection(boolean blankPageDetection) {
+        this.blankPageDetection = blankPageDetection;
+    }
+
+    /**
+     * Sets the ink density under which a page is considered blank.
+     *
+     * @param blankPageInkDensity the fraction of ink pixels, e.g., 0.0005
+     */
+    public void setBlankPageInkDensity(double blankPageInkDensity) {
+        this.blankPageInkDensity = blankPageInkDensity;
+    }
+
+    /**
+     * Sets how much darker, or lighter, than the background a pixel must be
+     * to count as ink.
+     *
+     * @param inkContrast luminance difference, between 0 and 255
+     */
+    public void setInkContrast(int inkContrast) {
+        this.inkContrast = inkContrast;
+    }
+
+    /**
+     * Enables restricting recognition to the detected content area.
+     *
+     * @param cropDetection whether to detect the content area
+     */
+    public void setCropDetection(boolean cropDetection) {
+        this.cropDetection = cropDetection;
+    }
+
+    /**
+     * Enables inverting reverse-video pages.
+     *
+     * @param inversionDetection whether to detect and invert light-on-dark
+     * pages
+     */
+    public void setInversionDetection(boolean inversionDetection) {
+        this.inversionDetection = inversionDetection;
+    }
+
+    /**
+     * Enables inverting reverse-video blocks on pages that are not inverted
+     * as a whole.
+     *
+     * @param blockInversionDetection whether to detect and invert
+     * light-on-dark blocks
+     */
+    public void setBlockInversionDetection(boolean blockInversionDetection) {
+        this.blockInversionDetection = blockInversionDetection;
+    }
+
+    /**
+     * Enables removing small connected components.
+     *
+     * @param despeckle whether to remove speckles
+     */
+    public void setDespeckle(boolean despeckle) {
+        this.despeckle = despeckle;
+    }
+
+    /**
+     * Sets the number of pixels under which a connected component is removed
+     * as a speckle.
+     *
+     * @param speckleArea minimum number of pixels of a component to keep,
+     * e.g., 6
+     */
+    public void setSpeckleArea(int speckleArea) {
+        this.speckleArea = speckleArea;
+    }
+
+    /**
+     * Sets the width and height under which a connected component is removed
+     * as a speckle.
+     *
+     * @param speckleSize minimum width or height of a component to keep; 0
+     * to decide by area only
+     */
+    public void setSpeckleSize(int speckleSize) {
+        this.speckleSize = speckleSize;
+    }
+
+    /**
+     * Enables removing horizontal and vertical rule lines.
+     *
+     * @param ruleLineRemoval whether to remove rule lines
+     */
+    public void setRuleLineRemoval(boolean ruleLineRemoval) {
+        this.ruleLineRemoval = ruleLineRemoval;
+    }
+
+    /**
+     * Sets the length from which a run of ink is taken as a rule line.
+     *
+     * @param minRuleLength minimum length, in pixels of the processed page,
+     * e.g., 150 for half an inch at 300 DPI
+     */
+    public void setMinRuleLength(int minRuleLength) {
+        this.minRuleLength = minRuleLength;
+    }
+
+    /**
+     * Enables processing strips of rows concurrently.
+     *
+     * @param parallel whether image operations may use multiple threads
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * @return true if any stage is enabled
+     */
+    public boolean isEnabled() {
+        return targetDpi > 0 || blankPageDetection || cropDetection || inversionDetection || blockInversionDetection
+                || despeckle || ruleLineRemoval;
+    }
+
+    /**
+     * Describes the settings that affect the prepared pages, for keying cached
+     * results.
+     *
+     * @return the settings of the enabled stages
+     */
+    String getKey() {
+        StringBuilder sb = new StringBuilder();
+        if (targetDpi > 0) {
+            sb.append("dpi=").append(targetDpi).append('/').append(dpiTolerance).append(';');
+        }
+        if (blankPageDetection) {
+            sb.append("blank=").append(blankPageInkDensity).append('/').append(inkContrast).append(';');
+        }
+        if (cropDetection) {
+            sb.append("crop=").append(inkContrast).append(';');
+        }
+        if (inversionDetection || blockInversionDetection) {
+            sb.append("invert=").append(inversionDetection).append('/').append(blockInversionDetection).append(';');
+        }
+        if (despeckle) {
+            sb.append("despeckle=").append(speckleArea).append('/').append(speckleSize).append(';');
+        }
+        if (ruleLineRemoval) {
+            sb.append("rules=").append(minRuleLength).append(';');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Prepares a page for recognition.
+     *
+     * @param oimage the page
+     * @param report receives the decisions made for the page
+     * @return the original image if no stage is enabled; <code>null</code> if
+     * the page is blank; otherwise, a compact <code>TYPE_BYTE_GRAY</code>
+     * image
+     */
+    public RenderedImage process(IIOImage oimage, PageReport report) {
+        RenderedImage image = oimage.getRenderedImage();
+        report.setOriginalSize(image.getWidth(), image.getHeight());
+
+        if (!isEnabled()) {
+            return image;
+        }
+
+        BufferedImage bi = toBufferedImage(image);
+
+        if (blankPageDetection && isBlank(bi, report)) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine(report.toString());
+            }
+            return null;
+        }
+
+        if (targetDpi > 0) {
+            bi = normalizeResolution(oimage, bi, report);
+        }
+
+        BufferedImage gray = toCompactGrayscale(bi);
+
+        if (inversionDetection || blockInversionDetection || despeckle || ruleLineRemoval) {
+            if (gray == bi && gray == oimage.getRenderedImage()) {
+                // never modify the caller's image
+                gray = ImageHelper.cloneImage(gray);
+            }
+        }
+
+        if (inversionDetection || blockInversionDetection) {
+            invert(gray, report);
+        }
+
+        if (despeckle || ruleLineRemoval) {
+            removeNoise(gray, report);
+        }
+
+        if (cropDetection) {
+            detectContentArea(gray, report);
+        }
+
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine(report.toString());
+        }
+
+        return gray;
+    }
+
+    /**
+     * Detects the content area of a grayscale page.
+     */
+    void detectContentArea(BufferedImage gray, PageReport report) {
+        int w = gray.getWidth();
+        int h = gray.getHeight();
+        PageStatistics stats = PageStatistics.compute(gray, null, PageStatistics.DEFAULT_MAX_SAMPLES);
+        int threshold = stats.getBackground() - inkContrast;
+        int padding = (int) (Math.max(w, h) * CROP_PADDING);
+        Rectangle area = ContentAreaDetector.detect(ImageHelper.getGrayscaleBytes(gray), w, h, threshold, padding);
+        if (area != null && (area.width < w || area.height < h)) {
+            report.setCropBox(area);
+        }
+    }
+
+    /**
+     * Inverts a grayscale page, or the reverse-video blocks on it, in place.
+     */
+    void invert(BufferedImage gray, PageReport report) {
+        int w = gray.getWidth();
+        int h = gray.getHeight();
+        byte[] data = ImageHelper.getGrayscaleBytes(gray);
+        if (inversionDetection && InversionDetector.isInverted(data, w, h)) {
+            ImageHelper.invertImageColorInPlace(gray);
+            report.setInverted(true);
+            return;
+        }
+        if (blockInversionDetection) {
+            List<Rectangle> blocks = InversionDetector.findInvertedBlocks(data, w, h, InversionDetector.DEFAULT_CELL_SIZE);
+            for (Rectangle block : blocks) {
+                ImageHelper.invertGrayscale(data, w, block);
+            }
+            report.setInvertedBlocks(blocks);
+        }
+    }
+
+    /**
+     * Removes rule lines and speckles from a grayscale page in place.
+     */
+    void removeNoise(BufferedImage gray, PageReport report) {
+        int w = gray.getWidth();
+        int h = gray.getHeight();
+        byte[] data = ImageHelper.getGrayscaleBytes(gray);
+        int background = PageStatistics.compute(gray, null, PageStatistics.DEFAULT_MAX_SAMPLES).getBackground();
+        int threshold = background - inkContrast;
+        if (ruleLineRemoval) {
+            report.setRemovedRuleLines(ConnectedComponents.removeRuleLines(data, w, h, threshold, minRuleLength, (byte) background, parallel));
+        }
+        if (despeckle) {
+            ConnectedComponents components = ConnectedComponents.label(data, w, h, threshold, parallel);
+            report.setRemovedSpeckles(components.removeSmall(data, speckleArea, speckleSize, (byte) background));
+        }
+    }
+
+    /**
+     * Classifies a page as blank from a sparse sample of its luminance,
+     * ignoring the margins.
+     */
+    boolean isBlank(BufferedImage bi, PageReport report) {
+        int marginX = (int) (bi.getWidth() * BLANK_PAGE_MARGIN);
+        int marginY = (int) (bi.getHeight() * BLANK_PAGE_MARGIN);
+        Rectangle area = new Rectangle(marginX, marginY, bi.getWidth() - 2 * marginX, bi.getHeight() - 2 * marginY);
+        PageStatistics stats = PageStatistics.compute(bi, area, PageStatistics.DEFAULT_MAX_SAMPLES);
+        double inkDensity = stats.getInkDensity(inkContrast);
+        report.setInkDensity(inkDensity);
+        report.setBlank(inkDensity < blankPageInkDensity);
+        return report.isBlank();
+    }
+
+    /**
+     * Rescales a page to the target resolution. Each axis is normalized
+     * separately, so pages with different horizontal and vertical resolution,
+     * such as faxes, end up with square pixels.
+     */
+    BufferedImage normalizeResolution(IIOImage oimage, BufferedImage bi, PageReport report) {
+        int[] dpi = ImageIOHelper.getImageResolution(oimage);
+        int dpiX = dpi[0] > 0 ? dpi[0] : dpi[1];
+        int dpiY = dpi[1] > 0 ? dpi[1] : dpi[0];
+        report.setResolution(dpiX, dpiY);
+
+        if (dpiX <= 0) {
+            // unknown resolution; leave the page as it is
+            return bi;
+        }
+
+        if (Math.abs((double) dpiX / targetDpi - 1) <= dpiTolerance && Math.abs((double) dpiY / targetDpi - 1) <= dpiTolerance) {
+            report.setEffectiveDpi(Math.round((dpiX + dpiY) / 2f));
+            return bi;
+        }
+
+        double scaleX = clamp((double) targetDpi / dpiX);
+        double scaleY = clamp((double) targetDpi / dpiY);
+        int width = Math.max(1, (int) Math.round(bi.getWidth() * scaleX));
+        int height = Math.max(1, (int) Math.round(bi.getHeight() * scaleY));
+
+        BufferedImage scaled = ImageHelper.getScaledGrayscaleInstance(bi, width, height, parallel);
+        report.setScaledSize(width, height);
+        report.setEffectiveDpi((int) Math.round(dpiY * report.getScaleY()));
+        return scaled;
+    }
+
+    private static double clamp(double scale) {
+        return Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+    }
+
+    /**
+     * Returns a rendered image as a <code>BufferedImage</code>, copying its
+     * pixels only if it is not one already.
+     */
+    static BufferedImage toBufferedImage(RenderedImage image) {
+        if (image instanceof BufferedImage) {
+            return (BufferedImage) image;
+        }
+        ColorModel cm = image.getColorModel();
+        WritableRaster raster = cm.createCompatibleWritableRaster(image.getWidth(), image.getHeight());
+        image.copyData(raster);
+        return new BufferedImage(cm, raster, cm.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * Returns the image as grayscale whose pixel array has no padding, so it
+     * can be passed to the engine as is.
+     */
+    private static BufferedImage toCompactGrayscale(BufferedImage bi) {
+        byte[] data = ImageHelper.getGrayscaleBytes(bi);
+        if (bi.getType() == BufferedImage.TYPE_BYTE_GRAY && ((DataBufferByte) bi.getRaster().getDataBuffer()).getData() == data) {
+            return bi;
+        }
+        return ImageHelper.createGrayscaleImage(data, bi.getWidth(), bi.getHeight());
+    }
+}
@@ -0,0 +1,361 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes how a page was prepared before it was handed to the engine: its
+ * original size and resolution, and the size and resolution actually
+ * recognized. Rectangles can be mapped between the two coordinate systems.
+ */
+public class PageReport {
+
+    private final int pageNumber;
+    private int originalWidth;
+    private int originalHeight;
+    private int dpiX;
+    private int dpiY;
+    private int width;
+    private int height;
+    private double scaleX = 1.0;
+    private double scaleY = 1.0;
+    private int effectiveDpi;
+    private boolean blank;
+    private double inkDensity = -1;
+    private Rectangle cropBox;
+    private boolean inverted;
+    private List<Rectangle> invertedBlocks = Collections.emptyList();
+    private int removedSpeckles;
+    private int removedRuleLines;
+    private String duplicateOf;
+    private boolean reused;
+
+    /**
+     * Creates a report for a page.
+     *
+     * @param pageNumber page number, starting from 1
+     */
+    public PageReport(int pageNumber) {
+        this.pageNumber = pageNumber;
+    }
+
+    /**
+     * @return the page number, starting from 1
+     */
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    /**
+     * @return the width of the original image
+     */
+    public int getOriginalWidth() {
+        return originalWidth;
+    }
+
+    /**
+     * @return the height of the original image
+     */
+    public int getOriginalHeight() {
+        return originalHeight;
+    }
+
+    void setOriginalSize(int width, int height) {
+        this.originalWidth = width;
+        this.originalHeight = height;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * @return the horizontal resolution recorded in the image; 0 if unknown
+     */
+    public int getDpiX() {
+        return dpiX;
+    }
+
+    /**
+     * @return the vertical resolution recorded in the image; 0 if unknown
+     */
+    public int getDpiY() {
+        return dpiY;
+    }
+
+    void setResolution(int dpiX, int dpiY) {
+        this.dpiX = dpiX;
+        this.dpiY = dpiY;
+    }
+
+    /**
+     * @return the width of the image sent to the engine
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the image sent to the engine
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return true if the page was found to look like an earlier page
+     */
+    public boolean isDuplicate() {
+        return duplicateOf != null;
+    }
+
+    /**
+     * @return true if the page was not recognized, but got the text of the
+     * identical page it duplicates
+     */
+    public boolean isReused() {
+        return reused;
+    }
+
+    /**
+     * @return the source of the earlier page this page duplicates;
+     * <code>null</code> if it is not a duplicate
+     */
+    public String getDuplicateOf() {
+        return duplicateOf;
+    }
+
+    void setDuplicateOf(String duplicateOf, boolean reused) {
+        this.duplicateOf = duplicateOf;
+        this.reused = reused;
+    }
+
+    /**
+     * @return the horizontal scale factor applied to the original image
+     */
+    public double getScaleX() {
+        return scaleX;
+    }
+
+    /**
+     * @return the vertical scale factor applied to the original image
+     */
+    public double getScaleY() {
+        return scaleY;
+    }
+
+    void setScaledSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.scaleX = (double) width / originalWidth;
+        this.scaleY = (double) height / originalHeight;
+    }
+
+    /**
+     * @return the resolution passed to the engine; 0 if none was set
+     */
+    public int getEffectiveDpi() {
+        return effectiveDpi;
+    }
+
+    void setEffectiveDpi(int effectiveDpi) {
+        this.effectiveDpi = effectiveDpi;
+    }
+
+    /**
+     * @return true if the page was classified as blank and not recognized
+     */
+    public boolean isBlank() {
+        return blank;
+    }
+
+    void setBlank(boolean blank) {
+        this.blank = blank;
+    }
+
+    /**
+     * @return the estimated fraction of ink pixels; -1 if not measured
+     */
+    public double getInkDensity() {
+        return inkDensity;
+    }
+
+    void setInkDensity(double inkDensity) {
+        this.inkDensity = inkDensity;
+    }
+
+    /**
+     * Gets the detected content area, the only part of the page passed to the
+     * engine. Like word bounding boxes, it is in processed image coordinates;
+     * use {@link #toOriginalCoordinates(Rectangle)} to map it back to the
+     * original page.
+     *
+     * @return the content area, or <code>null</code> if the whole page was
+     * recognized
+     */
+    public Rectangle getCropBox() {
+        return cropBox == null ? null : new Rectangle(cropBox);
+    }
+
+    void setCropBox(Rectangle cropBox) {
+        this.cropBox = cropBox;
+    }
+
+    /**
+     * @return true if the whole page was reverse video and was inverted
+     * before recognition
+     */
+    public boolean isInverted() {
+        return inverted;
+    }
+
+    void setInverted(boolean inverted) {
+        this.inverted = inverted;
+    }
+
+    /**
+     * Gets the reverse-video blocks inverted on an otherwise normal page, in
+     * processed image coordinates.
+     *
+     * @return the inverted blocks; empty if there were none
+     */
+    public List<Rectangle> getInvertedBlocks() {
+        return Collections.unmodifiableList(invertedBlocks);
+    }
+
+    void setInvertedBlocks(List<Rectangle> invertedBlocks) {
+        this.invertedBlocks = new ArrayList<Rectangle>(invertedBlocks);
+    }
+
+    /**
+     * @return the number of small connected components removed as noise
+     */
+    public int getRemovedSpeckles() {
+        return removedSpeckles;
+    }
+
+    void setRemovedSpeckles(int removedSpeckles) {
+        this.removedSpeckles = removedSpeckles;
+    }
+
+    /**
+     * @return the number of horizontal and vertical line runs removed
+     */
+    public int getRemovedRuleLines() {
+        return removedRuleLines;
+    }
+
+    void setRemovedRuleLines(int removedRuleLines) {
+        this.removedRuleLines = removedRuleLines;
+    }
+
+    /**
+     * Gets the region of the processed image to be recognized: the
+     * intersection of the requested region of interest and the content area.
+     *
+     * @param rect a region of interest in original image coordinates; may be
+     * <code>null</code>
+     * @return the region in processed image coordinates, or <code>null</code>
+     * for the whole image
+     */
+    public Rectangle getRecognitionRegion(Rectangle rect) {
+        Rectangle region = toProcessedCoordinates(rect);
+        if (cropBox == null) {
+            return region;
+        }
+        if (region == null) {
+            return new Rectangle(cropBox);
+        }
+        Rectangle intersection = region.intersection(cropBox);
+        return intersection.isEmpty() ? region : intersection;
+    }
+
+    /**
+     * @return true if the page was rescaled before recognition
+     */
+    public boolean isRescaled() {
+        return width != originalWidth || height != originalHeight;
+    }
+
+    /**
+     * @return the number of megapixels spared by rescaling; negative if the
+     * page was enlarged
+     */
+    public double getSavedMegapixels() {
+        return ((long) originalWidth * originalHeight - (long) width * height) / 1e6;
+    }
+
+    /**
+     * Maps a rectangle on the original image to the image sent to the engine.
+     *
+     * @param rect a rectangle in original image coordinates; may be
+     * <code>null</code>
+     * @return the corresponding rectangle, or <code>null</code> if
+     * <code>rect</code> is <code>null</code> or empty
+     */
+    public Rectangle toProcessedCoordinates(Rectangle rect) {
+        if (rect == null || rect.isEmpty()) {
+            return null;
+        }
+        int x1 = (int) Math.floor(rect.x * scaleX);
+        int y1 = (int) Math.floor(rect.y * scaleY);
+        int x2 = (int) Math.ceil((rect.x + rect.width) * scaleX);
+        int y2 = (int) Math.ceil((rect.y + rect.height) * scaleY);
+        return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    /**
+     * Maps a rectangle on the image sent to the engine, such as a word
+     * bounding box, back to the original image.
+     *
+     * @param rect a rectangle in processed image coordinates
+     * @return the corresponding rectangle on the original image
+     */
+    public Rectangle toOriginalCoordinates(Rectangle rect) {
+        int x1 = (int) Math.floor(rect.x / scaleX);
+        int y1 = (int) Math.floor(rect.y / scaleY);
+        int x2 = (int) Math.ceil((rect.x + rect.width) / scaleX);
+        int y2 = (int) Math.ceil((rect.y + rect.height) / scaleY);
+        return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    @Override
+    public String toString() {
+        if (blank) {
+            return String.format("Page %d: %dx%d blank (ink density %.5f)", pageNumber, originalWidth, originalHeight, inkDensity);
+        }
+        if (reused) {
+            return String.format("Page %d: %dx%d duplicate of %s", pageNumber, originalWidth, originalHeight, duplicateOf);
+        }
+        String str = String.format("Page %d: %dx%d at %dx%d dpi -> %dx%d at %d dpi (%.2f MP saved)",
+                pageNumber, originalWidth, originalHeight, dpiX, dpiY, width, height, effectiveDpi, getSavedMegapixels());
+        if (inverted) {
+            str += ", inverted";
+        } else if (!invertedBlocks.isEmpty()) {
+            str += String.format(", %d inverted blocks", invertedBlocks.size());
+        }
+        if (removedSpeckles > 0 || removedRuleLines > 0) {
+            str += String.format(", %d speckles and %d line runs removed", removedSpeckles, removedRuleLines);
+        }
+        if (duplicateOf != null) {
+            str += ", looks like " + duplicateOf;
+        }
+        if (cropBox != null) {
+            str += String.format(", content area %d,%d %dx%d", cropBox.x, cropBox.y, cropBox.width, cropBox.height);
+        }
+        return str;
+    }
+}
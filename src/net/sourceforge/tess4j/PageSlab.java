@@ -0,0 +1,207 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A memory-mapped file shared by a {@link WorkerPool} and its workers, for
+ * handing over page pixels without sending them over the socket. The pool
+ * writes a page into a region of the slab and sends the workers only its
+ * offset and length; a worker passes a slice of its own mapping of the file
+ * to the native library, without copying.
+ * <br>
+ * Regions are allocated first fit from a list of free blocks, which are
+ * merged with their neighbors when freed. When the slab is full,
+ * allocation waits for pages to be freed.
+ */
+class PageSlab {
+
+    /**
+     * Regions start on cache lines.
+     */
+    static final int ALIGNMENT = 64;
+
+    private final File file;
+    private final MappedByteBuffer buf;
+    private final int capacity;
+    // free blocks, offset to length
+    private final TreeMap<Integer, Integer> free = new TreeMap<Integer, Integer>();
+    private boolean closed;
+
+    /**
+     * Creates a slab in a temporary file.
+     *
+     * @param capacity size of the slab, in bytes
+     * @throws IOException
+     */
+    PageSlab(int capacity) throws IOException {
+        this.capacity = capacity & -ALIGNMENT;
+        file = File.createTempFile("tess4j", ".slab");
+        file.deleteOnExit();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(this.capacity);
+            buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, this.capacity);
+        } finally {
+            raf.close();
+        }
+        free.put(0, this.capacity);
+    }
+
+    /**
+     * Maps a slab created by another process, for reading.
+     *
+     * @param file the slab file
+     * @return the mapping
+     * @throws IOException
+     */
+    static ByteBuffer map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Returns a region of a mapping as a buffer of its own, starting at 0, as
+     * the native library takes it.
+     *
+     * @param mapping the mapping of a slab
+     * @param offset start of the region
+     * @param length length of the region
+     * @return the region
+     */
+    static ByteBuffer slice(ByteBuffer mapping, int offset, int length) {
+        ByteBuffer region = mapping.duplicate();
+        region.limit(offset + length);
+        region.position(offset);
+        return region.slice().order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * @return the slab file
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the size of the slab
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Allocates a region, waiting for one to be freed if needed.
+     *
+     * @param length length of the region
+     * @return the offset of the region; -1 if the slab is too small for it
+     * @throws IOException if the slab is closed
+     * @throws InterruptedException
+     */
+    synchronized int allocate(int length) throws IOException, InterruptedException {
+        int size = align(length);
+        if (size > capacity || length <= 0) {
+            return -1;
+        }
+        while (true) {
+            if (closed) {
+                throw new IOException("Slab is closed.");
+            }
+            for (Map.Entry<Integer, Integer> block : free.entrySet()) {
+                if (block.getValue() >= size) {
+                    int offset = block.getKey();
+                    free.remove(offset);
+                    if (block.getValue() > size) {
+                        free.put(offset + size, block.getValue() - size);
+                    }
+                    return offset;
+                }
+            }
+            wait();
+        }
+    }
+
+    /**
+     * Frees a region.
+     *
+     * @param offset start of the region
+     * @param length length it was allocated with
+     */
+    synchronized void free(int offset, int length) {
+        int size = align(length);
+        Map.Entry<Integer, Integer> next = free.ceilingEntry(offset);
+        if (next != null && next.getKey() == offset + size) {
+            free.remove(next.getKey());
+            size += next.getValue();
+        }
+        Map.Entry<Integer, Integer> previous = free.lowerEntry(offset);
+        if (previous != null && previous.getKey() + previous.getValue() == offset) {
+            offset = previous.getKey();
+            size += previous.getValue();
+        }
+        free.put(offset, size);
+        notifyAll();
+    }
+
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    /**
+     * Returns a region of the slab, for writing a page.
+     *
+     * @param offset start of the region
+     * @param length length of the region
+     * @return the region
+     */
+    ByteBuffer getRegion(int offset, int length) {
+        return slice(buf, offset, length);
+    }
+
+    /**
+     * @return the bytes free
+     */
+    synchronized int getFreeBytes() {
+        int total = 0;
+        for (int length : free.values()) {
+            total += length;
+        }
+        return total;
+    }
+
+    /**
+     * Wakes up waiting allocations, which fail, and deletes the file. On
+     * some platforms, the file stays until the mapping is collected, or the
+     * JVM exits.
+     */
+    synchronized void close() {
+        closed = true;
+        notifyAll();
+        file.delete();
+    }
+}
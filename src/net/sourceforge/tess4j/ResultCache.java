@@ -0,0 +1,204 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in-memory cache of recognized text, bounded by its size in bytes and
+ * evicting the least recently used entries first.
+ * <br>
+ * Entries are keyed by a content hash, of the raw bytes of a file or of the
+ * decoded pixels of a page, and by a fingerprint of the engine configuration
+ * that produced them, so a result is only reused for the same input
+ * recognized the same way. A cache is thread safe and can be shared by
+ * several <code>Tesseract</code> instances.
+ */
+public class ResultCache {
+
+    /**
+     * Estimated bytes taken by an entry besides its text: key, map entry and
+     * string headers.
+     */
+    static final int ENTRY_OVERHEAD = 120;
+
+    /**
+     * Key of an entry.
+     */
+    private static class Key {
+
+        final long contentHash;
+        final long configHash;
+
+        Key(long contentHash, long configHash) {
+            this.contentHash = contentHash;
+            this.configHash = configHash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return contentHash == other.contentHash && configHash == other.configHash;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = contentHash * 31 + configHash;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, String> entries = new LinkedHashMap<Key, String>(64, 0.75f, true);
+    private long bytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxBytes the maximum size of the cached entries, in bytes
+     */
+    public ResultCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive.");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param text a cached text
+     * @return the estimated size of an entry holding the text, in bytes
+     */
+    static long sizeOf(String text) {
+        return ENTRY_OVERHEAD + 2L * text.length();
+    }
+
+    /**
+     * Looks up a result, counting a hit or a miss.
+     *
+     * @param contentHash hash of the input
+     * @param configHash fingerprint of the engine configuration
+     * @return the cached text; <code>null</code> if not cached
+     */
+    public synchronized String get(long contentHash, long configHash) {
+        String text = entries.get(new Key(contentHash, configHash));
+        if (text != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return text;
+    }
+
+    /**
+     * Caches a result, evicting the least recently used entries to stay
+     * within the maximum size. A text larger than the whole cache is not
+     * cached.
+     *
+     * @param contentHash hash of the input
+     * @param configHash fingerprint of the engine configuration
+     * @param text the recognized text
+     */
+    public synchronized void put(long contentHash, long configHash, String text) {
+        long size = sizeOf(text);
+        if (size > maxBytes) {
+            return;
+        }
+        String old = entries.put(new Key(contentHash, configHash), text);
+        if (old != null) {
+            bytes -= sizeOf(old);
+        }
+        bytes += size;
+
+        Iterator<Map.Entry<Key, String>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<Key, String> eldest = it.next();
+            bytes -= sizeOf(eldest.getValue());
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Removes all entries; the counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return the maximum size of the cached entries, in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the estimated size of the cached entries, in bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of lookups that found a result
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of lookups that found no result
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of entries evicted to stay within the maximum size
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the fraction of lookups that found a result; 0 if there were
+     * none
+     */
+    public synchronized double getHitRatio() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("entries: %d, bytes: %d/%d, hits: %d, misses: %d (%.1f%% hits), evictions: %d",
+                entries.size(), bytes, maxBytes, hitCount, missCount, 100 * getHitRatio(), evictionCount);
+    }
+}
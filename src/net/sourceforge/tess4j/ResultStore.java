@@ -0,0 +1,653 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A persistent store of recognized text, surviving restarts of the JVM.
+ * <br>
+ * Results are appended, deflated, to segment files in a directory. A
+ * memory-mapped open-addressing hash table maps each (content hash,
+ * configuration fingerprint) key to the segment and offset of its latest
+ * record. A store is opened by one process at a time, which holds a lock file
+ * while it is open; within that process, lookups run concurrently and writes
+ * are serialized.
+ * <br>
+ * Superseded records stay in their segments until {@link #compact()} copies
+ * the live records to new segments. If the index is missing or damaged, it is
+ * rebuilt from the segments when the store is opened.
+ */
+public class ResultStore {
+
+    static final int SEGMENT_MAGIC = 0x54345347; // T4SG
+    static final int INDEX_MAGIC = 0x54344958; // T4IX
+
+    /**
+     * Record header: content hash, configuration hash, compressed length,
+     * text length and CRC of the text.
+     */
+    static final int RECORD_HEADER = 8 + 8 + 4 + 4 + 4;
+
+    /**
+     * Index header: magic, capacity, count, and the write segment and its
+     * length as of the last update; each slot holds the two hashes and the
+     * location of the record.
+     */
+    static final int INDEX_HEADER = 24;
+    static final int SLOT_SIZE = 24;
+    static final int INITIAL_CAPACITY = 1 << 12;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int OFFSET_BITS = 40;
+
+    private final File directory;
+    private final long maxSegmentSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, FileChannel> segments = new TreeMap<Integer, FileChannel>();
+    private final RandomAccessFile lockFile;
+    private final FileLock fileLock;
+
+    private int indexGeneration;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int count;
+    private int writeSegment;
+    private long writeOffset;
+    private long garbageBytes;
+    private boolean closed;
+
+    private final static Logger logger = Logger.getLogger(ResultStore.class.getName());
+
+    /**
+     * Opens a store, creating the directory if needed.
+     *
+     * @param directory the directory of the store
+     * @throws IOException if the store cannot be opened, or is open in
+     * another process
+     */
+    public ResultStore(File directory) throws IOException {
+        this(directory, 256L << 20);
+    }
+
+    /**
+     * Opens a store, creating the directory if needed.
+     *
+     * @param directory the directory of the store
+     * @param maxSegmentSize the size at which a new segment file is started
+     * @throws IOException if the store cannot be opened, or is open in
+     * another process
+     */
+    public ResultStore(File directory, long maxSegmentSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        this.directory = directory;
+        this.maxSegmentSize = Math.max(1 << 16, Math.min(maxSegmentSize, (1L << OFFSET_BITS) - 1));
+
+        lockFile = new RandomAccessFile(new File(directory, "lock"), "rw");
+        fileLock = lockFile.getChannel().tryLock();
+        if (fileLock == null) {
+            lockFile.close();
+            throw new IOException("Store is in use by another process: " + directory);
+        }
+
+        try {
+            open();
+        } catch (IOException e) {
+            closeFiles();
+            throw e;
+        }
+    }
+
+    private void open() throws IOException {
+        File[] files = directory.listFiles();
+        int latestIndex = 0;
+        for (File file : files != null ? files : new File[0]) {
+            String name = file.getName();
+            if (name.endsWith(".seg")) {
+                int id = parseId(name);
+                if (id > 0) {
+                    segments.put(id, new RandomAccessFile(file, "rw").getChannel());
+                }
+            } else if (name.endsWith(".idx")) {
+                latestIndex = Math.max(latestIndex, parseId(name));
+            }
+        }
+
+        boolean loaded = false;
+        if (latestIndex > 0) {
+            loaded = loadIndex(latestIndex);
+        }
+        deleteIndexFiles(loaded ? latestIndex : -1);
+
+        boolean empty = segments.isEmpty();
+        if (empty) {
+            startSegment(1);
+        } else {
+            writeSegment = lastSegment();
+            writeOffset = segments.get(writeSegment).size();
+        }
+
+        if (!loaded || !checkTail()) {
+            if (!empty) {
+                logger.log(Level.INFO, "Rebuilding result store index in {0}", directory);
+            }
+            rebuildIndex(latestIndex + 1);
+        }
+    }
+
+    private static int parseId(String name) {
+        try {
+            return Integer.parseInt(name.substring(0, name.indexOf('.')));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private int lastSegment() {
+        int last = 0;
+        for (int id : segments.keySet()) {
+            last = id;
+        }
+        return last;
+    }
+
+    private File segmentFile(int id) {
+        return new File(directory, String.format("%08d.seg", id));
+    }
+
+    private File indexFile(int generation) {
+        return new File(directory, String.format("%08d.idx", generation));
+    }
+
+    private void startSegment(int id) throws IOException {
+        FileChannel channel = new RandomAccessFile(segmentFile(id), "rw").getChannel();
+        ByteBuffer header = ByteBuffer.allocate(4);
+        header.putInt(0, SEGMENT_MAGIC);
+        channel.write(header, 0);
+        segments.put(id, channel);
+        writeSegment = id;
+        writeOffset = 4;
+    }
+
+    private boolean loadIndex(int generation) throws IOException {
+        FileChannel channel = new RandomAccessFile(indexFile(generation), "rw").getChannel();
+        if (channel.size() >= INDEX_HEADER) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int cap = buffer.getInt(4);
+            if (buffer.getInt(0) == INDEX_MAGIC && Integer.bitCount(cap) == 1
+                    && channel.size() == INDEX_HEADER + (long) cap * SLOT_SIZE) {
+                indexGeneration = generation;
+                indexChannel = channel;
+                index = buffer;
+                capacity = cap;
+                count = buffer.getInt(8);
+                return true;
+            }
+        }
+        channel.close();
+        return false;
+    }
+
+    /**
+     * Checks that the index was updated after the last record was appended,
+     * i.e., the process did not stop between writing a record and indexing
+     * it.
+     */
+    private boolean checkTail() {
+        return index.getInt(12) == writeSegment && index.getLong(16) == writeOffset;
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        while (header.hasRemaining()) {
+            if (channel.read(header, offset + header.position()) < 0) {
+                return null;
+            }
+        }
+        header.flip();
+        return header;
+    }
+
+    private void createIndex(int generation, int cap) throws IOException {
+        FileChannel channel = new RandomAccessFile(indexFile(generation), "rw").getChannel();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER + (long) cap * SLOT_SIZE);
+        buffer.putInt(0, INDEX_MAGIC);
+        buffer.putInt(4, cap);
+        buffer.putInt(8, 0);
+
+        if (indexChannel != null) {
+            // a mapping cannot be released explicitly; the old file is deleted once it can be
+            indexChannel.close();
+            if (!indexFile(indexGeneration).delete()) {
+                indexFile(indexGeneration).deleteOnExit();
+            }
+        }
+        indexGeneration = generation;
+        indexChannel = channel;
+        index = buffer;
+        capacity = cap;
+        count = 0;
+    }
+
+    private void deleteIndexFiles(int keep) {
+        File[] files = directory.listFiles();
+        for (File file : files != null ? files : new File[0]) {
+            if (file.getName().endsWith(".idx") && parseId(file.getName()) != keep && !file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index by scanning the segments in order; later records
+     * supersede earlier ones. A truncated or corrupt record ends its segment.
+     */
+    private void rebuildIndex(int generation) throws IOException {
+        createIndex(generation, INITIAL_CAPACITY);
+        garbageBytes = 0;
+        for (Map.Entry<Integer, FileChannel> entry : segments.entrySet()) {
+            FileChannel channel = entry.getValue();
+            long offset = 4;
+            long size = channel.size();
+            while (offset + RECORD_HEADER <= size) {
+                ByteBuffer header = readHeader(channel, offset);
+                int length = header.getInt(16);
+                if (length < 0 || offset + RECORD_HEADER + length > size || readText(channel, offset, header) == null) {
+                    break;
+                }
+                insert(header.getLong(0), header.getLong(8), location(entry.getKey(), offset), RECORD_HEADER + length);
+                offset += RECORD_HEADER + length;
+            }
+            if (offset < size) {
+                logger.log(Level.WARNING, "Truncating damaged segment {0} at {1}", new Object[]{entry.getKey(), offset});
+                channel.truncate(offset);
+            }
+        }
+        writeOffset = segments.get(writeSegment).size();
+        updateHeader();
+    }
+
+    private void updateHeader() {
+        index.putInt(8, count);
+        index.putInt(12, writeSegment);
+        index.putLong(16, writeOffset);
+    }
+
+    private static long location(int segment, long offset) {
+        return ((long) segment << OFFSET_BITS) | offset;
+    }
+
+    private static int slot(long contentHash, long configHash, int cap) {
+        long h = contentHash ^ (configHash * 0x9e3779b97f4a7c15L);
+        return (int) (h ^ (h >>> 32)) & (cap - 1);
+    }
+
+    /**
+     * @return the index of the slot holding the key; -1 if absent
+     */
+    private int find(long contentHash, long configHash) {
+        int i = slot(contentHash, configHash, capacity);
+        while (true) {
+            int pos = INDEX_HEADER + i * SLOT_SIZE;
+            long location = index.getLong(pos + 16);
+            if (location == 0) {
+                return -1;
+            }
+            if (index.getLong(pos) == contentHash && index.getLong(pos + 8) == configHash) {
+                return i;
+            }
+            i = (i + 1) & (capacity - 1);
+        }
+    }
+
+    private void insert(long contentHash, long configHash, long location, long recordSize) throws IOException {
+        int i = find(contentHash, configHash);
+        if (i >= 0) {
+            long old = index.getLong(INDEX_HEADER + i * SLOT_SIZE + 16);
+            garbageBytes += recordSize(old);
+            index.putLong(INDEX_HEADER + i * SLOT_SIZE + 16, location);
+            return;
+        }
+        if (2 * (count + 1) > capacity) {
+            grow();
+        }
+        i = slot(contentHash, configHash, capacity);
+        while (index.getLong(INDEX_HEADER + i * SLOT_SIZE + 16) != 0) {
+            i = (i + 1) & (capacity - 1);
+        }
+        int pos = INDEX_HEADER + i * SLOT_SIZE;
+        index.putLong(pos, contentHash);
+        index.putLong(pos + 8, configHash);
+        index.putLong(pos + 16, location);
+        count++;
+    }
+
+    private long recordSize(long location) throws IOException {
+        ByteBuffer header = readHeader(segments.get((int) (location >>> OFFSET_BITS)), location & ((1L << OFFSET_BITS) - 1));
+        return header == null ? 0 : RECORD_HEADER + header.getInt(16);
+    }
+
+    private void grow() throws IOException {
+        MappedByteBuffer old = index;
+        int oldCapacity = capacity;
+        createIndex(indexGeneration + 1, capacity * 2);
+        for (int i = 0; i < oldCapacity; i++) {
+            int pos = INDEX_HEADER + i * SLOT_SIZE;
+            long location = old.getLong(pos + 16);
+            if (location != 0) {
+                long contentHash = old.getLong(pos);
+                long configHash = old.getLong(pos + 8);
+                int j = slot(contentHash, configHash, capacity);
+                while (index.getLong(INDEX_HEADER + j * SLOT_SIZE + 16) != 0) {
+                    j = (j + 1) & (capacity - 1);
+                }
+                int newPos = INDEX_HEADER + j * SLOT_SIZE;
+                index.putLong(newPos, contentHash);
+                index.putLong(newPos + 8, configHash);
+                index.putLong(newPos + 16, location);
+                count++;
+            }
+        }
+        updateHeader();
+    }
+
+    /**
+     * Reads and inflates the text of a record.
+     *
+     * @return the text; <code>null</code> if the record is damaged
+     */
+    private static String readText(FileChannel channel, long offset, ByteBuffer header) throws IOException {
+        int length = header.getInt(16);
+        int textLength = header.getInt(20);
+        if (length < 0 || textLength < 0) {
+            return null;
+        }
+        ByteBuffer data = ByteBuffer.allocate(length);
+        while (data.hasRemaining()) {
+            if (channel.read(data, offset + RECORD_HEADER + data.position()) < 0) {
+                return null;
+            }
+        }
+
+        byte[] text = new byte[textLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.array());
+            if (inflater.inflate(text) != textLength) {
+                return null;
+            }
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(text);
+        if ((int) crc.getValue() != header.getInt(24)) {
+            return null;
+        }
+        return new String(text, UTF8);
+    }
+
+    /**
+     * Looks up a result.
+     *
+     * @param contentHash hash of the input
+     * @param configHash fingerprint of the engine configuration
+     * @return the stored text; <code>null</code> if not stored
+     * @throws IOException
+     */
+    public String get(long contentHash, long configHash) throws IOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            int i = find(contentHash, configHash);
+            if (i < 0) {
+                return null;
+            }
+            long location = index.getLong(INDEX_HEADER + i * SLOT_SIZE + 16);
+            FileChannel channel = segments.get((int) (location >>> OFFSET_BITS));
+            long offset = location & ((1L << OFFSET_BITS) - 1);
+            ByteBuffer header = readHeader(channel, offset);
+            return header == null ? null : readText(channel, offset, header);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a result, superseding any previous result for the same key.
+     *
+     * @param contentHash hash of the input
+     * @param configHash fingerprint of the engine configuration
+     * @param text the recognized text
+     * @throws IOException
+     */
+    public void put(long contentHash, long configHash, String text) throws IOException {
+        byte[] bytes = text.getBytes(UTF8);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] compressed;
+        int length;
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            compressed = new byte[Math.max(64, bytes.length + bytes.length / 1000 + 64)];
+            length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = java.util.Arrays.copyOf(compressed, 2 * compressed.length);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length);
+        record.putLong(contentHash).putLong(configHash).putInt(length).putInt(bytes.length).putInt((int) crc.getValue());
+        record.put(compressed, 0, length);
+        record.flip();
+
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            append(contentHash, configHash, record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(long contentHash, long configHash, ByteBuffer record) throws IOException {
+        if (writeOffset + record.remaining() > maxSegmentSize && writeOffset > 4) {
+            startSegment(writeSegment + 1);
+        }
+        long offset = writeOffset;
+        int size = record.remaining();
+        FileChannel channel = segments.get(writeSegment);
+        while (record.hasRemaining()) {
+            channel.write(record, offset + record.position());
+        }
+        writeOffset += size;
+        insert(contentHash, configHash, location(writeSegment, offset), size);
+        updateHeader();
+    }
+
+    /**
+     * Copies the live records to new segments and deletes the old segments,
+     * reclaiming the space of superseded records. Lookups wait until
+     * compaction is done.
+     *
+     * @throws IOException
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            List<long[]> live = new ArrayList<long[]>(count);
+            for (int i = 0; i < capacity; i++) {
+                int pos = INDEX_HEADER + i * SLOT_SIZE;
+                long location = index.getLong(pos + 16);
+                if (location != 0) {
+                    live.add(new long[]{location, index.getLong(pos), index.getLong(pos + 8)});
+                }
+            }
+            // copy in storage order, so reads of the old segments are sequential
+            java.util.Collections.sort(live, new java.util.Comparator<long[]>() {
+                @Override
+                public int compare(long[] a, long[] b) {
+                    return a[0] < b[0] ? -1 : a[0] > b[0] ? 1 : 0;
+                }
+            });
+
+            Map<Integer, FileChannel> old = new TreeMap<Integer, FileChannel>(segments);
+            int cap = INITIAL_CAPACITY;
+            while (2 * live.size() > cap) {
+                cap *= 2;
+            }
+            createIndex(indexGeneration + 1, cap);
+            startSegment(writeSegment + 1);
+            updateHeader();
+
+            for (long[] entry : live) {
+                FileChannel channel = old.get((int) (entry[0] >>> OFFSET_BITS));
+                long offset = entry[0] & ((1L << OFFSET_BITS) - 1);
+                ByteBuffer header = readHeader(channel, offset);
+                ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + header.getInt(16));
+                while (record.hasRemaining()) {
+                    if (channel.read(record, offset + record.position()) < 0) {
+                        throw new IOException("Truncated record in segment " + (entry[0] >>> OFFSET_BITS));
+                    }
+                }
+                record.flip();
+                append(entry[1], entry[2], record);
+            }
+            force();
+
+            for (Map.Entry<Integer, FileChannel> entry : old.entrySet()) {
+                entry.getValue().close();
+                segments.remove(entry.getKey());
+                if (!segmentFile(entry.getKey()).delete()) {
+                    logger.log(Level.WARNING, "Cannot delete segment {0}", segmentFile(entry.getKey()));
+                }
+            }
+            garbageBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the segments and the index to disk.
+     *
+     * @throws IOException
+     */
+    public void force() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            segments.get(writeSegment).force(false);
+            index.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of stored results
+     */
+    public int getSize() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the bytes taken by superseded records, which compaction would
+     * reclaim; counted since the store was opened or last compacted
+     */
+    public long getGarbageBytes() {
+        lock.readLock().lock();
+        try {
+            return garbageBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Store is closed.");
+        }
+    }
+
+    /**
+     * Writes pending changes to disk and closes the store.
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            force();
+            closed = true;
+            closeFiles();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void closeFiles() throws IOException {
+        for (FileChannel channel : segments.values()) {
+            channel.close();
+        }
+        segments.clear();
+        if (indexChannel != null) {
+            indexChannel.close();
+        }
+        index = null;
+        fileLock.release();
+        lockFile.close();
+    }
+}
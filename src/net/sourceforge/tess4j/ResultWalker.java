@@ -0,0 +1,350 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+import net.sourceforge.tess4j.ITessAPI.TessPageIterator;
+import net.sourceforge.tess4j.ITessAPI.TessResultIterator;
+
+/**
+ * Walks the result iterator of a recognized page into an {@link OCRResult}.
+ * The walk advances at the finest level collected; an element of a coarser
+ * level is added whenever the iterator is at its beginning.
+ * <br>
+ * Every element costs a few native calls, so the walker keeps them lean: the
+ * four box coordinates are written into one direct block of native memory
+ * reused for the life of the walker, text is read as raw UTF-8 bytes into a
+ * reused array and decoded straight into the result, and attributes the
+ * result does not collect are not asked for at all. A walker is not thread
+ * safe; use one per thread.
+ * <br>
+ * The calls go through {@link TessAPI} for <code>Tesseract</code>, or
+ * through the direct mapping of {@link TessAPI1} for
+ * <code>Tesseract1</code>.
+ */
+class ResultWalker {
+
+    /**
+     * The native calls of a walk.
+     */
+    interface NativeCalls {
+
+        TessResultIterator TessBaseAPIGetIterator(TessBaseAPI handle);
+
+        TessPageIterator TessResultIteratorGetPageIterator(TessResultIterator handle);
+
+        void TessPageIteratorBegin(TessPageIterator handle);
+
+        int TessPageIteratorBoundingBox(TessPageIterator handle, int level, IntBuffer left, IntBuffer top, IntBuffer right, IntBuffer bottom);
+
+        int TessPageIteratorIsAtBeginningOf(TessPageIterator handle, int level);
+
+        int TessPageIteratorNext(TessPageIterator handle, int level);
+
+        float TessResultIteratorConfidence(TessResultIterator handle, int level);
+
+        Pointer TessResultIteratorGetUTF8Text(TessResultIterator handle, int level);
+
+        void TessResultIteratorDelete(TessResultIterator handle);
+
+        int TessBaseAPIMeanTextConf(TessBaseAPI handle);
+
+        IntByReference TessBaseAPIAllWordConfidences(TessBaseAPI handle);
+
+        void TessDeleteIntArray(IntBuffer arr);
+
+        void TessDeleteText(Pointer text);
+    }
+
+    /**
+     * The calls of {@link TessAPI1}.
+     */
+    static final NativeCalls TESS_API1 = new NativeCalls() {
+
+        @Override
+        public TessResultIterator TessBaseAPIGetIterator(TessBaseAPI handle) {
+            return TessAPI1.TessBaseAPIGetIterator(handle);
+        }
+
+        @Override
+        public TessPageIterator TessResultIteratorGetPageIterator(TessResultIterator handle) {
+            return TessAPI1.TessResultIteratorGetPageIterator(handle);
+        }
+
+        @Override
+        public void TessPageIteratorBegin(TessPageIterator handle) {
+            TessAPI1.TessPageIteratorBegin(handle);
+        }
+
+        @Override
+        public int TessPageIteratorBoundingBox(TessPageIterator handle, int level, IntBuffer left, IntBuffer top, IntBuffer right, IntBuffer bottom) {
+            return TessAPI1.TessPageIteratorBoundingBox(handle, level, left, top, right, bottom);
+        }
+
+        @Override
+        public int TessPageIteratorIsAtBeginningOf(TessPageIterator handle, int level) {
+            return TessAPI1.TessPageIteratorIsAtBeginningOf(handle, level);
+        }
+
+        @Override
+        public int TessPageIteratorNext(TessPageIterator handle, int level) {
+            return TessAPI1.TessPageIteratorNext(handle, level);
+        }
+
+        @Override
+        public float TessResultIteratorConfidence(TessResultIterator handle, int level) {
+            return TessAPI1.TessResultIteratorConfidence(handle, level);
+        }
+
+        @Override
+        public Pointer TessResultIteratorGetUTF8Text(TessResultIterator handle, int level) {
+            return TessAPI1.TessResultIteratorGetUTF8Text(handle, level);
+        }
+
+        @Override
+        public void TessResultIteratorDelete(TessResultIterator handle) {
+            TessAPI1.TessResultIteratorDelete(handle);
+        }
+
+        @Override
+        public int TessBaseAPIMeanTextConf(TessBaseAPI handle) {
+            return TessAPI1.TessBaseAPIMeanTextConf(handle);
+        }
+
+        @Override
+        public IntByReference TessBaseAPIAllWordConfidences(TessBaseAPI handle) {
+            return TessAPI1.TessBaseAPIAllWordConfidences(handle);
+        }
+
+        @Override
+        public void TessDeleteIntArray(IntBuffer arr) {
+            TessAPI1.TessDeleteIntArray(arr);
+        }
+
+        @Override
+        public void TessDeleteText(Pointer text) {
+            TessAPI1.TessDeleteText(text);
+        }
+    };
+
+    private final NativeCalls api;
+    // views of one 16-byte native block, so that no box buffer is copied
+    private final IntBuffer leftB;
+    private final IntBuffer topB;
+    private final IntBuffer rightB;
+    private final IntBuffer bottomB;
+    private byte[] utf8 = new byte[256];
+
+    /**
+     * Creates a walker over {@link TessAPI}.
+     *
+     * @param api the API
+     */
+    ResultWalker(final TessAPI api) {
+        this(new NativeCalls() {
+
+            @Override
+            public TessResultIterator TessBaseAPIGetIterator(TessBaseAPI handle) {
+                return api.TessBaseAPIGetIterator(handle);
+            }
+
+            @Override
+            public TessPageIterator TessResultIteratorGetPageIterator(TessResultIterator handle) {
+                return api.TessResultIteratorGetPageIterator(handle);
+            }
+
+            @Override
+            public void TessPageIteratorBegin(TessPageIterator handle) {
+                api.TessPageIteratorBegin(handle);
+            }
+
+            @Override
+            public int TessPageIteratorBoundingBox(TessPageIterator handle, int level, IntBuffer left, IntBuffer top, IntBuffer right, IntBuffer bottom) {
+                return api.TessPageIteratorBoundingBox(handle, level, left, top, right, bottom);
+            }
+
+            @Override
+            public int TessPageIteratorIsAtBeginningOf(TessPageIterator handle, int level) {
+                return api.TessPageIteratorIsAtBeginningOf(handle, level);
+            }
+
+            @Override
+            public int TessPageIteratorNext(TessPageIterator handle, int level) {
+                return api.TessPageIteratorNext(handle, level);
+            }
+
+            @Override
+            public float TessResultIteratorConfidence(TessResultIterator handle, int level) {
+                return api.TessResultIteratorConfidence(handle, level);
+            }
+
+            @Override
+            public Pointer TessResultIteratorGetUTF8Text(TessResultIterator handle, int level) {
+                return api.TessResultIteratorGetUTF8Text(handle, level);
+            }
+
+            @Override
+            public void TessResultIteratorDelete(TessResultIterator handle) {
+                api.TessResultIteratorDelete(handle);
+            }
+
+            @Override
+            public int TessBaseAPIMeanTextConf(TessBaseAPI handle) {
+                return api.TessBaseAPIMeanTextConf(handle);
+            }
+
+            @Override
+            public IntByReference TessBaseAPIAllWordConfidences(TessBaseAPI handle) {
+                return api.TessBaseAPIAllWordConfidences(handle);
+            }
+
+            @Override
+            public void TessDeleteIntArray(IntBuffer arr) {
+                api.TessDeleteIntArray(arr);
+            }
+
+            @Override
+            public void TessDeleteText(Pointer text) {
+                api.TessDeleteText(text);
+            }
+        });
+    }
+
+    /**
+     * Creates a walker.
+     *
+     * @param api the native calls, e.g., {@link #TESS_API1}
+     */
+    ResultWalker(NativeCalls api) {
+        this.api = api;
+        IntBuffer scratch = ByteBuffer.allocateDirect(16).order(ByteOrder.nativeOrder()).asIntBuffer();
+        leftB = slice(scratch, 0);
+        topB = slice(scratch, 1);
+        rightB = slice(scratch, 2);
+        bottomB = slice(scratch, 3);
+    }
+
+    private static IntBuffer slice(IntBuffer buffer, int index) {
+        buffer.position(index);
+        IntBuffer slice = buffer.slice();
+        slice.limit(1);
+        return slice;
+    }
+
+    /**
+     * Adds the elements of the page recognized on a handle to a result. The
+     * page must have been started with {@link OCRResult#startPage}.
+     *
+     * @param handle a handle on which <code>Recognize</code> has been called
+     * @param result receives the elements
+     */
+    void walk(TessBaseAPI handle, OCRResult result) {
+        readConfidences(handle, result);
+        if ((result.getAttributes() & OCRResult.ALL_ATTRIBUTES) == 0) {
+            return;
+        }
+
+        TessResultIterator ri = api.TessBaseAPIGetIterator(handle);
+        if (ri == null) {
+            return;
+        }
+
+        int finest = result.getFinestLevel();
+        int attributes = result.getAttributes();
+        boolean boxes = (attributes & OCRResult.BOXES) != 0;
+        boolean confidences = (attributes & OCRResult.CONFIDENCES) != 0;
+        boolean text = (attributes & OCRResult.TEXT) != 0;
+        try {
+            TessPageIterator pi = api.TessResultIteratorGetPageIterator(ri);
+            api.TessPageIteratorBegin(pi);
+            if (api.TessPageIteratorBoundingBox(pi, ITessAPI.TessPageIteratorLevel.RIL_BLOCK, leftB, topB, rightB, bottomB) == ITessAPI.FALSE) {
+                return; // empty page
+            }
+            boolean first = true;
+
+            do {
+                for (int level = ITessAPI.TessPageIteratorLevel.RIL_BLOCK; level <= finest; level++) {
+                    if (!first && level < finest && api.TessPageIteratorIsAtBeginningOf(pi, level) == ITessAPI.FALSE) {
+                        continue;
+                    }
+                    int left = 0, top = 0, right = 0, bottom = 0;
+                    if (boxes && api.TessPageIteratorBoundingBox(pi, level, leftB, topB, rightB, bottomB) == ITessAPI.TRUE) {
+                        left = leftB.get(0);
+                        top = topB.get(0);
+                        right = rightB.get(0);
+                        bottom = bottomB.get(0);
+                    }
+                    float confidence = confidences ? api.TessResultIteratorConfidence(ri, level) : -1;
+                    result.add(level, left, top, right, bottom, confidence);
+                }
+                first = false;
+
+                if (text) {
+                    appendText(api.TessResultIteratorGetUTF8Text(ri, finest), result);
+                }
+            } while (api.TessPageIteratorNext(pi, finest) == ITessAPI.TRUE);
+        } finally {
+            api.TessResultIteratorDelete(ri);
+        }
+    }
+
+    /**
+     * Sets the mean text confidence of the page and, if requested, its word
+     * confidences, one native call each.
+     */
+    private void readConfidences(TessBaseAPI handle, OCRResult result) {
+        result.setPageConfidence(api.TessBaseAPIMeanTextConf(handle));
+        if ((result.getAttributes() & OCRResult.WORD_CONFIDENCES) == 0) {
+            return;
+        }
+        IntByReference ref = api.TessBaseAPIAllWordConfidences(handle);
+        if (ref == null) {
+            return;
+        }
+        Pointer ptr = ref.getPointer();
+        int count = 0;
+        while (ptr.getInt(4L * count) != -1) {
+            count++;
+        }
+        result.setWordConfidences(ptr.getIntArray(0, count));
+        // the array, with its terminator, is freed through a direct view of it
+        api.TessDeleteIntArray(ptr.getByteBuffer(0, 4L * (count + 1)).asIntBuffer());
+    }
+
+    /**
+     * Copies a native UTF-8 string into the reused byte array, appends it to
+     * the result and frees it.
+     */
+    private void appendText(Pointer ptr, OCRResult result) {
+        if (ptr == null) {
+            return;
+        }
+        try {
+            int length = (int) ptr.indexOf(0, (byte) 0);
+            if (length > utf8.length) {
+                utf8 = new byte[Math.max(length, utf8.length * 2)];
+            }
+            ptr.read(0, utf8, 0, length);
+            result.appendUTF8(utf8, 0, length);
+        } finally {
+            api.TessDeleteText(ptr);
+        }
+    }
+}
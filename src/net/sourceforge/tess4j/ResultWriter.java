@@ -0,0 +1,39 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.io.IOException;
+
+/**
+ * Serializes structured OCR results page by page, as the pages are
+ * recognized, without building a document tree in memory.
+ */
+public interface ResultWriter {
+
+    /**
+     * Writes a page.
+     *
+     * @param result the result holding the page
+     * @param page index of the page in <code>result</code>
+     * @throws IOException
+     */
+    void writePage(OCRResult result, int page) throws IOException;
+
+    /**
+     * Finishes the document and closes the output.
+     *
+     * @throws IOException
+     */
+    void close() throws IOException;
+}
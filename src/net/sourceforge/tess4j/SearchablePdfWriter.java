@@ -0,0 +1,277 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Image;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
+import com.lowagie.text.pdf.codec.TiffImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sourceforge.tess4j.ITessAPI.TessPageIteratorLevel;
+
+/**
+ * Writes searchable PDF documents with iText: each page is the original scan
+ * with the recognized words laid over it as invisible text.
+ * <br>
+ * Page images are embedded as they are stored in the input: JPEG data is
+ * passed through as is, and so are CCITT-compressed TIFF strips and the
+ * deflated data of PNG images, so nothing is decoded and encoded again and
+ * the output is about the size of the input. Unlike the native PDF renderer,
+ * no font file is needed; a standard Type 1 font is referenced by default.
+ * <br>
+ * Every page is written to the output stream as soon as the next page is
+ * started, so memory use does not grow with the length of the document.
+ */
+public class SearchablePdfWriter {
+
+    /**
+     * Resolution assumed for images that do not record one.
+     */
+    static final int DEFAULT_DPI = 300;
+
+    private final Document document = new Document();
+    private final PdfWriter writer;
+    private BaseFont font;
+    private boolean open;
+    private int pageCount;
+
+    /**
+     * Creates a writer.
+     *
+     * @param out receives the document; closed by {@link #close()}
+     * @throws IOException
+     */
+    public SearchablePdfWriter(OutputStream out) throws IOException {
+        try {
+            writer = PdfWriter.getInstance(document, out);
+            font = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+        } catch (DocumentException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Sets the font of the text layer. The default, Helvetica with WinAnsi
+     * encoding, covers Western European text; other scripts need a font that
+     * has their glyphs, e.g., a TrueType font with
+     * <code>BaseFont.IDENTITY_H</code> encoding.
+     *
+     * @param font the font
+     */
+    public void setFont(BaseFont font) {
+        this.font = font;
+    }
+
+    /**
+     * @return the number of pages written so far
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * The page images of an image file, read one at a time, without decoding
+     * the compressed data where iText can pass it through.
+     */
+    public static class PageImages implements Closeable {
+
+        private final File imageFile;
+        // the open file of a TIFF; null for single-page formats
+        private final RandomAccessFileOrArray ra;
+        private final int pageCount;
+
+        /**
+         * Opens an image file.
+         *
+         * @param imageFile a JPEG, PNG, GIF, BMP or TIFF file
+         * @throws IOException
+         */
+        public PageImages(File imageFile) throws IOException {
+            this.imageFile = imageFile;
+            String name = imageFile.getName().toLowerCase();
+            if (name.endsWith(".tif") || name.endsWith(".tiff")) {
+                ra = new RandomAccessFileOrArray(imageFile.getPath());
+                pageCount = TiffImage.getNumberOfPages(ra);
+            } else {
+                ra = null;
+                pageCount = 1;
+            }
+        }
+
+        /**
+         * @return the number of pages
+         */
+        public int getPageCount() {
+            return pageCount;
+        }
+
+        /**
+         * Reads the image of a page.
+         *
+         * @param page index of the page, from 0
+         * @return the page image
+         * @throws IOException
+         */
+        public Image getImage(int page) throws IOException {
+            try {
+                return ra != null ? TiffImage.getTiffImage(ra, page + 1) : Image.getInstance(imageFile.getPath());
+            } catch (DocumentException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (ra != null) {
+                ra.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the page images of an image file, without decoding the
+     * compressed data where iText can pass it through.
+     *
+     * @param imageFile a JPEG, PNG, GIF, BMP or TIFF file; every page of a
+     * multi-page TIFF is read
+     * @return the page images
+     * @throws IOException
+     * @see PageImages
+     */
+    public static List<Image> getImages(File imageFile) throws IOException {
+        List<Image> images = new ArrayList<Image>();
+        PageImages pages = new PageImages(imageFile);
+        try {
+            for (int i = 0; i < pages.getPageCount(); i++) {
+                images.add(pages.getImage(i));
+            }
+        } finally {
+            pages.close();
+        }
+        return images;
+    }
+
+    /**
+     * Adds a page.
+     *
+     * @param imageData the compressed image, e.g., the bytes of a JPEG file
+     * @param result the recognized text; words and their boxes are used
+     * @param page index of the page in <code>result</code>
+     * @throws IOException
+     */
+    public void addPage(byte[] imageData, OCRResult result, int page) throws IOException {
+        try {
+            addPage(Image.getInstance(imageData), result, page);
+        } catch (DocumentException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Adds a page. The boxes in <code>result</code> are taken to be in the
+     * pixel coordinates of the image.
+     *
+     * @param image the page image
+     * @param result the recognized text; words and their boxes are used
+     * @param page index of the page in <code>result</code>
+     * @throws IOException
+     */
+    public void addPage(Image image, OCRResult result, int page) throws IOException {
+        if (result.getFinestLevel() < TessPageIteratorLevel.RIL_WORD) {
+            throw new IllegalArgumentException("The result has no words.");
+        }
+
+        int dpiX = image.getDpiX() > 0 ? image.getDpiX() : DEFAULT_DPI;
+        int dpiY = image.getDpiY() > 0 ? image.getDpiY() : DEFAULT_DPI;
+        float scaleX = 72f / dpiX;
+        float scaleY = 72f / dpiY;
+        float pageWidth = image.getWidth() * scaleX;
+        float pageHeight = image.getHeight() * scaleY;
+
+        try {
+            document.setPageSize(new Rectangle(pageWidth, pageHeight));
+            if (open) {
+                document.newPage();
+            } else {
+                document.setMargins(0, 0, 0, 0);
+                document.open();
+                open = true;
+            }
+
+            PdfContentByte cb = writer.getDirectContent();
+            cb.addImage(image, pageWidth, 0, 0, pageHeight, 0, 0);
+            addText(cb, result, page, scaleX, scaleY, pageHeight);
+            pageCount++;
+        } catch (DocumentException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Lays the words of a page over the image as invisible text, each word
+     * scaled horizontally to fill its box, so that selections and search hits
+     * match the scan.
+     */
+    private void addText(PdfContentByte cb, OCRResult result, int page, float scaleX, float scaleY, float pageHeight) {
+        int level = TessPageIteratorLevel.RIL_WORD;
+        int first = result.getFirstIndex(page, level);
+        int last = result.getFirstIndex(page + 1, level);
+        int[] box = new int[4];
+
+        cb.beginText();
+        cb.setTextRenderingMode(PdfContentByte.TEXT_RENDER_MODE_INVISIBLE);
+        for (int i = first; i < last; i++) {
+            String text = result.getText(level, i);
+            result.getBox(level, i, box, 0);
+            float width = (box[2] - box[0]) * scaleX;
+            float height = (box[3] - box[1]) * scaleY;
+            if (text.isEmpty() || width <= 0 || height <= 0) {
+                continue;
+            }
+
+            float size = height;
+            float textWidth = font.getWidthPoint(text, size);
+            cb.setFontAndSize(font, size);
+            cb.setHorizontalScaling(textWidth > 0 ? 100 * width / textWidth : 100);
+            // baseline at the bottom of the box, less the descent
+            float descent = -font.getFontDescriptor(BaseFont.DESCENT, size);
+            cb.setTextMatrix(box[0] * scaleX, pageHeight - box[3] * scaleY + descent);
+            cb.showText(text);
+        }
+        cb.endText();
+    }
+
+    /**
+     * Finishes the document and closes the output stream.
+     *
+     * @throws IOException if no page was added
+     */
+    public void close() throws IOException {
+        if (!open) {
+            throw new IOException("The document has no pages.");
+        }
+        document.close();
+    }
+}
@@ -23,16 +23,30 @@ import java.awt.Rectangle;
 import java.awt.image.*;
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.*;
 import javax.imageio.IIOImage;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
 import net.sourceforge.tess4j.ITessAPI.TessOcrEngineMode;
+import net.sourceforge.tess4j.ITessAPI.TessPageIteratorLevel;
+import net.sourceforge.tess4j.ITessAPI.TessPageSegMode;
 import net.sourceforge.tess4j.ITessAPI.TessResultRenderer;
 
+import net.sourceforge.tess4j.util.ImageHash;
+import net.sourceforge.tess4j.util.ImageHelper;
 import net.sourceforge.tess4j.util.ImageIOHelper;
 import net.sourceforge.tess4j.util.PdfUtilities;
+import net.sourceforge.tess4j.util.PerceptualHash;
 import net.sourceforge.tess4j.util.Utils;
 
 /**
@@ -61,6 +75,25 @@ public class Tesseract implements ITesseract {
     private int ocrEngineMode = TessOcrEngineMode.OEM_DEFAULT;
     private final Properties prop = new Properties();
     private final List<String> configList = new ArrayList<String>();
+    private final PagePreprocessor preprocessor = new PagePreprocessor();
+    private final OCRMetrics metrics = new OCRMetrics();
+    private final List<PageReport> pageReports = new ArrayList<PageReport>();
+    private int parallelism = 1;
+    private int tileSize;
+    private int tileOverlap;
+    private HandlePool handlePool;
+    private BlockRecognizer blockRecognizer;
+    private BufferedImage tiledPage;
+    private Rectangle tiledRegion;
+    private boolean parallelBlocks;
+    private ByteBuffer imageBuffer;
+    private int imageWidth;
+    private int imageHeight;
+    private int imageBpp;
+    private Rectangle imageRect;
+    private ResultCache resultCache;
+    private ResultStore resultStore;
+    private DuplicatePageIndex duplicateIndex;
 
     private TessAPI api;
     private TessBaseAPI handle;
@@ -177,6 +210,151 @@ public class Tesseract implements ITesseract {
         }
     }
 
+    /**
+     * Sets the number of engine handles used concurrently, e.g., for the
+     * tiles of a large page or the files of a batch of documents. The handles are initialized once and kept in a
+     * pool until {@link #releaseHandles()} is called or the configuration
+     * changes.
+     *
+     * @param parallelism the number of concurrent handles; 1 recognizes
+     * sequentially
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Enables tiling of very large pages. A page wider or taller than the
+     * tile size is recognized as a grid of overlapping tiles, in parallel on
+     * pooled handles; word boxes are mapped back to page coordinates and the
+     * duplicates found in the overlaps are removed. Tiling applies to plain
+     * text output and to {@link #getWords(BufferedImage, int)}; the text of a
+     * tiled page is assembled from its words, line by line.
+     *
+     * @param tileSize the width and height of the tiles, e.g., 4096; 0
+     * disables tiling
+     * @param overlap the overlap between adjacent tiles, larger than the
+     * largest word, e.g., 256
+     */
+    public void setTiling(int tileSize, int overlap) {
+        if (tileSize > 0 && (overlap < 0 || overlap >= tileSize)) {
+            throw new IllegalArgumentException("Tile overlap must be less than the tile size.");
+        }
+        this.tileSize = tileSize;
+        this.tileOverlap = overlap;
+    }
+
+    /**
+     * Enables recognizing the text blocks of a page concurrently. Layout
+     * analysis runs once per page; each text block is then recognized as a
+     * single block on a pooled handle, and the text is put together in
+     * reading order. Image, line and noise blocks are skipped. Applies to
+     * plain text output when the parallelism is more than 1.
+     *
+     * @param parallelBlocks whether to recognize blocks concurrently
+     */
+    public void setParallelBlocks(boolean parallelBlocks) {
+        this.parallelBlocks = parallelBlocks;
+    }
+
+    /**
+     * Sets the cache consulted before recognition. A file is looked up by the
+     * hash of its raw bytes, before it is decoded, and its pages are not
+     * cached on their own; each page of a list of images, or of a file
+     * written to an <code>Appendable</code>, is looked up by the hash of its
+     * decoded pixels. Either way the
+     * key also covers the language, engine and page segmentation modes, the
+     * region, the configs, the variables set with
+     * {@link #setTessVariable(String, String)} and the preprocessor settings.
+     * Cached pages are neither preprocessed nor reported in
+     * {@link #getPageReports()}.
+     *
+     * @param resultCache the cache, which may be shared by several
+     * instances; <code>null</code> disables caching
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * @return the result cache; <code>null</code> if caching is disabled
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Sets the persistent store consulted, with the same keys, after a miss
+     * in the result cache. Results found in the store are added to the cache;
+     * new results are added to both. The store is not closed by this
+     * instance.
+     *
+     * @param resultStore the store; <code>null</code> disables it
+     */
+    public void setResultStore(ResultStore resultStore) {
+        this.resultStore = resultStore;
+    }
+
+    /**
+     * @return the persistent result store; <code>null</code> if disabled
+     */
+    public ResultStore getResultStore() {
+        return resultStore;
+    }
+
+    /**
+     * Sets the index used to find pages that look like pages recognized
+     * before, such as re-scans or repeated boilerplate. A page is looked up by
+     * its perceptual hash, computed as the page is decoded, and a duplicate is
+     * reported by {@link PageReport#isDuplicate()}. A duplicate is recognized
+     * as usual, unless it has the same pixels as the page found and the index
+     * reuses results.
+     * Pages that are recognized are added to the index. Applies to plain text
+     * output of lists of images.
+     *
+     * @param duplicateIndex the index, which may be shared by several
+     * instances; <code>null</code> disables duplicate detection
+     */
+    public void setDuplicatePageIndex(DuplicatePageIndex duplicateIndex) {
+        this.duplicateIndex = duplicateIndex;
+    }
+
+    /**
+     * @return the duplicate page index; <code>null</code> if disabled
+     */
+    public DuplicatePageIndex getDuplicatePageIndex() {
+        return duplicateIndex;
+    }
+
+    /**
+     * Returns the page preprocessor, whose stages are applied to every page
+     * before recognition. All stages are disabled by default.
+     *
+     * @return the page preprocessor
+     */
+    public PagePreprocessor getPreprocessor() {
+        return preprocessor;
+    }
+
+    /**
+     * Returns the cumulative metrics of this instance.
+     *
+     * @return metrics
+     */
+    public OCRMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the reports of the pages prepared by the last OCR operation on
+     * a list of images.
+     *
+     * @return page reports, in page order
+     */
+    public List<PageReport> getPageReports() {
+        return Collections.unmodifiableList(new ArrayList<PageReport>(pageReports));
+    }
+
     /**
      * Performs OCR operation.
      *
@@ -202,7 +380,19 @@ public class Tesseract implements ITesseract {
     @Override
     public String doOCR(File imageFile, Rectangle rect) throws TesseractException {
         try {
-            return doOCR(ImageIOHelper.getIIOImageList(imageFile), imageFile.getPath(), rect);
+            if (resultCache == null && resultStore == null) {
+                return recognizeFile(imageFile, rect, false);
+            }
+
+            // the whole file is cached under one key; its pages are not cached on their own
+            long contentHash = ImageHash.hash(imageFile);
+            long configHash = getConfigHash(rect, 0);
+            String text = getCachedResult(contentHash, configHash);
+            if (text == null) {
+                text = recognizeFile(imageFile, rect, false);
+                putCachedResult(contentHash, configHash, text);
+            }
+            return text;
         } catch (Exception e) {
             logger.log(Level.SEVERE, e.getMessage(), e);
             throw new TesseractException(e);
@@ -210,94 +400,742 @@ public class Tesseract implements ITesseract {
     }
 
     /**
-     * Performs OCR operation.
+     * Decodes an image file, fingerprinting its pages if duplicate detection
+     * is enabled, and recognizes it.
+     */
+    private String recognizeFile(File imageFile, Rectangle rect, boolean cachePages) throws IOException, TesseractException {
+        List<Long> fingerprints = duplicateIndex != null && renderedFormat == RenderedFormat.TEXT ? new ArrayList<Long>() : null;
+        List<IIOImage> imageList = ImageIOHelper.getIIOImageList(imageFile, fingerprints);
+        return doOCR(imageList, fingerprints, imageFile.getPath(), rect, cachePages);
+    }
+
+    /**
+     * Performs OCR operation.
+     *
+     * @param bi a buffered image
+     * @return the recognized text
+     * @throws TesseractException
+     */
+    @Override
+    public String doOCR(BufferedImage bi) throws TesseractException {
+        return doOCR(bi, null);
+    }
+
+    /**
+     * Performs OCR operation.
+     *
+     * @param bi a buffered image
+     * @param rect the bounding rectangle defines the region of the image to be
+     * recognized. A rectangle of zero dimension or <code>null</code> indicates
+     * the whole image.
+     * @return the recognized text
+     * @throws TesseractException
+     */
+    @Override
+    public String doOCR(BufferedImage bi, Rectangle rect) throws TesseractException {
+        try {
+            return doOCR(ImageIOHelper.getIIOImageList(bi), rect);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Performs OCR operation.
+     *
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be
+     * recognized. A rectangle of zero dimension or <code>null</code> indicates
+     * the whole image.
+     * @return the recognized text
+     * @throws TesseractException
+     */
+    @Override
+    public String doOCR(List<IIOImage> imageList, Rectangle rect) throws TesseractException {
+        return doOCR(imageList, null, rect);
+    }
+
+    /**
+     * Performs OCR operation.
+     *
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param filename input file name. Needed only for training and reading a
+     * UNLV zone file.
+     * @param rect the bounding rectangle defines the region of the image to be
+     * recognized. A rectangle of zero dimension or <code>null</code> indicates
+     * the whole image.
+     * @return the recognized text
+     * @throws TesseractException
+     */
+    @Override
+    public String doOCR(List<IIOImage> imageList, String filename, Rectangle rect) throws TesseractException {
+        return doOCR(imageList, null, filename, rect, true);
+    }
+
+    /**
+     * Performs OCR operation, collecting the text of all pages.
+     *
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param fingerprints perceptual hashes of the images, or
+     * <code>null</code>
+     * @param filename input file name
+     * @param rect region of interest
+     * @param cachePages true to look up and cache the text of each page
+     * @return the recognized text
+     * @throws TesseractException
+     */
+    private String doOCR(List<IIOImage> imageList, List<Long> fingerprints, String filename, Rectangle rect, boolean cachePages) throws TesseractException {
+        StringBuilder sb = new StringBuilder();
+        try {
+            doOCR(imageList, fingerprints, filename, rect, sb, cachePages);
+        } catch (IOException e) {
+            // not thrown by a StringBuilder
+            throw new TesseractException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Performs OCR operation, writing the text of each page as soon as it is
+     * recognized, so memory use does not grow with the number of pages.
+     *
+     * @param imageFile an image file
+     * @param rect the bounding rectangle defines the region of the image to be
+     * recognized. A rectangle of zero dimension or <code>null</code> indicates
+     * the whole image.
+     * @param out receives the recognized text, e.g., a <code>Writer</code>
+     * @throws TesseractException
+     * @throws IOException if writing to <code>out</code> fails
+     */
+    public void doOCR(File imageFile, Rectangle rect, Appendable out) throws TesseractException, IOException {
+        List<IIOImage> imageList;
+        List<Long> fingerprints = duplicateIndex != null && renderedFormat == RenderedFormat.TEXT ? new ArrayList<Long>() : null;
+        try {
+            imageList = ImageIOHelper.getIIOImageList(imageFile, fingerprints);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
+        doOCR(imageList, fingerprints, imageFile.getPath(), rect, out, true);
+    }
+
+    /**
+     * Performs OCR operation, writing the text of each page as UTF-8 to a
+     * channel as soon as it is recognized. The channel is not closed.
+     *
+     * @param imageFile an image file
+     * @param rect the bounding rectangle defines the region of the image to be
+     * recognized. A rectangle of zero dimension or <code>null</code> indicates
+     * the whole image.
+     * @param channel receives the recognized text
+     * @throws TesseractException
+     * @throws IOException if writing to the channel fails
+     */
+    public void doOCR(File imageFile, Rectangle rect, WritableByteChannel channel) throws TesseractException, IOException {
+        Writer writer = Channels.newWriter(channel, "UTF-8");
+        doOCR(imageFile, rect, writer);
+        writer.flush();
+    }
+
+    /**
+     * Performs OCR operation, writing the text of each page as soon as it is
+     * recognized.
+     *
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param filename input file name. Needed only for training and reading a
+     * UNLV zone file.
+     * @param rect the bounding rectangle defines the region of the image to be
+     * recognized. A rectangle of zero dimension or <code>null</code> indicates
+     * the whole image.
+     * @param out receives the recognized text, e.g., a <code>Writer</code>
+     * @throws TesseractException
+     * @throws IOException if writing to <code>out</code> fails
+     */
+    public void doOCR(List<IIOImage> imageList, String filename, Rectangle rect, Appendable out) throws TesseractException, IOException {
+        doOCR(imageList, null, filename, rect, out, true);
+    }
+
+    /**
+     * Performs OCR operation, writing the text of each page as soon as it is
+     * recognized.
+     *
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param fingerprints perceptual hashes of the images, computed when they
+     * were decoded; <code>null</code> to compute them as needed
+     * @param filename input file name
+     * @param rect region of interest
+     * @param out receives the recognized text
+     * @param cachePages true to look up and cache the text of each page
+     * @throws TesseractException
+     * @throws IOException if writing to <code>out</code> fails
+     */
+    private void doOCR(List<IIOImage> imageList, List<Long> fingerprints, String filename, Rectangle rect, Appendable out, boolean cachePages) throws TesseractException, IOException {
+        init();
+        setTessVariables();
+
+        try {
+            int pageNum = 0;
+            pageReports.clear();
+
+            if (renderedFormat == RenderedFormat.HOCR) {
+                out.append(htmlBeginTag);
+            }
+
+            for (IIOImage oimage : imageList) {
+                pageNum++;
+                String text;
+                try {
+                    text = getPageText(oimage, fingerprints, filename, rect, pageNum, cachePages);
+                } catch (IOException ioe) {
+                    // skip the problematic image
+                    logger.log(Level.SEVERE, ioe.getMessage(), ioe);
+                    continue;
+                }
+                out.append(text);
+            }
+
+            if (renderedFormat == RenderedFormat.HOCR) {
+                out.append(htmlEndTag);
+            }
+        } finally {
+            dispose();
+        }
+    }
+
+    /**
+     * Recognizes a page, unless its text is cached or it duplicates an
+     * earlier page.
+     *
+     * @param oimage the page
+     * @param fingerprints perceptual hashes of the pages, or <code>null</code>
+     * @param filename input file name
+     * @param rect region of interest
+     * @param pageNum page number
+     * @param cachePages true to look up and cache the text of the page;
+     * false if the caller caches the text of the whole input
+     * @return the text of the page
+     * @throws IOException if the page cannot be prepared
+     * @throws TesseractException
+     */
+    private String getPageText(IIOImage oimage, List<Long> fingerprints, String filename, Rectangle rect, int pageNum, boolean cachePages) throws IOException, TesseractException {
+        boolean caching = cachePages && (resultCache != null || resultStore != null);
+        DuplicatePageIndex duplicates = renderedFormat == RenderedFormat.TEXT ? duplicateIndex : null;
+
+        long contentHash = 0;
+        long configHash = caching || duplicates != null ? getConfigHash(rect, pageNum) : 0;
+        if (caching || duplicates != null) {
+            contentHash = ImageHash.hashPixels(oimage.getRenderedImage());
+        }
+        if (caching) {
+            String text = getCachedResult(contentHash, configHash);
+            if (text != null) {
+                return text;
+            }
+        }
+
+        long fingerprint = 0;
+        DuplicatePageIndex.Page original = null;
+        if (duplicates != null) {
+            fingerprint = fingerprints != null ? fingerprints.get(pageNum - 1) : PerceptualHash.hash(oimage.getRenderedImage());
+            original = duplicates.find(fingerprint, configHash);
+            // pages of the same template look alike; only identical pixels say the text is the same
+            if (original != null && duplicates.isReuseResults() && original.getContentHash() == contentHash) {
+                RenderedImage image = oimage.getRenderedImage();
+                PageReport report = new PageReport(pageNum);
+                report.setOriginalSize(image.getWidth(), image.getHeight());
+                report.setDuplicateOf(original.getSource(), true);
+                pageReports.add(report);
+                metrics.addPage(report);
+                return original.getText();
+            }
+        }
+
+        String text;
+        PageReport report = setPage(oimage, rect, pageNum);
+        if (original != null) {
+            report.setDuplicateOf(original.getSource(), false);
+        }
+        if (report.isBlank()) {
+            text = "";
+        } else if (tiledPage != null) {
+            text = TiledRecognizer.toText(getTiledWords(report, TessPageIteratorLevel.RIL_WORD));
+        } else if (parallelBlocks && parallelism > 1 && renderedFormat == RenderedFormat.TEXT) {
+            text = getBlockText(filename, pageNum, report);
+        } else {
+            text = getOCRText(filename, pageNum);
+        }
+
+        if (caching) {
+            putCachedResult(contentHash, configHash, text);
+        }
+        if (duplicates != null && !report.isBlank()) {
+            duplicates.add(fingerprint, contentHash, configHash, (filename != null ? filename : "") + '#' + pageNum, text);
+        }
+        return text;
+    }
+
+    /**
+     * Gets the recognized elements of an image, such as words or text lines,
+     * with their confidences and bounding boxes in image coordinates.
+     *
+     * @param bi a buffered image
+     * @param pageIteratorLevel the level of the elements, e.g.,
+     * <code>TessPageIteratorLevel.RIL_WORD</code>
+     * @return the elements, in reading order
+     * @throws TesseractException
+     */
+    public List<Word> getWords(BufferedImage bi, int pageIteratorLevel) throws TesseractException {
+        init();
+        setTessVariables();
+
+        try {
+            pageReports.clear();
+            PageReport report = setPage(new IIOImage(bi, null, null), null, 1);
+            if (report.isBlank()) {
+                return new ArrayList<Word>();
+            }
+
+            List<Word> words;
+            if (tiledPage != null) {
+                words = getTiledWords(report, pageIteratorLevel);
+            } else {
+                words = TiledRecognizer.getWords(api, handle, pageIteratorLevel, 0, 0);
+            }
+
+            if (report.isRescaled()) {
+                List<Word> mapped = new ArrayList<Word>(words.size());
+                for (Word word : words) {
+                    mapped.add(new Word(word.getText(), word.getConfidence(), report.toOriginalCoordinates(word.getRect())));
+                }
+                words = mapped;
+            }
+            return words;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        } finally {
+            dispose();
+        }
+    }
+
+    /**
+     * Analyses the layout of an image without recognizing it.
+     *
+     * @param bi a buffered image
+     * @return the blocks, paragraphs and text lines of the image
+     * @throws TesseractException
+     */
+    public PageLayout getLayout(BufferedImage bi) throws TesseractException {
+        try {
+            List<PageLayout> layouts = getLayout(ImageIOHelper.getIIOImageList(bi), null);
+            return layouts.isEmpty() ? new PageLayout() : layouts.get(0);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Analyses the layout of images without recognizing them, for a fraction
+     * of the cost of OCR. Coordinates are those of the original images.
+     *
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be
+     * analysed. A rectangle of zero dimension or <code>null</code> indicates
+     * the whole image.
+     * @return the layout of every page, in page order; blank pages have an
+     * empty layout
+     * @throws TesseractException
+     */
+    public List<PageLayout> getLayout(List<IIOImage> imageList, Rectangle rect) throws TesseractException {
+        init();
+        setTessVariables();
+
+        try {
+            List<PageLayout> layouts = new ArrayList<PageLayout>();
+            int pageNum = 0;
+            pageReports.clear();
+
+            for (IIOImage oimage : imageList) {
+                pageNum++;
+                PageReport report = setPage(oimage, rect, pageNum, false);
+                if (report.isBlank()) {
+                    layouts.add(new PageLayout());
+                    continue;
+                }
+                PageLayout layout = analyseLayout();
+                layout.toOriginalCoordinates(report);
+                layouts.add(layout);
+            }
+
+            return layouts;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        } finally {
+            dispose();
+        }
+    }
+
+    /**
+     * Performs OCR operation on several regions of an image. The image is
+     * decoded, preprocessed and set once; each region is then selected with
+     * <code>SetRectangle</code> and recognized on the same handle.
+     *
+     * @param imageFile an image file; only its first page is used
+     * @param regions the regions to be recognized, in image coordinates
+     * @param pageSegModes page segmentation mode of each region, e.g.,
+     * <code>PSM_SINGLE_LINE</code> for a form field; <code>null</code>, or a
+     * negative entry, for the configured mode
+     * @return the recognized text of each region, at the index of the region,
+     * so equal regions get an entry each
+     * @throws TesseractException
+     */
+    public List<String> doOCR(File imageFile, List<Rectangle> regions, int[] pageSegModes) throws TesseractException {
+        try {
+            return doOCR(ImageIOHelper.getIIOImageList(imageFile).get(0), regions, pageSegModes);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Performs OCR operation on several regions of an image; see
+     * {@link #doOCR(File, List, int[])}.
+     *
+     * @param bi a buffered image
+     * @param regions the regions to be recognized, in image coordinates
+     * @param pageSegModes page segmentation mode of each region;
+     * <code>null</code>, or a negative entry, for the configured mode
+     * @return the recognized text of each region, at the index of the region,
+     * so equal regions get an entry each
+     * @throws TesseractException
+     */
+    public List<String> doOCR(BufferedImage bi, List<Rectangle> regions, int[] pageSegModes) throws TesseractException {
+        return doOCR(new IIOImage(bi, null, null), regions, pageSegModes);
+    }
+
+    private List<String> doOCR(IIOImage oimage, List<Rectangle> regions, int[] pageSegModes) throws TesseractException {
+        if (pageSegModes != null && pageSegModes.length != regions.size()) {
+            throw new IllegalArgumentException("One page segmentation mode per region is required.");
+        }
+        init();
+        setTessVariables();
+
+        try {
+            List<String> results = new ArrayList<String>(regions.size());
+            pageReports.clear();
+            PageReport report = setPage(oimage, null, 1, false);
+            Rectangle page = new Rectangle(report.getWidth(), report.getHeight());
+            int defaultMode = psm > -1 ? psm : TessPageSegMode.PSM_SINGLE_BLOCK;
+            int mode = defaultMode;
+
+            for (int i = 0; i < regions.size(); i++) {
+                Rectangle rect = regions.get(i);
+                Rectangle region = report.isBlank() ? null : report.getRecognitionRegion(rect);
+                region = region == null ? null : region.intersection(page);
+                if (region == null || region.isEmpty()) {
+                    results.add("");
+                    continue;
+                }
+                int regionMode = pageSegModes != null && pageSegModes[i] > -1 ? pageSegModes[i] : defaultMode;
+                if (regionMode != mode) {
+                    api.TessBaseAPISetPageSegMode(handle, regionMode);
+                    mode = regionMode;
+                }
+                api.TessBaseAPISetRectangle(handle, region.x, region.y, region.width, region.height);
+                results.add(getOCRText(null, 1));
+            }
+
+            return results;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        } finally {
+            dispose();
+        }
+    }
+
+    /**
+     * Performs OCR operation and returns the structured result.
+     *
+     * @param imageFile an image file
+     * @param level the finest level to collect, e.g.,
+     * <code>TessPageIteratorLevel.RIL_WORD</code>
+     * @return the pages, blocks, paragraphs, text lines, words and symbols
+     * down to <code>level</code>
+     * @throws TesseractException
+     */
+    public OCRResult getOCRResult(File imageFile, int level) throws TesseractException {
+        try {
+            return getOCRResult(ImageIOHelper.getIIOImageList(imageFile), null, level);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Performs OCR operation and returns the structured result.
+     *
+     * @param bi a buffered image
+     * @param level the finest level to collect
+     * @return the structured result
+     * @throws TesseractException
+     */
+    public OCRResult getOCRResult(BufferedImage bi, int level) throws TesseractException {
+        try {
+            return getOCRResult(ImageIOHelper.getIIOImageList(bi), null, level);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Performs OCR operation and returns the structured result. Boxes are in
+     * the coordinates of the original images; blank pages have no elements.
+     *
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be
+     * recognized. A rectangle of zero dimension or <code>null</code> indicates
+     * the whole image.
+     * @param level the finest level to collect
+     * @return the structured result
+     * @throws TesseractException
+     */
+    public OCRResult getOCRResult(List<IIOImage> imageList, Rectangle rect, int level) throws TesseractException {
+        return getOCRResult(imageList, rect, level, OCRResult.ALL_ATTRIBUTES);
+    }
+
+    /**
+     * Performs OCR operation and returns the structured result, collecting
+     * only the requested attributes. Leaving out unneeded attributes saves
+     * native calls on every element.
+     *
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be
+     * recognized. A rectangle of zero dimension or <code>null</code> indicates
+     * the whole image.
+     * @param level the finest level to collect
+     * @param attributes a combination of <code>OCRResult.BOXES</code>,
+     * <code>OCRResult.CONFIDENCES</code>, <code>OCRResult.TEXT</code> and
+     * <code>OCRResult.WORD_CONFIDENCES</code>
+     * @return the structured result
+     * @throws TesseractException
+     */
+    public OCRResult getOCRResult(List<IIOImage> imageList, Rectangle rect, int level, int attributes) throws TesseractException {
+        OCRResult result = new OCRResult(level, attributes);
+        init();
+        setTessVariables();
+
+        try {
+            ResultWalker walker = new ResultWalker(api);
+            int pageNum = 0;
+            pageReports.clear();
+
+            for (IIOImage oimage : imageList) {
+                recognizePage(oimage, rect, ++pageNum, walker, result);
+            }
+
+            result.trim();
+            return result;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        } finally {
+            dispose();
+        }
+    }
+
+    /**
+     * Performs OCR operation and serializes the structured result with a
+     * {@link ResultWriter}, e.g., {@link AltoWriter} or
+     * {@link JsonResultWriter}. Each page is decoded, recognized and written
+     * before the next is read, and then dropped, so memory use does not grow
+     * with the number of pages. The writer is closed when done.
      *
-     * @param bi a buffered image
-     * @return the recognized text
+     * @param imageFile an image file
+     * @param writer receives the pages
      * @throws TesseractException
      */
-    @Override
-    public String doOCR(BufferedImage bi) throws TesseractException {
-        return doOCR(bi, null);
+    public void writeResults(File imageFile, ResultWriter writer) throws TesseractException {
+        ImageReader reader = null;
+        init();
+        setTessVariables();
+
+        try {
+            reader = ImageIOHelper.getImageReader(imageFile);
+            ResultWalker walker = new ResultWalker(api);
+            pageReports.clear();
+            int pageCount = reader.getNumImages(true);
+
+            for (int i = 0; i < pageCount; i++) {
+                OCRResult result = new OCRResult(TessPageIteratorLevel.RIL_WORD, OCRResult.ALL_ATTRIBUTES);
+                recognizePage(reader.readAll(i, reader.getDefaultReadParam()), null, i + 1, walker, result);
+                writer.writePage(result, 0);
+            }
+            writer.close();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        } finally {
+            closeReader(reader);
+            dispose();
+        }
     }
 
     /**
-     * Performs OCR operation.
+     * Performs OCR operation and serializes the structured result, down to
+     * words, page by page with a {@link ResultWriter}. The result of each
+     * page is written as soon as it is recognized and then dropped; the page
+     * images are those of the list. The writer is closed when done.
      *
-     * @param bi a buffered image
+     * @param imageList a list of <code>IIOImage</code> objects
      * @param rect the bounding rectangle defines the region of the image to be
      * recognized. A rectangle of zero dimension or <code>null</code> indicates
      * the whole image.
-     * @return the recognized text
+     * @param writer receives the pages
      * @throws TesseractException
      */
-    @Override
-    public String doOCR(BufferedImage bi, Rectangle rect) throws TesseractException {
+    public void writeResults(List<IIOImage> imageList, Rectangle rect, ResultWriter writer) throws TesseractException {
+        init();
+        setTessVariables();
+
         try {
-            return doOCR(ImageIOHelper.getIIOImageList(bi), rect);
-        } catch (Exception e) {
+            ResultWalker walker = new ResultWalker(api);
+            int pageNum = 0;
+            pageReports.clear();
+
+            for (IIOImage oimage : imageList) {
+                OCRResult result = new OCRResult(TessPageIteratorLevel.RIL_WORD, OCRResult.ALL_ATTRIBUTES);
+                recognizePage(oimage, rect, ++pageNum, walker, result);
+                writer.writePage(result, 0);
+            }
+            writer.close();
+        } catch (IOException e) {
             logger.log(Level.SEVERE, e.getMessage(), e);
             throw new TesseractException(e);
+        } finally {
+            dispose();
         }
     }
 
     /**
-     * Performs OCR operation.
+     * Recognizes a page and appends it to a structured result; a blank page
+     * is appended without elements.
+     */
+    private void recognizePage(IIOImage oimage, Rectangle rect, int pageNum, ResultWalker walker, OCRResult result) throws IOException {
+        PageReport report = setPage(oimage, rect, pageNum, false);
+        result.startPage(report.getWidth(), report.getHeight());
+        if (report.isBlank()) {
+            return;
+        }
+        api.TessBaseAPIRecognize(handle, null);
+        walker.walk(handle, result);
+        result.toOriginalCoordinates(report);
+    }
+
+    /**
+     * Recognizes an image file and adds its words, with their boxes, to a
+     * full-text index.
      *
-     * @param imageList a list of <code>IIOImage</code> objects
-     * @param rect the bounding rectangle defines the region of the image to be
-     * recognized. A rectangle of zero dimension or <code>null</code> indicates
-     * the whole image.
-     * @return the recognized text
+     * @param imageFile an image file
+     * @param index the index
+     * @return the document number in the index
      * @throws TesseractException
      */
-    @Override
-    public String doOCR(List<IIOImage> imageList, Rectangle rect) throws TesseractException {
-        return doOCR(imageList, null, rect);
+    public int indexDocument(File imageFile, TextIndex index) throws TesseractException {
+        try {
+            OCRResult result = getOCRResult(ImageIOHelper.getIIOImageList(imageFile), null, TessPageIteratorLevel.RIL_WORD, OCRResult.BOXES | OCRResult.TEXT);
+            return index.add(imageFile.getPath(), result);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
     }
 
     /**
-     * Performs OCR operation.
+     * Creates a searchable PDF with {@link SearchablePdfWriter}: the original
+     * compressed page images, passed through without being encoded again,
+     * under an invisible text layer. Unlike the native PDF renderer, no font
+     * file is needed. Pages are handled one at a time: each is decoded,
+     * recognized and written before the next is read, so memory use does not
+     * grow with the number of pages.
      *
-     * @param imageList a list of <code>IIOImage</code> objects
-     * @param filename input file name. Needed only for training and reading a
-     * UNLV zone file.
-     * @param rect the bounding rectangle defines the region of the image to be
-     * recognized. A rectangle of zero dimension or <code>null</code> indicates
-     * the whole image.
-     * @return the recognized text
+     * @param imageFile a JPEG, PNG, GIF, BMP or TIFF file
+     * @param pdfFile the output file
      * @throws TesseractException
      */
-    @Override
-    public String doOCR(List<IIOImage> imageList, String filename, Rectangle rect) throws TesseractException {
+    public void createSearchablePdf(File imageFile, File pdfFile) throws TesseractException {
+        ImageReader reader = null;
+        SearchablePdfWriter.PageImages images = null;
+        OutputStream out = null;
         init();
         setTessVariables();
 
         try {
-            StringBuilder sb = new StringBuilder();
-            int pageNum = 0;
+            reader = ImageIOHelper.getImageReader(imageFile);
+            images = new SearchablePdfWriter.PageImages(imageFile);
+            int pageCount = reader.getNumImages(true);
+            if (images.getPageCount() != pageCount) {
+                throw new TesseractException("Page count mismatch: " + images.getPageCount() + " images, " + pageCount + " pages decoded.");
+            }
 
-            for (IIOImage oimage : imageList) {
-                pageNum++;
+            ResultWalker walker = new ResultWalker(api);
+            pageReports.clear();
+            out = new BufferedOutputStream(new FileOutputStream(pdfFile));
+            SearchablePdfWriter pdf = new SearchablePdfWriter(out);
+            for (int i = 0; i < pageCount; i++) {
+                OCRResult result = new OCRResult(TessPageIteratorLevel.RIL_WORD, OCRResult.BOXES | OCRResult.TEXT);
+                recognizePage(reader.readAll(i, reader.getDefaultReadParam()), null, i + 1, walker, result);
+                pdf.addPage(images.getImage(i), result, 0);
+            }
+            pdf.close();
+            out = null;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        } finally {
+            if (out != null) {
                 try {
-                    setImage(oimage.getRenderedImage(), rect);
-                    sb.append(getOCRText(filename, pageNum));
-                } catch (IOException ioe) {
-                    // skip the problematic image
-                    logger.log(Level.SEVERE, ioe.getMessage(), ioe);
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
                 }
             }
-
-            if (renderedFormat == RenderedFormat.HOCR) {
-                sb.insert(0, htmlBeginTag).append(htmlEndTag);
+            if (images != null) {
+                try {
+                    images.close();
+                } catch (IOException e) {
+                    // ignore
+                }
             }
-
-            return sb.toString();
-        } finally {
+            closeReader(reader);
             dispose();
         }
     }
 
+    /**
+     * Closes the input of a reader from {@link ImageIOHelper#getImageReader}
+     * and disposes of the reader.
+     *
+     * @param reader the reader; may be <code>null</code>
+     */
+    private static void closeReader(ImageReader reader) {
+        if (reader == null) {
+            return;
+        }
+        try {
+            ((ImageInputStream) reader.getInput()).close();
+        } catch (IOException e) {
+            // ignore
+        }
+        reader.dispose();
+    }
+
     /**
      * Performs OCR operation. Use <code>SetImage</code>, (optionally)
      * <code>SetRectangle</code>, and one or more of the <code>Get*Text</code>
@@ -358,25 +1196,164 @@ public class Tesseract implements ITesseract {
      */
     protected void init() {
         api = TessAPI.INSTANCE;
-        handle = api.TessBaseAPICreate();
+        handle = initHandle();
+    }
+
+    private TessBaseAPI initHandle() {
+        TessBaseAPI h = api.TessBaseAPICreate();
         StringArray sarray = new StringArray(configList.toArray(new String[0]));
         PointerByReference configs = new PointerByReference();
         configs.setPointer(sarray);
-        api.TessBaseAPIInit1(handle, datapath, language, ocrEngineMode, configs, configList.size());
+        api.TessBaseAPIInit1(h, datapath, language, ocrEngineMode, configs, configList.size());
         if (psm > -1) {
-            api.TessBaseAPISetPageSegMode(handle, psm);
+            api.TessBaseAPISetPageSegMode(h, psm);
         }
+        return h;
     }
 
     /**
      * Sets Tesseract's internal parameters.
      */
     protected void setTessVariables() {
+        setTessVariables(handle);
+    }
+
+    private void setTessVariables(TessBaseAPI h) {
         Enumeration<?> em = prop.propertyNames();
         while (em.hasMoreElements()) {
             String key = (String) em.nextElement();
-            api.TessBaseAPISetVariable(handle, key, prop.getProperty(key));
+            api.TessBaseAPISetVariable(h, key, prop.getProperty(key));
+        }
+    }
+
+    /**
+     * Creates and initializes a handle for the handle pool, with the current
+     * configuration and variables.
+     *
+     * @return an initialized handle
+     */
+    TessBaseAPI createHandle() {
+        api = TessAPI.INSTANCE;
+        TessBaseAPI h = initHandle();
+        setTessVariables(h);
+        return h;
+    }
+
+    /**
+     * Gets the handle pool, creating it if there is none or the configuration
+     * has changed since it was created.
+     *
+     * @return the handle pool
+     */
+    synchronized HandlePool getHandlePool() {
+        String key = datapath + '|' + language + '|' + ocrEngineMode + '|' + psm + '|' + configList + '|' + prop;
+        if (handlePool == null || !handlePool.getKey().equals(key) || handlePool.getSize() != parallelism) {
+            if (handlePool != null) {
+                handlePool.close();
+            }
+            handlePool = new HandlePool(this, key, parallelism);
+        }
+        return handlePool;
+    }
+
+    /**
+     * Looks up a result in the cache, then in the persistent store.
+     *
+     * @param contentHash hash of the input
+     * @param configHash fingerprint of the configuration
+     * @return the text; <code>null</code> if not found
+     */
+    private String getCachedResult(long contentHash, long configHash) {
+        ResultCache cache = resultCache;
+        ResultStore store = resultStore;
+        String text = cache != null ? cache.get(contentHash, configHash) : null;
+        if (text == null && store != null) {
+            try {
+                text = store.get(contentHash, configHash);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, e.getMessage(), e);
+            }
+            if (text != null && cache != null) {
+                cache.put(contentHash, configHash, text);
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Adds a result to the cache and to the persistent store.
+     *
+     * @param contentHash hash of the input
+     * @param configHash fingerprint of the configuration
+     * @param text the recognized text
+     */
+    private void putCachedResult(long contentHash, long configHash, String text) {
+        ResultCache cache = resultCache;
+        ResultStore store = resultStore;
+        if (cache != null) {
+            cache.put(contentHash, configHash, text);
+        }
+        if (store != null) {
+            try {
+                store.put(contentHash, configHash, text);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Computes the fingerprint of the configuration that determines the
+     * recognized text of a page.
+     *
+     * @param rect region of interest
+     * @param pageNum page number, which only matters for hOCR output
+     * @return the fingerprint
+     */
+    private long getConfigHash(Rectangle rect, int pageNum) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(datapath).append('|').append(language).append('|').append(ocrEngineMode).append('|').append(psm);
+        sb.append('|').append(configList).append('|').append(new TreeMap<Object, Object>(prop));
+        sb.append('|').append(renderedFormat);
+        if (renderedFormat == RenderedFormat.HOCR) {
+            sb.append(pageNum);
+        }
+        if (rect != null && !rect.isEmpty()) {
+            sb.append('|').append(rect.x).append(',').append(rect.y).append(',').append(rect.width).append(',').append(rect.height);
+        }
+        sb.append('|').append(preprocessor.getKey());
+        if (tileSize > 0) {
+            sb.append("|tiles=").append(tileSize).append('/').append(tileOverlap);
+        }
+        if (parallelBlocks && parallelism > 1) {
+            sb.append("|blocks");
         }
+        return ImageHash.hash(sb.toString());
+    }
+
+    /**
+     * Gets the recognizer of text blocks, on the current handle pool.
+     *
+     * @return the block recognizer
+     */
+    private synchronized BlockRecognizer getBlockRecognizer() {
+        HandlePool pool = getHandlePool();
+        if (blockRecognizer == null || blockRecognizer.getPool() != pool) {
+            // the mode is part of the key of the pool
+            blockRecognizer = new BlockRecognizer(pool, getDefaultPageSegMode());
+        }
+        return blockRecognizer;
+    }
+
+    /**
+     * Releases the pooled handles used for concurrent recognition.
+     */
+    public synchronized void releaseHandles() {
+        if (handlePool != null) {
+            handlePool.close();
+            handlePool = null;
+        }
+        blockRecognizer = null;
     }
 
     /**
@@ -391,6 +1368,140 @@ public class Tesseract implements ITesseract {
                 .getColorModel().getPixelSize());
     }
 
+    /**
+     * Runs a page through the preprocessor and sets it as the image to be
+     * processed. Nothing is set for a page classified as blank.
+     *
+     * @param oimage the page
+     * @param rect region of interest on the original page
+     * @param pageNum page number
+     * @return the report of the page
+     * @throws IOException
+     */
+    protected PageReport setPage(IIOImage oimage, Rectangle rect, int pageNum) throws IOException {
+        return setPage(oimage, rect, pageNum, true);
+    }
+
+    private PageReport setPage(IIOImage oimage, Rectangle rect, int pageNum, boolean tiling) throws IOException {
+        PageReport report = new PageReport(pageNum);
+        RenderedImage image = preprocessor.process(oimage, report);
+        pageReports.add(report);
+        metrics.addPage(report);
+
+        tiledPage = null;
+        if (report.isBlank()) {
+            return report;
+        }
+
+        if (tiling && tileSize > 0 && renderedFormat == RenderedFormat.TEXT && (image.getWidth() > tileSize || image.getHeight() > tileSize)) {
+            // recognized tile by tile on pooled handles; nothing is set on this handle
+            tiledPage = PagePreprocessor.toBufferedImage(image);
+            tiledRegion = report.getRecognitionRegion(rect);
+            return report;
+        }
+
+        // the content area may be detected on a page that is otherwise unchanged
+        Rectangle region = report.getRecognitionRegion(rect);
+        if (image != oimage.getRenderedImage()) {
+            // preprocessed pages are compact 8-bit grayscale, which needs no TIFF round trip
+            setImage(image.getWidth(), image.getHeight(), ImageIOHelper.convertImageData((BufferedImage) image), region, 8);
+        } else {
+            setImage(image, region);
+        }
+
+        if (report.getEffectiveDpi() > 0) {
+            api.TessBaseAPISetSourceResolution(handle, report.getEffectiveDpi());
+        }
+
+        return report;
+    }
+
+    /**
+     * Recognizes the page prepared by {@link #setPage} tile by tile.
+     *
+     * @param report the report of the page
+     * @param pageIteratorLevel the level of the elements to return
+     * @return the elements, in processed page coordinates
+     * @throws TesseractException
+     */
+    private List<Word> getTiledWords(PageReport report, int pageIteratorLevel) throws TesseractException {
+        BufferedImage page = tiledPage;
+        tiledPage = null;
+        int w = page.getWidth();
+        int h = page.getHeight();
+        ByteBuffer pixels = ImageIOHelper.convertImageData(ImageHelper.createGrayscaleImage(ImageHelper.getGrayscaleBytes(page), w, h));
+        Rectangle region = tiledRegion == null || tiledRegion.isEmpty() ? null : tiledRegion.intersection(new Rectangle(w, h));
+        int dpi = report.getEffectiveDpi() > 0 ? report.getEffectiveDpi() : report.getDpiY();
+        TiledRecognizer recognizer = new TiledRecognizer(getHandlePool(), tileSize, tileOverlap);
+        return recognizer.recognize(pixels, w, h, region, dpi, pageIteratorLevel);
+    }
+
+    /**
+     * Runs layout analysis on the page set on the handle, with automatic page
+     * segmentation unless an automatic mode is configured.
+     *
+     * @return the page layout, in processed page coordinates
+     */
+    private PageLayout analyseLayout() {
+        api.TessBaseAPISetPageSegMode(handle, getLayoutPageSegMode());
+        return PageLayout.analyse(api, handle);
+    }
+
+    /**
+     * @return the page segmentation mode of layout analysis: the configured
+     * mode if automatic, <code>PSM_AUTO</code> otherwise
+     */
+    private int getLayoutPageSegMode() {
+        boolean auto = psm == TessPageSegMode.PSM_AUTO_OSD || psm == TessPageSegMode.PSM_AUTO_ONLY || psm == TessPageSegMode.PSM_AUTO;
+        return auto ? psm : TessPageSegMode.PSM_AUTO;
+    }
+
+    /**
+     * @return the configured page segmentation mode, or the single block
+     * mode the engine defaults to
+     */
+    private int getDefaultPageSegMode() {
+        return psm > -1 ? psm : TessPageSegMode.PSM_SINGLE_BLOCK;
+    }
+
+    /**
+     * Undoes {@link #analyseLayout()} on the handle: restores the configured
+     * page segmentation mode and, if layout analysis used another mode,
+     * drops the layout found, which recognition would otherwise reuse.
+     */
+    private void restorePageSegMode() {
+        int mode = getDefaultPageSegMode();
+        if (mode == getLayoutPageSegMode()) {
+            return;
+        }
+        api.TessBaseAPISetPageSegMode(handle, mode);
+        // setting the rectangle clears the results on the handle
+        Rectangle r = imageRect != null ? imageRect : new Rectangle(imageWidth, imageHeight);
+        api.TessBaseAPISetRectangle(handle, r.x, r.y, r.width, r.height);
+    }
+
+    /**
+     * Recognizes the text blocks of the page set on the handle concurrently.
+     * Falls back to {@link #getOCRText}, in the configured page segmentation
+     * mode, for pages with fewer than two text blocks.
+     *
+     * @param filename input file name
+     * @param pageNum page number
+     * @param report the report of the page
+     * @return the recognized text
+     * @throws TesseractException
+     */
+    private String getBlockText(String filename, int pageNum, PageReport report) throws TesseractException {
+        List<Integer> types = new ArrayList<Integer>();
+        List<Rectangle> blocks = BlockRecognizer.getTextBlocks(analyseLayout(), types);
+        restorePageSegMode();
+        if (blocks.size() < 2) {
+            return getOCRText(filename, pageNum);
+        }
+
+        return getBlockRecognizer().recognize(imageBuffer, imageWidth, imageHeight, imageBpp, blocks, types, report.getEffectiveDpi());
+    }
+
     /**
      * Sets image to be processed.
      *
@@ -407,8 +1518,13 @@ public class Tesseract implements ITesseract {
         int bytespp = bpp / 8;
         int bytespl = (int) Math.ceil(xsize * bpp / 8.0);
         api.TessBaseAPISetImage(handle, buf, xsize, ysize, bytespp, bytespl);
+        imageBuffer = buf;
+        imageWidth = xsize;
+        imageHeight = ysize;
+        imageBpp = bpp;
+        imageRect = rect != null && !rect.isEmpty() ? new Rectangle(rect) : null;
 
-        if (rect != null && !rect.isEmpty()) {
+        if (imageRect != null) {
             api.TessBaseAPISetRectangle(handle, rect.x, rect.y, rect.width, rect.height);
         }
     }
@@ -435,10 +1551,11 @@ public class Tesseract implements ITesseract {
     /**
      * Creates renderers for given formats.
      *
+     * @param h the handle whose data path the PDF renderer uses
      * @param formats
      * @return
      */
-    private TessResultRenderer createRenderers(List<RenderedFormat> formats) {
+    private TessResultRenderer createRenderers(TessBaseAPI h, List<RenderedFormat> formats) {
         TessResultRenderer renderer = null;
 
         for (RenderedFormat format : formats) {
@@ -458,7 +1575,7 @@ public class Tesseract implements ITesseract {
                     }
                     break;
                 case PDF:
-                    String dataPath = api.TessBaseAPIGetDatapath(handle);
+                    String dataPath = api.TessBaseAPIGetDatapath(h);
                     if (renderer == null) {
                         renderer = api.TessPDFRendererCreate(dataPath);
                     } else {
@@ -499,7 +1616,9 @@ public class Tesseract implements ITesseract {
     }
 
     /**
-     * Creates documents.
+     * Creates documents. Problematic files are logged and skipped; see
+     * {@link #processDocuments(String[], String[], List)} for a report of
+     * every file.
      *
      * @param filenames array of input files
      * @param outputbases array of output filenames without extension
@@ -508,95 +1627,144 @@ public class Tesseract implements ITesseract {
      */
     @Override
     public void createDocuments(String[] filenames, String[] outputbases, List<RenderedFormat> formats) throws TesseractException {
+        processDocuments(filenames, outputbases, formats);
+    }
+
+    /**
+     * Creates documents and reports the outcome for every input file. When
+     * the parallelism is more than 1, files are processed concurrently on
+     * pooled handles, each file with its own chain of renderers. PDF files
+     * are still converted to images one at a time, as Ghostscript has a
+     * single interpreter per process.
+     *
+     * @param filenames array of input files
+     * @param outputbases array of output filenames without extension
+     * @param formats types of renderer
+     * @return the report of every file, in the order of the files
+     * @throws TesseractException
+     */
+    public List<DocumentReport> processDocuments(String[] filenames, String[] outputbases, List<RenderedFormat> formats) throws TesseractException {
         if (filenames.length != outputbases.length) {
             throw new RuntimeException("The two arrays must match in length.");
         }
 
+        if (parallelism > 1 && filenames.length > 1) {
+            return processDocumentsConcurrently(filenames, outputbases, formats);
+        }
+
         init();
         setTessVariables();
 
         try {
+            List<DocumentReport> reports = new ArrayList<DocumentReport>(filenames.length);
             for (int i = 0; i < filenames.length; i++) {
-                File workingTiffFile = null;
-                try {
-                    String filename = filenames[i];
+                reports.add(createDocument(handle, filenames[i], outputbases[i], formats));
+            }
+            return reports;
+        } finally {
+            dispose();
+        }
+    }
 
-                    // if PDF, convert to multi-page TIFF
-                    if (filename.toLowerCase().endsWith(".pdf")) {
-                        workingTiffFile = PdfUtilities.convertPdf2Tiff(new File(filename));
-                        filename = workingTiffFile.getPath();
-                    }
+    private List<DocumentReport> processDocumentsConcurrently(String[] filenames, String[] outputbases, final List<RenderedFormat> formats) throws TesseractException {
+        api = TessAPI.INSTANCE;
+        final HandlePool pool = getHandlePool();
+        List<Callable<DocumentReport>> jobs = new ArrayList<Callable<DocumentReport>>(filenames.length);
+        for (int i = 0; i < filenames.length; i++) {
+            final String filename = filenames[i];
+            final String outputbase = outputbases[i];
+            jobs.add(new Callable<DocumentReport>() {
 
-                    TessResultRenderer renderer = createRenderers(formats);
-                    createDocuments(filename, outputbases[i], renderer);
-                } catch (Exception e) {
-                    // skip the problematic image file
-                    logger.log(Level.SEVERE, e.getMessage(), e);
-                } finally {
-                    if (workingTiffFile != null && workingTiffFile.exists()) {
-                        workingTiffFile.delete();
+                @Override
+                public DocumentReport call() throws Exception {
+                    TessBaseAPI h = pool.acquire();
+                    try {
+                        return createDocument(h, filename, outputbase, formats);
+                    } finally {
+                        pool.release(h);
                     }
                 }
+            });
+        }
+
+        List<DocumentReport> reports = new ArrayList<DocumentReport>(filenames.length);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, jobs.size()));
+        try {
+            for (Future<DocumentReport> future : executor.invokeAll(jobs)) {
+                reports.add(future.get());
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TesseractException(e);
+        } catch (ExecutionException e) {
+            throw new TesseractException(e.getCause());
         } finally {
-            dispose();
+            executor.shutdownNow();
         }
+        return reports;
     }
 
     /**
-     * Creates documents.
+     * Creates the documents of an input file.
      *
+     * @param h the handle to process the file on
      * @param filename input file
      * @param outputbase output filename without extension
-     * @param renderer renderer
-     * @throws TesseractException
+     * @param formats types of renderer
+     * @return the report of the file; errors are recorded in it, not thrown
      */
-    private void createDocuments(String filename, String outputbase, TessResultRenderer renderer) throws TesseractException {
-        api.TessBaseAPISetInputName(handle, filename); //for reading a UNLV zone file
-        api.TessResultRendererBeginDocument(renderer, filename);
-        int result = api.TessBaseAPIProcessPages1(handle, filename, null, 0, renderer);
-        api.TessResultRendererEndDocument(renderer);
-
-        if (result == ITessAPI.FALSE) {
-            throw new TesseractException("Error during processing page.");
-        }
+    private DocumentReport createDocument(TessBaseAPI h, String filename, String outputbase, List<RenderedFormat> formats) {
+        DocumentReport report = new DocumentReport(filename, outputbase);
+        long start = System.nanoTime();
+        File workingTiffFile = null;
+        TessResultRenderer renderer = null;
 
-        writeToFiles(outputbase, renderer);
-    }
+        try {
+            // if PDF, convert to multi-page TIFF
+            if (filename.toLowerCase().endsWith(".pdf")) {
+                workingTiffFile = PdfUtilities.convertPdf2Tiff(new File(filename));
+                filename = workingTiffFile.getPath();
+            }
 
-    /**
-     * Writes renderer output to files.
-     *
-     * @param outputbase output filename without extension
-     * @param renderer renderer
-     * @throws TesseractException
-     */
-    private void writeToFiles(String outputbase, TessResultRenderer renderer) throws TesseractException {
-        Map<String, byte[]> map = getRendererOutput(renderer);
+            renderer = createRenderers(h, formats);
+            api.TessBaseAPISetInputName(h, filename); //for reading a UNLV zone file
+            api.TessResultRendererBeginDocument(renderer, filename);
+            int result = api.TessBaseAPIProcessPages1(h, filename, null, 0, renderer);
+            api.TessResultRendererEndDocument(renderer);
+            report.setPageCount(api.TessResultRendererImageNum(renderer));
 
-        for (Map.Entry<String, byte[]> entry : map.entrySet()) {
-            String key = entry.getKey();
-            byte[] value = entry.getValue();
+            if (result == ITessAPI.FALSE) {
+                throw new TesseractException("Error during processing page.");
+            }
 
-            try {
-                File file = new File(outputbase + "." + key);
-                Utils.writeFile(value, file);
-            } catch (IOException e) {
-                logger.log(Level.SEVERE, e.getMessage(), e);
+            writeToFiles(outputbase, renderer);
+            report.setSuccess(true);
+        } catch (Exception e) {
+            // skip the problematic image file
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            report.setError(e);
+        } finally {
+            if (renderer != null) {
+                api.TessDeleteResultRenderer(renderer);
             }
+            if (workingTiffFile != null && workingTiffFile.exists()) {
+                workingTiffFile.delete();
+            }
+            report.setElapsedMillis((System.nanoTime() - start) / 1000000);
         }
+
+        return report;
     }
 
     /**
-     * Gets renderer output in form of byte arrays.
+     * Writes renderer output to files. The output of each renderer is written
+     * straight from native memory, in chunks, without a copy on the heap.
      *
+     * @param outputbase output filename without extension
      * @param renderer renderer
-     * @return output byte arrays
-     * @throws TesseractException
+     * @throws IOException
      */
-    private Map<String, byte[]> getRendererOutput(TessResultRenderer renderer) throws TesseractException {
-        Map<String, byte[]> map = new HashMap<String, byte[]>();
-
+    private void writeToFiles(String outputbase, TessResultRenderer renderer) throws IOException {
         for (; renderer != null; renderer = api.TessResultRendererNext(renderer)) {
             String ext = api.TessResultRendererExtention(renderer).getString(0);
 
@@ -605,19 +1773,17 @@ public class Tesseract implements ITesseract {
 
             int result = api.TessResultRendererGetOutput(renderer, data, dataLength);
             if (result == ITessAPI.TRUE) {
-                int length = dataLength.getValue();
-                byte[] bytes = data.getValue().getByteArray(0, length);
-                map.put(ext, bytes);
+                File file = new File(outputbase + "." + ext);
+                Utils.writeFile(data.getValue(), dataLength.getValue(), file);
             }
         }
-
-        return map;
     }
 
     /**
      * Releases all of the native resources used by this instance.
      */
     protected void dispose() {
+        imageBuffer = null;
         api.TessBaseAPIDelete(handle);
     }
 }
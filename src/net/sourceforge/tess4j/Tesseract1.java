@@ -56,6 +56,9 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
     private int ocrEngineMode = TessOcrEngineMode.OEM_DEFAULT;
     private final Properties prop = new Properties();
     private final List<String> configList = new ArrayList<String>();
+    private final PagePreprocessor preprocessor = new PagePreprocessor();
+    private final OCRMetrics metrics = new OCRMetrics();
+    private final List<PageReport> pageReports = new ArrayList<PageReport>();
 
     private TessBaseAPI handle;
 
@@ -147,6 +150,35 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
         }
     }
 
+    /**
+     * Returns the page preprocessor, whose stages are applied to every page
+     * before recognition. All stages are disabled by default.
+     *
+     * @return the page preprocessor
+     */
+    public PagePreprocessor getPreprocessor() {
+        return preprocessor;
+    }
+
+    /**
+     * Returns the cumulative metrics of this instance.
+     *
+     * @return metrics
+     */
+    public OCRMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the reports of the pages prepared by the last OCR operation on
+     * a list of images.
+     *
+     * @return page reports, in page order
+     */
+    public List<PageReport> getPageReports() {
+        return Collections.unmodifiableList(new ArrayList<PageReport>(pageReports));
+    }
+
     /**
      * Performs OCR operation.
      *
@@ -245,12 +277,15 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
         try {
             StringBuilder sb = new StringBuilder();
             int pageNum = 0;
+            pageReports.clear();
 
             for (IIOImage oimage : imageList) {
                 pageNum++;
                 try {
-                    setImage(oimage.getRenderedImage(), rect);
-                    sb.append(getOCRText(filename, pageNum));
+                    PageReport report = setPage(oimage, rect, pageNum);
+                    if (!report.isBlank()) {
+                        sb.append(getOCRText(filename, pageNum));
+                    }
                 } catch (IOException ioe) {
                     // skip the problematic image
                     logger.log(Level.SEVERE, ioe.getMessage(), ioe);
@@ -267,6 +302,187 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
         }
     }
 
+    /**
+     * Performs OCR operation on several regions of an image. The image is
+     * decoded, preprocessed and set once; each region is then selected with
+     * <code>SetRectangle</code> and recognized on the same handle.
+     *
+     * @param imageFile an image file; only its first page is used
+     * @param regions the regions to be recognized, in image coordinates
+     * @param pageSegModes page segmentation mode of each region, e.g.,
+     * <code>PSM_SINGLE_LINE</code> for a form field; <code>null</code>, or a
+     * negative entry, for the configured mode
+     * @return the recognized text of each region, at the index of the region,
+     * so equal regions get an entry each
+     * @throws TesseractException
+     */
+    public List<String> doOCR(File imageFile, List<Rectangle> regions, int[] pageSegModes) throws TesseractException {
+        try {
+            return doOCR(ImageIOHelper.getIIOImageList(imageFile).get(0), regions, pageSegModes);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Performs OCR operation on several regions of an image; see
+     * {@link #doOCR(File, List, int[])}.
+     *
+     * @param bi a buffered image
+     * @param regions the regions to be recognized, in image coordinates
+     * @param pageSegModes page segmentation mode of each region;
+     * <code>null</code>, or a negative entry, for the configured mode
+     * @return the recognized text of each region, at the index of the region,
+     * so equal regions get an entry each
+     * @throws TesseractException
+     */
+    public List<String> doOCR(BufferedImage bi, List<Rectangle> regions, int[] pageSegModes) throws TesseractException {
+        return doOCR(new IIOImage(bi, null, null), regions, pageSegModes);
+    }
+
+    private List<String> doOCR(IIOImage oimage, List<Rectangle> regions, int[] pageSegModes) throws TesseractException {
+        if (pageSegModes != null && pageSegModes.length != regions.size()) {
+            throw new IllegalArgumentException("One page segmentation mode per region is required.");
+        }
+        init();
+        setTessVariables();
+
+        try {
+            List<String> results = new ArrayList<String>(regions.size());
+            pageReports.clear();
+            PageReport report = setPage(oimage, null, 1);
+            Rectangle page = new Rectangle(report.getWidth(), report.getHeight());
+            int defaultMode = psm > -1 ? psm : TessPageSegMode.PSM_SINGLE_BLOCK;
+            int mode = defaultMode;
+
+            for (int i = 0; i < regions.size(); i++) {
+                Rectangle rect = regions.get(i);
+                Rectangle region = report.isBlank() ? null : report.getRecognitionRegion(rect);
+                region = region == null ? null : region.intersection(page);
+                if (region == null || region.isEmpty()) {
+                    results.add("");
+                    continue;
+                }
+                int regionMode = pageSegModes != null && pageSegModes[i] > -1 ? pageSegModes[i] : defaultMode;
+                if (regionMode != mode) {
+                    TessBaseAPISetPageSegMode(handle, regionMode);
+                    mode = regionMode;
+                }
+                TessBaseAPISetRectangle(handle, region.x, region.y, region.width, region.height);
+                results.add(getOCRText(null, 1));
+            }
+
+            return results;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        } finally {
+            dispose();
+        }
+    }
+
+    /**
+     * Performs OCR operation and returns the structured result.
+     *
+     * @param imageFile an image file
+     * @param level the finest level to collect, e.g.,
+     * <code>TessPageIteratorLevel.RIL_WORD</code>
+     * @return the pages, blocks, paragraphs, text lines, words and symbols
+     * down to <code>level</code>
+     * @throws TesseractException
+     */
+    public OCRResult getOCRResult(File imageFile, int level) throws TesseractException {
+        try {
+            return getOCRResult(ImageIOHelper.getIIOImageList(imageFile), null, level);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Performs OCR operation and returns the structured result.
+     *
+     * @param bi a buffered image
+     * @param level the finest level to collect
+     * @return the structured result
+     * @throws TesseractException
+     */
+    public OCRResult getOCRResult(BufferedImage bi, int level) throws TesseractException {
+        try {
+            return getOCRResult(ImageIOHelper.getIIOImageList(bi), null, level);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Performs OCR operation and returns the structured result. Boxes are in
+     * the coordinates of the original images; blank pages have no elements.
+     *
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be
+     * recognized. A rectangle of zero dimension or <code>null</code> indicates
+     * the whole image.
+     * @param level the finest level to collect
+     * @return the structured result
+     * @throws TesseractException
+     */
+    public OCRResult getOCRResult(List<IIOImage> imageList, Rectangle rect, int level) throws TesseractException {
+        return getOCRResult(imageList, rect, level, OCRResult.ALL_ATTRIBUTES);
+    }
+
+    /**
+     * Performs OCR operation and returns the structured result, collecting
+     * only the requested attributes. Leaving out unneeded attributes saves
+     * native calls on every element.
+     *
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be
+     * recognized. A rectangle of zero dimension or <code>null</code> indicates
+     * the whole image.
+     * @param level the finest level to collect
+     * @param attributes a combination of <code>OCRResult.BOXES</code>,
+     * <code>OCRResult.CONFIDENCES</code>, <code>OCRResult.TEXT</code> and
+     * <code>OCRResult.WORD_CONFIDENCES</code>
+     * @return the structured result
+     * @throws TesseractException
+     */
+    public OCRResult getOCRResult(List<IIOImage> imageList, Rectangle rect, int level, int attributes) throws TesseractException {
+        OCRResult result = new OCRResult(level, attributes);
+        init();
+        setTessVariables();
+
+        try {
+            // the iterator functions are the same native calls through the interface mapping
+            ResultWalker walker = new ResultWalker(ResultWalker.TESS_API1);
+            int pageNum = 0;
+            pageReports.clear();
+
+            for (IIOImage oimage : imageList) {
+                pageNum++;
+                PageReport report = setPage(oimage, rect, pageNum);
+                result.startPage(report.getWidth(), report.getHeight());
+                if (report.isBlank()) {
+                    continue;
+                }
+                TessBaseAPIRecognize(handle, null);
+                walker.walk(handle, result);
+                result.toOriginalCoordinates(report);
+            }
+
+            result.trim();
+            return result;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        } finally {
+            dispose();
+        }
+    }
+
     /**
      * Performs OCR operation. Use <code>SetImage</code>, (optionally)
      * <code>SetRectangle</code>, and one or more of the <code>Get*Text</code>
@@ -359,6 +575,42 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
                 .getColorModel().getPixelSize());
     }
 
+    /**
+     * Runs a page through the preprocessor and sets it as the image to be
+     * processed. Nothing is set for a page classified as blank.
+     *
+     * @param oimage the page
+     * @param rect region of interest on the original page
+     * @param pageNum page number
+     * @return the report of the page
+     * @throws IOException
+     */
+    protected PageReport setPage(IIOImage oimage, Rectangle rect, int pageNum) throws IOException {
+        PageReport report = new PageReport(pageNum);
+        RenderedImage image = preprocessor.process(oimage, report);
+        pageReports.add(report);
+        metrics.addPage(report);
+
+        if (report.isBlank()) {
+            return report;
+        }
+
+        // the content area may be detected on a page that is otherwise unchanged
+        Rectangle region = report.getRecognitionRegion(rect);
+        if (image != oimage.getRenderedImage()) {
+            // preprocessed pages are compact 8-bit grayscale, which needs no TIFF round trip
+            setImage(image.getWidth(), image.getHeight(), ImageIOHelper.convertImageData((BufferedImage) image), region, 8);
+        } else {
+            setImage(image, region);
+        }
+
+        if (report.getEffectiveDpi() > 0) {
+            TessBaseAPISetSourceResolution(handle, report.getEffectiveDpi());
+        }
+
+        return report;
+    }
+
     /**
      * Sets image to be processed.
      *
@@ -467,7 +719,9 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
     }
 
     /**
-     * Creates documents.
+     * Creates documents. Problematic files are logged and skipped; see
+     * {@link #processDocuments(String[], String[], List)} for a report of
+     * every file.
      *
      * @param filenames array of input files
      * @param outputbases array of output filenames without extension
@@ -476,6 +730,20 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
      */
     @Override
     public void createDocuments(String[] filenames, String[] outputbases, List<RenderedFormat> formats) throws TesseractException {
+        processDocuments(filenames, outputbases, formats);
+    }
+
+    /**
+     * Creates documents and reports the outcome for every input file. Files
+     * are processed one after another on the handle of this instance.
+     *
+     * @param filenames array of input files
+     * @param outputbases array of output filenames without extension
+     * @param formats types of renderer
+     * @return the report of every file, in the order of the files
+     * @throws TesseractException
+     */
+    public List<DocumentReport> processDocuments(String[] filenames, String[] outputbases, List<RenderedFormat> formats) throws TesseractException {
         if (filenames.length != outputbases.length) {
             throw new RuntimeException("The two arrays must match in length.");
         }
@@ -484,86 +752,77 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
         setTessVariables();
 
         try {
+            List<DocumentReport> reports = new ArrayList<DocumentReport>(filenames.length);
             for (int i = 0; i < filenames.length; i++) {
-                File workingTiffFile = null;
-                try {
-                    String filename = filenames[i];
-
-                    // if PDF, convert to multi-page TIFF
-                    if (filename.toLowerCase().endsWith(".pdf")) {
-                        workingTiffFile = PdfUtilities.convertPdf2Tiff(new File(filename));
-                        filename = workingTiffFile.getPath();
-                    }
-
-                    TessResultRenderer renderer = createRenderers(formats);
-                    createDocuments(filename, outputbases[i], renderer);
-                } catch (Exception e) {
-                    // skip the problematic image file
-                    logger.log(Level.SEVERE, e.getMessage(), e);
-                } finally {
-                    if (workingTiffFile != null && workingTiffFile.exists()) {
-                        workingTiffFile.delete();
-                    }
-                }
+                reports.add(createDocument(filenames[i], outputbases[i], formats));
             }
+            return reports;
         } finally {
             dispose();
         }
     }
 
     /**
-     * Creates documents.
+     * Creates the documents of an input file.
      *
      * @param filename input file
      * @param outputbase output filename without extension
-     * @param renderer renderer
-     * @throws TesseractException
-     */
-    private void createDocuments(String filename, String outputbase, TessResultRenderer renderer) throws TesseractException {
-        TessBaseAPISetInputName(handle, filename); //for reading a UNLV zone file
-        TessResultRendererBeginDocument(renderer, filename);
-        int result = TessBaseAPIProcessPages1(handle, filename, null, 0, renderer);
-        TessResultRendererEndDocument(renderer);
-
-//        if (result == ITessAPI.FALSE) {
-//            throw new TesseractException("Error during processing page.");
-//        }
-        writeToFiles(outputbase, renderer);
-    }
-
-    /**
-     * Writes renderer output to files.
-     *
-     * @param outputbase output filename without extension
-     * @param renderer renderer
-     * @throws TesseractException
+     * @param formats types of renderer
+     * @return the report of the file; errors are recorded in it, not thrown
      */
-    private void writeToFiles(String outputbase, TessResultRenderer renderer) throws TesseractException {
-        Map<String, byte[]> map = getRendererOutput(renderer);
+    private DocumentReport createDocument(String filename, String outputbase, List<RenderedFormat> formats) {
+        DocumentReport report = new DocumentReport(filename, outputbase);
+        long start = System.nanoTime();
+        File workingTiffFile = null;
+        TessResultRenderer renderer = null;
 
-        for (Map.Entry<String, byte[]> entry : map.entrySet()) {
-            String key = entry.getKey();
-            byte[] value = entry.getValue();
+        try {
+            // if PDF, convert to multi-page TIFF
+            if (filename.toLowerCase().endsWith(".pdf")) {
+                workingTiffFile = PdfUtilities.convertPdf2Tiff(new File(filename));
+                filename = workingTiffFile.getPath();
+            }
 
-            try {
-                File file = new File(outputbase + "." + key);
-                Utils.writeFile(value, file);
-            } catch (IOException e) {
-                logger.log(Level.SEVERE, e.getMessage(), e);
+            renderer = createRenderers(formats);
+            TessBaseAPISetInputName(handle, filename); //for reading a UNLV zone file
+            TessResultRendererBeginDocument(renderer, filename);
+            int result = TessBaseAPIProcessPages1(handle, filename, null, 0, renderer);
+            TessResultRendererEndDocument(renderer);
+            report.setPageCount(TessResultRendererImageNum(renderer));
+
+            // the output of the pages processed is written even if a page
+            // failed; the report records the failure
+            writeToFiles(outputbase, renderer);
+            if (result == ITessAPI.FALSE) {
+                throw new TesseractException("Error during processing page.");
             }
+            report.setSuccess(true);
+        } catch (Exception e) {
+            // skip the problematic image file
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            report.setError(e);
+        } finally {
+            if (renderer != null) {
+                TessDeleteResultRenderer(renderer);
+            }
+            if (workingTiffFile != null && workingTiffFile.exists()) {
+                workingTiffFile.delete();
+            }
+            report.setElapsedMillis((System.nanoTime() - start) / 1000000);
         }
+
+        return report;
     }
 
     /**
-     * Gets renderer output in form of byte arrays.
+     * Writes renderer output to files. The output of each renderer is written
+     * straight from native memory, in chunks, without a copy on the heap.
      *
+     * @param outputbase output filename without extension
      * @param renderer renderer
-     * @return output byte arrays
-     * @throws TesseractException
+     * @throws IOException
      */
-    private Map<String, byte[]> getRendererOutput(TessResultRenderer renderer) throws TesseractException {
-        Map<String, byte[]> map = new HashMap<String, byte[]>();
-
+    private void writeToFiles(String outputbase, TessResultRenderer renderer) throws IOException {
         for (; renderer != null; renderer = TessResultRendererNext(renderer)) {
             String ext = TessResultRendererExtention(renderer).getString(0);
 
@@ -572,13 +831,10 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
 
             int result = TessResultRendererGetOutput(renderer, data, dataLength);
             if (result == ITessAPI.TRUE) {
-                int length = dataLength.getValue();
-                byte[] bytes = data.getValue().getByteArray(0, length);
-                map.put(ext, bytes);
+                File file = new File(outputbase + "." + ext);
+                Utils.writeFile(data.getValue(), dataLength.getValue(), file);
             }
         }
-
-        return map;
     }
 
     /**
@@ -0,0 +1,959 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.tess4j.ITessAPI.TessPageIteratorLevel;
+
+/**
+ * An embedded full-text index of recognized documents that keeps the position
+ * and bounding box of every word, so that search hits can be highlighted on
+ * the page images without running OCR again.
+ * <br>
+ * Words are lowercased and stripped of leading and trailing punctuation. Each
+ * term maps to its postings, one per occurrence: document, page, position of
+ * the word on the page, and box. Postings are sorted and stored as deltas in
+ * variable-length bytes, a few bytes each.
+ * <br>
+ * Added documents are buffered in memory until {@link #flush()}, or until
+ * the buffer is full, and then written as an immutable segment file, which
+ * is memory-mapped for queries. The term dictionary of a segment is sorted
+ * and searched by bisection, so a lookup touches a few pages of the file.
+ * {@link #merge()} combines the segments into one. A segment is written to a
+ * temporary file and renamed when complete, so a crash loses at most the
+ * buffered documents. An index is opened by one process at a time, which
+ * holds a lock file while it is open; within that process, queries run
+ * concurrently and updates are serialized.
+ */
+public class TextIndex {
+
+    static final int SEGMENT_MAGIC = 0x54345458; // T4TX
+
+    /**
+     * Segment header: magic, first document, document count, term count, and
+     * the offsets of the document table, the dictionary and the term bytes.
+     * Each dictionary entry holds the offsets of its term and postings, and
+     * the number of postings; a last entry marks the ends.
+     */
+    static final int HEADER = 28;
+    static final int ENTRY_SIZE = 12;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // document, page, position, left, top, right and bottom of a posting
+    private static final int FIELDS = 7;
+
+    /**
+     * A list of postings, as consecutive ints.
+     */
+    private static class Postings {
+
+        int[] data = new int[FIELDS * 4];
+        int size;
+
+        void add(int doc, int page, int position, int left, int top, int right, int bottom) {
+            if (FIELDS * (size + 1) > data.length) {
+                data = Arrays.copyOf(data, 2 * data.length);
+            }
+            int i = FIELDS * size++;
+            data[i] = doc;
+            data[i + 1] = page;
+            data[i + 2] = position;
+            data[i + 3] = left;
+            data[i + 4] = top;
+            data[i + 5] = right;
+            data[i + 6] = bottom;
+        }
+
+        /**
+         * Compares posting <code>j</code> with posting <code>k</code> of
+         * <code>other</code>, moved ahead by <code>offset</code> positions.
+         */
+        int compare(int j, Postings other, int k, int offset) {
+            int a = FIELDS * j;
+            int b = FIELDS * k;
+            for (int f = 0; f < 2; f++) {
+                if (data[a + f] != other.data[b + f]) {
+                    return data[a + f] < other.data[b + f] ? -1 : 1;
+                }
+            }
+            int position = other.data[b + 2] + offset;
+            return data[a + 2] == position ? 0 : (data[a + 2] < position ? -1 : 1);
+        }
+
+        Rectangle getBox(int j) {
+            int i = FIELDS * j;
+            return new Rectangle(data[i + 3], data[i + 4], data[i + 5] - data[i + 3], data[i + 6] - data[i + 4]);
+        }
+    }
+
+    /**
+     * A segment file.
+     */
+    private static class Segment {
+
+        final int id;
+        final File file;
+        final int docBase;
+        final int docCount;
+        final int termCount;
+        final int docOffset;
+        final int dictOffset;
+        final int termOffset;
+        MappedByteBuffer buf;
+
+        Segment(int id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                if (raf.length() < HEADER || raf.readInt() != SEGMENT_MAGIC) {
+                    throw new IOException("Not an index segment: " + file);
+                }
+                docBase = raf.readInt();
+                docCount = raf.readInt();
+                termCount = raf.readInt();
+                docOffset = raf.readInt();
+                dictOffset = raf.readInt();
+                termOffset = raf.readInt();
+            } finally {
+                raf.close();
+            }
+        }
+
+        void map() throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } finally {
+                raf.close();
+            }
+        }
+
+        boolean overlaps(Segment other) {
+            return docBase < other.docBase + other.docCount && other.docBase < docBase + docCount;
+        }
+
+        String getName(int doc) {
+            int start = buf.getInt(docOffset + 4 * doc);
+            int end = buf.getInt(docOffset + 4 * (doc + 1));
+            return decode(start, end);
+        }
+
+        String getTerm(int entry) {
+            int start = termOffset + buf.getInt(dictOffset + ENTRY_SIZE * entry);
+            int end = termOffset + buf.getInt(dictOffset + ENTRY_SIZE * (entry + 1));
+            return decode(start, end);
+        }
+
+        private String decode(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buf.get(start + i);
+            }
+            return new String(bytes, UTF8);
+        }
+
+        /**
+         * @return the dictionary entry of a term; -1 if absent
+         */
+        int find(byte[] term) {
+            int lo = 0;
+            int hi = termCount - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compare(mid, term);
+                if (c < 0) {
+                    lo = mid + 1;
+                } else if (c > 0) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private int compare(int entry, byte[] term) {
+            int start = termOffset + buf.getInt(dictOffset + ENTRY_SIZE * entry);
+            int end = termOffset + buf.getInt(dictOffset + ENTRY_SIZE * (entry + 1));
+            int n = Math.min(end - start, term.length);
+            for (int i = 0; i < n; i++) {
+                int c = (buf.get(start + i) & 0xff) - (term[i] & 0xff);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return (end - start) - term.length;
+        }
+
+        void readPostings(int entry, Postings out) {
+            ByteBuffer in = buf.duplicate();
+            in.position(buf.getInt(dictOffset + ENTRY_SIZE * entry + 4));
+            int count = buf.getInt(dictOffset + ENTRY_SIZE * entry + 8);
+            int doc = docBase;
+            int page = 0;
+            int position = 0;
+            for (int i = 0; i < count; i++) {
+                int docDelta = readVInt(in);
+                if (docDelta > 0) {
+                    doc += docDelta;
+                    page = 0;
+                    position = 0;
+                }
+                int pageDelta = readVInt(in);
+                if (pageDelta > 0) {
+                    page += pageDelta;
+                    position = 0;
+                }
+                position += readVInt(in);
+                int left = unzigzag(readVInt(in));
+                int top = unzigzag(readVInt(in));
+                int right = left + readVInt(in);
+                int bottom = top + readVInt(in);
+                out.add(doc, page, position, left, top, right, bottom);
+            }
+        }
+    }
+
+    /**
+     * A search hit: an occurrence of the query on a page.
+     */
+    public static class Hit {
+
+        private final int document;
+        private final String name;
+        private final int page;
+        private final int position;
+        private final List<Rectangle> boxes;
+
+        Hit(int document, String name, int page, int position, List<Rectangle> boxes) {
+            this.document = document;
+            this.name = name;
+            this.page = page;
+            this.position = position;
+            this.boxes = boxes;
+        }
+
+        /**
+         * @return the document number, as returned by
+         * {@link TextIndex#add(String, OCRResult)}
+         */
+        public int getDocument() {
+            return document;
+        }
+
+        /**
+         * @return the name the document was added with
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the page index, from 0
+         */
+        public int getPage() {
+            return page;
+        }
+
+        /**
+         * @return the position of the first word among the indexed words of
+         * the page, from 0
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * @return the boxes of the matching words, in pixels of the original
+         * page image
+         */
+        public List<Rectangle> getBoxes() {
+            return boxes;
+        }
+
+        /**
+         * @return the smallest rectangle holding all matching words
+         */
+        public Rectangle getBounds() {
+            Rectangle bounds = new Rectangle(boxes.get(0));
+            for (Rectangle box : boxes) {
+                bounds.add(box);
+            }
+            return bounds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s, page %d, word %d: %s", name, page, position, getBounds());
+        }
+    }
+
+    private final File directory;
+    private final int maxBufferedPostings;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Segment> segments = new ArrayList<Segment>();
+    private final Map<String, Postings> buffer = new HashMap<String, Postings>();
+    private final List<String> bufferedNames = new ArrayList<String>();
+    private final RandomAccessFile lockFile;
+    private final FileLock fileLock;
+
+    private int bufferedPostings;
+    private int documentCount;
+    private int nextSegmentId = 1;
+    private boolean closed;
+
+    private final static Logger logger = Logger.getLogger(TextIndex.class.getName());
+
+    /**
+     * Opens an index, creating the directory if needed.
+     *
+     * @param directory the directory of the index
+     * @throws IOException if the index cannot be opened, or is open in
+     * another process
+     */
+    public TextIndex(File directory) throws IOException {
+        this(directory, 1 << 20);
+    }
+
+    /**
+     * Opens an index, creating the directory if needed.
+     *
+     * @param directory the directory of the index
+     * @param maxBufferedPostings the number of buffered postings at which a
+     * segment is written; about 30 bytes of memory each
+     * @throws IOException if the index cannot be opened, or is open in
+     * another process
+     */
+    public TextIndex(File directory, int maxBufferedPostings) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        this.directory = directory;
+        this.maxBufferedPostings = Math.max(1, maxBufferedPostings);
+
+        lockFile = new RandomAccessFile(new File(directory, "lock"), "rw");
+        fileLock = lockFile.getChannel().tryLock();
+        if (fileLock == null) {
+            lockFile.close();
+            throw new IOException("Index is in use by another process: " + directory);
+        }
+
+        try {
+            open();
+        } catch (IOException e) {
+            closeFiles();
+            throw e;
+        }
+    }
+
+    private void open() throws IOException {
+        File[] files = directory.listFiles();
+        List<Segment> found = new ArrayList<Segment>();
+        for (File file : files != null ? files : new File[0]) {
+            String name = file.getName();
+            int id = parseId(name);
+            if (name.endsWith(".tmp")) {
+                // an unfinished segment
+                file.delete();
+            } else if (name.endsWith(".tix") && id > 0) {
+                nextSegmentId = Math.max(nextSegmentId, id + 1);
+                try {
+                    found.add(new Segment(id, file));
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, e.getMessage(), e);
+                }
+            }
+        }
+
+        // newest first: a merged segment supersedes the segments it was built from
+        Collections.sort(found, new Comparator<Segment>() {
+            @Override
+            public int compare(Segment a, Segment b) {
+                return b.id - a.id;
+            }
+        });
+        for (Segment segment : found) {
+            boolean stale = false;
+            for (Segment live : segments) {
+                stale |= segment.overlaps(live);
+            }
+            if (stale) {
+                segment.file.delete();
+            } else {
+                segment.map();
+                segments.add(segment);
+                documentCount = Math.max(documentCount, segment.docBase + segment.docCount);
+            }
+        }
+        Collections.sort(segments, new Comparator<Segment>() {
+            @Override
+            public int compare(Segment a, Segment b) {
+                return a.docBase - b.docBase;
+            }
+        });
+    }
+
+    private static int parseId(String name) {
+        try {
+            return Integer.parseInt(name.substring(0, Math.max(0, name.indexOf('.'))));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Turns a word into its term: lowercased, without leading and trailing
+     * characters that are neither letters nor digits.
+     *
+     * @param chars the characters
+     * @param start the start of the word
+     * @param end the end of the word, exclusive
+     * @return the term; empty if the word has no letters or digits
+     */
+    static String normalize(CharSequence chars, int start, int end) {
+        while (start < end && !isWordChar(chars.charAt(start))) {
+            start++;
+        }
+        while (end > start && !isWordChar(chars.charAt(end - 1))) {
+            end--;
+        }
+        return chars.subSequence(start, end).toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || Character.isSurrogate(c);
+    }
+
+    /**
+     * Adds the words of a recognized document. The result must hold words,
+     * with their text and boxes.
+     *
+     * @param name name of the document, returned with its hits, e.g., the
+     * file path
+     * @param result the structured result
+     * @return the document number
+     * @throws IOException if a segment cannot be written
+     */
+    public int add(String name, OCRResult result) throws IOException {
+        int needed = OCRResult.BOXES | OCRResult.TEXT;
+        if (result.getFinestLevel() < TessPageIteratorLevel.RIL_WORD || (result.getAttributes() & needed) != needed) {
+            throw new IllegalArgumentException("The result has no words with text and boxes.");
+        }
+
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            int doc = documentCount++;
+            bufferedNames.add(name);
+
+            int level = TessPageIteratorLevel.RIL_WORD;
+            CharSequence chars = result.getChars();
+            int[] box = new int[4];
+            for (int page = 0; page < result.getPageCount(); page++) {
+                int position = 0;
+                int last = result.getFirstIndex(page + 1, level);
+                for (int i = result.getFirstIndex(page, level); i < last; i++) {
+                    String term = normalize(chars, result.getCharStart(level, i), result.getCharEnd(level, i));
+                    if (term.isEmpty()) {
+                        continue;
+                    }
+                    Postings postings = buffer.get(term);
+                    if (postings == null) {
+                        postings = new Postings();
+                        buffer.put(term, postings);
+                    }
+                    result.getBox(level, i, box, 0);
+                    postings.add(doc, page, position++, box[0], box[1], Math.max(box[0], box[2]), Math.max(box[1], box[3]));
+                    bufferedPostings++;
+                }
+            }
+
+            if (bufferedPostings >= maxBufferedPostings) {
+                flushBuffer();
+            }
+            return doc;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the buffered documents as a segment.
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            flushBuffer();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (bufferedNames.isEmpty()) {
+            return;
+        }
+        segments.add(writeSegment(buffer, bufferedNames, documentCount - bufferedNames.size()));
+        buffer.clear();
+        bufferedNames.clear();
+        bufferedPostings = 0;
+    }
+
+    /**
+     * Writes a segment, to a temporary file that is renamed when complete.
+     */
+    private Segment writeSegment(Map<String, Postings> terms, List<String> names, int docBase) throws IOException {
+        // the dictionary is in the byte order of the UTF-8 terms, as compared by lookups
+        final byte[][] keys = new byte[terms.size()][];
+        final Postings[] lists = new Postings[keys.length];
+        Integer[] order = new Integer[keys.length];
+        int n = 0;
+        for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+            keys[n] = entry.getKey().getBytes(UTF8);
+            lists[n] = entry.getValue();
+            order[n] = n;
+            n++;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                byte[] x = keys[a];
+                byte[] y = keys[b];
+                for (int i = 0; i < Math.min(x.length, y.length); i++) {
+                    int c = (x[i] & 0xff) - (y[i] & 0xff);
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                return x.length - y.length;
+            }
+        });
+
+        int id = nextSegmentId++;
+        File tmpFile = new File(directory, String.format("%08d.tmp", id));
+        File file = new File(directory, String.format("%08d.tix", id));
+        int[] postingsStarts = new int[n];
+        int docOffset;
+        int dictOffset;
+        int termOffset;
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16));
+        try {
+            out.write(new byte[HEADER]);
+            for (int i = 0; i < n; i++) {
+                postingsStarts[i] = out.size();
+                writePostings(out, lists[order[i]], docBase);
+            }
+
+            docOffset = out.size();
+            byte[][] nameBytes = new byte[names.size()][];
+            int nameStart = docOffset + 4 * (names.size() + 1);
+            for (int i = 0; i < nameBytes.length; i++) {
+                nameBytes[i] = names.get(i) != null ? names.get(i).getBytes(UTF8) : new byte[0];
+                out.writeInt(nameStart);
+                nameStart += nameBytes[i].length;
+            }
+            out.writeInt(nameStart);
+            for (byte[] bytes : nameBytes) {
+                out.write(bytes);
+            }
+
+            dictOffset = out.size();
+            int termStart = 0;
+            for (int i = 0; i < n; i++) {
+                out.writeInt(termStart);
+                out.writeInt(postingsStarts[i]);
+                out.writeInt(lists[order[i]].size);
+                termStart += keys[order[i]].length;
+            }
+            out.writeInt(termStart);
+            out.writeInt(0);
+            out.writeInt(0);
+
+            termOffset = out.size();
+            for (int i = 0; i < n; i++) {
+                out.write(keys[order[i]]);
+            }
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Segment too large.");
+            }
+        } catch (IOException e) {
+            out.close();
+            tmpFile.delete();
+            throw e;
+        }
+        out.close();
+
+        RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+        try {
+            raf.writeInt(SEGMENT_MAGIC);
+            raf.writeInt(docBase);
+            raf.writeInt(names.size());
+            raf.writeInt(n);
+            raf.writeInt(docOffset);
+            raf.writeInt(dictOffset);
+            raf.writeInt(termOffset);
+            raf.getChannel().force(true);
+        } finally {
+            raf.close();
+        }
+        if (!tmpFile.renameTo(file)) {
+            tmpFile.delete();
+            throw new IOException("Cannot rename " + tmpFile + " to " + file);
+        }
+
+        Segment segment = new Segment(id, file);
+        segment.map();
+        return segment;
+    }
+
+    /**
+     * Writes postings as deltas from the previous posting: document, page
+     * and position, each counting from 0 again when the one before changes,
+     * then left and top, width and height.
+     */
+    private static void writePostings(DataOutputStream out, Postings postings, int docBase) throws IOException {
+        int[] data = postings.data;
+        int doc = docBase;
+        int page = 0;
+        int position = 0;
+        for (int i = 0; i < FIELDS * postings.size; i += FIELDS) {
+            if (data[i] != doc) {
+                writeVInt(out, data[i] - doc);
+                doc = data[i];
+                page = 0;
+                position = 0;
+            } else {
+                writeVInt(out, 0);
+            }
+            if (data[i + 1] != page) {
+                writeVInt(out, data[i + 1] - page);
+                page = data[i + 1];
+                position = 0;
+            } else {
+                writeVInt(out, 0);
+            }
+            writeVInt(out, data[i + 2] - position);
+            position = data[i + 2];
+            writeVInt(out, zigzag(data[i + 3]));
+            writeVInt(out, zigzag(data[i + 4]));
+            writeVInt(out, data[i + 5] - data[i + 3]);
+            writeVInt(out, data[i + 6] - data[i + 4]);
+        }
+    }
+
+    private static void writeVInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Combines all segments, and the buffered documents, into one segment.
+     * The postings are decoded into memory to be written again.
+     *
+     * @throws IOException
+     */
+    public void merge() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (segments.size() + (bufferedNames.isEmpty() ? 0 : 1) <= 1) {
+                flushBuffer();
+                return;
+            }
+
+            Map<String, Postings> terms = new HashMap<String, Postings>();
+            List<String> names = new ArrayList<String>();
+            for (Segment segment : segments) {
+                for (int entry = 0; entry < segment.termCount; entry++) {
+                    String term = segment.getTerm(entry);
+                    Postings postings = terms.get(term);
+                    if (postings == null) {
+                        postings = new Postings();
+                        terms.put(term, postings);
+                    }
+                    segment.readPostings(entry, postings);
+                }
+                for (int doc = 0; doc < segment.docCount; doc++) {
+                    names.add(segment.getName(doc));
+                }
+            }
+            for (Map.Entry<String, Postings> entry : buffer.entrySet()) {
+                Postings buffered = entry.getValue();
+                Postings postings = terms.get(entry.getKey());
+                if (postings == null) {
+                    terms.put(entry.getKey(), buffered);
+                } else {
+                    for (int i = 0; i < FIELDS * buffered.size; i += FIELDS) {
+                        int[] d = buffered.data;
+                        postings.add(d[i], d[i + 1], d[i + 2], d[i + 3], d[i + 4], d[i + 5], d[i + 6]);
+                    }
+                }
+            }
+            names.addAll(bufferedNames);
+
+            Segment merged = writeSegment(terms, names, 0);
+            for (Segment segment : segments) {
+                // may fail while the file is mapped; it is deleted as stale on the next open then
+                segment.file.delete();
+            }
+            segments.clear();
+            segments.add(merged);
+            buffer.clear();
+            bufferedNames.clear();
+            bufferedPostings = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the occurrences of a word or a phrase. The words of a phrase must
+     * follow each other on a page, punctuation aside.
+     *
+     * @param query one or more words, separated by white space
+     * @return the hits, in the order of documents, pages and positions
+     * @throws IOException
+     */
+    public List<Hit> search(String query) throws IOException {
+        return search(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the occurrences of a word or a phrase, up to a limit.
+     *
+     * @param query one or more words, separated by white space
+     * @param maxHits the largest number of hits to return
+     * @return the first hits, in the order of documents, pages and positions
+     * @throws IOException
+     */
+    public List<Hit> search(String query, int maxHits) throws IOException {
+        List<String> terms = new ArrayList<String>();
+        for (String word : query.trim().split("\\s+")) {
+            String term = normalize(word, 0, word.length());
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        List<Hit> hits = new ArrayList<Hit>();
+        if (terms.isEmpty() || maxHits <= 0) {
+            return hits;
+        }
+
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            Postings[] lists = new Postings[terms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = getPostings(terms.get(i));
+                if (lists[i].size == 0) {
+                    return hits;
+                }
+            }
+
+            // postings are sorted, so each list is walked once: the i-th word must be i positions after the first
+            Postings first = lists[0];
+            int[] cursors = new int[lists.length];
+            candidates:
+            for (int k = 0; k < first.size; k++) {
+                for (int i = 1; i < lists.length; i++) {
+                    Postings postings = lists[i];
+                    while (cursors[i] < postings.size && postings.compare(cursors[i], first, k, i) < 0) {
+                        cursors[i]++;
+                    }
+                    if (cursors[i] == postings.size) {
+                        break candidates;
+                    }
+                    if (postings.compare(cursors[i], first, k, i) != 0) {
+                        continue candidates;
+                    }
+                }
+
+                List<Rectangle> boxes = new ArrayList<Rectangle>(lists.length);
+                boxes.add(first.getBox(k));
+                for (int i = 1; i < lists.length; i++) {
+                    boxes.add(lists[i].getBox(cursors[i]));
+                }
+                int doc = first.data[FIELDS * k];
+                hits.add(new Hit(doc, getName(doc), first.data[FIELDS * k + 1], first.data[FIELDS * k + 2], boxes));
+                if (hits.size() == maxHits) {
+                    break;
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Collects the postings of a term from the segments, in document order,
+     * and from the buffer.
+     */
+    private Postings getPostings(String term) {
+        byte[] key = term.getBytes(UTF8);
+        Postings postings = new Postings();
+        for (Segment segment : segments) {
+            int entry = segment.find(key);
+            if (entry >= 0) {
+                segment.readPostings(entry, postings);
+            }
+        }
+        Postings buffered = buffer.get(term);
+        if (buffered != null) {
+            for (int i = 0; i < FIELDS * buffered.size; i += FIELDS) {
+                int[] d = buffered.data;
+                postings.add(d[i], d[i + 1], d[i + 2], d[i + 3], d[i + 4], d[i + 5], d[i + 6]);
+            }
+        }
+        return postings;
+    }
+
+    private String getName(int doc) {
+        int firstBuffered = documentCount - bufferedNames.size();
+        if (doc >= firstBuffered) {
+            return bufferedNames.get(doc - firstBuffered);
+        }
+        for (Segment segment : segments) {
+            if (doc >= segment.docBase && doc < segment.docBase + segment.docCount) {
+                return segment.getName(doc - segment.docBase);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name a document was added with.
+     *
+     * @param doc the document number
+     * @return the name; <code>null</code> if there is no such document
+     */
+    public String getDocumentName(int doc) {
+        lock.readLock().lock();
+        try {
+            return doc >= 0 && doc < documentCount && !closed ? getName(doc) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of documents added, including buffered ones
+     */
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return documentCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of segment files
+     */
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Index is closed.");
+        }
+    }
+
+    /**
+     * Writes the buffered documents and closes the index.
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            try {
+                flushBuffer();
+            } finally {
+                closed = true;
+                closeFiles();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void closeFiles() throws IOException {
+        segments.clear();
+        fileLock.release();
+        lockFile.close();
+    }
+}
@@ -0,0 +1,429 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import com.sun.jna.Pointer;
+import java.awt.Rectangle;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+import net.sourceforge.tess4j.ITessAPI.TessPageIterator;
+import net.sourceforge.tess4j.ITessAPI.TessResultIterator;
+
+/**
+ * Recognizes a very large page as a grid of overlapping tiles, concurrently on
+ * pooled engine handles. Each tile is handed to the engine as a sub-buffer of
+ * the page pixels, so neither the page nor the tiles are copied on the Java
+ * side, and no handle ever holds more than one tile.
+ * <br>
+ * Word boxes are mapped back to page coordinates. A word is kept only by the
+ * tile whose core, the tile minus half the overlap on each inner edge,
+ * contains its center; the cores partition the page, so every word is kept
+ * once. Remaining duplicates, such as fragments of a word cut by a tile edge,
+ * are suppressed in favor of the word with the higher confidence; words are
+ * bucketed in a grid for this, so a word is only compared with its
+ * neighbors. Tiles are recognized on the threads of the handle pool.
+ */
+class TiledRecognizer {
+
+    /**
+     * Words overlapping a kept word by more than this fraction of the smaller
+     * box are taken as duplicates.
+     */
+    static final double DUPLICATE_OVERLAP = 0.5;
+
+    /**
+     * Size of the grid cells words are bucketed in for finding duplicates,
+     * in pixels.
+     */
+    static final int GRID_CELL = 128;
+
+    private final HandlePool pool;
+    private final int tileSize;
+    private final int overlap;
+
+    /**
+     * Creates a recognizer.
+     *
+     * @param pool engine handles
+     * @param tileSize width and height of the tiles
+     * @param overlap overlap between adjacent tiles; should exceed the size
+     * of the largest word
+     */
+    TiledRecognizer(HandlePool pool, int tileSize, int overlap) {
+        if (overlap < 0 || overlap >= tileSize) {
+            throw new IllegalArgumentException("Tile overlap must be less than the tile size.");
+        }
+        this.pool = pool;
+        this.tileSize = tileSize;
+        this.overlap = overlap;
+    }
+
+    /**
+     * Splits an area into overlapping tiles, row by row.
+     *
+     * @param area the area to cover
+     * @param tileSize width and height of the tiles
+     * @param overlap overlap between adjacent tiles
+     * @return the tiles
+     */
+    static List<Rectangle> createTiles(Rectangle area, int tileSize, int overlap) {
+        int[] xs = createSpans(area.x, area.width, tileSize, overlap);
+        int[] ys = createSpans(area.y, area.height, tileSize, overlap);
+        List<Rectangle> tiles = new ArrayList<Rectangle>();
+        for (int j = 0; j < ys.length - 1; j += 2) {
+            for (int i = 0; i < xs.length - 1; i += 2) {
+                tiles.add(new Rectangle(xs[i], ys[j], xs[i + 1] - xs[i], ys[j + 1] - ys[j]));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Computes the cores of the tiles, which partition the area.
+     *
+     * @param area the area covered by the tiles
+     * @param tileSize width and height of the tiles
+     * @param overlap overlap between adjacent tiles
+     * @return the cores, in the order of {@link #createTiles}
+     */
+    static List<Rectangle> createCores(Rectangle area, int tileSize, int overlap) {
+        int[] xs = createCoreSpans(area.x, area.width, tileSize, overlap);
+        int[] ys = createCoreSpans(area.y, area.height, tileSize, overlap);
+        List<Rectangle> cores = new ArrayList<Rectangle>();
+        for (int j = 0; j < ys.length - 1; j++) {
+            for (int i = 0; i < xs.length - 1; i++) {
+                cores.add(new Rectangle(xs[i], ys[j], xs[i + 1] - xs[i], ys[j + 1] - ys[j]));
+            }
+        }
+        return cores;
+    }
+
+    private static int getTileCount(int length, int tileSize, int overlap) {
+        int step = tileSize - overlap;
+        return length <= tileSize ? 1 : (length - overlap + step - 1) / step;
+    }
+
+    /**
+     * @return start and end of every tile along one axis
+     */
+    private static int[] createSpans(int start, int length, int tileSize, int overlap) {
+        int n = getTileCount(length, tileSize, overlap);
+        int step = tileSize - overlap;
+        int[] spans = new int[2 * n];
+        for (int k = 0; k < n; k++) {
+            spans[2 * k] = start + k * step;
+            spans[2 * k + 1] = start + Math.min(length, k * step + tileSize);
+        }
+        return spans;
+    }
+
+    /**
+     * @return boundaries between the cores along one axis
+     */
+    private static int[] createCoreSpans(int start, int length, int tileSize, int overlap) {
+        int n = getTileCount(length, tileSize, overlap);
+        int step = tileSize - overlap;
+        int[] bounds = new int[n + 1];
+        bounds[0] = start;
+        for (int k = 1; k < n; k++) {
+            bounds[k] = start + k * step + overlap / 2;
+        }
+        bounds[n] = start + length;
+        return bounds;
+    }
+
+    /**
+     * Recognizes an area of an 8-bit grayscale page.
+     *
+     * @param pixels page pixels, one byte per pixel, row by row, in a direct
+     * buffer
+     * @param width page width
+     * @param height page height
+     * @param area the area to recognize; <code>null</code> for the whole page
+     * @param dpi resolution of the page; 0 if unknown
+     * @param pageIteratorLevel the level of the elements to return
+     * @return the elements, in page coordinates
+     * @throws TesseractException
+     */
+    List<Word> recognize(final ByteBuffer pixels, final int width, int height, Rectangle area, final int dpi, final int pageIteratorLevel) throws TesseractException {
+        if (area == null) {
+            area = new Rectangle(0, 0, width, height);
+        }
+        List<Rectangle> tiles = createTiles(area, tileSize, overlap);
+        List<Rectangle> cores = createCores(area, tileSize, overlap);
+
+        List<Callable<List<Word>>> jobs = new ArrayList<Callable<List<Word>>>(tiles.size());
+        for (final Rectangle tile : tiles) {
+            jobs.add(new Callable<List<Word>>() {
+
+                @Override
+                public List<Word> call() throws Exception {
+                    return recognizeTile(pixels, width, tile, dpi, pageIteratorLevel);
+                }
+            });
+        }
+
+        List<List<Word>> results = new ArrayList<List<Word>>(tiles.size());
+        try {
+            for (Future<List<Word>> future : pool.getExecutor().invokeAll(jobs)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TesseractException(e);
+        } catch (ExecutionException e) {
+            throw new TesseractException(e.getCause());
+        }
+
+        return merge(results, cores);
+    }
+
+    private List<Word> recognizeTile(ByteBuffer pixels, int width, Rectangle tile, int dpi, int pageIteratorLevel) throws InterruptedException {
+        // a view starting at the top left pixel of the tile; rows keep the page stride
+        ByteBuffer view = pixels.duplicate();
+        view.position(tile.y * width + tile.x);
+        ByteBuffer sub = view.slice();
+
+        TessAPI api = TessAPI.INSTANCE;
+        TessBaseAPI handle = pool.acquire();
+        try {
+            api.TessBaseAPISetImage(handle, sub, tile.width, tile.height, 1, width);
+            if (dpi > 0) {
+                api.TessBaseAPISetSourceResolution(handle, dpi);
+            }
+            return getWords(api, handle, pageIteratorLevel, tile.x, tile.y);
+        } finally {
+            pool.release(handle);
+        }
+    }
+
+    /**
+     * Recognizes the image set on a handle and collects the elements of a
+     * level.
+     *
+     * @param api the API
+     * @param handle a handle with an image set
+     * @param pageIteratorLevel the level of the elements to return
+     * @param dx offset added to the left of every box
+     * @param dy offset added to the top of every box
+     * @return the elements
+     */
+    static List<Word> getWords(TessAPI api, TessBaseAPI handle, int pageIteratorLevel, int dx, int dy) {
+        List<Word> words = new ArrayList<Word>();
+        api.TessBaseAPIRecognize(handle, null);
+        TessResultIterator ri = api.TessBaseAPIGetIterator(handle);
+        if (ri == null) {
+            return words;
+        }
+
+        try {
+            TessPageIterator pi = api.TessResultIteratorGetPageIterator(ri);
+            api.TessPageIteratorBegin(pi);
+            IntBuffer leftB = IntBuffer.allocate(1);
+            IntBuffer topB = IntBuffer.allocate(1);
+            IntBuffer rightB = IntBuffer.allocate(1);
+            IntBuffer bottomB = IntBuffer.allocate(1);
+
+            do {
+                Pointer ptr = api.TessResultIteratorGetUTF8Text(ri, pageIteratorLevel);
+                if (ptr == null) {
+                    continue; // empty page
+                }
+                String text = ptr.getString(0, "UTF-8");
+                api.TessDeleteText(ptr);
+                float confidence = api.TessResultIteratorConfidence(ri, pageIteratorLevel);
+                api.TessPageIteratorBoundingBox(pi, pageIteratorLevel, leftB, topB, rightB, bottomB);
+                int left = leftB.get(0);
+                int top = topB.get(0);
+                words.add(new Word(text.trim(), confidence, new Rectangle(left + dx, top + dy, rightB.get(0) - left, bottomB.get(0) - top)));
+            } while (api.TessPageIteratorNext(pi, pageIteratorLevel) == ITessAPI.TRUE);
+        } finally {
+            api.TessResultIteratorDelete(ri);
+        }
+
+        return words;
+    }
+
+    /**
+     * Merges the elements found on the tiles: each tile keeps the elements
+     * centered in its core, then duplicates are suppressed.
+     *
+     * @param results elements of every tile, in page coordinates
+     * @param cores cores of the tiles
+     * @return the merged elements, in reading order
+     */
+    static List<Word> merge(List<List<Word>> results, List<Rectangle> cores) {
+        List<Word> candidates = new ArrayList<Word>();
+        for (int i = 0; i < results.size(); i++) {
+            Rectangle core = cores.get(i);
+            for (Word word : results.get(i)) {
+                Rectangle r = word.getRect();
+                if (core.contains(r.x + r.width / 2, r.y + r.height / 2)) {
+                    candidates.add(word);
+                }
+            }
+        }
+
+        // the most confident of overlapping elements wins
+        Collections.sort(candidates, new Comparator<Word>() {
+
+            @Override
+            public int compare(Word a, Word b) {
+                return Float.compare(b.getConfidence(), a.getConfidence());
+            }
+        });
+        List<Word> kept = new ArrayList<Word>();
+        // kept elements by the grid cells they cover; overlapping elements share a cell
+        Map<Long, List<Word>> grid = new HashMap<Long, List<Word>>();
+        for (Word word : candidates) {
+            Rectangle r = word.getRect();
+            int x0 = Math.floorDiv(r.x, GRID_CELL);
+            int y0 = Math.floorDiv(r.y, GRID_CELL);
+            int x1 = Math.floorDiv(r.x + Math.max(r.width - 1, 0), GRID_CELL);
+            int y1 = Math.floorDiv(r.y + Math.max(r.height - 1, 0), GRID_CELL);
+            if (!hasDuplicate(grid, r, x0, y0, x1, y1)) {
+                kept.add(word);
+                for (int y = y0; y <= y1; y++) {
+                    for (int x = x0; x <= x1; x++) {
+                        Long key = ((long) x << 32) | (y & 0xffffffffL);
+                        List<Word> bucket = grid.get(key);
+                        if (bucket == null) {
+                            bucket = new ArrayList<Word>(4);
+                            grid.put(key, bucket);
+                        }
+                        bucket.add(word);
+                    }
+                }
+            }
+        }
+
+        sortInReadingOrder(kept);
+        return kept;
+    }
+
+    private static boolean hasDuplicate(Map<Long, List<Word>> grid, Rectangle r, int x0, int y0, int x1, int y1) {
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                List<Word> bucket = grid.get(((long) x << 32) | (y & 0xffffffffL));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Word other : bucket) {
+                    if (isDuplicate(r, other.getRect())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDuplicate(Rectangle a, Rectangle b) {
+        // the intersection, without allocating it
+        long w = Math.min(a.x + a.width, b.x + b.width) - Math.max(a.x, b.x);
+        long h = Math.min(a.y + a.height, b.y + b.height) - Math.max(a.y, b.y);
+        if (w <= 0 || h <= 0) {
+            return false;
+        }
+        long smaller = Math.min((long) a.width * a.height, (long) b.width * b.height);
+        return w * h > DUPLICATE_OVERLAP * smaller;
+    }
+
+    /**
+     * Sorts elements top to bottom, and left to right within a text line.
+     * An element belongs to the current line if its vertical center lies
+     * within the line.
+     *
+     * @param words the elements
+     */
+    static void sortInReadingOrder(List<Word> words) {
+        Collections.sort(words, new Comparator<Word>() {
+
+            @Override
+            public int compare(Word a, Word b) {
+                return Integer.compare(a.getRect().y, b.getRect().y);
+            }
+        });
+
+        List<Word> sorted = new ArrayList<Word>(words.size());
+        List<Word> line = new ArrayList<Word>();
+        int lineBottom = Integer.MIN_VALUE;
+        Comparator<Word> byX = new Comparator<Word>() {
+
+            @Override
+            public int compare(Word a, Word b) {
+                return Integer.compare(a.getRect().x, b.getRect().x);
+            }
+        };
+        for (Word word : words) {
+            Rectangle r = word.getRect();
+            if (!line.isEmpty() && r.y + r.height / 2 > lineBottom) {
+                Collections.sort(line, byX);
+                sorted.addAll(line);
+                line.clear();
+            }
+            if (line.isEmpty()) {
+                lineBottom = r.y + r.height;
+            }
+            line.add(word);
+        }
+        Collections.sort(line, byX);
+        sorted.addAll(line);
+
+        words.clear();
+        words.addAll(sorted);
+    }
+
+    /**
+     * Assembles text from elements in reading order, one text line per line.
+     *
+     * @param words the elements, as returned by {@link #merge}
+     * @return the text
+     */
+    static String toText(List<Word> words) {
+        StringBuilder sb = new StringBuilder();
+        int lineBottom = Integer.MIN_VALUE;
+        int lastX = Integer.MAX_VALUE;
+        for (Word word : words) {
+            Rectangle r = word.getRect();
+            if (sb.length() > 0) {
+                // a new line starts when an element is below, or back to the left of, the previous one
+                boolean newLine = r.y + r.height / 2 > lineBottom || r.x < lastX;
+                sb.append(newLine ? '\n' : ' ');
+                if (newLine) {
+                    lineBottom = r.y + r.height;
+                }
+            } else {
+                lineBottom = r.y + r.height;
+            }
+            sb.append(word.getText());
+            lastX = r.x;
+        }
+        if (sb.length() > 0) {
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
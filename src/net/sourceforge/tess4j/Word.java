@@ -3,14 +3,22 @@ package net.sourceforge.tess4j;
 import java.awt.Rectangle;
 
 /**
- * Encapsulates Tesseract results.
+ * Encapsulates Tesseract results: the text of a page element, its confidence,
+ * and its bounding box.
  */
-class Word {
+public class Word {
 
     private final String text;
     private final float confidence;
     private final Rectangle rect;
 
+    /**
+     * Creates a result element.
+     *
+     * @param text the recognized text
+     * @param confidence the confidence, between 0 and 100
+     * @param rect the bounding box
+     */
     public Word(String text, float confidence, Rectangle rect) {
         this.text = text;
         this.confidence = confidence;
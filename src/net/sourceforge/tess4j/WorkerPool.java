@@ -0,0 +1,764 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.IIOImage;
+
+import net.sourceforge.tess4j.ITessAPI.TessOcrEngineMode;
+import net.sourceforge.tess4j.util.ImageHelper;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+
+/**
+ * Recognizes pages in separate worker processes, so that a crash of the
+ * native library on a bad image takes down one worker rather than the JVM,
+ * and so that recognition scales past the native state of a single process.
+ * <br>
+ * Each worker is a child JVM running {@link OCRWorker}, with a few engine
+ * handles on threads of its own. Pages are decoded and converted to 8-bit
+ * gray, or kept at 1 bit if binary, in the calling process, and written into
+ * a {@link PageSlab}, a memory-mapped file that the workers map too; only
+ * the offset and length of a page go over the loopback socket to the worker,
+ * which hands the mapped pixels to the native library without copying them.
+ * Pages too large for the slab are sent over the socket. Each worker is given
+ * as many pages as it has handles. A worker that dies is restarted, and the pages it had in
+ * flight are queued again, at the front. A page that was in flight at a crash
+ * is retried alone on its worker, so that the culprit is known; after
+ * {@link #setMaxAttempts(int) too many} crashes it fails with a
+ * <code>TesseractException</code>, so one corrupt image cannot keep killing
+ * workers.
+ * <br>
+ * Workers are started with the class path of this JVM. Configure the pool
+ * before submitting the first page, which starts the workers.
+ */
+public class WorkerPool {
+
+    /**
+     * Time allowed for a worker to start and connect, in milliseconds.
+     */
+    static final int START_TIMEOUT = 60000;
+
+    /**
+     * A page, from submission until it is recognized.
+     */
+    private static class Task {
+
+        final long id;
+        final int width;
+        final int height;
+        final int bpp;
+        final CompletableFuture<String> result = new CompletableFuture<String>();
+        // the pixels, in the slab or else in a buffer of their own
+        ByteBuffer pixels;
+        int offset = -1;
+        int length;
+        int crashes;
+        int permits;
+
+        Task(long id, int width, int height, int bpp) {
+            this.id = id;
+            this.width = width;
+            this.height = height;
+            this.bpp = bpp;
+        }
+    }
+
+    private final int workerCount;
+    private final int handlesPerWorker;
+    private String datapath = "./";
+    private String language = "eng";
+    private int ocrEngineMode = TessOcrEngineMode.OEM_DEFAULT;
+    private int psm = -1;
+    private final Properties prop = new Properties();
+    private final List<String> jvmOptions = new ArrayList<String>();
+    private String workerClass = OCRWorker.class.getName();
+    private int maxAttempts = 2;
+    private int sharedMemorySize = 128 << 20;
+
+    private final BlockingDeque<Task> queue = new LinkedBlockingDeque<Task>();
+    private final List<Worker> workers = new ArrayList<Worker>();
+    private final AtomicLong nextTaskId = new AtomicLong();
+    private final long token = new SecureRandom().nextLong();
+    private ServerSocket server;
+    private PageSlab slab;
+    // serializes accepting, as connections are matched to workers by id
+    private final Object acceptLock = new Object();
+    private int nextWorkerId;
+    private int restartCount;
+    private int restarting;
+    private boolean started;
+    private volatile boolean closed;
+
+    private final static Logger logger = Logger.getLogger(WorkerPool.class.getName());
+
+    /**
+     * Creates a pool; the workers are started when the first page is
+     * submitted.
+     *
+     * @param workerCount number of worker processes
+     * @param handlesPerWorker number of engine handles, and threads, in each
+     * worker
+     */
+    public WorkerPool(int workerCount, int handlesPerWorker) {
+        this.workerCount = Math.max(1, workerCount);
+        this.handlesPerWorker = Math.max(1, handlesPerWorker);
+    }
+
+    /**
+     * Sets path to <code>tessdata</code>.
+     *
+     * @param datapath the tessdata path to set
+     */
+    public void setDatapath(String datapath) {
+        this.datapath = datapath;
+    }
+
+    /**
+     * Sets language for OCR.
+     *
+     * @param language the language code, which follows ISO 639-3 standard.
+     */
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+
+    /**
+     * Sets OCR engine mode.
+     *
+     * @param ocrEngineMode the OcrEngineMode to set
+     */
+    public void setOcrEngineMode(int ocrEngineMode) {
+        this.ocrEngineMode = ocrEngineMode;
+    }
+
+    /**
+     * Sets page segmentation mode.
+     *
+     * @param mode the page segmentation mode to set
+     */
+    public void setPageSegMode(int mode) {
+        this.psm = mode;
+    }
+
+    /**
+     * Set the value of Tesseract's internal parameter.
+     *
+     * @param key variable name
+     * @param value value for corresponding variable
+     */
+    public void setTessVariable(String key, String value) {
+        prop.setProperty(key, value);
+    }
+
+    /**
+     * Sets options for the worker JVMs, e.g., <code>-Xmx512m</code>. The
+     * <code>jna.library.path</code> of this JVM is passed on in any case.
+     *
+     * @param options the options
+     */
+    public void setJvmOptions(List<String> options) {
+        jvmOptions.clear();
+        jvmOptions.addAll(options);
+    }
+
+    /**
+     * Sets how many worker crashes a page may cause before it fails. Only
+     * crashes while the page is alone on its worker count, except for the
+     * last; the default is 2.
+     *
+     * @param maxAttempts the number of attempts
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Sets the size of the memory-mapped file that pages are handed over in.
+     * It should hold the pages in flight: twice the number of handles, for
+     * {@link #doOCR(List)}. A size of 0 sends all pages over the sockets.
+     *
+     * @param bytes the size, in bytes; 128 MB by default
+     */
+    public void setSharedMemorySize(int bytes) {
+        this.sharedMemorySize = Math.max(0, bytes);
+    }
+
+    /**
+     * Sets the main class of the workers, which must speak
+     * {@link WorkerProtocol}.
+     */
+    void setWorkerClass(String workerClass) {
+        this.workerClass = workerClass;
+    }
+
+    /**
+     * @return the number of workers restarted after they died
+     */
+    public synchronized int getRestartCount() {
+        return restartCount;
+    }
+
+    /**
+     * Performs OCR operation on the pages of an image file.
+     *
+     * @param imageFile an image file
+     * @return the recognized text of all pages
+     * @throws TesseractException
+     */
+    public String doOCR(File imageFile) throws TesseractException {
+        try {
+            return doOCR(ImageIOHelper.getIIOImageList(imageFile));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Performs OCR operation on a list of pages. A limited number of pages is
+     * converted and in flight at a time.
+     *
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @return the recognized text of all pages, in order
+     * @throws TesseractException
+     */
+    public String doOCR(List<IIOImage> imageList) throws TesseractException {
+        int window = 2 * workerCount * handlesPerWorker;
+        List<Future<String>> results = new ArrayList<Future<String>>(imageList.size());
+        StringBuilder sb = new StringBuilder();
+        int done = 0;
+        for (IIOImage oimage : imageList) {
+            results.add(submit(oimage.getRenderedImage()));
+            if (results.size() - done >= window) {
+                sb.append(getResult(results.get(done++)));
+            }
+        }
+        while (done < results.size()) {
+            sb.append(getResult(results.get(done++)));
+        }
+        return sb.toString();
+    }
+
+    private static String getResult(Future<String> result) throws TesseractException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TesseractException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof TesseractException ? (TesseractException) cause : new TesseractException(cause);
+        }
+    }
+
+    /**
+     * Queues a page for recognition, starting the workers if needed.
+     *
+     * @param image the page
+     * @return the recognized text, when done; fails with a
+     * <code>TesseractException</code> if the page cannot be recognized
+     * @throws TesseractException if the workers cannot be started or the pool
+     * is closed
+     */
+    public Future<String> submit(RenderedImage image) throws TesseractException {
+        synchronized (this) {
+            if (closed) {
+                throw new TesseractException("Pool is closed.");
+            }
+            if (!started) {
+                start();
+            }
+            if (workers.isEmpty() && restarting == 0) {
+                throw new TesseractException("No worker is running.");
+            }
+        }
+
+        BufferedImage bi = toPixelImage(image);
+        Task task = new Task(nextTaskId.incrementAndGet(), bi.getWidth(), bi.getHeight(), bi.getColorModel().getPixelSize());
+        byte[] data = ((DataBufferByte) bi.getRaster().getDataBuffer()).getData();
+        task.length = data.length;
+        if (slab != null) {
+            try {
+                // waits while the slab is full
+                task.offset = slab.allocate(data.length);
+            } catch (IOException e) {
+                throw new TesseractException("Pool is closed.", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TesseractException(e);
+            }
+        }
+        if (task.offset >= 0) {
+            slab.getRegion(task.offset, task.length).put(data);
+        } else {
+            task.pixels = ImageIOHelper.convertImageData(bi);
+        }
+
+        synchronized (this) {
+            if (closed) {
+                release(task);
+                throw new TesseractException("Pool is closed.");
+            }
+            queue.add(task);
+        }
+        return task.result;
+    }
+
+    private void complete(Task task, String text) {
+        release(task);
+        task.result.complete(text);
+    }
+
+    private void fail(Task task, TesseractException e) {
+        release(task);
+        task.result.completeExceptionally(e);
+    }
+
+    /**
+     * Frees the region of a page in the slab.
+     */
+    private void release(Task task) {
+        synchronized (task) {
+            if (task.offset >= 0) {
+                slab.free(task.offset, task.length);
+                task.offset = -1;
+            }
+        }
+    }
+
+    /**
+     * Converts an image to 8-bit gray, unless it is 8-bit gray or binary
+     * already, as bytes without padding at the end of rows.
+     */
+    static BufferedImage toPixelImage(RenderedImage image) {
+        BufferedImage bi;
+        if (image instanceof BufferedImage) {
+            bi = (BufferedImage) image;
+        } else {
+            ColorModel cm = image.getColorModel();
+            WritableRaster raster = cm.createCompatibleWritableRaster(image.getWidth(), image.getHeight());
+            image.copyData(raster.createWritableTranslatedChild(image.getMinX(), image.getMinY()));
+            bi = new BufferedImage(cm, raster, cm.isAlphaPremultiplied(), null);
+        }
+        boolean direct = (bi.getType() == BufferedImage.TYPE_BYTE_GRAY
+                || (bi.getType() == BufferedImage.TYPE_BYTE_BINARY && bi.getColorModel().getPixelSize() == 1))
+                && bi.getRaster().getDataBuffer() instanceof DataBufferByte
+                && bi.getRaster().getParent() == null;
+        return direct ? bi : ImageHelper.convertImageToGrayscale(bi);
+    }
+
+    private void start() throws TesseractException {
+        started = true;
+        try {
+            server = new ServerSocket(0, workerCount, InetAddress.getLoopbackAddress());
+            if (sharedMemorySize > 0) {
+                slab = new PageSlab(sharedMemorySize);
+            }
+            for (int i = 0; i < workerCount; i++) {
+                startWorker();
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            close();
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Starts a worker process, waits for it to connect, and adds it to the
+     * pool. Only adding it holds the lock of the pool, so a worker that is
+     * slow to start does not hold up submissions.
+     */
+    private void startWorker() throws IOException {
+        int id;
+        synchronized (this) {
+            id = ++nextWorkerId;
+        }
+        List<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.addAll(jvmOptions);
+        String libraryPath = System.getProperty("jna.library.path");
+        if (libraryPath != null) {
+            command.add("-Djna.library.path=" + libraryPath);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(workerClass);
+        command.add(String.valueOf(server.getLocalPort()));
+        command.add(String.valueOf(token));
+        command.add(String.valueOf(id));
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = builder.start();
+        Socket socket;
+        try {
+            synchronized (acceptLock) {
+                socket = accept(id, process);
+            }
+        } catch (IOException e) {
+            process.destroy();
+            throw e;
+        }
+
+        Worker worker = new Worker(id, process, socket);
+        try {
+            DataOutputStream out = worker.out;
+            out.writeInt(WorkerProtocol.CONFIG);
+            WorkerProtocol.writeString(out, datapath);
+            WorkerProtocol.writeString(out, language);
+            out.writeInt(ocrEngineMode);
+            out.writeInt(psm);
+            out.writeInt(handlesPerWorker);
+            out.writeInt(prop.size());
+            for (String key : prop.stringPropertyNames()) {
+                WorkerProtocol.writeString(out, key);
+                WorkerProtocol.writeString(out, prop.getProperty(key));
+            }
+            WorkerProtocol.writeString(out, slab != null ? slab.getFile().getPath() : null);
+            out.flush();
+        } catch (IOException e) {
+            worker.stop();
+            throw e;
+        }
+
+        synchronized (this) {
+            if (!closed) {
+                workers.add(worker);
+                worker.start();
+                return;
+            }
+        }
+        // closed while starting
+        worker.stop();
+    }
+
+    /**
+     * Accepts the connection of a worker; connections that do not present
+     * the token and id of the worker are closed.
+     */
+    private Socket accept(int id, Process process) throws IOException {
+        long deadline = System.currentTimeMillis() + START_TIMEOUT;
+        while (true) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IOException("Worker " + id + " did not connect.");
+            }
+            if (!process.isAlive()) {
+                throw new IOException("Worker " + id + " exited with code " + process.exitValue() + ".");
+            }
+            server.setSoTimeout((int) Math.min(remaining, 1000));
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketTimeoutException e) {
+                continue;
+            }
+            try {
+                socket.setSoTimeout((int) remaining);
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                if (in.readInt() == WorkerProtocol.HELLO && in.readLong() == token && in.readInt() == id) {
+                    socket.setSoTimeout(0);
+                    socket.setTcpNoDelay(true);
+                    return socket;
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, e.getMessage(), e);
+            }
+            socket.close();
+        }
+    }
+
+    /**
+     * Replaces a worker that died. The new worker is started outside the
+     * lock of the pool; pages can be submitted meanwhile, and wait in the
+     * queue.
+     */
+    private void restart(Worker worker) {
+        synchronized (this) {
+            workers.remove(worker);
+            if (closed) {
+                return;
+            }
+            restartCount++;
+            restarting++;
+        }
+
+        IOException error = null;
+        try {
+            startWorker();
+        } catch (IOException e) {
+            error = e;
+            if (!closed) {
+                logger.log(Level.SEVERE, e.getMessage(), e);
+            }
+        }
+
+        synchronized (this) {
+            restarting--;
+            if (error == null || !workers.isEmpty() || restarting > 0) {
+                return;
+            }
+        }
+        // nothing left to run the queue
+        for (Task task = queue.poll(); task != null; task = queue.poll()) {
+            fail(task, new TesseractException("No worker is running.", error));
+        }
+    }
+
+    /**
+     * A worker process, with a thread sending it pages while it has free
+     * handles, and a thread receiving its results.
+     */
+    private class Worker {
+
+        final int id;
+        final Process process;
+        final Socket socket;
+        final DataOutputStream out;
+        final DataInputStream in;
+        final Map<Long, Task> inFlight = new HashMap<Long, Task>();
+        final Semaphore handles = new Semaphore(handlesPerWorker);
+        final Thread sender;
+        final Thread receiver;
+        boolean alive = true;
+
+        Worker(int id, Process process, Socket socket) throws IOException {
+            this.id = id;
+            this.process = process;
+            this.socket = socket;
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            sender = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    send();
+                }
+            }, "ocr-worker-" + id + "-send");
+            receiver = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    receive();
+                }
+            }, "ocr-worker-" + id + "-receive");
+            sender.setDaemon(true);
+            receiver.setDaemon(true);
+        }
+
+        void start() {
+            sender.start();
+            receiver.start();
+        }
+
+        private void send() {
+            Task task = null;
+            try {
+                while (true) {
+                    handles.acquire();
+                    task = queue.take();
+                    task.permits = 1;
+                    if (task.crashes > 0) {
+                        // a page that was at a crash goes alone, taking all handles
+                        handles.acquire(handlesPerWorker - 1);
+                        task.permits = handlesPerWorker;
+                    }
+                    synchronized (this) {
+                        if (!alive) {
+                            queue.addFirst(task);
+                            return;
+                        }
+                        inFlight.put(task.id, task);
+                    }
+                    if (task.offset >= 0) {
+                        out.writeInt(WorkerProtocol.SHARED_PAGE);
+                    } else {
+                        out.writeInt(WorkerProtocol.PAGE);
+                    }
+                    out.writeLong(task.id);
+                    out.writeInt(task.width);
+                    out.writeInt(task.height);
+                    out.writeInt(task.bpp);
+                    if (task.offset >= 0) {
+                        out.writeInt(task.offset);
+                        out.writeInt(task.length);
+                    } else {
+                        WorkerProtocol.writeBytes(out, task.pixels);
+                    }
+                    out.flush();
+                    task = null;
+                }
+            } catch (InterruptedException e) {
+                // stopped; a page taken but not sent goes back
+                if (task != null) {
+                    queue.addFirst(task);
+                }
+            } catch (IOException e) {
+                died(e);
+            }
+        }
+
+        private void receive() {
+            try {
+                while (true) {
+                    if (in.readInt() != WorkerProtocol.RESULT) {
+                        throw new IOException("Unexpected message from worker " + id + ".");
+                    }
+                    long taskId = in.readLong();
+                    boolean success = in.readBoolean();
+                    String str = WorkerProtocol.readString(in);
+                    Task task;
+                    synchronized (this) {
+                        task = inFlight.remove(taskId);
+                    }
+                    if (task == null) {
+                        continue;
+                    }
+                    handles.release(task.permits);
+                    if (success) {
+                        complete(task, str);
+                    } else {
+                        fail(task, new TesseractException(str));
+                    }
+                }
+            } catch (IOException e) {
+                died(e);
+            }
+        }
+
+        /**
+         * Stops the worker and queues its pages again, unless a page alone
+         * on the worker has caused too many crashes.
+         */
+        private void died(Exception cause) {
+            List<Task> lost;
+            synchronized (this) {
+                if (!alive) {
+                    return;
+                }
+                alive = false;
+                lost = new ArrayList<Task>(inFlight.values());
+                inFlight.clear();
+            }
+            stop();
+
+            if (!closed) {
+                logger.log(Level.WARNING, "Worker {0} died ({1}); {2} pages in flight", new Object[]{id, cause, lost.size()});
+            }
+            for (Task task : lost) {
+                task.crashes++;
+                if (closed) {
+                    fail(task, new TesseractException("Pool is closed."));
+                } else if (lost.size() == 1 && task.crashes >= maxAttempts) {
+                    fail(task, new TesseractException("Worker crashed " + task.crashes + " times on the page."));
+                } else {
+                    queue.addFirst(task);
+                }
+            }
+            restart(this);
+        }
+
+        private void stop() {
+            sender.interrupt();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            process.destroy();
+        }
+
+        /**
+         * Asks the worker to exit once it has recognized the pages it has,
+         * and kills it if it does not.
+         */
+        void shutdown() {
+            sender.interrupt();
+            try {
+                sender.join(1000);
+                out.writeInt(WorkerProtocol.SHUTDOWN);
+                out.flush();
+                process.waitFor(5, TimeUnit.SECONDS);
+            } catch (IOException e) {
+                // already gone
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stop();
+        }
+    }
+
+    /**
+     * Stops the workers. Pages that are still queued or in flight fail with
+     * a <code>TesseractException</code>.
+     */
+    public void close() {
+        List<Worker> running;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            running = new ArrayList<Worker>(workers);
+        }
+
+        for (Worker worker : running) {
+            worker.shutdown();
+        }
+        for (Task task = queue.poll(); task != null; task = queue.poll()) {
+            fail(task, new TesseractException("Pool is closed."));
+        }
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+        if (slab != null) {
+            slab.close();
+        }
+    }
+}
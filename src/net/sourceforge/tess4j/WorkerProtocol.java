@@ -0,0 +1,107 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Messages between a {@link WorkerPool} and its {@link OCRWorker} processes,
+ * over a loopback socket. Each message is a type followed by its fields:
+ * <ul>
+ * <li><code>HELLO</code> token, worker id: sent by a worker when it
+ * connects</li>
+ * <li><code>CONFIG</code> datapath, language, engine mode, page segmentation
+ * mode, handle count, the variables as key and value pairs, and the path of
+ * the {@link PageSlab}, or <code>null</code></li>
+ * <li><code>PAGE</code> page id, width, height, bits per pixel, and the
+ * pixels, as length and bytes</li>
+ * <li><code>SHARED_PAGE</code> page id, width, height, bits per pixel, and
+ * the offset and length of the pixels in the slab</li>
+ * <li><code>RESULT</code> page id, success, and the text or the error
+ * message</li>
+ * <li><code>SHUTDOWN</code></li>
+ * </ul>
+ * Strings are written as a length and UTF-8 bytes, with a length of -1 for
+ * <code>null</code>.
+ */
+final class WorkerProtocol {
+
+    static final int HELLO = 1;
+    static final int CONFIG = 2;
+    static final int PAGE = 3;
+    static final int RESULT = 4;
+    static final int SHUTDOWN = 5;
+    static final int SHARED_PAGE = 6;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private WorkerProtocol() {
+    }
+
+    static void writeString(DataOutputStream out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = str.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer, which may be direct, without
+     * changing its position.
+     */
+    static void writeBytes(DataOutputStream out, ByteBuffer buf) throws IOException {
+        ByteBuffer src = buf.duplicate();
+        out.writeInt(src.remaining());
+        byte[] chunk = new byte[Math.min(src.remaining(), 1 << 16)];
+        while (src.hasRemaining()) {
+            int n = Math.min(chunk.length, src.remaining());
+            src.get(chunk, 0, n);
+            out.write(chunk, 0, n);
+        }
+    }
+
+    /**
+     * Reads bytes written by {@link #writeBytes} into a new direct buffer,
+     * as the native library takes them.
+     */
+    static ByteBuffer readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        ByteBuffer buf = ByteBuffer.allocateDirect(length);
+        byte[] chunk = new byte[Math.min(length, 1 << 16)];
+        while (buf.hasRemaining()) {
+            int n = Math.min(chunk.length, buf.remaining());
+            in.readFully(chunk, 0, n);
+            buf.put(chunk, 0, n);
+        }
+        buf.flip();
+        return buf;
+    }
+}
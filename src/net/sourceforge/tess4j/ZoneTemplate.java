@@ -0,0 +1,232 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A form template: named zones of a page, each with its own language,
+ * character whitelist and page segmentation mode.
+ * <br>
+ * Templates are read from UNLV zone files (.uzn), one zone per line as
+ * <code>left top width height label</code>, optionally followed by
+ * <code>lang=</code>, <code>psm=</code> and <code>whitelist=</code> settings,
+ * e.g., <code>97 209 828 55 Amount psm=7 whitelist=0123456789.,</code>.
+ * Zones whose settings are left out use those of the {@link FormRecognizer}.
+ */
+public class ZoneTemplate {
+
+    /**
+     * A zone of a template.
+     */
+    public static class Zone {
+
+        private final String label;
+        private final Rectangle bounds;
+        private final String language;
+        private final int pageSegMode;
+        private final String whitelist;
+
+        /**
+         * Creates a zone.
+         *
+         * @param label the label, by which the text of the zone is returned
+         * @param bounds the zone, in page coordinates
+         * @param language the language; <code>null</code> for the default
+         * @param pageSegMode the page segmentation mode; -1 for the default
+         * @param whitelist the characters to recognize; <code>null</code> for
+         * all
+         */
+        public Zone(String label, Rectangle bounds, String language, int pageSegMode, String whitelist) {
+            this.label = label;
+            this.bounds = new Rectangle(bounds);
+            this.language = language;
+            this.pageSegMode = pageSegMode;
+            this.whitelist = whitelist;
+        }
+
+        /**
+         * @return the label
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return the zone, in page coordinates
+         */
+        public Rectangle getBounds() {
+            return new Rectangle(bounds);
+        }
+
+        /**
+         * @return the language; <code>null</code> for the default
+         */
+        public String getLanguage() {
+            return language;
+        }
+
+        /**
+         * @return the page segmentation mode; -1 for the default
+         */
+        public int getPageSegMode() {
+            return pageSegMode;
+        }
+
+        /**
+         * @return the characters to recognize; <code>null</code> for all
+         */
+        public String getWhitelist() {
+            return whitelist;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s [%d,%d,%d,%d] lang=%s psm=%d whitelist=%s", label, bounds.x, bounds.y, bounds.width, bounds.height, language, pageSegMode, whitelist);
+        }
+    }
+
+    private final List<Zone> zones = new ArrayList<Zone>();
+
+    /**
+     * Reads a template from a UNLV zone file.
+     *
+     * @param uznFile the zone file
+     * @return the template
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public static ZoneTemplate load(File uznFile) throws IOException {
+        ZoneTemplate template = new ZoneTemplate();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(uznFile), "UTF-8"));
+        try {
+            String line;
+            int lineNum = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNum++;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    template.addZone(parseZone(line));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(String.format("%s, line %d: %s", uznFile.getName(), lineNum, e.getMessage()));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return template;
+    }
+
+    /**
+     * Parses a line of a zone file.
+     *
+     * @param line the line
+     * @return the zone
+     */
+    static Zone parseZone(String line) {
+        String[] tokens = line.split("\\s+");
+        if (tokens.length < 4) {
+            throw new IllegalArgumentException("Zone needs left, top, width and height: " + line);
+        }
+        Rectangle bounds;
+        try {
+            bounds = new Rectangle(Integer.parseInt(tokens[0]), Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid zone coordinates: " + line);
+        }
+
+        StringBuilder label = new StringBuilder();
+        String language = null;
+        String whitelist = null;
+        int psm = -1;
+        for (int i = 4; i < tokens.length; i++) {
+            String token = tokens[i];
+            if (token.startsWith("lang=")) {
+                language = token.substring(5);
+            } else if (token.startsWith("whitelist=")) {
+                whitelist = token.substring(10);
+            } else if (token.startsWith("psm=")) {
+                try {
+                    psm = Integer.parseInt(token.substring(4));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid page segmentation mode: " + token);
+                }
+            } else {
+                if (label.length() > 0) {
+                    label.append(' ');
+                }
+                label.append(token);
+            }
+        }
+        return new Zone(label.toString(), bounds, language, psm, whitelist);
+    }
+
+    /**
+     * Adds a zone.
+     *
+     * @param zone the zone
+     */
+    public void addZone(Zone zone) {
+        zones.add(zone);
+    }
+
+    /**
+     * @return the zones, in template order
+     */
+    public List<Zone> getZones() {
+        return Collections.unmodifiableList(zones);
+    }
+
+    /**
+     * Groups the zones by the engine configuration they need, so that every
+     * group can be recognized on handles initialized once for it.
+     *
+     * @param defaultLanguage language of zones without their own
+     * @return the zones of each configuration, keyed by language and
+     * whitelist
+     */
+    Map<String, List<Zone>> groupByConfig(String defaultLanguage) {
+        Map<String, List<Zone>> groups = new LinkedHashMap<String, List<Zone>>();
+        for (Zone zone : zones) {
+            String key = getConfigKey(zone, defaultLanguage);
+            List<Zone> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<Zone>();
+                groups.put(key, group);
+            }
+            group.add(zone);
+        }
+        return groups;
+    }
+
+    /**
+     * @return the key of the engine configuration a zone needs
+     */
+    static String getConfigKey(Zone zone, String defaultLanguage) {
+        String language = zone.getLanguage() != null ? zone.getLanguage() : defaultLanguage;
+        return zone.getWhitelist() != null ? language + '|' + zone.getWhitelist() : language;
+    }
+}
@@ -0,0 +1,354 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j.util;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Connected components of the ink pixels of an 8-bit grayscale page, 8-way
+ * connected. Rows are first encoded as runs of ink pixels; overlapping runs of
+ * adjacent rows are then merged with union-find, so labeling takes a single
+ * pass over the pixels.
+ * <br>
+ * When labeling in parallel, every strip of rows is merged on its own and the
+ * runs on both sides of each seam between strips are merged afterwards.
+ */
+public class ConnectedComponents {
+
+    private final int width;
+    private final int height;
+    // runs of row y are rowStart[y] to rowStart[y + 1] - 1; each run is [runX1, runX2)
+    private final int[] rowStart;
+    private final int[] runX1;
+    private final int[] runX2;
+    // component of each run
+    private final int[] runLabel;
+    private final int count;
+    private final int[] area;
+    private final int[] minX;
+    private final int[] minY;
+    private final int[] maxX;
+    private final int[] maxY;
+
+    private ConnectedComponents(int width, int height, int[] rowStart, int[] runX1, int[] runX2, int[] parent) {
+        this.width = width;
+        this.height = height;
+        this.rowStart = rowStart;
+        this.runX1 = runX1;
+        this.runX2 = runX2;
+
+        // number the roots; a run's root never has a higher index than the run
+        int runs = runX1.length;
+        runLabel = new int[runs];
+        int n = 0;
+        for (int i = 0; i < runs; i++) {
+            int root = find(parent, i);
+            runLabel[i] = root == i ? n++ : runLabel[root];
+        }
+        count = n;
+
+        area = new int[n];
+        minX = new int[n];
+        minY = new int[n];
+        maxX = new int[n];
+        maxY = new int[n];
+        Arrays.fill(minX, Integer.MAX_VALUE);
+        Arrays.fill(minY, Integer.MAX_VALUE);
+        for (int y = 0; y < height; y++) {
+            for (int i = rowStart[y]; i < rowStart[y + 1]; i++) {
+                int c = runLabel[i];
+                area[c] += runX2[i] - runX1[i];
+                minX[c] = Math.min(minX[c], runX1[i]);
+                maxX[c] = Math.max(maxX[c], runX2[i] - 1);
+                minY[c] = Math.min(minY[c], y);
+                maxY[c] = y;
+            }
+        }
+    }
+
+    /**
+     * Labels the ink pixels of a page.
+     *
+     * @param gray pixel data, one byte per pixel, row by row
+     * @param width image width
+     * @param height image height
+     * @param threshold pixels darker than this are ink
+     * @param parallel whether to process strips of rows concurrently
+     * @return the components
+     */
+    public static ConnectedComponents label(final byte[] gray, final int width, int height, final int threshold, boolean parallel) {
+        // pass 1: count the runs of each row
+        final int[] rowStart = new int[height + 1];
+        ParallelStrips.run(height, parallel, new ParallelStrips.Task() {
+
+            @Override
+            public void run(int from, int to) {
+                for (int y = from; y < to; y++) {
+                    rowStart[y + 1] = countRuns(gray, y * width, width, threshold);
+                }
+            }
+        });
+        for (int y = 0; y < height; y++) {
+            rowStart[y + 1] += rowStart[y];
+        }
+
+        // pass 2: encode the runs and merge them within each strip
+        int runs = rowStart[height];
+        final int[] runX1 = new int[runs];
+        final int[] runX2 = new int[runs];
+        final int[] parent = new int[runs];
+        final List<Integer> seams = Collections.synchronizedList(new ArrayList<Integer>());
+        ParallelStrips.run(height, parallel, new ParallelStrips.Task() {
+
+            @Override
+            public void run(int from, int to) {
+                for (int y = from; y < to; y++) {
+                    encodeRuns(gray, y * width, width, threshold, rowStart[y], runX1, runX2);
+                    for (int i = rowStart[y]; i < rowStart[y + 1]; i++) {
+                        parent[i] = i;
+                    }
+                    if (y > from) {
+                        merge(rowStart, runX1, runX2, parent, y);
+                    }
+                }
+                if (from > 0) {
+                    seams.add(from);
+                }
+            }
+        });
+
+        // merge across the seams between strips
+        for (int y : seams) {
+            merge(rowStart, runX1, runX2, parent, y);
+        }
+
+        return new ConnectedComponents(width, height, rowStart, runX1, runX2, parent);
+    }
+
+    private static int countRuns(byte[] gray, int offset, int width, int threshold) {
+        int runs = 0;
+        boolean ink = false;
+        for (int x = 0; x < width; x++) {
+            boolean dark = (gray[offset + x] & 0xFF) < threshold;
+            if (dark && !ink) {
+                runs++;
+            }
+            ink = dark;
+        }
+        return runs;
+    }
+
+    private static void encodeRuns(byte[] gray, int offset, int width, int threshold, int run, int[] runX1, int[] runX2) {
+        int x = 0;
+        while (x < width) {
+            while (x < width && (gray[offset + x] & 0xFF) >= threshold) {
+                x++;
+            }
+            if (x == width) {
+                break;
+            }
+            runX1[run] = x;
+            while (x < width && (gray[offset + x] & 0xFF) < threshold) {
+                x++;
+            }
+            runX2[run++] = x;
+        }
+    }
+
+    /**
+     * Merges the runs of row <code>y</code> with the touching runs of the row
+     * above, diagonal neighbours included.
+     */
+    private static void merge(int[] rowStart, int[] runX1, int[] runX2, int[] parent, int y) {
+        int i = rowStart[y - 1];
+        int iEnd = rowStart[y];
+        int j = rowStart[y];
+        int jEnd = rowStart[y + 1];
+        while (i < iEnd && j < jEnd) {
+            if (runX1[i] <= runX2[j] && runX1[j] <= runX2[i]) {
+                union(parent, i, j);
+            }
+            // advance the run that ends first
+            if (runX2[i] < runX2[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra < rb) {
+            parent[rb] = ra;
+        } else if (rb < ra) {
+            parent[ra] = rb;
+        }
+    }
+
+    /**
+     * @return the number of components
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @param component component index
+     * @return the number of pixels of the component
+     */
+    public int getArea(int component) {
+        return area[component];
+    }
+
+    /**
+     * @param component component index
+     * @return the bounding box of the component
+     */
+    public Rectangle getBounds(int component) {
+        return new Rectangle(minX[component], minY[component], maxX[component] - minX[component] + 1, maxY[component] - minY[component] + 1);
+    }
+
+    /**
+     * Removes small components, such as the speckles of a noisy fax or
+     * photocopy. A component is removed if it has fewer pixels than
+     * <code>minArea</code>, or if both its width and height are below
+     * <code>minSize</code>.
+     *
+     * @param gray pixel data the components were labeled on; modified in place
+     * @param minArea minimum number of pixels of a component to keep
+     * @param minSize minimum width or height of a component to keep
+     * @param background value written over removed pixels
+     * @return the number of components removed
+     */
+    public int removeSmall(byte[] gray, int minArea, int minSize, byte background) {
+        boolean[] remove = new boolean[count];
+        int removed = 0;
+        for (int c = 0; c < count; c++) {
+            if (area[c] < minArea || (maxX[c] - minX[c] < minSize - 1 && maxY[c] - minY[c] < minSize - 1)) {
+                remove[c] = true;
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            for (int y = 0; y < height; y++) {
+                int offset = y * width;
+                for (int i = rowStart[y]; i < rowStart[y + 1]; i++) {
+                    if (remove[runLabel[i]]) {
+                        Arrays.fill(gray, offset + runX1[i], offset + runX2[i], background);
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes horizontal and vertical rule lines, i.e., runs of ink at least
+     * <code>minLength</code> pixels long. Both directions are detected before
+     * anything is removed, so crossing lines are found in full.
+     *
+     * @param gray pixel data, one byte per pixel, row by row; modified in place
+     * @param width image width
+     * @param height image height
+     * @param threshold pixels darker than this are ink
+     * @param minLength minimum length of a rule line
+     * @param background value written over removed pixels
+     * @param parallel whether to process strips concurrently
+     * @return the number of line runs removed
+     */
+    public static int removeRuleLines(final byte[] gray, final int width, final int height, final int threshold, final int minLength, byte background, boolean parallel) {
+        final byte[] mask = new byte[width * height];
+        final int[] lines = new int[2];
+
+        // vertical runs, over strips of columns
+        ParallelStrips.run(width, parallel, new ParallelStrips.Task() {
+
+            @Override
+            public void run(int from, int to) {
+                int found = 0;
+                for (int x = from; x < to; x++) {
+                    int start = -1;
+                    for (int y = 0; y <= height; y++) {
+                        boolean dark = y < height && (gray[y * width + x] & 0xFF) < threshold;
+                        if (dark && start < 0) {
+                            start = y;
+                        } else if (!dark && start >= 0) {
+                            if (y - start >= minLength) {
+                                for (int k = start; k < y; k++) {
+                                    mask[k * width + x] = 1;
+                                }
+                                found++;
+                            }
+                            start = -1;
+                        }
+                    }
+                }
+                synchronized (lines) {
+                    lines[0] += found;
+                }
+            }
+        });
+
+        // horizontal runs
+        ParallelStrips.run(height, parallel, new ParallelStrips.Task() {
+
+            @Override
+            public void run(int from, int to) {
+                int found = 0;
+                for (int y = from; y < to; y++) {
+                    int offset = y * width;
+                    int start = -1;
+                    for (int x = 0; x <= width; x++) {
+                        boolean dark = x < width && (gray[offset + x] & 0xFF) < threshold;
+                        if (dark && start < 0) {
+                            start = x;
+                        } else if (!dark && start >= 0) {
+                            if (x - start >= minLength) {
+                                Arrays.fill(mask, offset + start, offset + x, (byte) 1);
+                                found++;
+                            }
+                            start = -1;
+                        }
+                    }
+                }
+                synchronized (lines) {
+                    lines[1] += found;
+                }
+            }
+        });
+
+        if (lines[0] + lines[1] > 0) {
+            for (int i = 0; i < mask.length; i++) {
+                if (mask[i] != 0) {
+                    gray[i] = background;
+                }
+            }
+        }
+        return lines[0] + lines[1];
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j.util;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * Finds the area of a page that holds its content, from the row and column
+ * projection profiles of dark pixels. Dark scanner borders along the edges
+ * are recognized and left out.
+ */
+public class ContentAreaDetector {
+
+    /**
+     * Rows and columns along the edges that are dark for more than this
+     * fraction of their length are taken as scanner borders.
+     */
+    static final double BORDER_FRACTION = 0.5;
+
+    /**
+     * Rows and columns with fewer dark pixels than this fraction of their
+     * length are taken as empty, so that isolated specks in the margins do
+     * not extend the content area.
+     */
+    static final double MIN_INK_FRACTION = 0.002;
+
+    /**
+     * Detects the content area of a grayscale raster.
+     *
+     * @param gray pixel data, one byte per pixel, row by row
+     * @param w image width
+     * @param h image height
+     * @param threshold luminance below which a pixel is dark
+     * @param padding margin added around the content, in pixels
+     * @return the bounding box of the content, or <code>null</code> if no
+     * content is found
+     */
+    public static Rectangle detect(byte[] gray, int w, int h, int threshold, int padding) {
+        int[] rows = new int[h];
+        int[] cols = new int[w];
+        profile(gray, w, 0, 0, w, h, threshold, rows, cols);
+
+        // leave out dark borders along the edges
+        int top = 0;
+        while (top < h && rows[top] > w * BORDER_FRACTION) {
+            top++;
+        }
+        int bottom = h;
+        while (bottom > top && rows[bottom - 1] > w * BORDER_FRACTION) {
+            bottom--;
+        }
+        int left = 0;
+        while (left < w && cols[left] > h * BORDER_FRACTION) {
+            left++;
+        }
+        int right = w;
+        while (right > left && cols[right - 1] > h * BORDER_FRACTION) {
+            right--;
+        }
+        if (top >= bottom || left >= right) {
+            return null;
+        }
+
+        if (top > 0 || left > 0 || bottom < h || right < w) {
+            // the borders contribute to every profile entry; count again without them
+            Arrays.fill(rows, 0);
+            Arrays.fill(cols, 0);
+            profile(gray, w, left, top, right, bottom, threshold, rows, cols);
+        }
+
+        int minRowInk = Math.max(1, (int) ((right - left) * MIN_INK_FRACTION));
+        int minColInk = Math.max(1, (int) ((bottom - top) * MIN_INK_FRACTION));
+        int y1 = top;
+        while (y1 < bottom && rows[y1] < minRowInk) {
+            y1++;
+        }
+        int y2 = bottom;
+        while (y2 > y1 && rows[y2 - 1] < minRowInk) {
+            y2--;
+        }
+        int x1 = left;
+        while (x1 < right && cols[x1] < minColInk) {
+            x1++;
+        }
+        int x2 = right;
+        while (x2 > x1 && cols[x2 - 1] < minColInk) {
+            x2--;
+        }
+        if (y1 >= y2 || x1 >= x2) {
+            return null;
+        }
+
+        x1 = Math.max(left, x1 - padding);
+        y1 = Math.max(top, y1 - padding);
+        x2 = Math.min(right, x2 + padding);
+        y2 = Math.min(bottom, y2 + padding);
+        return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    /**
+     * Counts dark pixels per row and per column within an area.
+     */
+    private static void profile(byte[] gray, int w, int x1, int y1, int x2, int y2, int threshold, int[] rows, int[] cols) {
+        for (int y = y1; y < y2; y++) {
+            int offset = y * w;
+            int count = 0;
+            for (int x = x1; x < x2; x++) {
+                if ((gray[offset + x] & 0xFF) < threshold) {
+                    count++;
+                    cols[x]++;
+                }
+            }
+            rows[y] = count;
+        }
+    }
+}
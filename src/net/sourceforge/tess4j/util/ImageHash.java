@@ -0,0 +1,247 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fast 64-bit content hashes of files and decoded images, for recognizing
+ * inputs that have been seen before. The hash is MurmurHash64A; it is not
+ * cryptographic, but collisions between distinct pages are vanishingly rare.
+ */
+public class ImageHash {
+
+    private static final long M = 0xc6a4a7935bd1e995L;
+    private static final int R = 47;
+    private static final long SEED = 0x5eed5eed5eed5eedL;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private ImageHash() {
+    }
+
+    /**
+     * Incremental state of a hash. Data must be fed in multiples of 8 bytes,
+     * except for the last update.
+     */
+    private static class State {
+
+        long h = SEED;
+        long length;
+
+        void update(ByteBuffer data) {
+            length += data.remaining();
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            while (data.remaining() >= 8) {
+                mix(data.getLong());
+            }
+            if (data.hasRemaining()) {
+                long k = 0;
+                for (int shift = 0; data.hasRemaining(); shift += 8) {
+                    k |= (data.get() & 0xFFL) << shift;
+                }
+                h ^= k;
+                h *= M;
+            }
+        }
+
+        void mix(long k) {
+            k *= M;
+            k ^= k >>> R;
+            k *= M;
+            h ^= k;
+            h *= M;
+        }
+
+        long finish() {
+            long x = h ^ (length * M);
+            x ^= x >>> R;
+            x *= M;
+            x ^= x >>> R;
+            return x;
+        }
+    }
+
+    /**
+     * Hashes a range of bytes.
+     *
+     * @param data the bytes
+     * @param offset offset of the range
+     * @param length length of the range
+     * @return the hash
+     */
+    public static long hash(byte[] data, int offset, int length) {
+        State state = new State();
+        state.update(ByteBuffer.wrap(data, offset, length));
+        return state.finish();
+    }
+
+    /**
+     * Hashes a string, e.g., the description of an engine configuration.
+     *
+     * @param str the string
+     * @return the hash
+     */
+    public static long hash(String str) {
+        byte[] bytes;
+        try {
+            bytes = str.getBytes("UTF-8");
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return hash(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Hashes the raw bytes of a file, without decoding it.
+     *
+     * @param file the file
+     * @return the hash
+     * @throws IOException
+     */
+    public static long hash(File file) throws IOException {
+        State state = new State();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        InputStream in = new FileInputStream(file);
+        try {
+            int n;
+            while ((n = readFully(in, buffer)) > 0) {
+                state.update(ByteBuffer.wrap(buffer, 0, n));
+            }
+        } finally {
+            in.close();
+        }
+        return state.finish();
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        int n;
+        while (total < buffer.length && (n = in.read(buffer, total, buffer.length - total)) > 0) {
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Hashes the decoded pixels of an image, together with its size, layout
+     * and color model, so that the same bits under different palettes, e.g.
+     * a MinIsWhite and a MinIsBlack bilevel TIFF, hash differently. The
+     * backing arrays of <code>BufferedImage</code> rasters are hashed in
+     * place; other images are copied first.
+     *
+     * @param image the image
+     * @return the hash
+     */
+    public static long hashPixels(RenderedImage image) {
+        Raster raster = image instanceof BufferedImage ? ((BufferedImage) image).getRaster() : image.getData();
+        State state = new State();
+        state.mix(((long) image.getWidth() << 32) | image.getHeight());
+        state.mix(((long) raster.getNumBands() << 32) | raster.getDataBuffer().getDataType());
+        state.mix(((long) raster.getSampleModelTranslateX() << 32) | (raster.getSampleModelTranslateY() & 0xFFFFFFFFL));
+        mixSampleModel(state, raster.getSampleModel());
+        mixColorModel(state, image.getColorModel());
+
+        DataBuffer buffer = raster.getDataBuffer();
+        for (int bank = 0; bank < buffer.getNumBanks(); bank++) {
+            if (buffer instanceof DataBufferByte) {
+                byte[] data = ((DataBufferByte) buffer).getData(bank);
+                state.update(ByteBuffer.wrap(data, buffer.getOffset(), data.length - buffer.getOffset()));
+            } else if (buffer instanceof DataBufferInt) {
+                int[] data = ((DataBufferInt) buffer).getData(bank);
+                ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = buffer.getOffset(); i < data.length; i += BUFFER_SIZE / 4) {
+                    bytes.clear();
+                    bytes.asIntBuffer().put(data, i, Math.min(BUFFER_SIZE / 4, data.length - i));
+                    bytes.limit(4 * Math.min(BUFFER_SIZE / 4, data.length - i));
+                    state.update(bytes);
+                }
+            } else if (buffer instanceof DataBufferUShort) {
+                short[] data = ((DataBufferUShort) buffer).getData(bank);
+                ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = buffer.getOffset(); i < data.length; i += BUFFER_SIZE / 2) {
+                    bytes.clear();
+                    bytes.asShortBuffer().put(data, i, Math.min(BUFFER_SIZE / 2, data.length - i));
+                    bytes.limit(2 * Math.min(BUFFER_SIZE / 2, data.length - i));
+                    state.update(bytes);
+                }
+            } else {
+                int[] pixels = raster.getPixels(raster.getMinX(), raster.getMinY(), raster.getWidth(), raster.getHeight(), (int[]) null);
+                ByteBuffer bytes = ByteBuffer.allocate(4 * pixels.length).order(ByteOrder.LITTLE_ENDIAN);
+                bytes.asIntBuffer().put(pixels);
+                state.update(bytes);
+                break;
+            }
+        }
+        return state.finish();
+    }
+
+    /**
+     * Mixes the type and the strides of a sample model into a hash.
+     */
+    private static void mixSampleModel(State state, SampleModel model) {
+        state.mix(model.getClass().getName().hashCode());
+        if (model instanceof ComponentSampleModel) {
+            ComponentSampleModel csm = (ComponentSampleModel) model;
+            state.mix(((long) csm.getScanlineStride() << 32) | csm.getPixelStride());
+        } else if (model instanceof MultiPixelPackedSampleModel) {
+            MultiPixelPackedSampleModel mpp = (MultiPixelPackedSampleModel) model;
+            state.mix(((long) mpp.getScanlineStride() << 32) | mpp.getPixelBitStride());
+        } else if (model instanceof SinglePixelPackedSampleModel) {
+            SinglePixelPackedSampleModel spp = (SinglePixelPackedSampleModel) model;
+            state.mix(spp.getScanlineStride());
+            for (int mask : spp.getBitMasks()) {
+                state.mix(mask & 0xFFFFFFFFL);
+            }
+        }
+    }
+
+    /**
+     * Mixes a color model into a hash: its pixel size, components and color
+     * space, and the palette of an indexed model.
+     */
+    private static void mixColorModel(State state, ColorModel model) {
+        if (model == null) {
+            return;
+        }
+        state.mix(((long) model.getPixelSize() << 32) | model.getNumComponents());
+        state.mix(((long) model.getColorSpace().getType() << 32) | model.getTransparency());
+        if (model instanceof IndexColorModel) {
+            IndexColorModel icm = (IndexColorModel) model;
+            int[] rgbs = new int[icm.getMapSize()];
+            icm.getRGBs(rgbs);
+            state.mix(rgbs.length);
+            for (int rgb : rgbs) {
+                state.mix(rgb & 0xFFFFFFFFL);
+            }
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package net.sourceforge.tess4j.util;
 
 import java.awt.*;
+import java.awt.color.ColorSpace;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.image.*;
@@ -68,6 +69,26 @@ public class ImageHelper {
         return new IIOImage(target, null, null);
     }
 
+    /**
+     * Returns a scaled grayscale instance of the provided image. The pixel
+     * arrays are resampled directly: an area-average filter is used for
+     * reduction and linear interpolation for enlargement.
+     *
+     * @param image the original image to be scaled
+     * @param targetWidth the desired width of the scaled instance, in pixels
+     * @param targetHeight the desired height of the scaled instance, in pixels
+     * @param parallel whether to process strips of rows concurrently
+     * @return a scaled <code>TYPE_BYTE_GRAY</code> version of the original
+     * image
+     */
+    public static BufferedImage getScaledGrayscaleInstance(BufferedImage image, int targetWidth, int targetHeight, boolean parallel) {
+        byte[] src = getGrayscaleBytes(image);
+        BufferedImage tmp = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] dst = ((DataBufferByte) tmp.getRaster().getDataBuffer()).getData();
+        ImageScaling.scale(src, image.getWidth(), image.getHeight(), dst, targetWidth, targetHeight, parallel);
+        return tmp;
+    }
+
     /**
      * A replacement for the standard
      * <code>BufferedImage.getSubimage</code> method.
@@ -152,6 +173,70 @@ public class ImageHelper {
         return invertOp.filter(image, tmp);
     }
 
+    /**
+     * Inverts image color in place. Only images backed by a byte raster, such
+     * as <code>TYPE_BYTE_GRAY</code> and <code>TYPE_BYTE_BINARY</code>, are
+     * supported; the samples are flipped directly in the data buffer.
+     *
+     * @param image input image, modified in place
+     * @return the same image
+     */
+    public static BufferedImage invertImageColorInPlace(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_BYTE_GRAY && type != BufferedImage.TYPE_BYTE_BINARY) {
+            throw new IllegalArgumentException("Unsupported image type: " + type);
+        }
+        // with an identity palette, flipping all bits of a packed byte inverts every pixel in it
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        invert(data, 0, data.length);
+        return image;
+    }
+
+    /**
+     * Inverts a rectangular area of an 8-bit grayscale raster in place.
+     *
+     * @param gray pixel data, one byte per pixel, row by row
+     * @param width image width
+     * @param area area to invert
+     */
+    public static void invertGrayscale(byte[] gray, int width, Rectangle area) {
+        for (int y = area.y; y < area.y + area.height; y++) {
+            invert(gray, y * width + area.x, area.width);
+        }
+    }
+
+    private static void invert(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            data[i] = (byte) ~data[i];
+        }
+    }
+
+    /**
+     * Rotation modes supported by {@link #rotateImage(BufferedImage, double, RotationMode)}.
+     * All modes except <code>BICUBIC</code> work directly on the pixel arrays
+     * of 8-bit grayscale and 1-bit binary images; other image types are always
+     * rotated with <code>BICUBIC</code>.
+     */
+    public enum RotationMode {
+
+        /**
+         * Bicubic interpolation through <code>Graphics2D</code>.
+         */
+        BICUBIC,
+        /**
+         * Three successive shears; rows and columns are moved as blocks.
+         */
+        THREE_SHEAR,
+        /**
+         * Nearest-neighbour sampling.
+         */
+        NEAREST_NEIGHBOR,
+        /**
+         * Bilinear interpolation.
+         */
+        BILINEAR
+    }
+
     /**
      * Rotates an image.
      * 
@@ -161,15 +246,19 @@ public class ImageHelper {
      */
     public static BufferedImage rotateImage(BufferedImage image, double angle) {
         double theta = Math.toRadians(angle);
-        double sin = Math.abs(Math.sin(theta));
-        double cos = Math.abs(Math.cos(theta));
         int w = image.getWidth();
         int h = image.getHeight();
-        int newW = (int) Math.floor(w * cos + h * sin);
-        int newH = (int) Math.floor(h * cos + w * sin);
+        Dimension size = getRotatedSize(w, h, theta);
+        int newW = size.width;
+        int newH = size.height;
         
         BufferedImage tmp = new BufferedImage(newW, newH, image.getType());
         Graphics2D g2d = tmp.createGraphics();
+        if (image.getTransparency() == Transparency.OPAQUE) {
+            // fill the uncovered corners with white rather than black
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(0, 0, newW, newH);
+        }
         g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
                 RenderingHints.VALUE_INTERPOLATION_BICUBIC);
         g2d.translate((newW - w) / 2, (newH - h) / 2);
@@ -179,6 +268,196 @@ public class ImageHelper {
         return tmp;
     }
 
+    /**
+     * Rotates an image using the specified mode.
+     *
+     * @param image the original image
+     * @param angle the degree of rotation
+     * @param mode the rotation mode
+     * @return a rotated image
+     */
+    public static BufferedImage rotateImage(BufferedImage image, double angle, RotationMode mode) {
+        return rotateImage(image, angle, mode, false);
+    }
+
+    /**
+     * Rotates an image using the specified mode. Grayscale and binary images
+     * are rotated on their pixel arrays and keep their type; the uncovered
+     * corners are filled with white.
+     *
+     * @param image the original image
+     * @param angle the degree of rotation
+     * @param mode the rotation mode
+     * @param parallel whether to process strips of rows concurrently
+     * @return a rotated image
+     */
+    public static BufferedImage rotateImage(BufferedImage image, double angle, RotationMode mode, boolean parallel) {
+        boolean binary = isBinary(image);
+        if (mode == RotationMode.BICUBIC || !(binary || image.getType() == BufferedImage.TYPE_BYTE_GRAY)) {
+            return rotateImage(image, angle);
+        }
+
+        double theta = Math.toRadians(angle);
+        int w = image.getWidth();
+        int h = image.getHeight();
+        Dimension size = getRotatedSize(w, h, theta);
+        byte[] src = getGrayscaleBytes(image);
+
+        if (binary) {
+            byte[] dst = new byte[size.width * size.height];
+            ImageRotation.rotate(src, w, h, dst, size.width, size.height, theta, mode, parallel);
+            return createBinaryImage(dst, size.width, size.height, 128);
+        }
+
+        BufferedImage tmp = new BufferedImage(size.width, size.height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] dst = ((DataBufferByte) tmp.getRaster().getDataBuffer()).getData();
+        ImageRotation.rotate(src, w, h, dst, size.width, size.height, theta, mode, parallel);
+        return tmp;
+    }
+
+    /**
+     * Gets the size of the canvas that holds a rotated image.
+     */
+    private static Dimension getRotatedSize(int w, int h, double theta) {
+        double sin = Math.abs(Math.sin(theta));
+        double cos = Math.abs(Math.cos(theta));
+        return new Dimension((int) Math.floor(w * cos + h * sin), (int) Math.floor(h * cos + w * sin));
+    }
+
+    /**
+     * Checks whether an image is a 1-bit binary image.
+     *
+     * @param image input image
+     * @return true if the image is of type <code>TYPE_BYTE_BINARY</code> with
+     * one bit per pixel
+     */
+    public static boolean isBinary(BufferedImage image) {
+        return image.getType() == BufferedImage.TYPE_BYTE_BINARY && image.getColorModel().getPixelSize() == 1;
+    }
+
+    /**
+     * Gets the 8-bit luminance of an image, row by row without padding. For a
+     * <code>TYPE_BYTE_GRAY</code> image whose raster is not a sub-image, the
+     * backing array is returned without copying; binary images are unpacked
+     * to 0 and 255; other types are converted to grayscale first.
+     *
+     * @param image input image
+     * @return pixel data, one byte per pixel
+     */
+    public static byte[] getGrayscaleBytes(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        WritableRaster raster = image.getRaster();
+
+        if (isBinary(image)) {
+            return unpackBinary(image);
+        }
+
+        if (image.getType() != BufferedImage.TYPE_BYTE_GRAY) {
+            image = convertImageToGrayscale(image);
+            raster = image.getRaster();
+        }
+
+        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+        SampleModel sm = raster.getSampleModel();
+        if (sm instanceof ComponentSampleModel
+                && ((ComponentSampleModel) sm).getScanlineStride() == w
+                && ((ComponentSampleModel) sm).getPixelStride() == 1
+                && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+                && buffer.getOffset() == 0 && buffer.getData().length == w * h) {
+            return buffer.getData();
+        }
+        return (byte[]) raster.getDataElements(0, 0, w, h, new byte[w * h]);
+    }
+
+    /**
+     * Unpacks a 1-bit image to one byte per pixel, mapping each bit to the
+     * luminance of its palette entry.
+     */
+    private static byte[] unpackBinary(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        ColorModel cm = image.getColorModel();
+        byte[] lut = new byte[]{(byte) luminance(cm.getRGB(0)), (byte) luminance(cm.getRGB(1))};
+        byte[] gray = new byte[w * h];
+        WritableRaster raster = image.getRaster();
+        SampleModel sm = raster.getSampleModel();
+
+        if (sm instanceof MultiPixelPackedSampleModel
+                && ((MultiPixelPackedSampleModel) sm).getDataBitOffset() == 0
+                && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+                && raster.getDataBuffer().getOffset() == 0) {
+            byte[] packed = ((DataBufferByte) raster.getDataBuffer()).getData();
+            int stride = ((MultiPixelPackedSampleModel) sm).getScanlineStride();
+            for (int y = 0; y < h; y++) {
+                int row = y * stride;
+                int offset = y * w;
+                for (int x = 0; x < w; x++) {
+                    gray[offset + x] = lut[(packed[row + (x >> 3)] >> (7 - (x & 7))) & 1];
+                }
+            }
+        } else {
+            int[] samples = new int[w];
+            for (int y = 0; y < h; y++) {
+                raster.getSamples(0, y, w, 1, 0, samples);
+                int offset = y * w;
+                for (int x = 0; x < w; x++) {
+                    gray[offset + x] = lut[samples[x] & 1];
+                }
+            }
+        }
+        return gray;
+    }
+
+    static int luminance(int rgb) {
+        int r = (rgb >> 16) & 0xff;
+        int g = (rgb >> 8) & 0xff;
+        int b = rgb & 0xff;
+        return (r * 299 + g * 587 + b * 114) / 1000;
+    }
+
+    /**
+     * Creates a <code>TYPE_BYTE_GRAY</code> image backed by the given array,
+     * without copying.
+     *
+     * @param data pixel data, one byte per pixel, row by row
+     * @param width image width
+     * @param height image height
+     * @return a grayscale image
+     */
+    public static BufferedImage createGrayscaleImage(byte[] data, int width, int height) {
+        ColorModel cm = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY), new int[]{8},
+                false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        WritableRaster raster = Raster.createInterleavedRaster(new DataBufferByte(data, width * height),
+                width, height, width, 1, new int[]{0}, null);
+        return new BufferedImage(cm, raster, false, null);
+    }
+
+    /**
+     * Creates a <code>TYPE_BYTE_BINARY</code> image from 8-bit pixel data.
+     *
+     * @param gray pixel data, one byte per pixel, row by row
+     * @param width image width
+     * @param height image height
+     * @param threshold luminance at or above which a pixel is white
+     * @return a binary image
+     */
+    public static BufferedImage createBinaryImage(byte[] gray, int width, int height, int threshold) {
+        BufferedImage tmp = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        byte[] packed = ((DataBufferByte) tmp.getRaster().getDataBuffer()).getData();
+        int stride = (width + 7) / 8;
+        for (int y = 0; y < height; y++) {
+            int row = y * stride;
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                if ((gray[offset + x] & 0xFF) >= threshold) {
+                    packed[row + (x >> 3)] |= 0x80 >> (x & 7);
+                }
+            }
+        }
+        return tmp;
+    }
+
     /**
      * Gets an image from Clipboard.
      *
@@ -303,6 +303,21 @@ public class ImageIOHelper {
      * @throws IOException
      */
     public static List<IIOImage> getIIOImageList(File imageFile) throws IOException {
+        return getIIOImageList(imageFile, null);
+    }
+
+    /**
+     * Gets a list of <code>IIOImage</code> objects for an image file, and
+     * computes the perceptual hash of each page as it is decoded.
+     *
+     * @param imageFile input image file
+     * @param fingerprints receives the perceptual hash of each page, in page
+     * order; <code>null</code> to skip fingerprinting
+     * @return a list of <code>IIOImage</code> objects
+     * @throws IOException
+     * @see PerceptualHash
+     */
+    public static List<IIOImage> getIIOImageList(File imageFile, List<Long> fingerprints) throws IOException {
         File workingTiffFile = null;
 
         ImageReader reader = null;
@@ -317,22 +332,8 @@ public class ImageIOHelper {
 
             List<IIOImage> iioImageList = new ArrayList<IIOImage>();
 
-            String imageFileName = imageFile.getName();
-            String imageFormat = imageFileName.substring(imageFileName.lastIndexOf('.') + 1);
-            if (imageFormat.matches("(pbm|pgm|ppm)")) {
-                imageFormat = "pnm";
-            } else if (imageFormat.matches("(jp2|j2k|jpf|jpx|jpm)")) {
-                imageFormat = "jpeg2000";
-            }
-            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(imageFormat);
-
-            if (!readers.hasNext()) {
-                throw new RuntimeException(JAI_IMAGE_READER_MESSAGE);
-            }
-
-            reader = readers.next();
-            iis = ImageIO.createImageInputStream(imageFile);
-            reader.setInput(iis);
+            reader = getImageReader(imageFile);
+            iis = (ImageInputStream) reader.getInput();
 
             int imageTotal = reader.getNumImages(true);
 
@@ -340,6 +341,9 @@ public class ImageIOHelper {
 //                IIOImage oimage = new IIOImage(reader.read(i), null, reader.getImageMetadata(i));
                 IIOImage oimage = reader.readAll(i, reader.getDefaultReadParam());
                 iioImageList.add(oimage);
+                if (fingerprints != null) {
+                    fingerprints.add(PerceptualHash.hash(oimage.getRenderedImage()));
+                }
             }
 
             return iioImageList;
@@ -360,6 +364,35 @@ public class ImageIOHelper {
         }
     }
 
+    /**
+     * Gets a reader for an image file, with the file set as its input, for
+     * decoding pages one at a time. The caller closes the input and disposes
+     * of the reader when done.
+     *
+     * @param imageFile input image file, in any of the formats supported by
+     * Image I/O
+     * @return the reader
+     * @throws IOException
+     */
+    public static ImageReader getImageReader(File imageFile) throws IOException {
+        String imageFileName = imageFile.getName();
+        String imageFormat = imageFileName.substring(imageFileName.lastIndexOf('.') + 1);
+        if (imageFormat.matches("(pbm|pgm|ppm)")) {
+            imageFormat = "pnm";
+        } else if (imageFormat.matches("(jp2|j2k|jpf|jpx|jpm)")) {
+            imageFormat = "jpeg2000";
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(imageFormat);
+
+        if (!readers.hasNext()) {
+            throw new RuntimeException(JAI_IMAGE_READER_MESSAGE);
+        }
+
+        ImageReader reader = readers.next();
+        reader.setInput(ImageIO.createImageInputStream(imageFile));
+        return reader;
+    }
+
     /**
      * Gets a list of <code>IIOImage</code> objects for a
      * <code>BufferedImage</code>.
@@ -435,28 +468,49 @@ public class ImageIOHelper {
 
         IIOMetadata imageMetadata = oimage.getMetadata();
         if (imageMetadata != null) {
-            IIOMetadataNode dimNode = (IIOMetadataNode) imageMetadata.getAsTree("javax_imageio_1.0");
-            NodeList nodes = dimNode.getElementsByTagName("HorizontalPixelSize");
-            int dpiX;
-            if (nodes.getLength() > 0) {
-                float dpcWidth = Float.parseFloat(nodes.item(0).getAttributes().item(0).getNodeValue());
-                dpiX = (int) Math.round(25.4f / dpcWidth);
-            } else {
-                dpiX = Toolkit.getDefaultToolkit().getScreenResolution();
-            }
+            int[] dpi = getImageResolution(oimage);
+            int dpiX = dpi[0] > 0 ? dpi[0] : Toolkit.getDefaultToolkit().getScreenResolution();
             dict.put("dpiX", String.valueOf(dpiX));
-
-            nodes = dimNode.getElementsByTagName("VerticalPixelSize");
-            int dpiY;
-            if (nodes.getLength() > 0) {
-                float dpcHeight = Float.parseFloat(nodes.item(0).getAttributes().item(0).getNodeValue());
-                dpiY = (int) Math.round(25.4f / dpcHeight);
-            } else {
-                dpiY = Toolkit.getDefaultToolkit().getScreenResolution();
-            }
+            int dpiY = dpi[1] > 0 ? dpi[1] : Toolkit.getDefaultToolkit().getScreenResolution();
             dict.put("dpiY", String.valueOf(dpiY));
         }
 
         return dict;
     }
+
+    /**
+     * Gets the resolution recorded in the image meta data. Unlike
+     * {@link #readImageData(IIOImage)}, no screen resolution is substituted
+     * for missing values.
+     *
+     * @param oimage an <code>IIOImage</code> object
+     * @return horizontal and vertical resolution in DPI; 0 where the meta data
+     * does not specify it
+     */
+    public static int[] getImageResolution(IIOImage oimage) {
+        int[] dpi = new int[2];
+
+        IIOMetadata imageMetadata = oimage.getMetadata();
+        if (imageMetadata != null && imageMetadata.isStandardMetadataFormatSupported()) {
+            IIOMetadataNode dimNode = (IIOMetadataNode) imageMetadata.getAsTree("javax_imageio_1.0");
+            dpi[0] = getResolution(dimNode, "HorizontalPixelSize");
+            dpi[1] = getResolution(dimNode, "VerticalPixelSize");
+        }
+
+        return dpi;
+    }
+
+    /**
+     * Converts a pixel size node, in millimeters per pixel, to DPI.
+     */
+    private static int getResolution(IIOMetadataNode dimNode, String pixelSizeNode) {
+        NodeList nodes = dimNode.getElementsByTagName(pixelSizeNode);
+        if (nodes.getLength() > 0) {
+            float mmPerPixel = Float.parseFloat(nodes.item(0).getAttributes().item(0).getNodeValue());
+            if (mmPerPixel > 0) {
+                return Math.round(25.4f / mmPerPixel);
+            }
+        }
+        return 0;
+    }
 }
@@ -0,0 +1,266 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j.util;
+
+import java.util.Arrays;
+import net.sourceforge.tess4j.util.ImageHelper.RotationMode;
+
+/**
+ * Rotation kernels working directly on 8-bit grayscale pixel arrays. Pixels
+ * are stored row by row, one byte per pixel, without padding. Areas not
+ * covered by the source image are filled with white.
+ * <br>
+ * The geometry matches {@link ImageHelper#rotateImage(java.awt.image.BufferedImage, double)}:
+ * the image is rotated about <code>(w / 2, h / 2)</code> and centered on a
+ * canvas large enough to hold the rotated bounds.
+ */
+class ImageRotation {
+
+    static final byte WHITE = (byte) 0xFF;
+
+    // fixed-point precision of the inverse mapping
+    private static final int FRACTION_BITS = 20;
+    private static final double ONE = 1 << FRACTION_BITS;
+
+    /**
+     * Rotates a grayscale raster.
+     *
+     * @param src source pixels
+     * @param w source width
+     * @param h source height
+     * @param dst destination pixels, <code>newW * newH</code> in size
+     * @param newW destination width
+     * @param newH destination height
+     * @param theta the angle of rotation, in radians
+     * @param mode rotation mode; <code>BICUBIC</code> is not handled here
+     * @param parallel whether to process strips of rows concurrently
+     */
+    static void rotate(byte[] src, int w, int h, byte[] dst, int newW, int newH, double theta, RotationMode mode, boolean parallel) {
+        switch (mode) {
+            case THREE_SHEAR:
+                rotateByShear(src, w, h, dst, newW, newH, theta, parallel);
+                break;
+            case NEAREST_NEIGHBOR:
+                rotateNearestNeighbor(src, w, h, dst, newW, newH, theta, parallel);
+                break;
+            case BILINEAR:
+                rotateBilinear(src, w, h, dst, newW, newH, theta, parallel);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported rotation mode: " + mode);
+        }
+    }
+
+    /**
+     * Nearest-neighbour rotation by inverse mapping of every output pixel.
+     */
+    static void rotateNearestNeighbor(final byte[] src, final int w, final int h, final byte[] dst, final int newW, final int newH, double theta, boolean parallel) {
+        final double cos = Math.cos(theta);
+        final double sin = Math.sin(theta);
+        final int cx = w / 2;
+        final int cy = h / 2;
+        final int ocx = (newW - w) / 2 + cx;
+        final int ocy = (newH - h) / 2 + cy;
+        final long dx = Math.round(cos * ONE);
+        final long dy = Math.round(-sin * ONE);
+
+        ParallelStrips.run(newH, parallel, new ParallelStrips.Task() {
+
+            @Override
+            public void run(int from, int to) {
+                for (int oy = from; oy < to; oy++) {
+                    double u = 0.5 - ocx;
+                    double v = oy + 0.5 - ocy;
+                    long fx = Math.round((cos * u + sin * v + cx) * ONE);
+                    long fy = Math.round((-sin * u + cos * v + cy) * ONE);
+                    int offset = oy * newW;
+                    for (int ox = 0; ox < newW; ox++) {
+                        int sx = (int) (fx >> FRACTION_BITS);
+                        int sy = (int) (fy >> FRACTION_BITS);
+                        dst[offset + ox] = (sx >= 0 && sx < w && sy >= 0 && sy < h) ? src[sy * w + sx] : WHITE;
+                        fx += dx;
+                        fy += dy;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Bilinear rotation by inverse mapping of every output pixel, with 8-bit
+     * interpolation weights.
+     */
+    static void rotateBilinear(final byte[] src, final int w, final int h, final byte[] dst, final int newW, final int newH, double theta, boolean parallel) {
+        final double cos = Math.cos(theta);
+        final double sin = Math.sin(theta);
+        final int cx = w / 2;
+        final int cy = h / 2;
+        final int ocx = (newW - w) / 2 + cx;
+        final int ocy = (newH - h) / 2 + cy;
+        final long dx = Math.round(cos * ONE);
+        final long dy = Math.round(-sin * ONE);
+
+        ParallelStrips.run(newH, parallel, new ParallelStrips.Task() {
+
+            @Override
+            public void run(int from, int to) {
+                for (int oy = from; oy < to; oy++) {
+                    double u = 0.5 - ocx;
+                    double v = oy + 0.5 - ocy;
+                    // sample positions are shifted by half a pixel so that pixel centers interpolate exactly
+                    long fx = Math.round((cos * u + sin * v + cx - 0.5) * ONE);
+                    long fy = Math.round((-sin * u + cos * v + cy - 0.5) * ONE);
+                    int offset = oy * newW;
+                    for (int ox = 0; ox < newW; ox++) {
+                        int x0 = (int) (fx >> FRACTION_BITS);
+                        int y0 = (int) (fy >> FRACTION_BITS);
+                        int ax = (int) (fx >> (FRACTION_BITS - 8)) & 0xFF;
+                        int ay = (int) (fy >> (FRACTION_BITS - 8)) & 0xFF;
+                        int p00, p10, p01, p11;
+                        if (x0 >= 0 && y0 >= 0 && x0 < w - 1 && y0 < h - 1) {
+                            int i = y0 * w + x0;
+                            p00 = src[i] & 0xFF;
+                            p10 = src[i + 1] & 0xFF;
+                            p01 = src[i + w] & 0xFF;
+                            p11 = src[i + w + 1] & 0xFF;
+                        } else if (x0 < -1 || y0 < -1 || x0 >= w || y0 >= h) {
+                            dst[offset + ox] = WHITE;
+                            fx += dx;
+                            fy += dy;
+                            continue;
+                        } else {
+                            p00 = pixel(src, w, h, x0, y0);
+                            p10 = pixel(src, w, h, x0 + 1, y0);
+                            p01 = pixel(src, w, h, x0, y0 + 1);
+                            p11 = pixel(src, w, h, x0 + 1, y0 + 1);
+                        }
+                        int top = p00 * (256 - ax) + p10 * ax;
+                        int bottom = p01 * (256 - ax) + p11 * ax;
+                        dst[offset + ox] = (byte) ((top * (256 - ay) + bottom * ay + 32768) >> 16);
+                        fx += dx;
+                        fy += dy;
+                    }
+                }
+            }
+        });
+    }
+
+    private static int pixel(byte[] src, int w, int h, int x, int y) {
+        return (x >= 0 && y >= 0 && x < w && y < h) ? src[y * w + x] & 0xFF : 0xFF;
+    }
+
+    /**
+     * Rotation by three shears (Paeth): <code>X(a) Y(b) X(a)</code> with
+     * <code>a = -tan(theta / 2)</code> and <code>b = sin(theta)</code>. Each
+     * shear only moves whole rows or runs of columns, so the passes reduce to
+     * block copies.
+     */
+    static void rotateByShear(final byte[] src, final int w, final int h, final byte[] dst, final int newW, final int newH, double theta, boolean parallel) {
+        final double alpha = -Math.tan(theta / 2);
+        final double beta = Math.sin(theta);
+        final int cx = w / 2;
+        final int cy = h / 2;
+        final int ocx = (newW - w) / 2 + cx;
+        final int ocy = (newH - h) / 2 + cy;
+
+        // pass 1: horizontal shear into a canvas wide enough for the sheared rows
+        final int cx1 = (int) Math.ceil(w / 2.0 + Math.abs(alpha) * (h / 2.0 + 1)) + 2;
+        final int w1 = 2 * cx1;
+        final byte[] buf1 = new byte[w1 * h];
+        ParallelStrips.run(h, parallel, new ParallelStrips.Task() {
+
+            @Override
+            public void run(int from, int to) {
+                for (int y = from; y < to; y++) {
+                    int shift = (int) Math.round(alpha * (y + 0.5 - cy));
+                    copyRow(src, y * w, w, buf1, y * w1, w1, cx1 - cx + shift);
+                }
+            }
+        });
+
+        // pass 2: vertical shear; columns sharing the same offset form runs
+        final int cy2 = (int) Math.ceil(h / 2.0 + Math.abs(beta) * (cx1 + 1)) + 2;
+        final int h2 = 2 * cy2;
+        final byte[] buf2 = new byte[w1 * h2];
+        final int[] runStart = new int[w1 + 1];
+        final int[] runShift = new int[w1];
+        int runs = 0;
+        for (int x = 0; x < w1; x++) {
+            int shift = (int) Math.round(beta * (x + 0.5 - cx1));
+            if (runs == 0 || runShift[runs - 1] != shift) {
+                runStart[runs] = x;
+                runShift[runs] = shift;
+                runs++;
+            }
+        }
+        runStart[runs] = w1;
+        final int runCount = runs;
+        ParallelStrips.run(h2, parallel, new ParallelStrips.Task() {
+
+            @Override
+            public void run(int from, int to) {
+                for (int y2 = from; y2 < to; y2++) {
+                    int offset = y2 * w1;
+                    for (int r = 0; r < runCount; r++) {
+                        int start = runStart[r];
+                        int length = runStart[r + 1] - start;
+                        int y1 = y2 - cy2 + cy - runShift[r];
+                        if (y1 >= 0 && y1 < h) {
+                            System.arraycopy(buf1, y1 * w1 + start, buf2, offset + start, length);
+                        } else {
+                            fill(buf2, offset + start, length);
+                        }
+                    }
+                }
+            }
+        });
+
+        // pass 3: horizontal shear onto the destination canvas
+        ParallelStrips.run(newH, parallel, new ParallelStrips.Task() {
+
+            @Override
+            public void run(int from, int to) {
+                for (int oy = from; oy < to; oy++) {
+                    int y2 = oy - ocy + cy2;
+                    if (y2 < 0 || y2 >= h2) {
+                        fill(dst, oy * newW, newW);
+                        continue;
+                    }
+                    int shift = (int) Math.round(alpha * (oy + 0.5 - ocy));
+                    copyRow(buf2, y2 * w1, w1, dst, oy * newW, newW, ocx - cx1 + shift);
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies a row so that <code>dst[dstOffset + i] = src[srcOffset + i - shift]</code>,
+     * filling positions outside the source row with white.
+     */
+    private static void copyRow(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength, int shift) {
+        int start = Math.max(0, shift);
+        int end = Math.min(dstLength, srcLength + shift);
+        if (start >= end) {
+            fill(dst, dstOffset, dstLength);
+            return;
+        }
+        fill(dst, dstOffset, start);
+        System.arraycopy(src, srcOffset + start - shift, dst, dstOffset + start, end - start);
+        fill(dst, dstOffset + end, dstLength - end);
+    }
+
+    private static void fill(byte[] a, int offset, int length) {
+        Arrays.fill(a, offset, offset + length, WHITE);
+    }
+}
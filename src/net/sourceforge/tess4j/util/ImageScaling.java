@@ -0,0 +1,171 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j.util;
+
+import java.util.Arrays;
+
+/**
+ * Separable resampling of 8-bit grayscale pixel arrays. Reduction uses an
+ * area-average (box) filter, so every source pixel contributes in proportion
+ * to the area it covers; enlargement uses linear interpolation.
+ */
+class ImageScaling {
+
+    // fixed-point precision of the filter weights
+    private static final int WEIGHT_BITS = 14;
+    // extra precision kept between the horizontal and vertical passes
+    private static final int INTERMEDIATE_BITS = 8;
+
+    /**
+     * Filter taps of one axis: output pixel <code>i</code> is the weighted sum
+     * of <code>count[i]</code> source pixels starting at <code>first[i]</code>.
+     */
+    private static class Taps {
+
+        int[] first;
+        int[] count;
+        int[] weights;
+        int[] offset;
+    }
+
+    /**
+     * Scales a grayscale raster.
+     *
+     * @param src source pixels
+     * @param w source width
+     * @param h source height
+     * @param dst destination pixels, <code>newW * newH</code> in size
+     * @param newW destination width
+     * @param newH destination height
+     * @param parallel whether to process strips of rows concurrently
+     */
+    static void scale(final byte[] src, final int w, final int h, final byte[] dst, final int newW, final int newH, boolean parallel) {
+        final Taps xTaps = createTaps(w, newW);
+        final Taps yTaps = createTaps(h, newH);
+        final int[] tmp = new int[newW * h];
+        final int rounding = 1 << (WEIGHT_BITS - INTERMEDIATE_BITS - 1);
+
+        // horizontal pass: source rows to intermediate rows of the new width
+        ParallelStrips.run(h, parallel, new ParallelStrips.Task() {
+
+            @Override
+            public void run(int from, int to) {
+                for (int y = from; y < to; y++) {
+                    int row = y * w;
+                    int out = y * newW;
+                    for (int i = 0; i < newW; i++) {
+                        int s = row + xTaps.first[i];
+                        int k = xTaps.offset[i];
+                        int sum = 0;
+                        for (int n = xTaps.count[i]; n > 0; n--) {
+                            sum += (src[s++] & 0xFF) * xTaps.weights[k++];
+                        }
+                        tmp[out + i] = (sum + rounding) >> (WEIGHT_BITS - INTERMEDIATE_BITS);
+                    }
+                }
+            }
+        });
+
+        // vertical pass: intermediate rows to destination rows
+        final int shift = WEIGHT_BITS + INTERMEDIATE_BITS;
+        ParallelStrips.run(newH, parallel, new ParallelStrips.Task() {
+
+            @Override
+            public void run(int from, int to) {
+                int[] acc = new int[newW];
+                for (int j = from; j < to; j++) {
+                    Arrays.fill(acc, 1 << (shift - 1));
+                    int k = yTaps.offset[j];
+                    int row = yTaps.first[j] * newW;
+                    for (int n = yTaps.count[j]; n > 0; n--, row += newW) {
+                        int weight = yTaps.weights[k++];
+                        for (int i = 0; i < newW; i++) {
+                            acc[i] += tmp[row + i] * weight;
+                        }
+                    }
+                    int out = j * newW;
+                    for (int i = 0; i < newW; i++) {
+                        int v = acc[i] >> shift;
+                        dst[out + i] = (byte) (v > 255 ? 255 : (v < 0 ? 0 : v));
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Computes the filter taps mapping <code>size</code> source pixels to
+     * <code>newSize</code> destination pixels.
+     */
+    private static Taps createTaps(int size, int newSize) {
+        Taps taps = new Taps();
+        taps.first = new int[newSize];
+        taps.count = new int[newSize];
+        taps.offset = new int[newSize];
+        double ratio = (double) size / newSize;
+        int one = 1 << WEIGHT_BITS;
+
+        if (ratio >= 1.0) {
+            // area average: destination pixel i covers [i * ratio, (i + 1) * ratio)
+            int maxCount = (int) Math.ceil(ratio) + 1;
+            taps.weights = new int[newSize * maxCount];
+            int k = 0;
+            for (int i = 0; i < newSize; i++) {
+                double start = i * ratio;
+                double end = Math.min(size, (i + 1) * ratio);
+                int first = (int) start;
+                int last = Math.min(size - 1, (int) Math.ceil(end) - 1);
+                taps.first[i] = first;
+                taps.offset[i] = k;
+                taps.count[i] = last - first + 1;
+                int total = 0;
+                for (int s = first; s <= last; s++) {
+                    double coverage = Math.min(end, s + 1) - Math.max(start, s);
+                    int weight = (int) Math.round(coverage / ratio * one);
+                    taps.weights[k++] = weight;
+                    total += weight;
+                }
+                // keep the weights summing exactly to one
+                taps.weights[k - 1] += one - total;
+            }
+        } else {
+            // linear interpolation between the two nearest source pixels
+            taps.weights = new int[newSize * 2];
+            int k = 0;
+            for (int i = 0; i < newSize; i++) {
+                double center = (i + 0.5) * ratio - 0.5;
+                int first = (int) Math.floor(center);
+                int weight = (int) Math.round((center - first) * one);
+                if (first < 0) {
+                    first = 0;
+                    weight = 0;
+                } else if (first >= size - 1) {
+                    first = size - 1;
+                    weight = 0;
+                }
+                taps.first[i] = first;
+                taps.offset[i] = k;
+                if (weight == 0) {
+                    taps.count[i] = 1;
+                    taps.weights[k++] = one;
+                } else {
+                    taps.count[i] = 2;
+                    taps.weights[k++] = one - weight;
+                    taps.weights[k++] = weight;
+                }
+            }
+        }
+        return taps;
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j.util;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detects reverse-video (light on dark) pages and blocks on 8-bit grayscale
+ * pixel arrays.
+ */
+public class InversionDetector {
+
+    /**
+     * Luminance below which an area counts as dark.
+     */
+    static final int DARK = 128;
+
+    /**
+     * Width of the border ring examined on a page, as a fraction of the page
+     * dimensions.
+     */
+    static final double BORDER = 0.05;
+
+    /**
+     * Size of the grid cells used to locate dark blocks, in pixels.
+     */
+    public static final int DEFAULT_CELL_SIZE = 32;
+
+    /**
+     * Smallest fraction of light pixels in a dark block for it to be taken
+     * as text rather than a solid area.
+     */
+    static final double MIN_TEXT_FRACTION = 0.02;
+
+    /**
+     * Decides whether a whole page is reverse video: both the interior and the
+     * border ring of the page must be predominantly dark. A page with dark
+     * scanner edges but a light interior is not inverted.
+     *
+     * @param gray pixel data, one byte per pixel, row by row
+     * @param w image width
+     * @param h image height
+     * @return true if the page should be inverted
+     */
+    public static boolean isInverted(byte[] gray, int w, int h) {
+        BufferedImage bi = ImageHelper.createGrayscaleImage(gray, w, h);
+        int bx = Math.max(1, (int) (w * BORDER));
+        int by = Math.max(1, (int) (h * BORDER));
+        PageStatistics interior = PageStatistics.compute(bi, new Rectangle(bx, by, w - 2 * bx, h - 2 * by), PageStatistics.DEFAULT_MAX_SAMPLES);
+        if (interior.getBackground() >= DARK) {
+            return false;
+        }
+
+        // mean luminance of the border ring
+        int samples = PageStatistics.DEFAULT_MAX_SAMPLES / 4;
+        double sum = 0;
+        int count = 0;
+        for (Rectangle side : new Rectangle[]{
+            new Rectangle(0, 0, w, by), new Rectangle(0, h - by, w, by),
+            new Rectangle(0, by, bx, h - 2 * by), new Rectangle(w - bx, by, bx, h - 2 * by)}) {
+            PageStatistics stats = PageStatistics.compute(bi, side, samples);
+            sum += stats.getMean() * stats.getSampleCount();
+            count += stats.getSampleCount();
+        }
+        return count == 0 || sum / count < DARK;
+    }
+
+    /**
+     * Finds reverse-video blocks on a page with a light background. The page
+     * is divided into a grid of cells; connected groups of dark cells form
+     * candidate blocks, whose edges are then refined on the pixels. Only
+     * blocks that contain some light pixels, i.e., text, are returned.
+     *
+     * @param gray pixel data, one byte per pixel, row by row
+     * @param w image width
+     * @param h image height
+     * @param cellSize size of the grid cells, in pixels
+     * @return the blocks to invert
+     */
+    public static List<Rectangle> findInvertedBlocks(byte[] gray, int w, int h, int cellSize) {
+        int cols = (w + cellSize - 1) / cellSize;
+        int rows = (h + cellSize - 1) / cellSize;
+
+        // mean luminance of each cell
+        long[] sums = new long[cols * rows];
+        for (int y = 0; y < h; y++) {
+            int offset = y * w;
+            int cellRow = (y / cellSize) * cols;
+            for (int x = 0; x < w; x++) {
+                sums[cellRow + x / cellSize] += gray[offset + x] & 0xFF;
+            }
+        }
+        boolean[] dark = new boolean[cols * rows];
+        for (int cy = 0; cy < rows; cy++) {
+            int cellH = Math.min(cellSize, h - cy * cellSize);
+            for (int cx = 0; cx < cols; cx++) {
+                int cellW = Math.min(cellSize, w - cx * cellSize);
+                dark[cy * cols + cx] = sums[cy * cols + cx] < (long) DARK * cellW * cellH;
+            }
+        }
+
+        // group dark cells into blocks
+        List<Rectangle> blocks = new ArrayList<Rectangle>();
+        boolean[] visited = new boolean[cols * rows];
+        int[] stack = new int[cols * rows];
+        for (int start = 0; start < dark.length; start++) {
+            if (!dark[start] || visited[start]) {
+                continue;
+            }
+            int minX = cols, minY = rows, maxX = -1, maxY = -1, size = 0;
+            int top = 0;
+            stack[top++] = start;
+            visited[start] = true;
+            while (top > 0) {
+                int cell = stack[--top];
+                int cx = cell % cols;
+                int cy = cell / cols;
+                minX = Math.min(minX, cx);
+                maxX = Math.max(maxX, cx);
+                minY = Math.min(minY, cy);
+                maxY = Math.max(maxY, cy);
+                size++;
+                int[] neighbors = {cx > 0 ? cell - 1 : -1, cx < cols - 1 ? cell + 1 : -1, cy > 0 ? cell - cols : -1, cy < rows - 1 ? cell + cols : -1};
+                for (int n : neighbors) {
+                    if (n >= 0 && dark[n] && !visited[n]) {
+                        visited[n] = true;
+                        stack[top++] = n;
+                    }
+                }
+            }
+            if (size < 2) {
+                continue; // a single cell is a blot or a heavy glyph, not a block
+            }
+            Rectangle block = refine(gray, w, h, new Rectangle(
+                    Math.max(0, (minX - 1) * cellSize), Math.max(0, (minY - 1) * cellSize),
+                    Math.min(w, (maxX + 2) * cellSize) - Math.max(0, (minX - 1) * cellSize),
+                    Math.min(h, (maxY + 2) * cellSize) - Math.max(0, (minY - 1) * cellSize)));
+            if (block != null && hasText(gray, w, block)) {
+                blocks.add(block);
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Shrinks a candidate block until each of its edges is mostly dark.
+     */
+    private static Rectangle refine(byte[] gray, int w, int h, Rectangle r) {
+        int x1 = r.x, y1 = r.y, x2 = r.x + r.width, y2 = r.y + r.height;
+        while (y1 < y2 && !isDarkRow(gray, w, y1, x1, x2)) {
+            y1++;
+        }
+        while (y2 > y1 && !isDarkRow(gray, w, y2 - 1, x1, x2)) {
+            y2--;
+        }
+        while (x1 < x2 && !isDarkColumn(gray, w, x1, y1, y2)) {
+            x1++;
+        }
+        while (x2 > x1 && !isDarkColumn(gray, w, x2 - 1, y1, y2)) {
+            x2--;
+        }
+        return (x1 < x2 && y1 < y2) ? new Rectangle(x1, y1, x2 - x1, y2 - y1) : null;
+    }
+
+    private static boolean isDarkRow(byte[] gray, int w, int y, int x1, int x2) {
+        int count = 0;
+        int offset = y * w;
+        for (int x = x1; x < x2; x++) {
+            if ((gray[offset + x] & 0xFF) < DARK) {
+                count++;
+            }
+        }
+        return count * 2 > x2 - x1;
+    }
+
+    private static boolean isDarkColumn(byte[] gray, int w, int x, int y1, int y2) {
+        int count = 0;
+        for (int y = y1; y < y2; y++) {
+            if ((gray[y * w + x] & 0xFF) < DARK) {
+                count++;
+            }
+        }
+        return count * 2 > y2 - y1;
+    }
+
+    private static boolean hasText(byte[] gray, int w, Rectangle r) {
+        int light = 0;
+        for (int y = r.y; y < r.y + r.height; y++) {
+            int offset = y * w;
+            for (int x = r.x; x < r.x + r.width; x++) {
+                if ((gray[offset + x] & 0xFF) >= DARK) {
+                    light++;
+                }
+            }
+        }
+        return light >= MIN_TEXT_FRACTION * r.width * r.height;
+    }
+}
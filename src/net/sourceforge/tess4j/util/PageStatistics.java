@@ -0,0 +1,207 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j.util;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+
+/**
+ * Luminance statistics of a page, gathered from a sparse grid of samples so
+ * that they are cheap to compute even for large images.
+ */
+public class PageStatistics {
+
+    /**
+     * Default number of samples taken from a page.
+     */
+    public static final int DEFAULT_MAX_SAMPLES = 250000;
+
+    private final int[] histogram = new int[256];
+    private int sampleCount;
+    private int step;
+
+    private PageStatistics() {
+    }
+
+    /**
+     * Computes statistics over an area of an image. Pixels are sampled on a
+     * regular grid whose spacing keeps the number of samples under
+     * <code>maxSamples</code>.
+     *
+     * @param image input image
+     * @param area the area to sample; <code>null</code> for the whole image
+     * @param maxSamples the maximum number of samples
+     * @return the statistics
+     */
+    public static PageStatistics compute(BufferedImage image, Rectangle area, int maxSamples) {
+        Rectangle bounds = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+        area = area == null ? bounds : area.intersection(bounds);
+
+        PageStatistics stats = new PageStatistics();
+        if (area.isEmpty()) {
+            return stats;
+        }
+        stats.step = Math.max(1, (int) Math.ceil(Math.sqrt((double) area.width * area.height / maxSamples)));
+        stats.sample(image, area);
+        return stats;
+    }
+
+    private void sample(BufferedImage image, Rectangle area) {
+        int x2 = area.x + area.width;
+        int y2 = area.y + area.height;
+        Raster raster = image.getRaster();
+        boolean untranslated = raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+                && raster.getDataBuffer().getOffset() == 0;
+
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY && untranslated
+                && raster.getSampleModel() instanceof ComponentSampleModel) {
+            byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+            int stride = ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride();
+            for (int y = area.y; y < y2; y += step) {
+                int row = y * stride;
+                for (int x = area.x; x < x2; x += step) {
+                    histogram[data[row + x] & 0xFF]++;
+                }
+            }
+        } else if (ImageHelper.isBinary(image) && untranslated
+                && raster.getSampleModel() instanceof MultiPixelPackedSampleModel
+                && ((MultiPixelPackedSampleModel) raster.getSampleModel()).getDataBitOffset() == 0) {
+            int black = ImageHelper.luminance(image.getColorModel().getRGB(0));
+            int white = ImageHelper.luminance(image.getColorModel().getRGB(1));
+            byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+            int stride = ((MultiPixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            int ones = 0;
+            int zeros = 0;
+            for (int y = area.y; y < y2; y += step) {
+                int row = y * stride;
+                for (int x = area.x; x < x2; x += step) {
+                    if (((data[row + (x >> 3)] >> (7 - (x & 7))) & 1) == 1) {
+                        ones++;
+                    } else {
+                        zeros++;
+                    }
+                }
+            }
+            histogram[white] += ones;
+            histogram[black] += zeros;
+        } else {
+            for (int y = area.y; y < y2; y += step) {
+                for (int x = area.x; x < x2; x += step) {
+                    histogram[ImageHelper.luminance(image.getRGB(x, y))]++;
+                }
+            }
+        }
+
+        for (int count : histogram) {
+            sampleCount += count;
+        }
+    }
+
+    /**
+     * @return the luminance histogram of the samples
+     */
+    public int[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * @return the number of samples taken
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return the spacing of the sampling grid, in pixels
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * Gets the luminance below which the given fraction of samples falls.
+     *
+     * @param fraction a fraction between 0 and 1
+     * @return the luminance percentile
+     */
+    public int getPercentile(double fraction) {
+        long target = (long) Math.ceil(fraction * sampleCount);
+        long sum = 0;
+        for (int i = 0; i < 256; i++) {
+            sum += histogram[i];
+            if (sum >= target && sum > 0) {
+                return i;
+            }
+        }
+        return 255;
+    }
+
+    /**
+     * The background luminance, taken as the median of the samples, since
+     * paper covers most of a page.
+     *
+     * @return the background luminance
+     */
+    public int getBackground() {
+        return getPercentile(0.5);
+    }
+
+    /**
+     * @return the mean luminance of the samples
+     */
+    public double getMean() {
+        if (sampleCount == 0) {
+            return 255;
+        }
+        long sum = 0;
+        for (int i = 0; i < 256; i++) {
+            sum += (long) i * histogram[i];
+        }
+        return (double) sum / sampleCount;
+    }
+
+    /**
+     * Gets the fraction of samples in a luminance range.
+     *
+     * @param from the lowest luminance, inclusive
+     * @param to the highest luminance, inclusive
+     * @return fraction of samples between 0 and 1
+     */
+    public double getDensity(int from, int to) {
+        if (sampleCount == 0) {
+            return 0;
+        }
+        long count = 0;
+        for (int i = Math.max(0, from); i <= Math.min(255, to); i++) {
+            count += histogram[i];
+        }
+        return (double) count / sampleCount;
+    }
+
+    /**
+     * Gets the fraction of samples that differ from the background by more
+     * than the given contrast, i.e., the density of ink on the page.
+     *
+     * @param contrast minimum luminance difference from the background
+     * @return fraction of samples between 0 and 1
+     */
+    public double getInkDensity(int contrast) {
+        int background = getBackground();
+        return getDensity(0, background - contrast - 1) + getDensity(background + contrast + 1, 255);
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a row range into horizontal strips and runs them on the common
+ * fork/join pool.
+ */
+class ParallelStrips {
+
+    /**
+     * Strips smaller than this are not worth handing to another thread.
+     */
+    static final int MIN_ROWS_PER_STRIP = 64;
+
+    /**
+     * A unit of work over the rows <code>[from, to)</code>.
+     */
+    interface Task {
+
+        void run(int from, int to);
+    }
+
+    /**
+     * Runs a task over <code>[0, rows)</code>.
+     *
+     * @param rows number of rows
+     * @param parallel whether strips may run concurrently
+     * @param task the task
+     */
+    static void run(int rows, boolean parallel, final Task task) {
+        int strips = parallel ? Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, rows / MIN_ROWS_PER_STRIP) : 1;
+        if (strips <= 1) {
+            task.run(0, rows);
+            return;
+        }
+
+        List<Callable<Void>> jobs = new ArrayList<Callable<Void>>(strips);
+        for (int i = 0; i < strips; i++) {
+            final int from = (int) ((long) rows * i / strips);
+            final int to = (int) ((long) rows * (i + 1) / strips);
+            jobs.add(new Callable<Void>() {
+
+                @Override
+                public Void call() {
+                    task.run(from, to);
+                    return null;
+                }
+            });
+        }
+
+        for (Future<Void> future : ForkJoinPool.commonPool().invokeAll(jobs)) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+}
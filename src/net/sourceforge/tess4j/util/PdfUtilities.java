@@ -16,6 +16,7 @@
 package net.sourceforge.tess4j.util;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.logging.*;
 import org.ghost4j.*;
@@ -26,6 +27,11 @@ public class PdfUtilities {
 
     private final static Logger logger = Logger.getLogger(PdfUtilities.class.getName());
 
+    /**
+     * Ghostscript has one interpreter per process, so its users take turns.
+     */
+    private static final Object GS_LOCK = new Object();
+
     /**
      * Converts PDF to TIFF format.
      *
@@ -34,10 +40,14 @@ public class PdfUtilities {
      * @throws IOException
      */
     public static File convertPdf2Tiff(File inputPdfFile) throws IOException {
+        File imageDir = null;
         File[] pngFiles = null;
 
         try {
-            pngFiles = convertPdf2Png(inputPdfFile);
+            // render into a directory of its own, so that conversions of PDF files
+            // in the same directory do not pick up each other's pages
+            imageDir = Files.createTempDirectory("tess4j").toFile();
+            pngFiles = convertPdf2Png(inputPdfFile, imageDir);
             File tiffFile = File.createTempFile("multipage", ".tif");
 
             // put PNG images into a single multi-page TIFF image for return
@@ -54,6 +64,9 @@ public class PdfUtilities {
                     tempFile.delete();
                 }
             }
+            if (imageDir != null) {
+                imageDir.delete();
+            }
         }
     }
 
@@ -71,6 +84,17 @@ public class PdfUtilities {
             imageDir = new File(userDir);
         }
 
+        return convertPdf2Png(inputPdfFile, imageDir);
+    }
+
+    /**
+     * Converts PDF to PNG format.
+     *
+     * @param inputPdfFile
+     * @param imageDir directory to write the images to
+     * @return an array of PNG images
+     */
+    private static File[] convertPdf2Png(File inputPdfFile, File imageDir) {
         //get Ghostscript instance
         Ghostscript gs = Ghostscript.getInstance();
 
@@ -89,21 +113,24 @@ public class PdfUtilities {
         gsArgs.add(inputPdfFile.getPath());
 
         //execute and exit interpreter
-        try {
-            gs.initialize(gsArgs.toArray(new String[0]));
-            gs.exit();
-        } catch (GhostscriptException e) {
-            logger.log(Level.SEVERE, e.getMessage(), e);
-        }
+        File[] workingFiles;
+        synchronized (GS_LOCK) {
+            try {
+                gs.initialize(gsArgs.toArray(new String[0]));
+                gs.exit();
+            } catch (GhostscriptException e) {
+                logger.log(Level.SEVERE, e.getMessage(), e);
+            }
 
-        // find working files
-        File[] workingFiles = imageDir.listFiles(new FilenameFilter() {
+            // find working files
+            workingFiles = imageDir.listFiles(new FilenameFilter() {
 
-            @Override
-            public boolean accept(File dir, String name) {
-                return name.toLowerCase().matches("workingimage\\d{3}\\.png$");
-            }
-        });
+                @Override
+                public boolean accept(File dir, String name) {
+                    return name.toLowerCase().matches("workingimage\\d{3}\\.png$");
+                }
+            });
+        }
 
         Arrays.sort(workingFiles, new Comparator<File>() {
             @Override
@@ -149,16 +176,18 @@ public class PdfUtilities {
         gsArgs.add(inputPdfFile);
 
         //execute and exit interpreter
-        try {
-            gs.initialize(gsArgs.toArray(new String[0]));
-            gs.exit();
-        } catch (GhostscriptException e) {
-            logger.log(Level.SEVERE, e.getMessage(), e);
-            throw new RuntimeException(e.getMessage());
-        } catch (UnsatisfiedLinkError ule) {
-            throw new RuntimeException(getMessage(ule.getMessage()));
-        } catch (NoClassDefFoundError ncdfe) {
-            throw new RuntimeException(getMessage(ncdfe.getMessage()));
+        synchronized (GS_LOCK) {
+            try {
+                gs.initialize(gsArgs.toArray(new String[0]));
+                gs.exit();
+            } catch (GhostscriptException e) {
+                logger.log(Level.SEVERE, e.getMessage(), e);
+                throw new RuntimeException(e.getMessage());
+            } catch (UnsatisfiedLinkError ule) {
+                throw new RuntimeException(getMessage(ule.getMessage()));
+            } catch (NoClassDefFoundError ncdfe) {
+                throw new RuntimeException(getMessage(ncdfe.getMessage()));
+            }
         }
     }
 
@@ -189,17 +218,19 @@ public class PdfUtilities {
         ByteArrayOutputStream os;
 
         //execute and exit interpreter
-        try {
-            //output
-            os = new ByteArrayOutputStream();
-            gs.setStdOut(os);
-            gs.initialize(gsArgs.toArray(new String[0]));
-            pageCount = Integer.parseInt(os.toString().replace("%%Pages: ", ""));
-            os.close();
-        } catch (GhostscriptException e) {
-            logger.log(Level.SEVERE, e.getMessage(), e);
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, e.getMessage(), e);
+        synchronized (GS_LOCK) {
+            try {
+                //output
+                os = new ByteArrayOutputStream();
+                gs.setStdOut(os);
+                gs.initialize(gsArgs.toArray(new String[0]));
+                pageCount = Integer.parseInt(os.toString().replace("%%Pages: ", ""));
+                os.close();
+            } catch (GhostscriptException e) {
+                logger.log(Level.SEVERE, e.getMessage(), e);
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, e.getMessage(), e);
+            }
         }
 
         return pageCount;
@@ -252,16 +283,18 @@ public class PdfUtilities {
         }
 
         //execute and exit interpreter
-        try {
-            gs.initialize(gsArgs.toArray(new String[0]));
-            gs.exit();
-        } catch (GhostscriptException e) {
-            logger.log(Level.SEVERE, e.getMessage(), e);
-            throw new RuntimeException(e.getMessage());
-        } catch (UnsatisfiedLinkError ule) {
-            throw new RuntimeException(getMessage(ule.getMessage()));
-        } catch (NoClassDefFoundError ncdfe) {
-            throw new RuntimeException(getMessage(ncdfe.getMessage()));
+        synchronized (GS_LOCK) {
+            try {
+                gs.initialize(gsArgs.toArray(new String[0]));
+                gs.exit();
+            } catch (GhostscriptException e) {
+                logger.log(Level.SEVERE, e.getMessage(), e);
+                throw new RuntimeException(e.getMessage());
+            } catch (UnsatisfiedLinkError ule) {
+                throw new RuntimeException(getMessage(ule.getMessage()));
+            } catch (NoClassDefFoundError ncdfe) {
+                throw new RuntimeException(getMessage(ncdfe.getMessage()));
+            }
         }
     }
 
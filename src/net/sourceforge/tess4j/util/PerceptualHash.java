@@ -0,0 +1,129 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Perceptual hashes of page images. Unlike a content hash, a perceptual hash
+ * changes little when a page is scanned again: pages that look alike have
+ * hashes that differ in few bits.
+ * <br>
+ * The hash is computed from the low frequencies of the discrete cosine
+ * transform of the page reduced to 32x32 grayscale. Each of the 64 lowest
+ * frequency coefficients contributes one bit, set if the coefficient is above
+ * the median.
+ */
+public class PerceptualHash {
+
+    static final int SIZE = 32;
+    static final int LOW = 8;
+
+    /**
+     * DCT-II basis, <code>COS[u][x] = cos((2x + 1) u pi / 2N)</code>, for the
+     * low frequencies only.
+     */
+    private static final double[][] COS = new double[LOW][SIZE];
+
+    static {
+        for (int u = 0; u < LOW; u++) {
+            for (int x = 0; x < SIZE; x++) {
+                COS[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * SIZE));
+            }
+        }
+    }
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * Computes the perceptual hash of an image.
+     *
+     * @param image the image
+     * @return the hash
+     */
+    public static long hash(RenderedImage image) {
+        BufferedImage bi;
+        if (image instanceof BufferedImage) {
+            bi = (BufferedImage) image;
+        } else {
+            ColorModel cm = image.getColorModel();
+            WritableRaster raster = cm.createCompatibleWritableRaster(image.getWidth(), image.getHeight());
+            image.copyData(raster);
+            bi = new BufferedImage(cm, raster, cm.isAlphaPremultiplied(), null);
+        }
+
+        BufferedImage small = ImageHelper.getScaledGrayscaleInstance(bi, SIZE, SIZE, false);
+        byte[] pixels = ((DataBufferByte) small.getRaster().getDataBuffer()).getData();
+        return hash(pixels);
+    }
+
+    /**
+     * Computes the hash of a 32x32 grayscale image.
+     *
+     * @param pixels the pixels, one byte per pixel, row by row
+     * @return the hash
+     */
+    static long hash(byte[] pixels) {
+        // separable transform: rows first, then columns, low frequencies only
+        double[][] rows = new double[SIZE][LOW];
+        for (int y = 0; y < SIZE; y++) {
+            for (int u = 0; u < LOW; u++) {
+                double sum = 0;
+                for (int x = 0; x < SIZE; x++) {
+                    sum += (pixels[y * SIZE + x] & 0xFF) * COS[u][x];
+                }
+                rows[y][u] = sum;
+            }
+        }
+
+        double[] coefficients = new double[LOW * LOW];
+        for (int v = 0; v < LOW; v++) {
+            for (int u = 0; u < LOW; u++) {
+                double sum = 0;
+                for (int y = 0; y < SIZE; y++) {
+                    sum += rows[y][u] * COS[v][y];
+                }
+                coefficients[v * LOW + u] = sum;
+            }
+        }
+
+        // the DC term only reflects overall brightness and is left out of the median
+        double[] sorted = Arrays.copyOfRange(coefficients, 1, coefficients.length);
+        Arrays.sort(sorted);
+        double median = (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+
+        long hash = 0;
+        for (int i = 0; i < coefficients.length; i++) {
+            if (coefficients[i] > median) {
+                hash |= 1L << i;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @param a a hash
+     * @param b another hash
+     * @return the number of bits that differ, from 0 to 64
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
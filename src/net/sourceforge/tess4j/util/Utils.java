@@ -15,9 +15,12 @@
  */
 package net.sourceforge.tess4j.util;
 
+import com.sun.jna.Pointer;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 
@@ -48,6 +51,45 @@ public class Utils {
         }
     }
 
+    /**
+     * Size of the chunks written by {@link #writeFile(Pointer, long, File)}.
+     */
+    static final int CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Writes native memory to file. The memory is written in chunks through
+     * direct buffers that view it in place, without copying it to the Java
+     * heap.
+     *
+     * @param data start of the native memory
+     * @param length number of bytes to write
+     * @param outFile output file
+     * @throws IOException
+     */
+    public static void writeFile(Pointer data, long length, File outFile) throws IOException {
+        FileOutputStream fos = null;
+
+        try {
+            // create parent dirs when necessary
+            if (outFile.getParentFile() != null) {
+                outFile.getParentFile().mkdirs();
+            }
+
+            fos = new FileOutputStream(outFile);
+            FileChannel channel = fos.getChannel();
+            for (long offset = 0; offset < length; offset += CHUNK_SIZE) {
+                ByteBuffer chunk = data.getByteBuffer(offset, Math.min(CHUNK_SIZE, length - offset));
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+            }
+        } finally {
+            if (fos != null) {
+                fos.close();
+            }
+        }
+    }
+
     /**
      * Gets user-friendly name of the public static final constant defined in a
      * class or an interface for display purpose.
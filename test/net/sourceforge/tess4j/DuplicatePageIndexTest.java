@@ -0,0 +1,155 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+
+import net.sourceforge.tess4j.util.ImageHash;
+import net.sourceforge.tess4j.util.ImageHelper;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+import net.sourceforge.tess4j.util.PerceptualHash;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DuplicatePageIndexTest {
+
+    public DuplicatePageIndexTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of hash method, of class PerceptualHash, on a rescaled and noisy
+     * copy of a page.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testPerceptualHash() throws Exception {
+        System.out.println("perceptual hash");
+        List<Long> fingerprints = new ArrayList<Long>();
+        List<IIOImage> pages = ImageIOHelper.getIIOImageList(new File("eurotext.png"), fingerprints);
+        BufferedImage page = (BufferedImage) pages.get(0).getRenderedImage();
+        long hash = PerceptualHash.hash(page);
+        assertEquals(hash, (long) fingerprints.get(0));
+
+        BufferedImage rescan = ImageHelper.getScaledGrayscaleInstance(page, page.getWidth() * 3 / 4, page.getHeight() * 3 / 4, false);
+        Random random = new Random(1);
+        for (int i = 0; i < 2000; i++) {
+            rescan.getRaster().setSample(random.nextInt(rescan.getWidth()), random.nextInt(rescan.getHeight()), 0, 0);
+        }
+        assertTrue(PerceptualHash.distance(hash, PerceptualHash.hash(rescan)) <= 6);
+
+        BufferedImage other = ImageIO.read(new File("eurotext_deskew.png"));
+        assertTrue(PerceptualHash.distance(hash, PerceptualHash.hash(other)) > 6);
+    }
+
+    /**
+     * Test of find method, of class DuplicatePageIndex.
+     */
+    @Test
+    public void testFind() {
+        System.out.println("find");
+        DuplicatePageIndex index = new DuplicatePageIndex();
+        index.setMaxDistance(3);
+        Random random = new Random(7);
+        long[] hashes = new long[2000];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = random.nextLong();
+            index.add(hashes[i], i, 1, "page " + i, "text " + i);
+        }
+        assertEquals(hashes.length, index.getSize());
+
+        long query = hashes[1234] ^ (1L << 5) ^ (1L << 40);
+        DuplicatePageIndex.Page page = index.find(query, 1);
+        assertNotNull(page);
+        assertEquals("page 1234", page.getSource());
+        assertEquals("text 1234", page.getText());
+        assertNull(index.find(query, 2));
+        assertNull(index.find(hashes[1234] ^ 0xFL, 1));
+        assertEquals(3, index.getLookupCount());
+        assertEquals(1, index.getDuplicateCount());
+    }
+
+    /**
+     * Test of find method, of class DuplicatePageIndex, on two forms of the
+     * same template that differ in one field.
+     */
+    @Test
+    public void testSameTemplate() {
+        System.out.println("same template");
+        BufferedImage first = drawForm("INV-1042");
+        BufferedImage second = drawForm("INV-7391");
+        long firstHash = PerceptualHash.hash(first);
+        long secondHash = PerceptualHash.hash(second);
+
+        DuplicatePageIndex index = new DuplicatePageIndex();
+        assertFalse(index.isReuseResults());
+        index.add(firstHash, ImageHash.hashPixels(first), 1, "forms.tif#1", "Invoice INV-1042");
+        DuplicatePageIndex.Page page = index.find(secondHash, 1);
+        // the perceptual hash cannot tell the forms apart
+        assertNotNull(page);
+        assertEquals("forms.tif#1", page.getSource());
+        // the exact hash can, so the text of the first form is not reused
+        assertTrue(ImageHash.hashPixels(second) != page.getContentHash());
+        assertEquals(ImageHash.hashPixels(drawForm("INV-1042")), page.getContentHash());
+    }
+
+    private static BufferedImage drawForm(String number) {
+        BufferedImage image = new BufferedImage(1275, 1650, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setColor(Color.BLACK);
+        g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 48));
+        g.drawString("INVOICE", 100, 160);
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 24));
+        g.drawString("Invoice number:", 100, 260);
+        g.drawString(number, 320, 260);
+        for (int row = 0; row < 20; row++) {
+            g.drawRect(100, 360 + row * 50, 1075, 50);
+            g.drawString("Item " + (row + 1), 120, 395 + row * 50);
+        }
+        g.dispose();
+        return image;
+    }
+}
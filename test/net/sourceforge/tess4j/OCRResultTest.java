@@ -0,0 +1,209 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import java.util.List;
+
+import net.sourceforge.tess4j.ITessAPI.TessPageIteratorLevel;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class OCRResultTest {
+
+    public OCRResultTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Adds a text line of words, as the result walker does.
+     */
+    static void addLine(OCRResult result, int top, String... words) {
+        int x = 100;
+        result.add(TessPageIteratorLevel.RIL_TEXTLINE, x, top, x + 60 * words.length, top + 30, 90);
+        for (String word : words) {
+            result.add(TessPageIteratorLevel.RIL_WORD, x, top, x + 50, top + 30, 80 + word.length());
+            result.appendText(word);
+            x += 60;
+        }
+    }
+
+    /**
+     * Builds a result of two pages: two paragraphs of two lines, and an empty
+     * page.
+     */
+    static OCRResult createResult() {
+        OCRResult result = new OCRResult(TessPageIteratorLevel.RIL_WORD);
+        result.startPage(1000, 800);
+        result.add(TessPageIteratorLevel.RIL_BLOCK, 100, 100, 400, 400, 85);
+        result.add(TessPageIteratorLevel.RIL_PARA, 100, 100, 400, 200, 85);
+        addLine(result, 100, "The", "quick");
+        addLine(result, 150, "brown", "fox");
+        result.add(TessPageIteratorLevel.RIL_PARA, 100, 300, 400, 400, 85);
+        addLine(result, 300, "jumps!");
+        result.startPage(1000, 800);
+        result.trim();
+        return result;
+    }
+
+    /**
+     * Test of the accessors, of class OCRResult.
+     */
+    @Test
+    public void testAccessors() {
+        System.out.println("OCRResult accessors");
+        OCRResult result = createResult();
+        assertEquals(2, result.getPageCount());
+        assertEquals(1, result.getCount(TessPageIteratorLevel.RIL_BLOCK));
+        assertEquals(3, result.getCount(TessPageIteratorLevel.RIL_TEXTLINE));
+        assertEquals(5, result.getCount(TessPageIteratorLevel.RIL_WORD));
+        assertEquals("fox", result.getText(TessPageIteratorLevel.RIL_WORD, 3));
+        assertEquals(83, result.getConfidence(TessPageIteratorLevel.RIL_WORD, 3), 0);
+        assertEquals(new Rectangle(160, 150, 50, 30), result.getBounds(TessPageIteratorLevel.RIL_WORD, 3));
+        assertEquals(1, result.getParent(TessPageIteratorLevel.RIL_WORD, 3));
+        assertEquals(0, result.getAncestor(TessPageIteratorLevel.RIL_WORD, 3, TessPageIteratorLevel.RIL_PARA));
+        assertEquals(1, result.getAncestor(TessPageIteratorLevel.RIL_WORD, 4, TessPageIteratorLevel.RIL_PARA));
+        assertEquals(0, result.getAncestor(TessPageIteratorLevel.RIL_WORD, 4, OCRResult.PAGE));
+
+        assertEquals("brown fox", result.getText(TessPageIteratorLevel.RIL_TEXTLINE, 1));
+        assertEquals("The quick\nbrown fox", result.getText(TessPageIteratorLevel.RIL_PARA, 0));
+        assertEquals("The quick\nbrown fox\njumps!", result.getText(OCRResult.PAGE, 0));
+        assertEquals("", result.getText(OCRResult.PAGE, 1));
+        assertEquals("Thequickbrownfoxjumps!".length(), result.getChars().length());
+        assertEquals("Thequickbrownfoxjumps!", result.getChars().toString());
+
+        assertEquals(0, result.getFirstIndex(0, TessPageIteratorLevel.RIL_WORD));
+        assertEquals(5, result.getFirstIndex(1, TessPageIteratorLevel.RIL_WORD));
+
+        List<Word> words = result.getWords(TessPageIteratorLevel.RIL_WORD);
+        assertEquals("jumps!", words.get(4).getText());
+    }
+
+    /**
+     * Test of toOriginalCoordinates method, of class OCRResult.
+     */
+    @Test
+    public void testToOriginalCoordinates() {
+        System.out.println("toOriginalCoordinates");
+        OCRResult result = new OCRResult(TessPageIteratorLevel.RIL_WORD);
+        result.startPage(500, 400);
+        result.add(TessPageIteratorLevel.RIL_BLOCK, 50, 50, 200, 200, 85);
+        result.add(TessPageIteratorLevel.RIL_PARA, 50, 50, 200, 200, 85);
+        addLine(result, 50, "The");
+        PageReport report = new PageReport(1);
+        report.setOriginalSize(1000, 800);
+        report.setScaledSize(500, 400);
+        result.toOriginalCoordinates(report);
+        assertEquals(new Rectangle(0, 0, 1000, 800), result.getBounds(OCRResult.PAGE, 0));
+        assertEquals(new Rectangle(200, 100, 100, 60), result.getBounds(TessPageIteratorLevel.RIL_WORD, 0));
+    }
+
+    /**
+     * Test of getWordConfidences method, of class OCRResult.
+     */
+    @Test
+    public void testGetWordConfidences() {
+        System.out.println("getWordConfidences");
+        OCRResult result = new OCRResult(TessPageIteratorLevel.RIL_WORD, OCRResult.WORD_CONFIDENCES);
+        result.startPage(100, 100);
+        result.setPageConfidence(85);
+        result.setWordConfidences(new int[]{90, 80});
+        result.startPage(100, 100);
+        result.startPage(100, 100);
+        result.setPageConfidence(70);
+        result.setWordConfidences(new int[]{70, 60, 80});
+        result.trim();
+        assertEquals(0, result.getCount(TessPageIteratorLevel.RIL_WORD));
+        assertEquals(85, result.getConfidence(OCRResult.PAGE, 0), 0);
+        assertEquals(-1, result.getConfidence(OCRResult.PAGE, 1), 0);
+        assertArrayEquals(new int[]{90, 80}, result.getWordConfidences(0));
+        assertArrayEquals(new int[0], result.getWordConfidences(1));
+        assertArrayEquals(new int[]{70, 60, 80}, result.getWordConfidences(2));
+    }
+
+    /**
+     * Test of appendUTF8 method, of class OCRResult.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testAppendUTF8() throws Exception {
+        System.out.println("appendUTF8");
+        String[] words = {" fox\n", "Gr\u00fc\u00dfe", "\u20ac43", "\ud835\udc00", ""};
+        OCRResult result = new OCRResult(TessPageIteratorLevel.RIL_WORD);
+        result.startPage(100, 100);
+        result.add(TessPageIteratorLevel.RIL_BLOCK, 0, 0, 100, 100, 90);
+        result.add(TessPageIteratorLevel.RIL_PARA, 0, 0, 100, 100, 90);
+        result.add(TessPageIteratorLevel.RIL_TEXTLINE, 0, 0, 100, 100, 90);
+        for (String word : words) {
+            byte[] bytes = ("xx" + word + "x").getBytes("UTF-8");
+            result.add(TessPageIteratorLevel.RIL_WORD, 0, 0, 10, 10, 90);
+            result.appendUTF8(bytes, 2, bytes.length - 3);
+        }
+        for (int i = 0; i < words.length; i++) {
+            assertEquals(words[i].trim(), result.getText(TessPageIteratorLevel.RIL_WORD, i));
+        }
+
+        // a truncated sequence
+        result.add(TessPageIteratorLevel.RIL_WORD, 0, 0, 10, 10, 90);
+        result.appendUTF8(new byte[]{'a', (byte) 0xE2, (byte) 0x82}, 0, 3);
+        assertEquals("a\uFFFD", result.getText(TessPageIteratorLevel.RIL_WORD, words.length));
+    }
+
+    /**
+     * Test of the footprint of a large result, of class OCRResult.
+     */
+    @Test
+    public void testLargeResult() {
+        System.out.println("OCRResult with 100k words");
+        OCRResult result = new OCRResult(TessPageIteratorLevel.RIL_WORD);
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        for (int page = 0; page < 250; page++) {
+            result.startPage(2480, 3508);
+            result.add(TessPageIteratorLevel.RIL_BLOCK, 0, 0, 2480, 3508, 90);
+            result.add(TessPageIteratorLevel.RIL_PARA, 0, 0, 2480, 3508, 90);
+            for (int line = 0; line < 40; line++) {
+                addLine(result, line * 80, "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "sed", "do");
+            }
+        }
+        result.trim();
+        System.gc();
+        long used = runtime.totalMemory() - runtime.freeMemory() - before;
+        assertEquals(100000, result.getCount(TessPageIteratorLevel.RIL_WORD));
+        System.out.println(String.format("About %d bytes per word", used / 100000));
+        assertEquals("lorem ipsum dolor sit amet consectetur adipiscing elit sed do", result.getText(TessPageIteratorLevel.RIL_TEXTLINE, 9999));
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import java.awt.geom.Line2D;
+
+import net.sourceforge.tess4j.ITessAPI.TessPolyBlockType;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PageLayoutTest {
+
+    public PageLayoutTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Builds a layout of an image block and a text block with one paragraph
+     * of many lines, more than the initial capacity.
+     */
+    static PageLayout createLayout() {
+        PageLayout layout = new PageLayout();
+        layout.addBlock(new int[]{0, 0, 400, 300}, TessPolyBlockType.PT_FLOWING_IMAGE);
+        layout.addParagraph(new int[]{0, 0, 400, 300});
+        layout.addLine(new int[]{0, 0, 400, 300});
+        layout.addBlock(new int[]{500, 0, 1000, 2000}, TessPolyBlockType.PT_FLOWING_TEXT);
+        layout.addParagraph(new int[]{500, 0, 1000, 2000});
+        for (int i = 0; i < 50; i++) {
+            int line = layout.addLine(new int[]{500, i * 40, 1000, i * 40 + 30});
+            layout.setLineBaseline(line, new int[]{500, i * 40 + 24, 1000, i * 40 + 24});
+        }
+        return layout;
+    }
+
+    /**
+     * Test of the accessors, of class PageLayout.
+     */
+    @Test
+    public void testAccessors() {
+        System.out.println("PageLayout accessors");
+        PageLayout layout = createLayout();
+        assertEquals(2, layout.getBlockCount());
+        assertEquals(2, layout.getParagraphCount());
+        assertEquals(51, layout.getLineCount());
+        assertFalse(layout.isTextBlock(0));
+        assertTrue(layout.isTextBlock(1));
+        assertEquals(new Rectangle(500, 0, 500, 2000), layout.getBlockBounds(1));
+        assertEquals(1, layout.getParagraphBlock(1));
+        assertEquals(1, layout.getLineParagraph(50));
+        assertEquals(new Rectangle(500, 1960, 500, 30), layout.getLineBounds(50));
+        assertNull(layout.getLineBaseline(0));
+        Line2D baseline = layout.getLineBaseline(50);
+        assertEquals(1984, baseline.getY1(), 0);
+        assertEquals(1000, baseline.getX2(), 0);
+    }
+
+    /**
+     * Test of toOriginalCoordinates method, of class PageLayout.
+     */
+    @Test
+    public void testToOriginalCoordinates() {
+        System.out.println("toOriginalCoordinates");
+        PageLayout layout = createLayout();
+        PageReport report = new PageReport(1);
+        report.setOriginalSize(2000, 4000);
+        report.setScaledSize(1000, 2000);
+        layout.toOriginalCoordinates(report);
+        assertEquals(new Rectangle(1000, 0, 1000, 4000), layout.getBlockBounds(1));
+        assertEquals(new Rectangle(1000, 3920, 1000, 60), layout.getLineBounds(50));
+        assertEquals(3968, layout.getLineBaseline(50).getY1(), 0);
+    }
+}
@@ -0,0 +1,337 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+
+import net.sourceforge.tess4j.util.ImageHelper;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PagePreprocessorTest {
+
+    PagePreprocessor instance;
+
+    public PagePreprocessorTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+        instance = new PagePreprocessor();
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of process method with all stages disabled, of class
+     * PagePreprocessor.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testProcess_Disabled() throws Exception {
+        System.out.println("process with all stages disabled");
+        IIOImage oimage = ImageIOHelper.getIIOImageList(new File("eurotext.png")).get(0);
+        PageReport report = new PageReport(1);
+        RenderedImage result = instance.process(oimage, report);
+        assertSame(oimage.getRenderedImage(), result);
+        assertFalse(report.isRescaled());
+        assertEquals(0, report.getEffectiveDpi());
+    }
+
+    /**
+     * Creates a white page with a few dark specks.
+     */
+    static BufferedImage createBlankPage(int width, int height) {
+        BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2 = bi.createGraphics();
+        g2.setColor(Color.WHITE);
+        g2.fillRect(0, 0, width, height);
+        g2.setColor(Color.BLACK);
+        g2.fillRect(0, 0, width, 20); // scanner edge, inside the ignored margin
+        g2.fillRect(width / 3, height / 2, 2, 2);
+        g2.fillRect(width / 2, height / 3, 2, 2);
+        g2.dispose();
+        return bi;
+    }
+
+    /**
+     * Test of blank page detection, of class PagePreprocessor.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testProcess_BlankPage() throws Exception {
+        System.out.println("process with blank page detection");
+        instance.setBlankPageDetection(true);
+        OCRMetrics metrics = new OCRMetrics();
+
+        PageReport report = new PageReport(1);
+        RenderedImage result = instance.process(new IIOImage(createBlankPage(2480, 3508), null, null), report);
+        metrics.addPage(report);
+        System.out.println(report);
+        assertNull(result);
+        assertTrue(report.isBlank());
+
+        report = new PageReport(2);
+        result = instance.process(ImageIOHelper.getIIOImageList(new File("eurotext.png")).get(0), report);
+        metrics.addPage(report);
+        System.out.println(report);
+        assertNotNull(result);
+        assertFalse(report.isBlank());
+
+        System.out.println(metrics);
+        assertEquals(2, metrics.getPageCount());
+        assertEquals(1, metrics.getBlankPageCount());
+    }
+
+    /**
+     * Test of content area detection, of class PagePreprocessor.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testProcess_CropDetection() throws Exception {
+        System.out.println("process with content area detection");
+        BufferedImage bi = createBlankPage(1000, 1400);
+        Graphics2D g2 = bi.createGraphics();
+        g2.setColor(Color.BLACK);
+        g2.fillRect(0, 0, 40, 1400); // dark scanner border
+        for (int y = 300; y < 900; y += 30) {
+            g2.fillRect(200, y, 500, 10); // lines of text
+        }
+        g2.dispose();
+
+        instance.setCropDetection(true);
+        PageReport report = new PageReport(1);
+        instance.process(new IIOImage(bi, null, null), report);
+        System.out.println(report);
+        Rectangle cropBox = report.getCropBox();
+        assertNotNull(cropBox);
+        int padding = 14;
+        assertEquals(new Rectangle(200 - padding, 300 - padding, 500 + 2 * padding, 580 + 2 * padding), cropBox);
+
+        // a region of interest is restricted to the content area
+        assertEquals(new Rectangle(186, 286, 314, 608), report.getRecognitionRegion(new Rectangle(0, 0, 500, 1400)));
+        assertEquals(cropBox, report.getRecognitionRegion(null));
+    }
+
+    /**
+     * Test of inversion of a reverse-video page, of class PagePreprocessor.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testProcess_InvertedPage() throws Exception {
+        System.out.println("process with inversion detection");
+        BufferedImage original = ImageHelper.convertImageToGrayscale(ImageIO.read(new File("eurotext.png")));
+        BufferedImage inverted = ImageHelper.invertImageColorInPlace(ImageHelper.cloneImage(original));
+        instance.setInversionDetection(true);
+        OCRMetrics metrics = new OCRMetrics();
+
+        PageReport report = new PageReport(1);
+        RenderedImage result = instance.process(new IIOImage(inverted, null, null), report);
+        metrics.addPage(report);
+        System.out.println(report);
+        assertTrue(report.isInverted());
+        assertArrayEquals(ImageHelper.getGrayscaleBytes(original), ImageHelper.getGrayscaleBytes((BufferedImage) result));
+
+        // a normal page is left alone, and so is the caller's image
+        report = new PageReport(2);
+        byte[] before = ImageHelper.getGrayscaleBytes(original).clone();
+        result = instance.process(new IIOImage(original, null, null), report);
+        metrics.addPage(report);
+        assertFalse(report.isInverted());
+        assertArrayEquals(before, ImageHelper.getGrayscaleBytes(original));
+        assertArrayEquals(before, ImageHelper.getGrayscaleBytes((BufferedImage) result));
+
+        System.out.println(metrics);
+        assertEquals(1, metrics.getInvertedPageCount());
+    }
+
+    /**
+     * Test of inversion of reverse-video blocks, of class PagePreprocessor.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testProcess_InvertedBlocks() throws Exception {
+        System.out.println("process with block inversion detection");
+        BufferedImage bi = createBlankPage(1000, 1400);
+        Graphics2D g2 = bi.createGraphics();
+        g2.setColor(Color.BLACK);
+        for (int y = 600; y < 900; y += 30) {
+            g2.fillRect(200, y, 500, 10); // lines of text
+        }
+        g2.fillRect(100, 200, 800, 160); // dark heading band
+        g2.setColor(Color.WHITE);
+        for (int x = 150; x < 850; x += 40) {
+            g2.fillRect(x, 250, 20, 60); // light letters on the band
+        }
+        g2.dispose();
+
+        instance.setInversionDetection(true);
+        instance.setBlockInversionDetection(true);
+        PageReport report = new PageReport(1);
+        RenderedImage result = instance.process(new IIOImage(bi, null, null), report);
+        System.out.println(report);
+        assertFalse(report.isInverted());
+        assertEquals(1, report.getInvertedBlocks().size());
+        assertEquals(new Rectangle(100, 200, 800, 160), report.getInvertedBlocks().get(0));
+
+        byte[] data = ImageHelper.getGrayscaleBytes((BufferedImage) result);
+        assertEquals((byte) 255, data[210 * 1000 + 110]); // band is now light
+        assertEquals(0, data[260 * 1000 + 160]); // letters are now dark
+        assertEquals(0, data[600 * 1000 + 200]); // text outside the band is unchanged
+    }
+
+    /**
+     * Adds salt-and-pepper noise and a rule line to a page, as on a poor
+     * fax or photocopy.
+     */
+    static BufferedImage addNoise(BufferedImage image, int speckles) {
+        BufferedImage bi = ImageHelper.convertImageToGrayscale(image);
+        Graphics2D g2 = bi.createGraphics();
+        g2.setColor(Color.BLACK);
+        g2.fillRect(10, bi.getHeight() - 40, bi.getWidth() - 20, 3);
+        Random random = new Random(11);
+        for (int i = 0; i < speckles; i++) {
+            g2.fillRect(random.nextInt(bi.getWidth()), random.nextInt(bi.getHeight()), 1 + random.nextInt(2), 1 + random.nextInt(2));
+        }
+        g2.dispose();
+        return bi;
+    }
+
+    /**
+     * Test of despeckling and rule line removal, of class PagePreprocessor.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testProcess_Despeckle() throws Exception {
+        System.out.println("process with despeckling");
+        BufferedImage original = ImageHelper.convertImageToGrayscale(ImageIO.read(new File("eurotext.png")));
+        BufferedImage noisy = addNoise(original, 3000);
+        instance.setDespeckle(true);
+        instance.setRuleLineRemoval(true);
+        instance.setParallel(true);
+        OCRMetrics metrics = new OCRMetrics();
+
+        PageReport report = new PageReport(1);
+        RenderedImage result = instance.process(new IIOImage(noisy, null, null), report);
+        metrics.addPage(report);
+        System.out.println(report);
+        System.out.println(metrics);
+        assertTrue(report.getRemovedSpeckles() > 2000);
+        assertEquals(3, report.getRemovedRuleLines());
+
+        // what is left differs from the clean page in a few pixels only
+        byte[] expected = ImageHelper.getGrayscaleBytes(original);
+        byte[] data = ImageHelper.getGrayscaleBytes((BufferedImage) result);
+        int diff = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (Math.abs((data[i] & 0xFF) - (expected[i] & 0xFF)) > 128) {
+                diff++;
+            }
+        }
+        System.out.println(String.format("%d of %d pixels differ from the clean page", diff, data.length));
+        assertTrue(diff < data.length / 1000);
+    }
+
+    /**
+     * Test of resolution normalization, of class PagePreprocessor.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testProcess_TargetDpi() throws Exception {
+        System.out.println("process with resolution normalization");
+        IIOImage oimage = ImageIOHelper.getIIOImageList(new File("eurotext.png")).get(0);
+
+        // 300 DPI is within tolerance of the target
+        instance.setTargetDpi(300);
+        PageReport report = new PageReport(1);
+        RenderedImage result = instance.process(oimage, report);
+        System.out.println(report);
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, ((BufferedImage) result).getType());
+        assertFalse(report.isRescaled());
+        assertEquals(300, report.getEffectiveDpi());
+
+        // reduce to 150 DPI
+        instance.setTargetDpi(150);
+        report = new PageReport(1);
+        result = instance.process(oimage, report);
+        System.out.println(report);
+        assertTrue(report.isRescaled());
+        assertEquals(512, result.getWidth());
+        assertEquals(400, result.getHeight());
+        assertEquals(150, report.getEffectiveDpi());
+        assertEquals(1024 * 800 / 1e6 - 512 * 400 / 1e6, report.getSavedMegapixels(), 1e-9);
+        assertEquals(new Rectangle(50, 25, 100, 50), report.toProcessedCoordinates(new Rectangle(100, 50, 200, 100)));
+        assertEquals(new Rectangle(100, 50, 200, 100), report.toOriginalCoordinates(new Rectangle(50, 25, 100, 50)));
+    }
+
+    /**
+     * Test of resolution normalization on a low resolution fax, of class
+     * PagePreprocessor.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testProcess_Enlarge() throws Exception {
+        System.out.println("process with enlargement to target resolution");
+        List<IIOImage> imageList = ImageIOHelper.getIIOImageList(new File("test.TIF"));
+        instance.setTargetDpi(300);
+        instance.setParallel(true);
+        OCRMetrics metrics = new OCRMetrics();
+
+        for (int i = 0; i < imageList.size(); i++) {
+            PageReport report = new PageReport(i + 1);
+            RenderedImage result = instance.process(imageList.get(i), report);
+            metrics.addPage(report);
+            System.out.println(report);
+            assertEquals(report.getOriginalWidth() * 3 / 2, result.getWidth());
+            assertEquals(300, report.getEffectiveDpi());
+        }
+
+        System.out.println(metrics);
+        assertEquals(imageList.size(), metrics.getRescaledPageCount());
+        assertTrue(metrics.getSavedMegapixels() < 0);
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PageSlabTest {
+
+    public PageSlabTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of allocate and free methods, of class PageSlab.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testAllocate() throws Exception {
+        System.out.println("allocate");
+        PageSlab slab = new PageSlab(1000);
+        try {
+            assertEquals(960, slab.getCapacity());
+            int a = slab.allocate(100);
+            int b = slab.allocate(300);
+            int c = slab.allocate(500);
+            assertEquals(0, a);
+            assertEquals(128, b);
+            assertEquals(448, c);
+            assertEquals(-1, slab.allocate(2000));
+
+            // freed neighbors merge into one block
+            slab.free(a, 100);
+            slab.free(c, 500);
+            slab.free(b, 300);
+            assertEquals(960, slab.getFreeBytes());
+            assertEquals(0, slab.allocate(960));
+            slab.free(0, 960);
+
+            // what the pool writes, a worker reads from its own mapping
+            int offset = slab.allocate(3);
+            slab.getRegion(offset, 3).put(new byte[]{1, 2, 3});
+            ByteBuffer region = PageSlab.slice(PageSlab.map(slab.getFile()), offset, 3);
+            assertTrue(region.isDirect());
+            assertEquals(3, region.remaining());
+            assertEquals(3, region.get(2));
+        } finally {
+            slab.close();
+        }
+    }
+}
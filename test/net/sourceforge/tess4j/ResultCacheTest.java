@@ -0,0 +1,126 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+
+import net.sourceforge.tess4j.util.ImageHash;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ResultCacheTest {
+
+    public ResultCacheTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of get and put methods, of class ResultCache.
+     */
+    @Test
+    public void testGetPut() {
+        System.out.println("get/put");
+        ResultCache cache = new ResultCache(1 << 20);
+        assertNull(cache.get(1, 2));
+        cache.put(1, 2, "The quick brown fox");
+        assertEquals("The quick brown fox", cache.get(1, 2));
+        assertNull(cache.get(1, 3));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(ResultCache.sizeOf("The quick brown fox"), cache.getBytes());
+    }
+
+    /**
+     * Test of eviction, of class ResultCache.
+     */
+    @Test
+    public void testEviction() {
+        System.out.println("eviction");
+        String text = "0123456789";
+        ResultCache cache = new ResultCache(3 * ResultCache.sizeOf(text));
+        cache.put(1, 0, text);
+        cache.put(2, 0, text);
+        cache.put(3, 0, text);
+        cache.get(1, 0);
+        cache.put(4, 0, text);
+        assertEquals(3, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(2, 0));
+        assertNotNull(cache.get(1, 0));
+        assertTrue(cache.getBytes() <= cache.getMaxBytes());
+    }
+
+    /**
+     * Test of hash methods, of class ImageHash.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testImageHash() throws Exception {
+        System.out.println("hash");
+        assertEquals(ImageHash.hash(new File("eurotext.png")), ImageHash.hash(new File("eurotext.png")));
+        assertFalse(ImageHash.hash(new File("eurotext.png")) == ImageHash.hash(new File("eurotext.bmp")));
+
+        BufferedImage a = new BufferedImage(50, 40, BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage b = new BufferedImage(50, 40, BufferedImage.TYPE_BYTE_GRAY);
+        assertEquals(ImageHash.hashPixels(a), ImageHash.hashPixels(b));
+        b.getRaster().setSample(49, 39, 0, 255);
+        assertFalse(ImageHash.hashPixels(a) == ImageHash.hashPixels(b));
+        assertFalse(ImageHash.hashPixels(a) == ImageHash.hashPixels(new BufferedImage(40, 50, BufferedImage.TYPE_BYTE_GRAY)));
+    }
+
+    /**
+     * Test of hashPixels method with the same bits under opposite palettes,
+     * of class ImageHash.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testImageHash_Palette() throws Exception {
+        System.out.println("hashPixels with opposite palettes");
+        byte[] minIsBlack = {(byte) 0x00, (byte) 0xFF};
+        byte[] minIsWhite = {(byte) 0xFF, (byte) 0x00};
+        BufferedImage a = new BufferedImage(50, 40, BufferedImage.TYPE_BYTE_BINARY, new IndexColorModel(1, 2, minIsBlack, minIsBlack, minIsBlack));
+        BufferedImage b = new BufferedImage(50, 40, BufferedImage.TYPE_BYTE_BINARY, new IndexColorModel(1, 2, minIsWhite, minIsWhite, minIsWhite));
+        a.getRaster().setSample(10, 10, 0, 1);
+        b.getRaster().setSample(10, 10, 0, 1);
+        assertFalse(ImageHash.hashPixels(a) == ImageHash.hashPixels(b));
+
+        BufferedImage c = new BufferedImage(50, 40, BufferedImage.TYPE_BYTE_BINARY, new IndexColorModel(1, 2, minIsBlack, minIsBlack, minIsBlack));
+        c.getRaster().setSample(10, 10, 0, 1);
+        assertEquals(ImageHash.hashPixels(a), ImageHash.hashPixels(c));
+    }
+}
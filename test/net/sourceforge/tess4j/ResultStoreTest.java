@@ -0,0 +1,139 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ResultStoreTest {
+
+    private File directory;
+
+    public ResultStoreTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("resultstore", "");
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Test of get and put methods, of class ResultStore, across reopening.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetPut() throws Exception {
+        System.out.println("get/put");
+        ResultStore store = new ResultStore(directory);
+        for (int i = 0; i < 5000; i++) {
+            store.put(i, 7, "page " + i);
+        }
+        store.put(42, 7, "page 42, again");
+        assertEquals("page 41", store.get(41, 7));
+        assertEquals("page 42, again", store.get(42, 7));
+        assertNull(store.get(41, 8));
+        store.close();
+
+        store = new ResultStore(directory);
+        assertEquals(5000, store.getSize());
+        assertEquals("page 4999", store.get(4999, 7));
+        assertEquals("page 42, again", store.get(42, 7));
+        store.close();
+    }
+
+    /**
+     * Test of compact method, of class ResultStore.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testCompact() throws Exception {
+        System.out.println("compact");
+        ResultStore store = new ResultStore(directory, 1 << 16);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append(i).append(' ');
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 500; i++) {
+                store.put(i, 1, round + ": " + sb + i);
+            }
+        }
+        assertTrue(store.getGarbageBytes() > 0);
+        store.compact();
+        assertEquals(0, store.getGarbageBytes());
+        assertEquals(500, store.getSize());
+        assertEquals("2: " + sb + 123, store.get(123, 1));
+        store.close();
+
+        store = new ResultStore(directory, 1 << 16);
+        assertEquals("2: " + sb + 499, store.get(499, 1));
+        store.close();
+    }
+
+    /**
+     * Test of rebuilding the index of a store whose last record was not
+     * indexed or is truncated.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testRebuild() throws Exception {
+        System.out.println("rebuild");
+        ResultStore store = new ResultStore(directory);
+        store.put(1, 1, "first");
+        store.put(2, 1, "second");
+        store.close();
+
+        File segment = new File(directory, "00000001.seg");
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        file.setLength(file.length() - 3);
+        file.close();
+
+        store = new ResultStore(directory);
+        assertEquals("first", store.get(1, 1));
+        assertNull(store.get(2, 1));
+        assertEquals(1, store.getSize());
+        store.close();
+    }
+}
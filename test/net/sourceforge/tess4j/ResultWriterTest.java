@@ -0,0 +1,145 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Set;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ResultWriterTest {
+
+    public ResultWriterTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of writePage method, of class AltoWriter.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testAltoWriter() throws Exception {
+        System.out.println("AltoWriter");
+        OCRResult result = OCRResultTest.createResult();
+        StringWriter out = new StringWriter();
+        ResultWriter writer = new AltoWriter(out, "test.tif");
+        writer.writePage(result, 0);
+        writer.writePage(result, 1);
+        writer.close();
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document doc = factory.newDocumentBuilder().parse(new ByteArrayInputStream(out.toString().getBytes("UTF-8")));
+        assertEquals(2, doc.getElementsByTagNameNS(AltoWriter.NAMESPACE, "Page").getLength());
+        assertEquals(2, doc.getElementsByTagNameNS(AltoWriter.NAMESPACE, "TextBlock").getLength());
+        assertEquals(3, doc.getElementsByTagNameNS(AltoWriter.NAMESPACE, "TextLine").getLength());
+        assertEquals(2, doc.getElementsByTagNameNS(AltoWriter.NAMESPACE, "SP").getLength());
+
+        NodeList strings = doc.getElementsByTagNameNS(AltoWriter.NAMESPACE, "String");
+        assertEquals(5, strings.getLength());
+        Element fox = (Element) strings.item(3);
+        assertEquals("fox", fox.getAttribute("CONTENT"));
+        assertEquals("160", fox.getAttribute("HPOS"));
+        assertEquals("150", fox.getAttribute("VPOS"));
+        assertEquals("50", fox.getAttribute("WIDTH"));
+        assertEquals("0.83", fox.getAttribute("WC"));
+    }
+
+    /**
+     * Test of writePage method, of class AltoWriter, on pages that come from
+     * results of their own, as written by <code>Tesseract</code>.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testAltoWriter_UniqueIds() throws Exception {
+        System.out.println("AltoWriter IDs");
+        OCRResult result = OCRResultTest.createResult();
+        StringWriter out = new StringWriter();
+        ResultWriter writer = new AltoWriter(out, "test.tif");
+        writer.writePage(result, 0);
+        writer.writePage(result, 0);
+        writer.close();
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document doc = factory.newDocumentBuilder().parse(new ByteArrayInputStream(out.toString().getBytes("UTF-8")));
+        NodeList elements = doc.getElementsByTagNameNS(AltoWriter.NAMESPACE, "*");
+        Set<String> ids = new HashSet<String>();
+        int count = 0;
+        for (int i = 0; i < elements.getLength(); i++) {
+            String id = ((Element) elements.item(i)).getAttribute("ID");
+            if (!id.isEmpty()) {
+                assertTrue(id, ids.add(id));
+                count++;
+            }
+        }
+        // OCR_0, two pages, and twice 1 block, 2 paragraphs, 3 lines and 5 words
+        assertEquals(1 + 2 + 2 * (1 + 2 + 3 + 5), count);
+    }
+
+    /**
+     * Test of writePage method, of class JsonResultWriter.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testJsonResultWriter() throws Exception {
+        System.out.println("JsonResultWriter");
+        OCRResult result = OCRResultTest.createResult();
+        StringWriter out = new StringWriter();
+        ResultWriter writer = new JsonResultWriter(out);
+        writer.writePage(result, 0);
+        writer.writePage(result, 1);
+        writer.close();
+
+        String json = out.toString();
+        assertTrue(json, json.startsWith("{\"pages\":[{\"box\":[0,0,1000,800]"));
+        assertTrue(json, json.contains("{\"box\":[160,150,210,180],\"conf\":83.0,\"text\":\"fox\"}"));
+        assertTrue(json, json.endsWith(",{\"box\":[0,0,1000,800],\"blocks\":[]}]}"));
+        // every block, paragraph, line and word is an object
+        int objects = 0;
+        for (char c : json.toCharArray()) {
+            objects += c == '{' ? 1 : 0;
+        }
+        assertEquals(1 + 2 + 1 + 2 + 3 + 5, objects);
+    }
+}
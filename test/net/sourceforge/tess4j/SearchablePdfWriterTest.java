@@ -0,0 +1,81 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SearchablePdfWriterTest {
+
+    public SearchablePdfWriterTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of addPage method, of class SearchablePdfWriter.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testAddPage() throws Exception {
+        System.out.println("addPage");
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1000, 800, BufferedImage.TYPE_BYTE_GRAY), "jpeg", jpeg);
+        byte[] imageData = jpeg.toByteArray();
+
+        OCRResult result = OCRResultTest.createResult();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SearchablePdfWriter writer = new SearchablePdfWriter(out);
+        writer.addPage(imageData, result, 0);
+        writer.addPage(imageData, result, 1);
+        writer.close();
+        assertEquals(2, writer.getPageCount());
+
+        PdfReader reader = new PdfReader(out.toByteArray());
+        assertEquals(2, reader.getNumberOfPages());
+        // 1000 pixels at the default 300 dpi
+        assertEquals(240, reader.getPageSize(1).getWidth(), 0.01);
+        String text = new PdfTextExtractor(reader).getTextFromPage(1);
+        assertTrue(text, text.contains("quick"));
+        assertTrue(text, text.contains("jumps!"));
+        // the JPEG data is embedded once per page, as is
+        assertTrue(out.size() < 2 * imageData.length + 4096);
+        reader.close();
+    }
+}
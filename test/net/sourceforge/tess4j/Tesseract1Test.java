@@ -205,6 +205,25 @@ public class Tesseract1Test {
         assertTrue(new File(outputbase1 + ".pdf").exists());
     }
 
+    /**
+     * Test of processDocuments method, of class Tesseract1.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testProcessDocuments() throws Exception {
+        System.out.println("processDocuments with a missing file");
+        String[] imageFiles = {"eurotext.png", "missing.png"};
+        String[] outputbases = {"test/results/docrenderer1-3", "test/results/docrenderer1-4"};
+        List<RenderedFormat> formats = new ArrayList<RenderedFormat>(Arrays.asList(RenderedFormat.TEXT));
+        List<DocumentReport> reports = ((Tesseract1) instance).processDocuments(imageFiles, outputbases, formats);
+        assertEquals(2, reports.size());
+        assertTrue(reports.get(0).isSuccess());
+        assertEquals(1, reports.get(0).getPageCount());
+        assertTrue(new File(outputbases[0] + ".txt").exists());
+        assertFalse(reports.get(1).isSuccess());
+    }
+
     /**
      * Test of extending Tesseract1.
      *
@@ -236,6 +255,19 @@ public class Tesseract1Test {
         assertArrayEquals(expResults, text.toArray());
     }
 
+    /**
+     * Benchmark of result iteration, of class ResultWalker.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testResultWalker_Benchmark() throws Exception {
+        System.out.println("ResultWalker benchmark");
+        Tess1Extension instance1 = new Tess1Extension();
+        instance1.benchmarkWalk(new File("eurotext.tif"), TessPageIteratorLevel.RIL_WORD, 20);
+        instance1.benchmarkWalk(new File("eurotext.tif"), TessPageIteratorLevel.RIL_SYMBOL, 20);
+    }
+
     /**
      * Extends Tesseract1.
      */
@@ -251,34 +283,90 @@ public class Tesseract1Test {
                 setImage(bi, null);
 
                 TessBaseAPIRecognize(this.getHandle(), null);
-                TessResultIterator ri = TessBaseAPIGetIterator(this.getHandle());
-                TessPageIterator pi = TessResultIteratorGetPageIterator(ri);
-                TessPageIteratorBegin(pi);
-
-                do {
-                    Pointer ptr = TessResultIteratorGetUTF8Text(ri, pageIteratorLevel);
-                    String text = ptr.getString(0);
-                    TessDeleteText(ptr);
-                    float confidence = TessResultIteratorConfidence(ri, pageIteratorLevel);
-                    IntBuffer leftB = IntBuffer.allocate(1);
-                    IntBuffer topB = IntBuffer.allocate(1);
-                    IntBuffer rightB = IntBuffer.allocate(1);
-                    IntBuffer bottomB = IntBuffer.allocate(1);
-                    TessPageIteratorBoundingBox(pi, pageIteratorLevel, leftB, topB, rightB, bottomB);
-                    int left = leftB.get();
-                    int top = topB.get();
-                    int right = rightB.get();
-                    int bottom = bottomB.get();
-                    Word word = new Word(text, confidence, new Rectangle(left, top, right - left, bottom - top));
-                    words.add(word);
-                } while (TessPageIteratorNext(pi, pageIteratorLevel) == TRUE);
-
-                return words;
+                return iterateTextElements(pageIteratorLevel);
             } catch (Exception e) {
                 return words;
             } finally {
                 this.dispose();
             }
         }
+
+        /**
+         * Walks the result of the last recognition.
+         */
+        List<Word> iterateTextElements(int pageIteratorLevel) {
+            List<Word> words = new ArrayList<Word>();
+            TessResultIterator ri = TessBaseAPIGetIterator(this.getHandle());
+            TessPageIterator pi = TessResultIteratorGetPageIterator(ri);
+            TessPageIteratorBegin(pi);
+
+            do {
+                Pointer ptr = TessResultIteratorGetUTF8Text(ri, pageIteratorLevel);
+                String text = ptr.getString(0);
+                TessDeleteText(ptr);
+                float confidence = TessResultIteratorConfidence(ri, pageIteratorLevel);
+                IntBuffer leftB = IntBuffer.allocate(1);
+                IntBuffer topB = IntBuffer.allocate(1);
+                IntBuffer rightB = IntBuffer.allocate(1);
+                IntBuffer bottomB = IntBuffer.allocate(1);
+                TessPageIteratorBoundingBox(pi, pageIteratorLevel, leftB, topB, rightB, bottomB);
+                int left = leftB.get();
+                int top = topB.get();
+                int right = rightB.get();
+                int bottom = bottomB.get();
+                Word word = new Word(text, confidence, new Rectangle(left, top, right - left, bottom - top));
+                words.add(word);
+            } while (TessPageIteratorNext(pi, pageIteratorLevel) == TRUE);
+            TessResultIteratorDelete(ri);
+
+            return words;
+        }
+
+        /**
+         * Times walks of one recognized page with the loop above and with
+         * <code>ResultWalker</code>, printing the cost per element.
+         */
+        void benchmarkWalk(File file, int pageIteratorLevel, int runs) throws Exception {
+            this.init();
+            this.setTessVariables();
+            try {
+                setImage(ImageIO.read(file), null);
+                TessBaseAPIRecognize(this.getHandle(), null);
+                ResultWalker walker = new ResultWalker(ResultWalker.TESS_API1);
+                int[] attributes = {OCRResult.ALL_ATTRIBUTES, OCRResult.TEXT, OCRResult.BOXES};
+                int count = iterateTextElements(pageIteratorLevel).size();
+
+                // warm up
+                for (int i = 0; i < runs; i++) {
+                    iterateTextElements(pageIteratorLevel);
+                    walkPage(walker, pageIteratorLevel, OCRResult.ALL_ATTRIBUTES);
+                }
+
+                long start = System.nanoTime();
+                for (int i = 0; i < runs; i++) {
+                    iterateTextElements(pageIteratorLevel);
+                }
+                System.out.println(String.format("Tess1Extension: %d ns per element", (System.nanoTime() - start) / runs / count));
+
+                for (int attr : attributes) {
+                    OCRResult result = null;
+                    start = System.nanoTime();
+                    for (int i = 0; i < runs; i++) {
+                        result = walkPage(walker, pageIteratorLevel, attr);
+                    }
+                    System.out.println(String.format("ResultWalker (attributes %d): %d ns per element", attr, (System.nanoTime() - start) / runs / count));
+                    assertEquals(count, result.getCount(pageIteratorLevel));
+                }
+            } finally {
+                this.dispose();
+            }
+        }
+
+        private OCRResult walkPage(ResultWalker walker, int pageIteratorLevel, int attributes) {
+            OCRResult result = new OCRResult(pageIteratorLevel, attributes);
+            result.startPage(0, 0);
+            walker.walk(this.getHandle(), result);
+            return result;
+        }
     }
 }
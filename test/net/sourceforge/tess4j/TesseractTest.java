@@ -18,12 +18,18 @@ package net.sourceforge.tess4j;
 import com.sun.jna.Pointer;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.awt.Color;
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.io.File;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import javax.imageio.IIOImage;
 
 import com.recognition.software.jdeskew.ImageDeskew;
@@ -34,6 +40,7 @@ import net.sourceforge.tess4j.util.Utils;
 
 import net.sourceforge.tess4j.ITessAPI.TessPageIterator;
 import net.sourceforge.tess4j.ITessAPI.TessPageIteratorLevel;
+import net.sourceforge.tess4j.ITessAPI.TessPageSegMode;
 import net.sourceforge.tess4j.ITessAPI.TessResultIterator;
 import net.sourceforge.tess4j.ITesseract.RenderedFormat;
 import static net.sourceforge.tess4j.ITessAPI.TRUE;
@@ -81,6 +88,23 @@ public class TesseractTest {
         assertEquals(expResult, result.substring(0, expResult.length()));
     }
 
+    /**
+     * Test of doOCR method streaming to a Writer, of class Tesseract.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testDoOCR_File_Writer() throws Exception {
+        System.out.println("doOCR on a PNG image to a Writer");
+        File imageFile = new File("eurotext.png");
+        String expResult = "The (quick) [brown] {fox} jumps!\nOver the $43,456.78 <lazy> #90 dog";
+        StringWriter writer = new StringWriter();
+        ((Tesseract) instance).doOCR(imageFile, null, writer);
+        String result = writer.toString();
+        System.out.println(result);
+        assertEquals(expResult, result.substring(0, expResult.length()));
+    }
+
     /**
      * Test of doOCR method, of class Tesseract.
      *
@@ -100,6 +124,36 @@ public class TesseractTest {
         assertEquals(expResult, result.trim());
     }
 
+    /**
+     * Test of form extraction with a zone template, of class FormRecognizer.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testFormRecognizer() throws Exception {
+        System.out.println("FormRecognizer with UNLV zone file .uzn");
+        ZoneTemplate template = ZoneTemplate.load(new File("eurotext_unlv.uzn"));
+        template.addZone(ZoneTemplate.parseZone("97 209 828 55 Amount psm=7 whitelist=0123456789.,$"));
+        FormRecognizer recognizer = new FormRecognizer(template);
+        recognizer.setParallelism(2);
+        recognizer.warmUp();
+        try {
+            BufferedImage bi = ImageIO.read(new File("eurotext_unlv.png"));
+            Map<String, String> fields = null;
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 5; i++) {
+                fields = recognizer.recognize(bi);
+            }
+            System.out.println(String.format("%d ms per form", (System.currentTimeMillis() - start) / 5));
+            System.out.println(fields);
+            assertEquals("The (quick) [brown] {fox} jumps!", fields.get("ThirdLine"));
+            assertEquals("Over the $43,456.78 <lazy> #90 dog", fields.get("FourthLine"));
+            assertTrue(fields.get("Amount").matches("[0-9.,$ ]*\\$43,456\\.78[0-9.,$ ]*"));
+        } finally {
+            recognizer.close();
+        }
+    }
+
     /**
      * Test of doOCR method, of class Tesseract.
      *
@@ -134,6 +188,35 @@ public class TesseractTest {
         assertEquals(expResult, result.substring(0, expResult.length()));
     }
 
+    /**
+     * Test of doOCR method on several regions, of class Tesseract.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testDoOCR_Regions() throws Exception {
+        System.out.println("doOCR on several regions of an image");
+        BufferedImage bi = ImageIO.read(new File("eurotext.tif"));
+        Tesseract tess = (Tesseract) instance;
+        PageLayout layout = tess.getLayout(bi);
+        List<Rectangle> regions = new ArrayList<Rectangle>();
+        regions.add(layout.getLineBounds(0));
+        regions.add(layout.getLineBounds(1));
+        regions.add(new Rectangle(bi.getWidth() + 10, 0, 100, 100)); // outside the image
+        regions.add(new Rectangle(regions.get(0))); // the same region again
+        int[] modes = {TessPageSegMode.PSM_SINGLE_LINE, TessPageSegMode.PSM_SINGLE_LINE, -1, TessPageSegMode.PSM_SINGLE_LINE};
+
+        long start = System.currentTimeMillis();
+        List<String> results = tess.doOCR(bi, regions, modes);
+        System.out.println(String.format("%d ms", System.currentTimeMillis() - start));
+        System.out.println(results);
+        assertEquals(4, results.size());
+        assertEquals("The (quick) [brown] {fox} jumps!", results.get(0).trim());
+        assertEquals("Over the $43,456.78 <lazy> #90 dog", results.get(1).trim());
+        assertEquals("", results.get(2));
+        assertEquals(results.get(0), results.get(3));
+    }
+
     /**
      * Test of doOCR method, of class Tesseract.
      *
@@ -166,6 +249,242 @@ public class TesseractTest {
         assertEquals(expResult, result.substring(0, expResult.length()));
     }
 
+    /**
+     * Test of doOCR method with resolution normalization, of class Tesseract.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testDoOCR_TargetDpi() throws Exception {
+        System.out.println("doOCR with resolution normalization");
+        File imageFile = new File("eurotext.png");
+        Tesseract tess = (Tesseract) instance;
+        tess.getPreprocessor().setTargetDpi(400);
+        String expResult = "The (quick) [brown] {fox} jumps!\nOver the $43,456.78 <lazy> #90 dog";
+        String result = tess.doOCR(imageFile);
+        System.out.println(result);
+        List<PageReport> reports = tess.getPageReports();
+        System.out.println(reports);
+        System.out.println(tess.getMetrics());
+        assertEquals(expResult, result.substring(0, expResult.length()));
+        assertEquals(1, reports.size());
+        assertEquals(400, reports.get(0).getEffectiveDpi());
+    }
+
+    /**
+     * Test of doOCR method with blank page detection, of class Tesseract.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testDoOCR_BlankPage() throws Exception {
+        System.out.println("doOCR with blank page detection");
+        List<IIOImage> imageList = new ArrayList<IIOImage>(ImageIOHelper.getIIOImageList(new File("eurotext.png")));
+        imageList.add(0, new IIOImage(PagePreprocessorTest.createBlankPage(1024, 800), null, null));
+        Tesseract tess = (Tesseract) instance;
+        tess.getPreprocessor().setBlankPageDetection(true);
+        String expResult = "The (quick) [brown] {fox} jumps!\nOver the $43,456.78 <lazy> #90 dog";
+        String result = tess.doOCR(imageList, null);
+        System.out.println(result);
+        System.out.println(tess.getMetrics());
+        assertEquals(expResult, result.substring(0, expResult.length()));
+        assertTrue(tess.getPageReports().get(0).isBlank());
+        assertEquals(1, tess.getMetrics().getBlankPageCount());
+    }
+
+    /**
+     * Test of setPage method with content area detection on a page that is
+     * already 8-bit grayscale, of class Tesseract. The page is passed on
+     * unchanged, but only its content area is to be recognized.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSetPage_CropDetection_Gray() throws Exception {
+        System.out.println("setPage with content area detection on a grayscale page");
+        BufferedImage bi = PagePreprocessorTest.createBlankPage(900, 900);
+        Graphics2D g2 = bi.createGraphics();
+        g2.setColor(Color.BLACK);
+        g2.fillRect(400, 400, 100, 20); // a word
+        g2.dispose();
+
+        final List<Rectangle> regions = new ArrayList<Rectangle>();
+        Tesseract tess = new Tesseract() {
+            @Override
+            protected void setImage(RenderedImage image, Rectangle rect) {
+                regions.add(rect);
+            }
+
+            @Override
+            protected void setImage(int xsize, int ysize, ByteBuffer buf, Rectangle rect, int bpp) {
+                regions.add(rect);
+            }
+        };
+        tess.getPreprocessor().setCropDetection(true);
+        PageReport report = tess.setPage(new IIOImage(bi, null, null), null, 1);
+        System.out.println(report);
+        assertNotNull(report.getCropBox());
+        assertEquals(1, regions.size());
+        assertEquals(report.getCropBox(), regions.get(0));
+    }
+
+    /**
+     * Test of doOCR method with despeckling on a noisy page, of class
+     * Tesseract. Prints the recognition time with and without despeckling.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testDoOCR_Despeckle() throws Exception {
+        System.out.println("doOCR with despeckling");
+        BufferedImage bi = PagePreprocessorTest.addNoise(ImageIO.read(new File("eurotext.png")), 3000);
+        Tesseract tess = (Tesseract) instance;
+
+        long start = System.currentTimeMillis();
+        String noisy = tess.doOCR(bi);
+        long noisyTime = System.currentTimeMillis() - start;
+
+        tess.getPreprocessor().setDespeckle(true);
+        tess.getPreprocessor().setRuleLineRemoval(true);
+        start = System.currentTimeMillis();
+        String result = tess.doOCR(bi);
+        long cleanTime = System.currentTimeMillis() - start;
+
+        System.out.println(noisy);
+        System.out.println(result);
+        System.out.println(tess.getPageReports());
+        System.out.println(String.format("Without despeckling: %d ms, %d chars; with despeckling: %d ms, %d chars",
+                noisyTime, noisy.length(), cleanTime, result.length()));
+        String expResult = "The (quick) [brown] {fox} jumps!\nOver the $43,456.78 <lazy> #90 dog";
+        assertEquals(expResult, result.substring(0, expResult.length()));
+    }
+
+    /**
+     * Test of getWords method with tiling, of class Tesseract.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetWords_Tiled() throws Exception {
+        System.out.println("getWords with tiling");
+        BufferedImage bi = ImageIO.read(new File("eurotext.png"));
+        Tesseract tess = (Tesseract) instance;
+        List<Word> expResult = tess.getWords(bi, TessPageIteratorLevel.RIL_WORD);
+
+        tess.setTiling(512, 160);
+        tess.setParallelism(4);
+        try {
+            List<Word> result = tess.getWords(bi, TessPageIteratorLevel.RIL_WORD);
+            for (Word word : result) {
+                System.out.println(word);
+            }
+            assertEquals(expResult.size(), result.size());
+            for (int i = 0; i < result.size(); i++) {
+                assertEquals(expResult.get(i).getText(), result.get(i).getText());
+                assertTrue(expResult.get(i).getRect().intersects(result.get(i).getRect()));
+            }
+
+            String text = tess.doOCR(bi);
+            System.out.println(text);
+            assertTrue(text.startsWith("The (quick) [brown] {fox} jumps!"));
+        } finally {
+            tess.releaseHandles();
+        }
+    }
+
+    /**
+     * Test of doOCR method with text blocks recognized concurrently, of class
+     * Tesseract.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testDoOCR_ParallelBlocks() throws Exception {
+        System.out.println("doOCR with parallel blocks");
+        File imageFile = new File("eurotext.tif");
+        Tesseract tess = (Tesseract) instance;
+        tess.setParallelism(4);
+        String expResult = tess.doOCR(imageFile);
+
+        tess.setParallelBlocks(true);
+        try {
+            long start = System.currentTimeMillis();
+            String result = tess.doOCR(imageFile);
+            System.out.println(String.format("%d ms", System.currentTimeMillis() - start));
+            System.out.println(result);
+            assertEquals(expResult.replaceAll("\\s+", " ").trim(), result.replaceAll("\\s+", " ").trim());
+        } finally {
+            tess.releaseHandles();
+        }
+    }
+
+    /**
+     * Test of getLayout method, of class Tesseract.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetLayout() throws Exception {
+        System.out.println("getLayout");
+        BufferedImage bi = ImageIO.read(new File("eurotext.tif"));
+        Tesseract tess = (Tesseract) instance;
+        long start = System.currentTimeMillis();
+        PageLayout layout = tess.getLayout(bi);
+        System.out.println(String.format("%d ms", System.currentTimeMillis() - start));
+        System.out.println(layout);
+        assertTrue(layout.getBlockCount() > 0);
+        assertTrue(layout.getLineCount() >= 6);
+        assertTrue(layout.isTextBlock(0));
+        assertNotNull(layout.getLineBaseline(0));
+        assertTrue(new Rectangle(bi.getWidth(), bi.getHeight()).contains(layout.getLineBounds(0)));
+    }
+
+    /**
+     * Test of getOCRResult method, of class Tesseract.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetOCRResult() throws Exception {
+        System.out.println("getOCRResult");
+        BufferedImage bi = ImageIO.read(new File("eurotext.tif"));
+        long start = System.currentTimeMillis();
+        OCRResult result = ((Tesseract) instance).getOCRResult(bi, TessPageIteratorLevel.RIL_SYMBOL);
+        System.out.println(String.format("%d ms", System.currentTimeMillis() - start));
+        assertEquals(1, result.getPageCount());
+        assertTrue(result.getCount(TessPageIteratorLevel.RIL_WORD) > 50);
+        assertTrue(result.getCount(TessPageIteratorLevel.RIL_SYMBOL) > result.getCount(TessPageIteratorLevel.RIL_WORD));
+        String text = result.getText(OCRResult.PAGE, 0);
+        System.out.println(text);
+        assertTrue(text.contains("quick brown dog"));
+        int line = result.getAncestor(TessPageIteratorLevel.RIL_SYMBOL, 0, TessPageIteratorLevel.RIL_TEXTLINE);
+        assertEquals(0, line);
+        assertTrue(result.getBounds(TessPageIteratorLevel.RIL_TEXTLINE, 0).contains(result.getBounds(TessPageIteratorLevel.RIL_WORD, 0)));
+    }
+
+    /**
+     * Test of getOCRResult method with word confidences only, of class
+     * Tesseract.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetOCRResult_WordConfidences() throws Exception {
+        System.out.println("getOCRResult with word confidences");
+        List<IIOImage> imageList = ImageIOHelper.getIIOImageList(ImageIO.read(new File("eurotext.tif")));
+        Tesseract tess = (Tesseract) instance;
+        OCRResult full = tess.getOCRResult(imageList, null, TessPageIteratorLevel.RIL_WORD);
+        long start = System.currentTimeMillis();
+        OCRResult result = tess.getOCRResult(imageList, null, TessPageIteratorLevel.RIL_WORD, OCRResult.WORD_CONFIDENCES);
+        System.out.println(String.format("%d ms", System.currentTimeMillis() - start));
+        int[] confidences = result.getWordConfidences(0);
+        System.out.println(String.format("Mean confidence: %.0f, words: %d", result.getConfidence(OCRResult.PAGE, 0), confidences.length));
+        assertEquals(full.getCount(TessPageIteratorLevel.RIL_WORD), confidences.length);
+        assertEquals(0, result.getCount(TessPageIteratorLevel.RIL_WORD));
+        assertTrue(result.getConfidence(OCRResult.PAGE, 0) > 50);
+        assertEquals(full.getConfidence(OCRResult.PAGE, 0), result.getConfidence(OCRResult.PAGE, 0), 0);
+    }
+
     /**
      * Test of deskew algorithm.
      *
@@ -205,6 +524,32 @@ public class TesseractTest {
         assertTrue(new File(outputbase1 + ".pdf").exists());
     }
 
+    /**
+     * Test of processDocuments method with concurrent files, of class
+     * Tesseract.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testProcessDocuments() throws Exception {
+        System.out.println("processDocuments for several images concurrently");
+        String[] imageFiles = {"eurotext.png", "eurotext.tif", "missing.png"};
+        String[] outputbases = {"test/results/docrenderer-3", "test/results/docrenderer-4", "test/results/docrenderer-5"};
+        List<RenderedFormat> formats = new ArrayList<RenderedFormat>(Arrays.asList(RenderedFormat.HOCR, RenderedFormat.TEXT));
+        Tesseract tesseract = (Tesseract) instance;
+        tesseract.setParallelism(2);
+        try {
+            List<DocumentReport> reports = tesseract.processDocuments(imageFiles, outputbases, formats);
+            assertEquals(3, reports.size());
+            assertTrue(reports.get(0).isSuccess());
+            assertEquals(1, reports.get(0).getPageCount());
+            assertTrue(new File(outputbases[1] + ".hocr").exists());
+            assertFalse(reports.get(2).isSuccess());
+        } finally {
+            tesseract.releaseHandles();
+        }
+    }
+
     /**
      * Test of extending Tesseract.
      *
@@ -0,0 +1,132 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TextIndexTest {
+
+    private File directory;
+
+    public TextIndexTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("textindex", "");
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Test of search method, of class TextIndex, over buffered documents and
+     * segments, across reopening.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSearch() throws Exception {
+        System.out.println("search");
+        OCRResult result = OCRResultTest.createResult();
+        TextIndex index = new TextIndex(directory);
+        assertEquals(0, index.add("a.tif", result));
+        index.flush();
+        assertEquals(1, index.add("b.tif", result));
+
+        List<TextIndex.Hit> hits = index.search("FOX");
+        assertEquals(2, hits.size());
+        assertEquals("a.tif", hits.get(0).getName());
+        assertEquals("b.tif", hits.get(1).getName());
+        assertEquals(0, hits.get(1).getPage());
+        assertEquals(3, hits.get(1).getPosition());
+        assertEquals(new Rectangle(160, 150, 50, 30), hits.get(1).getBoxes().get(0));
+        assertEquals(1, index.search("fox", 1).size());
+        index.close();
+
+        index = new TextIndex(directory);
+        assertEquals(2, index.getSegmentCount());
+        assertEquals(2, index.getDocumentCount());
+        assertEquals("b.tif", index.getDocumentName(1));
+        // punctuation is stripped
+        assertEquals(2, index.search("jumps").size());
+        assertTrue(index.search("cat").isEmpty());
+
+        // phrases, across line breaks but not out of order
+        hits = index.search("quick brown");
+        assertEquals(2, hits.size());
+        assertEquals(2, hits.get(0).getBoxes().size());
+        assertEquals(1, hits.get(0).getPosition());
+        assertTrue(index.search("brown quick").isEmpty());
+        index.close();
+    }
+
+    /**
+     * Test of merge method, of class TextIndex.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testMerge() throws Exception {
+        System.out.println("merge");
+        OCRResult result = OCRResultTest.createResult();
+        // a segment every document
+        TextIndex index = new TextIndex(directory, 1);
+        for (int i = 0; i < 10; i++) {
+            index.add("doc" + i, result);
+        }
+        assertEquals(10, index.getSegmentCount());
+        index.merge();
+        assertEquals(1, index.getSegmentCount());
+
+        List<TextIndex.Hit> hits = index.search("the quick");
+        assertEquals(10, hits.size());
+        assertEquals("doc9", hits.get(9).getName());
+        assertEquals(9, hits.get(9).getDocument());
+        index.close();
+
+        index = new TextIndex(directory);
+        assertEquals(1, index.getSegmentCount());
+        assertEquals(10, index.search("brown").size());
+        assertEquals(10, index.add("doc10", result));
+        index.close();
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TiledRecognizerTest {
+
+    public TiledRecognizerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of createTiles and createCores methods, of class TiledRecognizer.
+     */
+    @Test
+    public void testCreateTiles() {
+        System.out.println("createTiles");
+        Rectangle area = new Rectangle(0, 0, 15000, 10000);
+        List<Rectangle> tiles = TiledRecognizer.createTiles(area, 4096, 256);
+        List<Rectangle> cores = TiledRecognizer.createCores(area, 4096, 256);
+        assertEquals(4 * 3, tiles.size());
+        assertEquals(tiles.size(), cores.size());
+        assertEquals(new Rectangle(0, 0, 4096, 4096), tiles.get(0));
+        assertEquals(new Rectangle(3840, 0, 4096, 4096), tiles.get(1));
+        assertEquals(new Rectangle(11520, 7680, 3480, 2320), tiles.get(11));
+
+        long coreArea = 0;
+        for (int i = 0; i < tiles.size(); i++) {
+            // every core lies within its tile; together they cover the area once
+            assertTrue(tiles.get(i).contains(cores.get(i)));
+            coreArea += (long) cores.get(i).width * cores.get(i).height;
+            for (int j = i + 1; j < cores.size(); j++) {
+                assertFalse(cores.get(i).intersects(cores.get(j)));
+            }
+        }
+        assertEquals((long) area.width * area.height, coreArea);
+
+        // a small area is a single tile
+        assertEquals(Arrays.asList(new Rectangle(10, 20, 300, 200)), TiledRecognizer.createTiles(new Rectangle(10, 20, 300, 200), 4096, 256));
+    }
+
+    /**
+     * Test of merge method, of class TiledRecognizer.
+     */
+    @Test
+    public void testMerge() {
+        System.out.println("merge");
+        Rectangle area = new Rectangle(0, 0, 2000, 1000);
+        List<Rectangle> cores = TiledRecognizer.createCores(area, 1100, 200);
+        assertEquals(2, cores.size());
+
+        // "overlap" straddles the tile edge: complete on both tiles, plus a fragment on the left
+        List<Word> left = new ArrayList<Word>();
+        left.add(new Word("first", 90, new Rectangle(100, 100, 200, 40)));
+        left.add(new Word("overlap", 85, new Rectangle(950, 100, 120, 40)));
+        left.add(new Word("ri", 40, new Rectangle(1060, 100, 40, 40)));
+        left.add(new Word("below", 90, new Rectangle(120, 300, 150, 40)));
+        List<Word> right = new ArrayList<Word>();
+        right.add(new Word("overlap", 88, new Rectangle(950, 100, 120, 40)));
+        right.add(new Word("right", 92, new Rectangle(1060, 102, 150, 40)));
+
+        List<Word> result = TiledRecognizer.merge(Arrays.asList(left, right), cores);
+        List<String> texts = new ArrayList<String>();
+        for (Word word : result) {
+            texts.add(word.getText());
+        }
+        assertEquals(Arrays.asList("first", "overlap", "right", "below"), texts);
+        assertEquals(88, result.get(1).getConfidence(), 0);
+        assertEquals("first overlap right\nbelow\n", TiledRecognizer.toText(result));
+    }
+
+    /**
+     * Test of merge method, of class TiledRecognizer, on a dense page with a
+     * shifted, less confident copy of every word.
+     */
+    @Test
+    public void testMerge_Dense() {
+        System.out.println("merge dense");
+        Rectangle area = new Rectangle(0, 0, 4000, 3000);
+        List<Rectangle> cores = TiledRecognizer.createCores(area, 8192, 256);
+        assertEquals(1, cores.size());
+
+        List<Word> words = new ArrayList<Word>();
+        for (int y = 0; y + 12 < area.height; y += 15) {
+            for (int x = 0; x + 22 < area.width; x += 25) {
+                words.add(new Word("w", 90, new Rectangle(x, y, 20, 10)));
+                words.add(new Word("v", 50, new Rectangle(x + 2, y + 1, 20, 10)));
+            }
+        }
+        List<Word> result = TiledRecognizer.merge(Arrays.asList(words), cores);
+        assertEquals(words.size() / 2, result.size());
+        for (Word word : result) {
+            assertEquals("w", word.getText());
+        }
+    }
+}
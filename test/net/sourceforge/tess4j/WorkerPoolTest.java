@@ -0,0 +1,173 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class WorkerPoolTest {
+
+    /**
+     * A worker that reports the size and the sum of the pixels of its pages
+     * instead of recognizing them. It crashes on pages 13 pixels wide, and
+     * on the first page 17 pixels wide.
+     */
+    public static class FakeWorker extends OCRWorker {
+
+        public static void main(String[] args) throws IOException {
+            new FakeWorker().run(args);
+            System.exit(0);
+        }
+
+        @Override
+        Engine createEngine() {
+            return new Engine() {
+                @Override
+                public String recognize(int width, int height, ByteBuffer pixels, int bpp) throws Exception {
+                    File marker = new File(System.getProperty("fake.marker"));
+                    if (width == 13 || (width == 17 && marker.createNewFile())) {
+                        Runtime.getRuntime().halt(1);
+                    }
+                    long sum = 0;
+                    for (int i = 0; i < pixels.remaining(); i++) {
+                        sum += pixels.get(i) & 0xff;
+                    }
+                    return width + "x" + height + "x" + bpp + ":" + pixels.remaining() + ":" + sum + "\n";
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+
+    private File marker;
+
+    public WorkerPoolTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        marker = File.createTempFile("workerpool", "");
+        marker.delete();
+    }
+
+    @After
+    public void tearDown() {
+        marker.delete();
+    }
+
+    private WorkerPool createPool() {
+        WorkerPool pool = new WorkerPool(2, 2);
+        pool.setWorkerClass(FakeWorker.class.getName());
+        pool.setJvmOptions(Arrays.asList("-Dfake.marker=" + marker.getPath()));
+        return pool;
+    }
+
+    /**
+     * Test of submit method, of class WorkerPool, with workers that crash.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSubmit() throws Exception {
+        System.out.println("submit");
+        WorkerPool pool = createPool();
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 20; i++) {
+                int width = i == 5 ? 17 : 100 + i;
+                results.add(pool.submit(new BufferedImage(width, 50, BufferedImage.TYPE_INT_RGB)));
+            }
+            Future<String> poison = pool.submit(new BufferedImage(13, 10, BufferedImage.TYPE_BYTE_GRAY));
+            Future<String> binary = pool.submit(new BufferedImage(20, 10, BufferedImage.TYPE_BYTE_BINARY));
+
+            // the page that crashed a worker once is recognized when retried
+            assertEquals("17x50x8:850:0\n", results.get(5).get());
+            for (int i = 0; i < 20; i++) {
+                if (i != 5) {
+                    assertEquals((100 + i) + "x50x8:" + (100 + i) * 50 + ":0\n", results.get(i).get());
+                }
+            }
+            assertEquals("20x10x1:30:0\n", binary.get());
+            try {
+                poison.get();
+                fail("The page kills every worker.");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TesseractException);
+            }
+            assertTrue(pool.getRestartCount() >= 2);
+
+            // the pool still works
+            assertEquals("30x30x8:900:0\n", pool.submit(new BufferedImage(30, 30, BufferedImage.TYPE_BYTE_GRAY)).get());
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * Test of the hand-over of pages in shared memory, of class WorkerPool,
+     * and of the fallback to the socket for pages too large for it.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSharedMemory() throws Exception {
+        System.out.println("shared memory");
+        WorkerPool pool = createPool();
+        // room for a few small pages at a time
+        pool.setSharedMemorySize(64 << 10);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 40; i++) {
+                BufferedImage bi = new BufferedImage(100, 100, BufferedImage.TYPE_BYTE_GRAY);
+                bi.getRaster().setSample(i, i, 0, i + 1);
+                results.add(pool.submit(bi));
+            }
+            BufferedImage large = new BufferedImage(400, 200, BufferedImage.TYPE_BYTE_GRAY);
+            large.getRaster().setSample(399, 199, 0, 255);
+            Future<String> fallback = pool.submit(large);
+
+            for (int i = 0; i < 40; i++) {
+                assertEquals("100x100x8:10000:" + (i + 1) + "\n", results.get(i).get());
+            }
+            assertEquals("400x200x8:80000:255\n", fallback.get());
+        } finally {
+            pool.close();
+        }
+    }
+}
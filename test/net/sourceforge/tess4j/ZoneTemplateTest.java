@@ -0,0 +1,109 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.tess4j.ITessAPI.TessPageSegMode;
+import net.sourceforge.tess4j.ZoneTemplate.Zone;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ZoneTemplateTest {
+
+    public ZoneTemplateTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of load method, of class ZoneTemplate.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoad() throws Exception {
+        System.out.println("load");
+        ZoneTemplate template = ZoneTemplate.load(new File("eurotext_unlv.uzn"));
+        List<Zone> zones = template.getZones();
+        assertEquals(3, zones.size());
+        assertEquals("ThirdLine", zones.get(0).getLabel());
+        assertEquals(new Rectangle(97, 162, 747, 50), zones.get(0).getBounds());
+        assertEquals("First2Lines", zones.get(2).getLabel());
+        assertNull(zones.get(2).getLanguage());
+        assertEquals(-1, zones.get(2).getPageSegMode());
+        assertNull(zones.get(2).getWhitelist());
+    }
+
+    /**
+     * Test of parseZone method, of class ZoneTemplate.
+     */
+    @Test
+    public void testParseZone() {
+        System.out.println("parseZone");
+        Zone zone = ZoneTemplate.parseZone("97 209 828 55 Total amount psm=7 whitelist=0123456789., lang=deu");
+        assertEquals("Total amount", zone.getLabel());
+        assertEquals(new Rectangle(97, 209, 828, 55), zone.getBounds());
+        assertEquals(TessPageSegMode.PSM_SINGLE_LINE, zone.getPageSegMode());
+        assertEquals("0123456789.,", zone.getWhitelist());
+        assertEquals("deu", zone.getLanguage());
+
+        try {
+            ZoneTemplate.parseZone("97 209 x 55 Total");
+            fail("Invalid coordinates accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Test of groupByConfig method, of class ZoneTemplate.
+     */
+    @Test
+    public void testGroupByConfig() {
+        System.out.println("groupByConfig");
+        ZoneTemplate template = new ZoneTemplate();
+        template.addZone(ZoneTemplate.parseZone("0 0 100 20 Name"));
+        template.addZone(ZoneTemplate.parseZone("0 20 100 20 Date psm=7 whitelist=0123456789/"));
+        template.addZone(ZoneTemplate.parseZone("0 40 100 20 City psm=7"));
+        template.addZone(ZoneTemplate.parseZone("0 60 100 20 Zip whitelist=0123456789/"));
+        template.addZone(ZoneTemplate.parseZone("0 80 100 20 Note lang=eng"));
+        Map<String, List<Zone>> groups = template.groupByConfig("eng");
+        assertEquals(2, groups.size());
+        assertEquals(3, groups.get("eng").size());
+        assertEquals("Zip", groups.get("eng|0123456789/").get(1).getLabel());
+    }
+}
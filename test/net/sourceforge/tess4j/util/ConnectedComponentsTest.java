@@ -0,0 +1,181 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConnectedComponentsTest {
+
+    static final int BENCHMARK_RUNS = 5;
+
+    public ConnectedComponentsTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates a white page with tall bars crossing many rows, so that
+     * components span the seams between strips, and random speckles.
+     */
+    static byte[] createNoisyPage(int width, int height, int speckles) {
+        BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2 = bi.createGraphics();
+        g2.setColor(Color.WHITE);
+        g2.fillRect(0, 0, width, height);
+        g2.setColor(Color.BLACK);
+        for (int x = 20; x < width - 20; x += 50) {
+            g2.fillRect(x, 10, 8, height - 20);
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < speckles; i++) {
+            g2.fillRect(random.nextInt(width), random.nextInt(height), 1 + random.nextInt(2), 1 + random.nextInt(2));
+        }
+        g2.dispose();
+        return ImageHelper.getGrayscaleBytes(bi);
+    }
+
+    /**
+     * Test of label method, of class ConnectedComponents.
+     */
+    @Test
+    public void testLabel() {
+        System.out.println("label");
+        byte[] gray = new byte[]{
+            0, 0, -1, -1, -1, 0,
+            -1, 0, -1, -1, 0, -1,
+            -1, -1, 0, -1, -1, -1,
+            -1, -1, -1, -1, 0, 0};
+        ConnectedComponents result = ConnectedComponents.label(gray, 6, 4, 128, false);
+        // the diagonal on the left is one component; the one on the right
+        // is separate from the pair below it
+        assertEquals(3, result.getCount());
+        assertEquals(4, result.getArea(0));
+        assertEquals(new Rectangle(0, 0, 3, 3), result.getBounds(0));
+        assertEquals(new Rectangle(4, 0, 2, 2), result.getBounds(1));
+        assertEquals(new Rectangle(4, 3, 2, 1), result.getBounds(2));
+    }
+
+    /**
+     * Test of label method in parallel, of class ConnectedComponents.
+     */
+    @Test
+    public void testLabel_Parallel() {
+        System.out.println("label in parallel");
+        byte[] gray = createNoisyPage(1200, 1600, 2000);
+        ConnectedComponents sequential = ConnectedComponents.label(gray, 1200, 1600, 128, false);
+        ConnectedComponents parallel = ConnectedComponents.label(gray, 1200, 1600, 128, true);
+        assertEquals(sequential.getCount(), parallel.getCount());
+        for (int c = 0; c < sequential.getCount(); c++) {
+            assertEquals(sequential.getBounds(c), parallel.getBounds(c));
+            assertEquals(sequential.getArea(c), parallel.getArea(c));
+        }
+    }
+
+    /**
+     * Test of removeSmall method, of class ConnectedComponents.
+     */
+    @Test
+    public void testRemoveSmall() {
+        System.out.println("removeSmall");
+        byte[] gray = createNoisyPage(1200, 1600, 2000);
+        byte[] clean = createNoisyPage(1200, 1600, 0);
+        ConnectedComponents components = ConnectedComponents.label(gray, 1200, 1600, 128, true);
+        int removed = components.removeSmall(gray, 5, 0, (byte) 255);
+        System.out.println(String.format("%d of %d components removed", removed, components.getCount()));
+        ConnectedComponents result = ConnectedComponents.label(gray, 1200, 1600, 128, false);
+        assertEquals(components.getCount() - removed, result.getCount());
+        for (int c = 0; c < result.getCount(); c++) {
+            assertTrue(result.getArea(c) >= 5);
+        }
+        // the bars are untouched
+        for (int i = 0; i < clean.length; i++) {
+            if (clean[i] == 0) {
+                assertEquals(0, gray[i]);
+            }
+        }
+    }
+
+    /**
+     * Test of removeRuleLines method, of class ConnectedComponents.
+     */
+    @Test
+    public void testRemoveRuleLines() {
+        System.out.println("removeRuleLines");
+        BufferedImage bi = new BufferedImage(400, 300, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2 = bi.createGraphics();
+        g2.setColor(Color.WHITE);
+        g2.fillRect(0, 0, 400, 300);
+        g2.setColor(Color.BLACK);
+        g2.fillRect(10, 100, 380, 2); // horizontal rule
+        g2.fillRect(200, 10, 2, 280); // vertical rule crossing it
+        g2.fillRect(50, 50, 10, 30); // a glyph
+        g2.dispose();
+        byte[] gray = ImageHelper.getGrayscaleBytes(bi);
+
+        int removed = ConnectedComponents.removeRuleLines(gray, 400, 300, 128, 150, (byte) 255, false);
+        assertEquals(4, removed);
+        ConnectedComponents result = ConnectedComponents.label(gray, 400, 300, 128, false);
+        assertEquals(1, result.getCount());
+        assertEquals(new Rectangle(50, 50, 10, 30), result.getBounds(0));
+    }
+
+    /**
+     * Benchmark of sequential and parallel labeling.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLabel_Benchmark() throws Exception {
+        System.out.println("label benchmark");
+        BufferedImage bi = ImageIO.read(new File("test.TIF"));
+        byte[] gray = ImageHelper.getGrayscaleBytes(bi);
+        for (boolean parallel : new boolean[]{false, true}) {
+            ConnectedComponents.label(gray, bi.getWidth(), bi.getHeight(), 128, parallel); // warm up
+            long start = System.nanoTime();
+            ConnectedComponents result = null;
+            for (int i = 0; i < BENCHMARK_RUNS; i++) {
+                result = ConnectedComponents.label(gray, bi.getWidth(), bi.getHeight(), 128, parallel);
+            }
+            long elapsed = (System.nanoTime() - start) / BENCHMARK_RUNS / 1000;
+            System.out.println(String.format("%s: %d components in %d us per %dx%d image", parallel ? "parallel" : "sequential", result.getCount(), elapsed, bi.getWidth(), bi.getHeight()));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import javax.imageio.ImageIO;
+
+import net.sourceforge.tess4j.util.ImageHelper.RotationMode;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ImageHelperTest {
+
+    static final int BENCHMARK_RUNS = 5;
+
+    public ImageHelperTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates a white grayscale page with a few black bars.
+     */
+    private static BufferedImage createTestPage(int type) {
+        BufferedImage bi = new BufferedImage(600, 400, type);
+        Graphics2D g2 = bi.createGraphics();
+        g2.setColor(Color.WHITE);
+        g2.fillRect(0, 0, bi.getWidth(), bi.getHeight());
+        g2.setColor(Color.BLACK);
+        for (int y = 50; y < 350; y += 40) {
+            g2.fillRect(60, y, 480, 12);
+        }
+        g2.dispose();
+        return bi;
+    }
+
+    private static int countDifferences(byte[] a, byte[] b, int tolerance) {
+        int diff = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (Math.abs((a[i] & 0xFF) - (b[i] & 0xFF)) > tolerance) {
+                diff++;
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Test of getGrayscaleBytes and createGrayscaleImage methods, of class
+     * ImageHelper.
+     */
+    @Test
+    public void testGrayscaleBytes() {
+        System.out.println("getGrayscaleBytes");
+        BufferedImage gray = createTestPage(BufferedImage.TYPE_BYTE_GRAY);
+        byte[] data = ImageHelper.getGrayscaleBytes(gray);
+        assertEquals(gray.getWidth() * gray.getHeight(), data.length);
+        assertEquals(0, data[50 * gray.getWidth() + 60]);
+        assertEquals((byte) 255, data[0]);
+
+        BufferedImage wrapped = ImageHelper.createGrayscaleImage(data, gray.getWidth(), gray.getHeight());
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, wrapped.getType());
+        assertSame(data, ImageHelper.getGrayscaleBytes(wrapped));
+
+        BufferedImage binary = ImageHelper.createBinaryImage(data, gray.getWidth(), gray.getHeight(), 128);
+        assertTrue(ImageHelper.isBinary(binary));
+        assertEquals(0, countDifferences(data, ImageHelper.getGrayscaleBytes(binary), 0));
+    }
+
+    /**
+     * Test of getScaledGrayscaleInstance method, of class ImageHelper.
+     */
+    @Test
+    public void testGetScaledGrayscaleInstance() {
+        System.out.println("getScaledGrayscaleInstance");
+        byte[] data = new byte[]{
+            0, (byte) 200, 100, 100,
+            (byte) 200, 0, 100, 100};
+        BufferedImage bi = ImageHelper.createGrayscaleImage(data, 4, 2);
+
+        // area average of 2x2 blocks
+        BufferedImage result = ImageHelper.getScaledGrayscaleInstance(bi, 2, 1, false);
+        byte[] scaled = ImageHelper.getGrayscaleBytes(result);
+        assertEquals(100, scaled[0] & 0xFF);
+        assertEquals(100, scaled[1] & 0xFF);
+
+        // enlargement keeps uniform areas uniform
+        result = ImageHelper.getScaledGrayscaleInstance(bi, 8, 4, true);
+        scaled = ImageHelper.getGrayscaleBytes(result);
+        assertEquals(100, scaled[7] & 0xFF);
+        assertEquals(0, scaled[0] & 0xFF);
+    }
+
+    /**
+     * Test of rotateImage method, of class ImageHelper.
+     */
+    @Test
+    public void testRotateImage_Modes() {
+        System.out.println("rotateImage with rotation modes");
+        BufferedImage bi = createTestPage(BufferedImage.TYPE_BYTE_GRAY);
+        double angle = 2.5;
+        BufferedImage expected = ImageHelper.rotateImage(bi, angle);
+        byte[] expectedData = ImageHelper.getGrayscaleBytes(expected);
+
+        for (RotationMode mode : RotationMode.values()) {
+            BufferedImage result = ImageHelper.rotateImage(bi, angle, mode, true);
+            assertEquals(BufferedImage.TYPE_BYTE_GRAY, result.getType());
+            assertEquals(expected.getWidth(), result.getWidth());
+            assertEquals(expected.getHeight(), result.getHeight());
+
+            byte[] data = ImageHelper.getGrayscaleBytes(result);
+            // corners are filled with white
+            assertEquals((byte) 255, data[0]);
+            assertEquals((byte) 255, data[data.length - 1]);
+
+            int diff = countDifferences(expectedData, data, 128);
+            System.out.println(String.format("%s: %d of %d pixels differ from bicubic", mode, diff, data.length));
+            assertTrue(diff < data.length / 100);
+        }
+    }
+
+    /**
+     * Test of rotateImage method on a binary image, of class ImageHelper.
+     */
+    @Test
+    public void testRotateImage_Binary() {
+        System.out.println("rotateImage on a binary image");
+        BufferedImage bi = ImageHelper.convertImageToBinary(createTestPage(BufferedImage.TYPE_BYTE_GRAY));
+        BufferedImage sequential = ImageHelper.rotateImage(bi, -1.5, RotationMode.THREE_SHEAR, false);
+        BufferedImage parallel = ImageHelper.rotateImage(bi, -1.5, RotationMode.THREE_SHEAR, true);
+        assertTrue(ImageHelper.isBinary(parallel));
+        assertEquals(0, countDifferences(ImageHelper.getGrayscaleBytes(sequential), ImageHelper.getGrayscaleBytes(parallel), 0));
+    }
+
+    /**
+     * Benchmark of rotation modes against the bicubic path.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testRotateImage_Benchmark() throws Exception {
+        System.out.println("rotateImage benchmark");
+        BufferedImage bi = ImageHelper.convertImageToGrayscale(ImageIO.read(new File("eurotext_deskew.png")));
+        double angle = -2.0;
+
+        for (RotationMode mode : RotationMode.values()) {
+            for (boolean parallel : new boolean[]{false, true}) {
+                if (mode == RotationMode.BICUBIC && parallel) {
+                    continue;
+                }
+                ImageHelper.rotateImage(bi, angle, mode, parallel); // warm up
+                long start = System.nanoTime();
+                for (int i = 0; i < BENCHMARK_RUNS; i++) {
+                    ImageHelper.rotateImage(bi, angle, mode, parallel);
+                }
+                long elapsed = (System.nanoTime() - start) / BENCHMARK_RUNS / 1000;
+                System.out.println(String.format("%s%s: %d us per %dx%d image", mode, parallel ? " (parallel)" : "", elapsed, bi.getWidth(), bi.getHeight()));
+            }
+        }
+    }
+}